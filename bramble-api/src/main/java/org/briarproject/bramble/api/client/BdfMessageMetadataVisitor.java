@@ -0,0 +1,24 @@
+package org.briarproject.bramble.api.client;
+
+import org.briarproject.bramble.api.FormatException;
+import org.briarproject.bramble.api.data.BdfDictionary;
+import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+/**
+ * A callback for visiting the metadata of messages, parsed as BDF
+ * dictionaries, one message at a time.
+ */
+@NotNullByDefault
+public interface BdfMessageMetadataVisitor {
+
+	/**
+	 * Visits the metadata of the given message.
+	 *
+	 * @return True if the next message should be visited, or false if no
+	 * more messages should be visited.
+	 */
+	boolean visit(MessageId m, BdfDictionary meta)
+			throws DbException, FormatException;
+}
@@ -2,8 +2,10 @@ package org.briarproject.bramble.api.client;
 
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.crypto.CryptoComponent;
 import org.briarproject.bramble.api.crypto.PrivateKey;
 import org.briarproject.bramble.api.crypto.PublicKey;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfList;
 import org.briarproject.bramble.api.db.DbException;
@@ -89,6 +91,16 @@ public interface ClientHelper {
 			Transaction txn, GroupId g, BdfDictionary query) throws DbException,
 			FormatException;
 
+	/**
+	 * Passes the metadata for any delivered messages in the given group with
+	 * metadata that matches all entries in the given query to the given
+	 * visitor, one message at a time, in descending order of timestamp. If
+	 * the query is empty, all delivered messages are visited.
+	 */
+	void visitMessageMetadataAsDictionary(Transaction txn, GroupId g,
+			BdfDictionary query, BdfMessageMetadataVisitor v)
+			throws DbException, FormatException;
+
 	void mergeGroupMetadata(GroupId g, BdfDictionary metadata)
 			throws DbException, FormatException;
 
@@ -137,6 +149,15 @@ public interface ClientHelper {
 			PublicKey publicKey)
 			throws FormatException, GeneralSecurityException;
 
+	/**
+	 * Verifies a batch of signatures.
+	 *
+	 * @throws GeneralSecurityException if any of the signatures is invalid.
+	 * @see CryptoComponent#verifySignatures(List)
+	 */
+	void verifySignatures(List<SignatureCheck> checks)
+			throws GeneralSecurityException;
+
 	Author parseAndValidateAuthor(BdfList author) throws FormatException;
 
 	PublicKey parseAndValidateAgreementPublicKey(byte[] publicKeyBytes)
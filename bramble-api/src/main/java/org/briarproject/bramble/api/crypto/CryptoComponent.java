@@ -3,8 +3,10 @@ package org.briarproject.bramble.api.crypto;
 import org.briarproject.bramble.api.UniqueId;
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -129,6 +131,17 @@ public interface CryptoComponent {
 	boolean verifySignature(byte[] signature, String label, byte[] signed,
 			PublicKey publicKey) throws GeneralSecurityException;
 
+	/**
+	 * Verifies a batch of signatures. This is cheaper than verifying each
+	 * signature separately, especially when several signatures in the batch
+	 * were made with the same key.
+	 *
+	 * @return An array containing one element for each signature in the
+	 * batch, which is true if the signature was valid, false otherwise.
+	 */
+	boolean[] verifySignatures(List<SignatureCheck> checks)
+			throws GeneralSecurityException;
+
 	/**
 	 * Returns the hash of the given inputs. The inputs are unambiguously
 	 * combined by prefixing each input with its length.
@@ -139,6 +152,18 @@ public interface CryptoComponent {
 	 */
 	byte[] hash(String label, byte[]... inputs);
 
+	/**
+	 * Returns the hash of the given inputs, which are combined in the same
+	 * way as by {@link #hash(String, byte[]...)}. Each input consists of the
+	 * remaining bytes of a buffer, so part of a larger array can be hashed
+	 * without being copied. The positions of the buffers are not changed.
+	 *
+	 * @param label A namespaced label indicating the purpose of this hash, to
+	 * prevent it from being repurposed or colliding with a hash created for
+	 * another purpose
+	 */
+	byte[] hash(String label, ByteBuffer... inputs);
+
 	/**
 	 * Returns a message authentication code with the given key over the
 	 * given inputs. The inputs are unambiguously combined by prefixing each
@@ -0,0 +1,44 @@
+package org.briarproject.bramble.api.crypto;
+
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A signature to be verified as part of a batch, together with the label,
+ * signed data and public key it should be verified against.
+ *
+ * @see CryptoComponent#verifySignatures(java.util.List)
+ */
+@Immutable
+@NotNullByDefault
+public class SignatureCheck {
+
+	private final byte[] signature, signed;
+	private final String label;
+	private final PublicKey publicKey;
+
+	public SignatureCheck(byte[] signature, String label, byte[] signed,
+			PublicKey publicKey) {
+		this.signature = signature;
+		this.label = label;
+		this.signed = signed;
+		this.publicKey = publicKey;
+	}
+
+	public byte[] getSignature() {
+		return signature;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public byte[] getSigned() {
+		return signed;
+	}
+
+	public PublicKey getPublicKey() {
+		return publicKey;
+	}
+}
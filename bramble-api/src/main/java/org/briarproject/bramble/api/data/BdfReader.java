@@ -4,9 +4,11 @@ import org.briarproject.bramble.api.FormatException;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
- * An interface for reading BDF objects from an input stream.
+ * An interface for reading BDF objects from an input stream or an in-memory
+ * array.
  * <p>
  * The readX() methods throw {@link FormatException} if the data is not in
  * canonical form, but the hasX() and skipX() methods do not check for
@@ -19,12 +21,12 @@ public interface BdfReader {
 	int DEFAULT_MAX_BUFFER_SIZE = 64 * 1024;
 
 	/**
-	 * Returns true if the reader has reached the end of its input stream.
+	 * Returns true if the reader has reached the end of its input.
 	 */
 	boolean eof() throws IOException;
 
 	/**
-	 * Closes the reader's input stream.
+	 * Closes the reader's input stream, if any.
 	 */
 	void close() throws IOException;
 
@@ -137,6 +139,14 @@ public interface BdfReader {
 	 */
 	byte[] readRaw() throws IOException;
 
+	/**
+	 * Reads a BDF raw from the input and returns it as a read-only buffer.
+	 * Readers that read from an in-memory array return a view of the array
+	 * rather than a copy, so the array must not be modified while the buffer
+	 * is in use.
+	 */
+	ByteBuffer readRawView() throws IOException;
+
 	/**
 	 * Skips over a BDF raw.
 	 */
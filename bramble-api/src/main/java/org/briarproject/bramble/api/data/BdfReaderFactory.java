@@ -3,6 +3,7 @@ package org.briarproject.bramble.api.data;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 @NotNullByDefault
 public interface BdfReaderFactory {
@@ -19,4 +20,28 @@ public interface BdfReaderFactory {
 
 	BdfReader createReader(InputStream in, int nestedLimit,
 			int maxBufferSize, boolean canonical);
+
+	/**
+	 * Creates a reader for the given range of an array. The reader reads the
+	 * array directly rather than through a stream, so it doesn't copy the
+	 * input. The array must not be modified while the reader is in use.
+	 */
+	BdfReader createReader(byte[] b, int off, int len);
+
+	/**
+	 * Transitional alternative to {@link #createReader(byte[], int, int)}
+	 * that can create a reader that accepts non-canonical input, for backward
+	 * compatibility.
+	 */
+	@Deprecated
+	BdfReader createReader(byte[] b, int off, int len, boolean canonical);
+
+	/**
+	 * Creates a reader for the remaining contents of the given buffer. The
+	 * buffer's position is not changed. If the buffer is backed by an
+	 * accessible array, the reader reads the array directly; otherwise the
+	 * contents are copied once. The contents must not be modified while the
+	 * reader is in use.
+	 */
+	BdfReader createReader(ByteBuffer b);
 }
@@ -0,0 +1,31 @@
+package org.briarproject.bramble.api.db;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.inject.Qualifier;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation for injecting the executor for database maintenance tasks that
+ * nobody is waiting for, such as deleting expired messages. These tasks are
+ * run after tasks submitted to the {@link InteractiveDatabaseExecutor} and the
+ * {@link DatabaseExecutor}, unless they have been waiting for a long time.
+ * <p>
+ * The contract of this executor is that tasks are run in the order they're
+ * submitted and tasks are not run concurrently with each other, but they may
+ * run concurrently with tasks submitted to the other database executors.
+ * Submitting a task will never block, but the executor's queue is bounded,
+ * and a {@link java.util.concurrent.RejectedExecutionException
+ * RejectedExecutionException} is thrown if the queue is full. Tasks must not
+ * run indefinitely. Tasks submitted during shutdown are discarded.
+ */
+@Qualifier
+@Target({FIELD, METHOD, PARAMETER})
+@Retention(RUNTIME)
+public @interface BackgroundDatabaseExecutor {
+}
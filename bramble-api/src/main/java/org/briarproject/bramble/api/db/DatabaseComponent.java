@@ -290,6 +290,16 @@ public interface DatabaseComponent extends TransactionManager {
 	 */
 	GroupId getGroupId(Transaction txn, MessageId m) throws DbException;
 
+	/**
+	 * Returns the counters for the given group. Unlike metadata, counters are
+	 * stored as numbers, so they can be read and updated without being
+	 * encoded or parsed.
+	 * <p/>
+	 * Read-only.
+	 */
+	Map<String, Long> getGroupCounters(Transaction txn, GroupId g)
+			throws DbException;
+
 	/**
 	 * Returns the metadata for the given group.
 	 * <p/>
@@ -617,6 +627,13 @@ public interface DatabaseComponent extends TransactionManager {
 	void incrementStreamCounter(Transaction txn, TransportId t, KeySetId k)
 			throws DbException;
 
+	/**
+	 * Merges the given counters with the existing counters for the given
+	 * group.
+	 */
+	void mergeGroupCounters(Transaction txn, GroupId g,
+			Map<String, Long> counters) throws DbException;
+
 	/**
 	 * Merges the given metadata with the existing metadata for the given
 	 * group.
@@ -703,6 +720,16 @@ public interface DatabaseComponent extends TransactionManager {
 	void removeTransportKeys(Transaction txn, TransportId t, KeySetId k)
 			throws DbException;
 
+	/**
+	 * Replaces the given value of the given metadata key with a new value
+	 * for all delivered messages in the given group, using a single update
+	 * rather than one update per message.
+	 *
+	 * @return The IDs of the messages that were updated
+	 */
+	Collection<MessageId> replaceMessageMetadata(Transaction txn, GroupId g,
+			String key, byte[] oldValue, byte[] newValue) throws DbException;
+
 	/**
 	 * Records an ack for the given messages as having been sent to the given
 	 * contact.
@@ -815,4 +842,22 @@ public interface DatabaseComponent extends TransactionManager {
 	 */
 	void updateTransportKeys(Transaction txn, Collection<TransportKeySet> keys)
 			throws DbException;
+
+	/**
+	 * Passes the metadata for any delivered messages in the given group with
+	 * metadata that matches all entries in the given query to the given
+	 * visitor, one message at a time, in descending order of timestamp. If
+	 * the query is empty, all delivered messages are visited. Visiting stops
+	 * early if the visitor returns false.
+	 * <p/>
+	 * Unlike {@link #getMessageMetadata(Transaction, GroupId, Metadata)},
+	 * this method doesn't load the metadata of all the messages into memory,
+	 * so it's suitable for large groups. The visitor is called within the
+	 * transaction.
+	 * <p/>
+	 * Read-only.
+	 */
+	<E extends Exception> void visitMessageMetadata(Transaction txn,
+			GroupId g, Metadata query, MessageMetadataVisitor<E> v)
+			throws DbException, E;
 }
@@ -26,4 +26,12 @@ public interface DatabaseConfig {
 	 */
 	@Nullable
 	KeyStrengthener getKeyStrengthener();
+
+	/**
+	 * Returns the number of database connections to open in advance and
+	 * keep open while idle. Read-only transactions can run in parallel on
+	 * separate connections, so a larger pool reduces the cost of starting
+	 * concurrent transactions at the expense of memory.
+	 */
+	int getConnectionPoolSize();
 }
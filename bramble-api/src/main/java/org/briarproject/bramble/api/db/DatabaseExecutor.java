@@ -19,6 +19,11 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
  * block. Tasks must not run indefinitely. Tasks submitted during shutdown are
  * discarded.
  * <p>
+ * Tasks submitted to this executor may run concurrently with tasks submitted
+ * to the {@link InteractiveDatabaseExecutor} and the
+ * {@link BackgroundDatabaseExecutor}, so the ordering guarantee only applies
+ * to tasks submitted to this executor.
+ * <p>
  * It is not mandatory to use this executor for database tasks. The database
  * can be accessed from any thread, but this executor's guarantee that tasks
  * are run in the order they're submitted may be useful in some cases.
@@ -0,0 +1,35 @@
+package org.briarproject.bramble.api.db;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.inject.Qualifier;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation for injecting the executor for short database tasks that a user
+ * is waiting for, such as loading the messages to display in a conversation.
+ * These tasks are given priority over tasks submitted to the
+ * {@link DatabaseExecutor} and the {@link BackgroundDatabaseExecutor}, so
+ * they don't have to wait behind a large backlog of sync tasks.
+ * <p>
+ * The contract of this executor is that tasks are run in the order they're
+ * submitted and tasks are not run concurrently with each other, but they may
+ * run concurrently with tasks submitted to the other database executors.
+ * Submitting a task will never block, but the executor's queue is bounded,
+ * and a {@link java.util.concurrent.RejectedExecutionException
+ * RejectedExecutionException} is thrown if the queue is full. Tasks must not
+ * run indefinitely. Tasks submitted during shutdown are discarded.
+ * <p>
+ * Tasks submitted to this executor should mostly use read-only transactions,
+ * which can run concurrently with other read-only transactions.
+ */
+@Qualifier
+@Target({FIELD, METHOD, PARAMETER})
+@Retention(RUNTIME)
+public @interface InteractiveDatabaseExecutor {
+}
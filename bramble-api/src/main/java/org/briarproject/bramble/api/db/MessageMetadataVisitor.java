@@ -0,0 +1,21 @@
+package org.briarproject.bramble.api.db;
+
+import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+/**
+ * A callback for visiting the metadata of messages one message at a time,
+ * without loading the metadata of all the messages into memory.
+ */
+@NotNullByDefault
+public interface MessageMetadataVisitor<E extends Exception> {
+
+	/**
+	 * Visits the metadata of the given message. The metadata may be empty
+	 * if the message has no metadata.
+	 *
+	 * @return True if the next message should be visited, or false if no
+	 * more messages should be visited.
+	 */
+	boolean visit(MessageId m, Metadata meta) throws DbException, E;
+}
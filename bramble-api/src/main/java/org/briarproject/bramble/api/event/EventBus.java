@@ -2,22 +2,59 @@ package org.briarproject.bramble.api.event;
 
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.util.concurrent.Executor;
+
 @NotNullByDefault
 public interface EventBus {
 
 	/**
 	 * Adds a listener to be notified when events occur.
+	 *
+	 * @throws IllegalArgumentException if the listener was already added
+	 * with its own executor
 	 */
 	void addListener(EventListener l);
 
 	/**
-	 * Removes a listener.
+	 * Adds a listener to be notified when events of the given class, or any
+	 * of its subclasses, occur. The listener is not notified of other events.
+	 * Listeners are notified on the {@link EventExecutor}.
+	 * <p>
+	 * A listener can subscribe to several classes of event by calling this
+	 * method more than once. It's notified at most once per event.
+	 *
+	 * @throws IllegalArgumentException if the listener was already added
+	 * with its own executor
+	 */
+	void addListener(Class<? extends Event> c, EventListener l);
+
+	/**
+	 * Adds a listener to be notified when events of the given class, or any
+	 * of its subclasses, occur. The listener is notified on the given
+	 * executor instead of the {@link EventExecutor}, so a slow listener
+	 * doesn't delay the delivery of events to other listeners.
+	 * <p>
+	 * Events are delivered to the listener in the order they're broadcast,
+	 * and the listener is not notified concurrently, even if it subscribes to
+	 * several classes of event. It's notified at most once per event.
+	 *
+	 * @throws IllegalArgumentException if the listener was already added
+	 * with a different executor, or without an executor
+	 */
+	void addListener(Class<? extends Event> c, EventListener l,
+			Executor executor);
+
+	/**
+	 * Removes a listener, including any subscriptions to specific classes of
+	 * events. Events that have been queued for the listener but not yet
+	 * delivered are discarded.
 	 */
 	void removeListener(EventListener l);
 
 	/**
 	 * Asynchronously notifies all listeners of an event. Listeners are
-	 * notified on the {@link EventExecutor}.
+	 * notified on the {@link EventExecutor} unless they were added with
+	 * their own executor.
 	 * <p>
 	 * This method can safely be called while holding a lock.
 	 */
@@ -2,9 +2,14 @@ package org.briarproject.bramble.api.sync;
 
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 import static org.briarproject.bramble.api.sync.SyncConstants.MAX_MESSAGE_BODY_LENGTH;
+import static org.briarproject.bramble.api.sync.SyncConstants.MAX_MESSAGE_LENGTH;
 import static org.briarproject.bramble.api.sync.SyncConstants.MESSAGE_HEADER_LENGTH;
 
 @Immutable
@@ -19,7 +24,9 @@ public class Message {
 	private final MessageId id;
 	private final GroupId groupId;
 	private final long timestamp;
-	private final byte[] body;
+	// Exactly one of these is null
+	@Nullable
+	private final byte[] body, raw;
 
 	public Message(MessageId id, GroupId groupId, long timestamp, byte[] body) {
 		if (body.length == 0) throw new IllegalArgumentException();
@@ -29,6 +36,33 @@ public class Message {
 		this.groupId = groupId;
 		this.timestamp = timestamp;
 		this.body = body;
+		raw = null;
+	}
+
+	private Message(MessageId id, GroupId groupId, long timestamp, byte[] raw,
+			@SuppressWarnings("unused") boolean isRaw) {
+		if (raw.length <= MESSAGE_HEADER_LENGTH)
+			throw new IllegalArgumentException();
+		if (raw.length > MAX_MESSAGE_LENGTH)
+			throw new IllegalArgumentException();
+		this.id = id;
+		this.groupId = groupId;
+		this.timestamp = timestamp;
+		this.raw = raw;
+		body = null;
+	}
+
+	/**
+	 * Creates a message that wraps the given raw message, including the
+	 * header, without copying it. This allows the raw message to be stored,
+	 * written to a stream or parsed without being copied, so it's used when
+	 * loading messages from the database for sending and when reading
+	 * messages from a stream. The caller must not modify the raw message
+	 * after calling this method.
+	 */
+	public static Message wrapRawMessage(MessageId id, GroupId groupId,
+			long timestamp, byte[] raw) {
+		return new Message(id, groupId, timestamp, raw, true);
 	}
 
 	/**
@@ -56,14 +90,54 @@ public class Message {
 	 * Returns the length of the raw message in bytes.
 	 */
 	public int getRawLength() {
+		if (raw != null) return raw.length;
+		if (body == null) throw new AssertionError();
 		return MESSAGE_HEADER_LENGTH + body.length;
 	}
 
 	/**
-	 * Returns the message body.
+	 * Returns the length of the message body in bytes.
+	 */
+	public int getBodyLength() {
+		if (body != null) return body.length;
+		if (raw == null) throw new AssertionError();
+		return raw.length - MESSAGE_HEADER_LENGTH;
+	}
+
+	/**
+	 * Returns a stream for reading the message body. Unlike
+	 * {@link #getBody()}, the body is never copied.
+	 */
+	public InputStream getBodyInputStream() {
+		if (body != null) return new ByteArrayInputStream(body);
+		if (raw == null) throw new AssertionError();
+		return new ByteArrayInputStream(raw, MESSAGE_HEADER_LENGTH,
+				raw.length - MESSAGE_HEADER_LENGTH);
+	}
+
+	/**
+	 * Returns the message body. If the message wraps a raw message, the body
+	 * is copied each time this method is called, so callers that only need
+	 * to read the body should use {@link #getBodyInputStream()} instead.
 	 */
 	public byte[] getBody() {
-		return body;
+		if (body != null) return body;
+		if (raw == null) throw new AssertionError();
+		byte[] copy = new byte[raw.length - MESSAGE_HEADER_LENGTH];
+		System.arraycopy(raw, MESSAGE_HEADER_LENGTH, copy, 0, copy.length);
+		return copy;
+	}
+
+	/**
+	 * Returns the raw message, including the header, if the message was
+	 * created by {@link #wrapRawMessage(MessageId, GroupId, long, byte[])},
+	 * or null otherwise. The body starts at offset
+	 * {@link SyncConstants#MESSAGE_HEADER_LENGTH}. The caller must not modify
+	 * the returned array.
+	 */
+	@Nullable
+	public byte[] getRawMessage() {
+		return raw;
 	}
 
 	@Override
@@ -7,6 +7,11 @@ public interface MessageFactory {
 
 	Message createMessage(GroupId g, long timestamp, byte[] body);
 
+	/**
+	 * Creates a message from the given raw message, including the header.
+	 * The returned message wraps the raw message without copying it, so the
+	 * caller must not modify the raw message after calling this method.
+	 */
 	Message createMessage(byte[] raw);
 
 	byte[] getRawMessage(Message m);
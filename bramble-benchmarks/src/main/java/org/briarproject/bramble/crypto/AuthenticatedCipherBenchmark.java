@@ -0,0 +1,70 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.api.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_NONCE_LENGTH;
+import static org.briarproject.bramble.api.transport.TransportConstants.MAC_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+
+/**
+ * Measures the cost of encrypting and decrypting a single frame with
+ * {@link XSalsa20Poly1305AuthenticatedCipher}, including the cost of
+ * initialising the cipher for the frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AuthenticatedCipherBenchmark {
+
+	@Param({"4", "64", "256", "988"})
+	public int length;
+
+	private final AuthenticatedCipher cipher =
+			new XSalsa20Poly1305AuthenticatedCipher();
+
+	private SecretKey key;
+	private byte[] nonce, plaintext, ciphertext, output;
+
+	@Setup
+	public void setUp() throws GeneralSecurityException {
+		key = getSecretKey();
+		nonce = getRandomBytes(FRAME_NONCE_LENGTH);
+		plaintext = getRandomBytes(length);
+		ciphertext = new byte[length + MAC_LENGTH];
+		output = new byte[length + MAC_LENGTH];
+		cipher.init(true, key, nonce);
+		cipher.process(plaintext, 0, length, ciphertext, 0);
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws GeneralSecurityException {
+		cipher.init(true, key, nonce);
+		cipher.process(plaintext, 0, length, output, 0);
+		return output;
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws GeneralSecurityException {
+		cipher.init(false, key, nonce);
+		cipher.process(ciphertext, 0, length + MAC_LENGTH, output, 0);
+		return output;
+	}
+}
@@ -0,0 +1,19 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.system.SystemClock;
+import org.briarproject.bramble.test.TestSecureRandomProvider;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+/**
+ * Helpers for benchmarks in other packages that need package-private crypto
+ * classes.
+ */
+@NotNullByDefault
+public class CryptoBenchmarks {
+
+	public static CryptoComponent createCryptoComponent() {
+		return new CryptoComponentImpl(new TestSecureRandomProvider(),
+				new ScryptKdf(new SystemClock()));
+	}
+}
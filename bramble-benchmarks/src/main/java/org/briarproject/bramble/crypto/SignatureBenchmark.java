@@ -0,0 +1,61 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.api.crypto.KeyPair;
+import org.briarproject.bramble.api.crypto.PublicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.crypto.CryptoBenchmarks.createCryptoComponent;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+
+/**
+ * Measures the cost of verifying signatures with
+ * {@link CryptoComponentImpl#verifySignature(byte[], String, byte[],
+ * PublicKey)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SignatureBenchmark {
+
+	private static final String LABEL = "org.briarproject.bramble.benchmark";
+
+	@Param({"100", "1000", "32000"})
+	public int signedLength;
+
+	private final CryptoComponent crypto = createCryptoComponent();
+
+	private PublicKey publicKey;
+	private byte[] signed, signature;
+
+	@Setup
+	public void setUp() throws GeneralSecurityException {
+		KeyPair keyPair = crypto.generateSignatureKeyPair();
+		publicKey = keyPair.getPublic();
+		signed = getRandomBytes(signedLength);
+		signature = crypto.sign(LABEL, signed, keyPair.getPrivate());
+	}
+
+	@Benchmark
+	public boolean verifySignature() throws GeneralSecurityException {
+		if (!crypto.verifySignature(signature, LABEL, signed, publicKey))
+			throw new AssertionError();
+		return true;
+	}
+}
@@ -0,0 +1,86 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.api.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.api.transport.TransportConstants.MAX_PAYLOAD_LENGTH;
+import static org.briarproject.bramble.api.transport.TransportConstants.STREAM_HEADER_NONCE_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+
+/**
+ * Measures the cost of encrypting and decrypting a short stream with
+ * {@link StreamEncrypterImpl} and {@link StreamDecrypterImpl}, including the
+ * cost of setting up the stream. Run with {@code -prof gc} to see the
+ * allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamCryptoBenchmark {
+
+	private static final int FRAMES_PER_STREAM = 16;
+
+	@Param({"64", "256", "988"})
+	public int payloadLength;
+
+	private final FrameBufferPool bufferPool = new FrameBufferPool();
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	private SecretKey streamHeaderKey, frameKey;
+	private byte[] streamHeaderNonce, payload, buffer, stream;
+
+	@Setup
+	public void setUp() throws IOException {
+		streamHeaderKey = getSecretKey();
+		frameKey = getSecretKey();
+		streamHeaderNonce = getRandomBytes(STREAM_HEADER_NONCE_LENGTH);
+		payload = getRandomBytes(payloadLength);
+		buffer = new byte[MAX_PAYLOAD_LENGTH];
+		stream = encrypt();
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws IOException {
+		out.reset();
+		StreamEncrypterImpl e = new StreamEncrypterImpl(out,
+				new XSalsa20Poly1305AuthenticatedCipher(), bufferPool, 0,
+				null, streamHeaderNonce, streamHeaderKey, frameKey);
+		for (int i = 0; i < FRAMES_PER_STREAM; i++)
+			e.writeFrame(payload, payloadLength, 0, i == FRAMES_PER_STREAM - 1);
+		e.flush();
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public int decrypt() throws IOException {
+		StreamDecrypterImpl d = new StreamDecrypterImpl(
+				new ByteArrayInputStream(stream),
+				new XSalsa20Poly1305AuthenticatedCipher(), bufferPool, 0,
+				streamHeaderKey);
+		int total = 0;
+		for (int read = d.readFrame(buffer); read != -1;
+				read = d.readFrame(buffer)) {
+			total += read;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,90 @@
+package org.briarproject.bramble.data;
+
+import org.briarproject.bramble.api.data.BdfDictionary;
+import org.briarproject.bramble.api.data.BdfEntry;
+import org.briarproject.bramble.api.data.BdfList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.api.data.BdfReader.DEFAULT_MAX_BUFFER_SIZE;
+import static org.briarproject.bramble.api.data.BdfReader.DEFAULT_NESTED_LIMIT;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.briarproject.bramble.util.StringUtils.getRandomString;
+
+/**
+ * Measures the cost of encoding and decoding a list that's shaped like a
+ * typical message body with {@link BdfWriterImpl}, {@link BdfReaderImpl} and
+ * {@link ArrayBdfReaderImpl}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BdfBenchmark {
+
+	/**
+	 * The number of message IDs in the list, which controls the size of the
+	 * encoded list.
+	 */
+	@Param({"0", "10", "100"})
+	public int ids;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	private BdfList list;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		BdfList idList = new BdfList();
+		for (int i = 0; i < ids; i++) idList.add(getRandomId());
+		BdfDictionary author = BdfDictionary.of(
+				new BdfEntry("name", getRandomString(50)),
+				new BdfEntry("formatVersion", 1),
+				new BdfEntry("publicKey", getRandomBytes(32))
+		);
+		list = BdfList.of(getRandomString(500), System.currentTimeMillis(),
+				true, getRandomId(), author, idList, getRandomBytes(64));
+		encoded = write();
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		out.reset();
+		BdfWriterImpl w = new BdfWriterImpl(out);
+		w.writeList(list);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public BdfList read() throws IOException {
+		BdfReaderImpl r = new BdfReaderImpl(new ByteArrayInputStream(encoded),
+				DEFAULT_NESTED_LIMIT, DEFAULT_MAX_BUFFER_SIZE, true);
+		return r.readList();
+	}
+
+	@Benchmark
+	public BdfList readArray() throws IOException {
+		ArrayBdfReaderImpl r = new ArrayBdfReaderImpl(encoded, 0,
+				encoded.length, DEFAULT_NESTED_LIMIT, DEFAULT_MAX_BUFFER_SIZE,
+				true);
+		return r.readList();
+	}
+}
@@ -0,0 +1,71 @@
+package org.briarproject.bramble.data;
+
+import org.briarproject.bramble.api.FormatException;
+import org.briarproject.bramble.api.data.BdfDictionary;
+import org.briarproject.bramble.api.data.BdfEntry;
+import org.briarproject.bramble.api.db.Metadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.briarproject.bramble.util.StringUtils.getRandomString;
+
+/**
+ * Measures the cost of encoding and parsing metadata that's shaped like the
+ * metadata of a typical private message with {@link MetadataEncoderImpl} and
+ * {@link MetadataParserImpl}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetadataBenchmark {
+
+	private final MetadataEncoderImpl encoder =
+			new MetadataEncoderImpl(new BdfWriterFactoryImpl());
+	private final MetadataParserImpl parser =
+			new MetadataParserImpl(new BdfReaderFactoryImpl());
+
+	private BdfDictionary dictionary;
+	private Metadata metadata;
+
+	@Setup
+	public void setUp() throws FormatException {
+		BdfDictionary author = BdfDictionary.of(
+				new BdfEntry("id", getRandomId()),
+				new BdfEntry("name", getRandomString(50)),
+				new BdfEntry("publicKey", getRandomBytes(32))
+		);
+		dictionary = BdfDictionary.of(
+				new BdfEntry("timestamp", System.currentTimeMillis()),
+				new BdfEntry("local", false),
+				new BdfEntry("read", true),
+				new BdfEntry("hasText", true),
+				new BdfEntry("parentId", getRandomId()),
+				new BdfEntry("author", author)
+		);
+		metadata = encoder.encode(dictionary);
+	}
+
+	@Benchmark
+	public Metadata encode() throws FormatException {
+		return encoder.encode(dictionary);
+	}
+
+	@Benchmark
+	public BdfDictionary parse() throws FormatException {
+		return parser.parse(metadata);
+	}
+}
@@ -0,0 +1,72 @@
+package org.briarproject.bramble.record;
+
+import org.briarproject.bramble.api.record.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.api.sync.RecordTypes.MESSAGE;
+import static org.briarproject.bramble.api.sync.SyncConstants.PROTOCOL_VERSION;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+
+/**
+ * Measures the cost of writing and reading a batch of records with
+ * {@link RecordWriterImpl} and {@link RecordReaderImpl}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RecordBenchmark {
+
+	private static final int RECORDS = 100;
+
+	@Param({"64", "1024", "32768"})
+	public int payloadLength;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	private Record record;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		record = new Record(PROTOCOL_VERSION, MESSAGE,
+				getRandomBytes(payloadLength));
+		encoded = write();
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		out.reset();
+		RecordWriterImpl w = new RecordWriterImpl(out);
+		for (int i = 0; i < RECORDS; i++) w.writeRecord(record);
+		w.flush();
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public int read() throws IOException {
+		RecordReaderImpl r =
+				new RecordReaderImpl(new ByteArrayInputStream(encoded));
+		int total = 0;
+		for (int i = 0; i < RECORDS; i++)
+			total += r.readRecord().getPayload().length;
+		return total;
+	}
+}
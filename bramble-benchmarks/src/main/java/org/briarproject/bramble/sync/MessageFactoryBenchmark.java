@@ -0,0 +1,64 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.briarproject.bramble.crypto.CryptoBenchmarks.createCryptoComponent;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+
+/**
+ * Measures the cost of calculating message IDs with
+ * {@link MessageFactoryImpl}, both when creating a message and when parsing
+ * a raw message that's been received.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MessageFactoryBenchmark {
+
+	@Param({"100", "1000", "32000"})
+	public int bodyLength;
+
+	private MessageFactoryImpl messageFactory;
+	private GroupId groupId;
+	private long timestamp;
+	private byte[] body, raw;
+
+	@Setup
+	public void setUp() {
+		CryptoComponent crypto = createCryptoComponent();
+		messageFactory = new MessageFactoryImpl(crypto);
+		groupId = new GroupId(getRandomId());
+		timestamp = System.currentTimeMillis();
+		body = getRandomBytes(bodyLength);
+		raw = messageFactory.getRawMessage(
+				messageFactory.createMessage(groupId, timestamp, body));
+	}
+
+	@Benchmark
+	public Message createMessage() {
+		return messageFactory.createMessage(groupId, timestamp, body);
+	}
+
+	@Benchmark
+	public Message createMessageFromRaw() {
+		return messageFactory.createMessage(raw);
+	}
+}
@@ -0,0 +1,124 @@
+package org.briarproject.bramble;
+
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A snapshot of the usage statistics of a {@link TimeLoggingExecutor}.
+ */
+@Immutable
+@NotNullByDefault
+public class ExecutorStats {
+
+	private final long timestampNanos;
+	private final int poolSize, activeThreads, queueDepth;
+	private final long completedTasks;
+	private final long totalQueueNanos, maxQueueNanos;
+	private final long totalExecutionNanos, maxExecutionNanos;
+
+	ExecutorStats(long timestampNanos, int poolSize, int activeThreads,
+			int queueDepth, long completedTasks, long totalQueueNanos,
+			long maxQueueNanos, long totalExecutionNanos,
+			long maxExecutionNanos) {
+		this.timestampNanos = timestampNanos;
+		this.poolSize = poolSize;
+		this.activeThreads = activeThreads;
+		this.queueDepth = queueDepth;
+		this.completedTasks = completedTasks;
+		this.totalQueueNanos = totalQueueNanos;
+		this.maxQueueNanos = maxQueueNanos;
+		this.totalExecutionNanos = totalExecutionNanos;
+		this.maxExecutionNanos = maxExecutionNanos;
+	}
+
+	/**
+	 * Returns the value of {@link System#nanoTime()} when the snapshot was
+	 * taken.
+	 */
+	public long getTimestampNanos() {
+		return timestampNanos;
+	}
+
+	/**
+	 * Returns the number of threads in the pool.
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Returns the approximate number of threads that are running tasks.
+	 */
+	public int getActiveThreads() {
+		return activeThreads;
+	}
+
+	/**
+	 * Returns the number of tasks that are waiting to run.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Returns the number of tasks that have finished running.
+	 */
+	public long getCompletedTasks() {
+		return completedTasks;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds that tasks spent in the queue
+	 * before running.
+	 */
+	public long getTotalQueueNanos() {
+		return totalQueueNanos;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds that a task spent in the queue
+	 * before running.
+	 */
+	public long getMaxQueueNanos() {
+		return maxQueueNanos;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent running tasks that have
+	 * finished.
+	 */
+	public long getTotalExecutionNanos() {
+		return totalExecutionNanos;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds spent running a task.
+	 */
+	public long getMaxExecutionNanos() {
+		return maxExecutionNanos;
+	}
+
+	/**
+	 * Returns the number of tasks per second that finished between the given
+	 * earlier snapshot and this snapshot.
+	 */
+	public double getThroughput(ExecutorStats earlier) {
+		long nanos = timestampNanos - earlier.timestampNanos;
+		if (nanos <= 0) return 0;
+		return (completedTasks - earlier.completedTasks) * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		long meanQueue = completedTasks == 0 ? 0 :
+				totalQueueNanos / completedTasks;
+		long meanExecution = completedTasks == 0 ? 0 :
+				totalExecutionNanos / completedTasks;
+		return poolSize + " threads, " + activeThreads + " active, "
+				+ queueDepth + " queued, " + completedTasks + " completed, "
+				+ "mean queue " + meanQueue + " ns, max queue "
+				+ maxQueueNanos + " ns, mean execution " + meanExecution
+				+ " ns, max execution " + maxExecutionNanos + " ns";
+	}
+}
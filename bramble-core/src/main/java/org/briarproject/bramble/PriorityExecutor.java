@@ -0,0 +1,217 @@
+package org.briarproject.bramble;
+
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Delegates tasks from several priority classes to another {@link Executor}
+ * while limiting the number of tasks that are delegated concurrently.
+ * <p>
+ * Each priority class has its own {@link Executor}. Tasks in the same class
+ * are delegated in the order they are submitted and do not run concurrently
+ * with each other, but tasks in different classes may run concurrently.
+ * <p>
+ * When a task finishes, the next task to be delegated is taken from the
+ * highest priority class that has a queued task and isn't already running a
+ * task. To prevent starvation, a task's priority is raised by one class for
+ * each aging period it spends in the queue.
+ * <p>
+ * Each class may have a bounded queue. Submitting a task to a class with a
+ * full queue causes a {@link RejectedExecutionException} to be thrown.
+ */
+@ThreadSafe
+@NotNullByDefault
+public class PriorityExecutor {
+
+	private final Object lock = new Object();
+	private final Executor delegate;
+	private final int maxConcurrentTasks;
+	private final long agingNanos;
+	private final PriorityClass[] classes;
+	private final Logger log;
+
+	@GuardedBy("lock")
+	private int concurrentTasks = 0;
+
+	/**
+	 * @param tag the tag to be used for logging
+	 * @param delegate the executor to which tasks will be delegated
+	 * @param maxConcurrentTasks the maximum number of tasks that will be
+	 * delegated concurrently
+	 * @param agingTime the time a task must spend in the queue to have its
+	 * priority raised by one class
+	 * @param capacities the maximum number of queued tasks for each priority
+	 * class, from highest to lowest priority
+	 */
+	public PriorityExecutor(String tag, Executor delegate,
+			int maxConcurrentTasks, long agingTime, TimeUnit unit,
+			int... capacities) {
+		if (maxConcurrentTasks < 1) throw new IllegalArgumentException();
+		if (capacities.length == 0) throw new IllegalArgumentException();
+		this.delegate = delegate;
+		this.maxConcurrentTasks = maxConcurrentTasks;
+		agingNanos = unit.toNanos(agingTime);
+		if (agingNanos < 1) throw new IllegalArgumentException();
+		classes = new PriorityClass[capacities.length];
+		for (int i = 0; i < capacities.length; i++) {
+			if (capacities[i] < 1) throw new IllegalArgumentException();
+			classes[i] = new PriorityClass(i, capacities[i]);
+		}
+		log = Logger.getLogger(tag);
+	}
+
+	/**
+	 * Returns the executor for the given priority class, where zero is the
+	 * highest priority.
+	 */
+	public Executor getExecutor(int priority) {
+		return classes[priority];
+	}
+
+	/**
+	 * Returns a snapshot of the usage statistics of the given priority
+	 * class. The pool size of the snapshot is always one, as tasks in the
+	 * same class don't run concurrently.
+	 */
+	public ExecutorStats getStats(int priority) {
+		PriorityClass c = classes[priority];
+		synchronized (lock) {
+			return new ExecutorStats(System.nanoTime(), 1, c.running ? 1 : 0,
+					c.queue.size(), c.completedTasks, c.totalQueueNanos,
+					c.maxQueueNanos, c.totalExecutionNanos,
+					c.maxExecutionNanos);
+		}
+	}
+
+	/**
+	 * Returns snapshots of the usage statistics of all the priority classes,
+	 * from highest to lowest priority.
+	 */
+	public List<ExecutorStats> getStats() {
+		List<ExecutorStats> stats = new ArrayList<>(classes.length);
+		for (int i = 0; i < classes.length; i++) stats.add(getStats(i));
+		return stats;
+	}
+
+	private void submit(PriorityClass c, Runnable r) {
+		Task task = new Task(r, System.nanoTime());
+		synchronized (lock) {
+			if (c.queue.size() >= c.capacity) {
+				if (log.isLoggable(WARNING)) {
+					log.warning("Queue for priority " + c.priority
+							+ " is full");
+				}
+				throw new RejectedExecutionException();
+			}
+			c.queue.add(task);
+			scheduleNext();
+		}
+	}
+
+	@GuardedBy("lock")
+	private void scheduleNext() {
+		long now = System.nanoTime();
+		while (concurrentTasks < maxConcurrentTasks) {
+			PriorityClass next = null;
+			long nextPriority = Long.MAX_VALUE;
+			for (PriorityClass c : classes) {
+				Task head = c.queue.peek();
+				if (c.running || head == null) continue;
+				long waited = now - head.submitted;
+				long priority = c.priority - waited / agingNanos;
+				// Break ties in favour of the higher class
+				if (priority < nextPriority) {
+					next = c;
+					nextPriority = priority;
+				}
+			}
+			if (next == null) return;
+			PriorityClass c = next;
+			Task task = c.queue.remove();
+			c.running = true;
+			concurrentTasks++;
+			delegate.execute(() -> run(c, task));
+		}
+	}
+
+	private void run(PriorityClass c, Task task) {
+		long started = System.nanoTime();
+		long queued = started - task.submitted;
+		if (log.isLoggable(FINE)) {
+			log.fine("Queue time for priority " + c.priority + ": "
+					+ NANOSECONDS.toMillis(queued) + " ms");
+		}
+		try {
+			task.task.run();
+		} finally {
+			long executing = System.nanoTime() - started;
+			synchronized (lock) {
+				c.completedTasks++;
+				c.totalQueueNanos += queued;
+				c.maxQueueNanos = Math.max(c.maxQueueNanos, queued);
+				c.totalExecutionNanos += executing;
+				c.maxExecutionNanos = Math.max(c.maxExecutionNanos, executing);
+				c.running = false;
+				concurrentTasks--;
+				scheduleNext();
+			}
+		}
+	}
+
+	@ThreadSafe
+	@NotNullByDefault
+	private class PriorityClass implements Executor {
+
+		private final int priority, capacity;
+		@GuardedBy("lock")
+		private final Queue<Task> queue = new LinkedList<>();
+
+		@GuardedBy("lock")
+		private boolean running = false;
+		@GuardedBy("lock")
+		private long completedTasks = 0;
+		@GuardedBy("lock")
+		private long totalQueueNanos = 0, maxQueueNanos = 0;
+		@GuardedBy("lock")
+		private long totalExecutionNanos = 0, maxExecutionNanos = 0;
+
+		private PriorityClass(int priority, int capacity) {
+			this.priority = priority;
+			this.capacity = capacity;
+		}
+
+		@Override
+		public void execute(Runnable r) {
+			submit(this, r);
+		}
+	}
+
+	@Immutable
+	@NotNullByDefault
+	private static class Task {
+
+		private final Runnable task;
+		private final long submitted;
+
+		private Task(Runnable task, long submitted) {
+			this.task = task;
+			this.submitted = submitted;
+		}
+	}
+}
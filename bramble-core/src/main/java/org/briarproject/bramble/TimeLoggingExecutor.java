@@ -7,15 +7,50 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.logging.Level.FINE;
-import static org.briarproject.bramble.util.LogUtils.now;
+import static java.util.logging.Level.INFO;
 
+/**
+ * A {@link ThreadPoolExecutor} that records how long tasks spend in the
+ * queue and how long they take to run. The statistics are available from
+ * {@link #getStats()}. They are logged at most once per
+ * {@link #STATS_LOGGING_INTERVAL_MS} while the executor is in use, and again
+ * when the executor terminates.
+ * <p>
+ * The totals are kept in {@link LongAdder LongAdders} so that threads
+ * finishing tasks at the same time don't contend. The maximum queue and
+ * execution times are only tracked while the statistics are being logged.
+ */
 @NotNullByDefault
 public class TimeLoggingExecutor extends ThreadPoolExecutor {
 
+	/**
+	 * The minimum interval between logging the statistics while the executor
+	 * is in use. No timer is used: the statistics are logged when a task
+	 * finishes if the interval has elapsed, so an idle executor doesn't
+	 * log anything.
+	 */
+	static final long STATS_LOGGING_INTERVAL_MS = MINUTES.toMillis(1);
+
 	private final Logger log;
+	private final LongAdder completedTasks = new LongAdder();
+	private final LongAdder totalQueueNanos = new LongAdder();
+	private final LongAdder totalExecutionNanos = new LongAdder();
+	private final AtomicLong maxQueueNanos = new AtomicLong();
+	private final AtomicLong maxExecutionNanos = new AtomicLong();
+	private final AtomicLong lastStatsLoggedNanos =
+			new AtomicLong(System.nanoTime());
+
+	@Nullable
+	private volatile ExecutorStats lastLoggedStats = null;
 
 	public TimeLoggingExecutor(String tag, int corePoolSize, int maxPoolSize,
 			long keepAliveTime, TimeUnit unit,
@@ -29,18 +64,71 @@ public class TimeLoggingExecutor extends ThreadPoolExecutor {
 
 	@Override
 	public void execute(Runnable r) {
-		if (log.isLoggable(FINE)) {
-			long submitted = now();
-			super.execute(() -> {
-				long started = now();
-				long queued = started - submitted;
-				log.fine("Queue time " + queued + " ms");
+		long submitted = System.nanoTime();
+		super.execute(() -> {
+			long started = System.nanoTime();
+			long queued = started - submitted;
+			totalQueueNanos.add(queued);
+			try {
 				r.run();
-				long executing = now() - started;
-				log.fine("Execution time " + executing + " ms");
-			});
+			} finally {
+				long executing = System.nanoTime() - started;
+				totalExecutionNanos.add(executing);
+				completedTasks.increment();
+				if (log.isLoggable(INFO)) {
+					updateMax(maxQueueNanos, queued);
+					updateMax(maxExecutionNanos, executing);
+					if (log.isLoggable(FINE)) {
+						log.fine("Queue time " + NANOSECONDS.toMillis(queued)
+								+ " ms, execution time "
+								+ NANOSECONDS.toMillis(executing) + " ms");
+					}
+					maybeLogStats();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns a snapshot of the executor's usage statistics. The maximum
+	 * queue and execution times only include tasks that finished while the
+	 * statistics were being logged.
+	 */
+	public ExecutorStats getStats() {
+		return new ExecutorStats(System.nanoTime(), getPoolSize(),
+				getActiveCount(), getQueue().size(), completedTasks.sum(),
+				totalQueueNanos.sum(), maxQueueNanos.get(),
+				totalExecutionNanos.sum(), maxExecutionNanos.get());
+	}
+
+	@Override
+	protected void terminated() {
+		super.terminated();
+		if (log.isLoggable(INFO)) log.info("Terminated: " + getStats());
+	}
+
+	private void maybeLogStats() {
+		long now = System.nanoTime();
+		long last = lastStatsLoggedNanos.get();
+		if (NANOSECONDS.toMillis(now - last) < STATS_LOGGING_INTERVAL_MS)
+			return;
+		// If several tasks finish at once, only one of them logs the stats
+		if (!lastStatsLoggedNanos.compareAndSet(last, now)) return;
+		ExecutorStats stats = getStats();
+		ExecutorStats earlier = lastLoggedStats;
+		lastLoggedStats = stats;
+		if (earlier == null) {
+			log.info("Stats: " + stats);
 		} else {
-			super.execute(r);
+			log.info("Stats: " + stats + ", throughput "
+					+ String.format("%.1f", stats.getThroughput(earlier))
+					+ " tasks/s");
 		}
 	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+			current = max.get();
+	}
 }
@@ -3,8 +3,8 @@ package org.briarproject.bramble.cleanup;
 import org.briarproject.bramble.api.cleanup.CleanupHook;
 import org.briarproject.bramble.api.cleanup.CleanupManager;
 import org.briarproject.bramble.api.cleanup.event.CleanupTimerStartedEvent;
+import org.briarproject.bramble.api.db.BackgroundDatabaseExecutor;
 import org.briarproject.bramble.api.db.DatabaseComponent;
-import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.event.Event;
@@ -26,6 +26,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -59,7 +60,7 @@ class CleanupManagerImpl implements CleanupManager, Service, EventListener {
 	private final Set<CleanupTask> pending = new HashSet<>();
 
 	@Inject
-	CleanupManagerImpl(@DatabaseExecutor Executor dbExecutor,
+	CleanupManagerImpl(@BackgroundDatabaseExecutor Executor dbExecutor,
 			DatabaseComponent db, TaskScheduler taskScheduler, Clock clock) {
 		this.dbExecutor = dbExecutor;
 		this.db = db;
@@ -107,8 +108,24 @@ class CleanupManagerImpl implements CleanupManager, Service, EventListener {
 		if (LOG.isLoggable(INFO)) {
 			LOG.info("Scheduling cleanup task in " + delay + " ms");
 		}
+		scheduleTask(task, delay);
+	}
+
+	private void scheduleTask(CleanupTask task, long delay) {
 		taskScheduler.schedule(() -> deleteMessagesAndScheduleNextTask(task),
-				dbExecutor, delay, MILLISECONDS);
+				r -> submitOrReschedule(task, r), delay, MILLISECONDS);
+	}
+
+	private void submitOrReschedule(CleanupTask task, Runnable r) {
+		try {
+			dbExecutor.execute(r);
+		} catch (RejectedExecutionException e) {
+			// The background queue is bounded. The task is still pending, so
+			// no other task will be scheduled for an earlier deadline - try
+			// again later rather than dropping it
+			LOG.warning("Database queue is full, rescheduling cleanup task");
+			scheduleTask(task, BATCH_DELAY_MS);
+		}
 	}
 
 	private void deleteMessagesAndScheduleNextTask(CleanupTask task) {
@@ -1,6 +1,7 @@
 package org.briarproject.bramble.cleanup;
 
 import org.briarproject.bramble.api.cleanup.CleanupManager;
+import org.briarproject.bramble.api.cleanup.event.CleanupTimerStartedEvent;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 
@@ -23,7 +24,7 @@ public class CleanupModule {
 	CleanupManager provideCleanupManager(LifecycleManager lifecycleManager,
 			EventBus eventBus, CleanupManagerImpl cleanupManager) {
 		lifecycleManager.registerService(cleanupManager);
-		eventBus.addListener(cleanupManager);
+		eventBus.addListener(CleanupTimerStartedEvent.class, cleanupManager);
 		return cleanupManager;
 	}
 }
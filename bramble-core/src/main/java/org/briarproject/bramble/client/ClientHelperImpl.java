@@ -2,12 +2,14 @@ package org.briarproject.bramble.client;
 
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.UniqueId;
+import org.briarproject.bramble.api.client.BdfMessageMetadataVisitor;
 import org.briarproject.bramble.api.client.ClientHelper;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.crypto.CryptoComponent;
 import org.briarproject.bramble.api.crypto.KeyParser;
 import org.briarproject.bramble.api.crypto.PrivateKey;
 import org.briarproject.bramble.api.crypto.PublicKey;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfEntry;
 import org.briarproject.bramble.api.data.BdfList;
@@ -38,7 +40,6 @@ import org.briarproject.bramble.api.sync.MessageId;
 import org.briarproject.bramble.util.Base32;
 import org.briarproject.nullsafety.NotNullByDefault;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -65,6 +66,7 @@ import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_KEY
 import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_ONION_LENGTH;
 import static org.briarproject.bramble.api.properties.TransportPropertyConstants.MAX_PROPERTIES_PER_TRANSPORT;
 import static org.briarproject.bramble.api.properties.TransportPropertyConstants.MAX_PROPERTY_LENGTH;
+import static org.briarproject.bramble.api.sync.SyncConstants.MESSAGE_HEADER_LENGTH;
 import static org.briarproject.bramble.util.ValidationUtils.checkLength;
 import static org.briarproject.bramble.util.ValidationUtils.checkSize;
 
@@ -235,6 +237,15 @@ class ClientHelperImpl implements ClientHelper {
 		return parsed;
 	}
 
+	@Override
+	public void visitMessageMetadataAsDictionary(Transaction txn, GroupId g,
+			BdfDictionary query, BdfMessageMetadataVisitor v)
+			throws DbException, FormatException {
+		Metadata metadata = metadataEncoder.encode(query);
+		db.visitMessageMetadata(txn, g, metadata, (m, meta) ->
+				v.visit(m, metadataParser.parse(meta)));
+	}
+
 	@Override
 	public void mergeGroupMetadata(GroupId g, BdfDictionary metadata)
 			throws DbException, FormatException {
@@ -290,8 +301,7 @@ class ClientHelperImpl implements ClientHelper {
 	@Override
 	public BdfDictionary toDictionary(byte[] b, int off, int len)
 			throws FormatException {
-		ByteArrayInputStream in = new ByteArrayInputStream(b, off, len);
-		BdfReader reader = bdfReaderFactory.createReader(in);
+		BdfReader reader = bdfReaderFactory.createReader(b, off, len);
 		try {
 			BdfDictionary dictionary = reader.readDictionary();
 			if (!reader.eof()) throw new FormatException();
@@ -324,8 +334,8 @@ class ClientHelperImpl implements ClientHelper {
 
 	private BdfList toList(byte[] b, int off, int len, boolean canonical)
 			throws FormatException {
-		ByteArrayInputStream in = new ByteArrayInputStream(b, off, len);
-		BdfReader reader = bdfReaderFactory.createReader(in, canonical);
+		BdfReader reader =
+				bdfReaderFactory.createReader(b, off, len, canonical);
 		try {
 			BdfList list = reader.readList();
 			if (!reader.eof()) throw new FormatException();
@@ -344,11 +354,17 @@ class ClientHelperImpl implements ClientHelper {
 
 	@Override
 	public BdfList toList(Message m) throws FormatException {
-		return toList(m.getBody());
+		return toList(m, true);
 	}
 
 	@Override
 	public BdfList toList(Message m, boolean canonical) throws FormatException {
+		// Parse the body in place if the message wraps a raw message
+		byte[] raw = m.getRawMessage();
+		if (raw != null) {
+			return toList(raw, MESSAGE_HEADER_LENGTH,
+					raw.length - MESSAGE_HEADER_LENGTH, canonical);
+		}
 		byte[] b = m.getBody();
 		return toList(b, 0, b.length, canonical);
 	}
@@ -374,6 +390,16 @@ class ClientHelperImpl implements ClientHelper {
 		}
 	}
 
+	@Override
+	public void verifySignatures(List<SignatureCheck> checks)
+			throws GeneralSecurityException {
+		boolean[] valid = crypto.verifySignatures(checks);
+		for (int i = 0; i < valid.length; i++) {
+			if (!valid[i])
+				throw new GeneralSecurityException("Invalid signature " + i);
+		}
+	}
+
 	@Override
 	public Author parseAndValidateAuthor(BdfList author)
 			throws FormatException {
@@ -3,6 +3,7 @@ package org.briarproject.bramble.contact;
 import org.briarproject.bramble.api.contact.ContactExchangeManager;
 import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.contact.HandshakeManager;
+import org.briarproject.bramble.api.contact.event.PendingContactStateChangedEvent;
 import org.briarproject.bramble.api.event.EventBus;
 
 import javax.inject.Inject;
@@ -23,7 +24,8 @@ public class ContactModule {
 	@Singleton
 	ContactManager provideContactManager(EventBus eventBus,
 			ContactManagerImpl contactManager) {
-		eventBus.addListener(contactManager);
+		eventBus.addListener(PendingContactStateChangedEvent.class,
+				contactManager);
 		return contactManager;
 	}
 
@@ -19,6 +19,7 @@ import org.briarproject.bramble.api.crypto.KeyStrengthener;
 import org.briarproject.bramble.api.crypto.PrivateKey;
 import org.briarproject.bramble.api.crypto.PublicKey;
 import org.briarproject.bramble.api.crypto.SecretKey;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
 import org.briarproject.bramble.api.crypto.SignaturePrivateKey;
 import org.briarproject.bramble.api.crypto.SignaturePublicKey;
 import org.briarproject.bramble.api.system.SecureRandomProvider;
@@ -29,11 +30,13 @@ import org.briarproject.nullsafety.NotNullByDefault;
 import org.whispersystems.curve25519.Curve25519;
 import org.whispersystems.curve25519.Curve25519KeyPair;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.SecureRandom;
 import java.security.Security;
+import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
 
@@ -73,6 +76,8 @@ class CryptoComponentImpl implements CryptoComponent {
 	private final KeyPairGenerator signatureKeyPairGenerator;
 	private final KeyParser agreementKeyParser, signatureKeyParser;
 	private final MessageEncrypter messageEncrypter;
+	private final SignaturePublicKeyCache publicKeyCache =
+			new SignaturePublicKeyCache();
 
 	@Inject
 	CryptoComponentImpl(SecureRandomProvider secureRandomProvider,
@@ -296,12 +301,36 @@ class CryptoComponentImpl implements CryptoComponent {
 			throws GeneralSecurityException {
 		if (!publicKey.getKeyType().equals(KEY_TYPE_SIGNATURE))
 			throw new IllegalArgumentException();
-		Signature sig = new EdSignature();
-		sig.initVerify(publicKey);
+		EdSignature sig = new EdSignature();
+		sig.initVerify(publicKeyCache.get(publicKey));
 		updateSignature(sig, label, signed);
 		return sig.verify(signature);
 	}
 
+	@Override
+	public boolean[] verifySignatures(List<SignatureCheck> checks)
+			throws GeneralSecurityException {
+		for (SignatureCheck check : checks) {
+			if (!check.getPublicKey().getKeyType().equals(KEY_TYPE_SIGNATURE))
+				throw new IllegalArgumentException();
+		}
+		// Ed25519 signatures can be verified together by checking a random
+		// linear combination of the verification equations, but the batch
+		// equation includes the cofactor, so it accepts some signatures that
+		// verifySignature() rejects. Instead, each signature is checked with
+		// the same equation as verifySignature(), and the cost of creating
+		// the engine and decoding repeated keys is shared across the batch
+		boolean[] valid = new boolean[checks.size()];
+		EdSignature sig = new EdSignature();
+		for (int i = 0; i < valid.length; i++) {
+			SignatureCheck check = checks.get(i);
+			sig.initVerify(publicKeyCache.get(check.getPublicKey()));
+			updateSignature(sig, check.getLabel(), check.getSigned());
+			valid[i] = sig.verify(check.getSignature());
+		}
+		return valid;
+	}
+
 	private void updateSignature(Signature signature, String label,
 			byte[] toSign) throws GeneralSecurityException {
 		byte[] labelBytes = StringUtils.toUtf8(label);
@@ -316,22 +345,49 @@ class CryptoComponentImpl implements CryptoComponent {
 
 	@Override
 	public byte[] hash(String label, byte[]... inputs) {
-		byte[] labelBytes = StringUtils.toUtf8(label);
 		Digest digest = new Blake2bDigest(256);
 		byte[] length = new byte[INT_32_BYTES];
-		ByteUtils.writeUint32(labelBytes.length, length, 0);
-		digest.update(length, 0, length.length);
-		digest.update(labelBytes, 0, labelBytes.length);
-		for (byte[] input : inputs) {
-			ByteUtils.writeUint32(input.length, length, 0);
+		updateDigest(digest, length, StringUtils.toUtf8(label));
+		for (byte[] input : inputs) updateDigest(digest, length, input);
+		byte[] output = new byte[digest.getDigestSize()];
+		digest.doFinal(output, 0);
+		return output;
+	}
+
+	@Override
+	public byte[] hash(String label, ByteBuffer... inputs) {
+		Digest digest = new Blake2bDigest(256);
+		byte[] length = new byte[INT_32_BYTES];
+		updateDigest(digest, length, StringUtils.toUtf8(label));
+		for (ByteBuffer input : inputs) {
+			int len = input.remaining();
+			ByteUtils.writeUint32(len, length, 0);
 			digest.update(length, 0, length.length);
-			digest.update(input, 0, input.length);
+			if (input.hasArray()) {
+				digest.update(input.array(),
+						input.arrayOffset() + input.position(), len);
+			} else {
+				// Copy the input without changing the buffer's position
+				byte[] b = new byte[len];
+				input.duplicate().get(b);
+				digest.update(b, 0, len);
+			}
 		}
 		byte[] output = new byte[digest.getDigestSize()];
 		digest.doFinal(output, 0);
 		return output;
 	}
 
+	/**
+	 * Updates the given digest with the length of the given input, followed
+	 * by the input itself.
+	 */
+	private void updateDigest(Digest digest, byte[] length, byte[] input) {
+		ByteUtils.writeUint32(input.length, length, 0);
+		digest.update(length, 0, length.length);
+		digest.update(input, 0, input.length);
+	}
+
 	@Override
 	public byte[] mac(String label, SecretKey macKey, byte[]... inputs) {
 		byte[] labelBytes = StringUtils.toUtf8(label);
@@ -41,21 +41,44 @@ public class CryptoExecutorModule {
 	public CryptoExecutorModule() {
 	}
 
+	/**
+	 * Provides the crypto executor as a {@link TimeLoggingExecutor} so its
+	 * usage statistics can be inspected at runtime.
+	 */
 	@Provides
 	@Singleton
 	@CryptoExecutor
-	ExecutorService provideCryptoExecutorService(
+	TimeLoggingExecutor provideCryptoTimeLoggingExecutor(
 			LifecycleManager lifecycleManager, ThreadFactory threadFactory) {
+		TimeLoggingExecutor cryptoExecutor =
+				createCryptoExecutor(MAX_EXECUTOR_THREADS, threadFactory);
+		lifecycleManager.registerForShutdown(cryptoExecutor);
+		return cryptoExecutor;
+	}
+
+	@Provides
+	@Singleton
+	@CryptoExecutor
+	ExecutorService provideCryptoExecutorService(
+			@CryptoExecutor TimeLoggingExecutor cryptoExecutor) {
+		return cryptoExecutor;
+	}
+
+	// Package access for testing
+	static TimeLoggingExecutor createCryptoExecutor(int threads,
+			ThreadFactory threadFactory) {
 		// Use an unbounded queue
 		BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
 		// Discard tasks that are submitted during shutdown
 		RejectedExecutionHandler policy =
 				new ThreadPoolExecutor.DiscardPolicy();
-		// Create a limited # of threads and keep them in the pool for 60 secs
-		ExecutorService cryptoExecutor = new TimeLoggingExecutor(
-				"CryptoExecutor", 0, MAX_EXECUTOR_THREADS, 60, SECONDS, queue,
+		// A pool with an unbounded queue never grows beyond its core size,
+		// so make the core size the maximum size. Allow core threads to time
+		// out so idle threads are only kept in the pool for 60 secs
+		TimeLoggingExecutor cryptoExecutor = new TimeLoggingExecutor(
+				"CryptoExecutor", threads, threads, 60, SECONDS, queue,
 				threadFactory, policy);
-		lifecycleManager.registerForShutdown(cryptoExecutor);
+		cryptoExecutor.allowCoreThreadTimeOut(true);
 		return cryptoExecutor;
 	}
 
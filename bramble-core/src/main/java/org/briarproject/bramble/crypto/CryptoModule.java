@@ -43,18 +43,26 @@ public class CryptoModule {
 		return transportCrypto;
 	}
 
+	@Provides
+	@Singleton
+	FrameBufferPool provideFrameBufferPool() {
+		return new FrameBufferPool();
+	}
+
 	@Provides
 	StreamDecrypterFactory provideStreamDecrypterFactory(
-			Provider<AuthenticatedCipher> cipherProvider) {
-		return new StreamDecrypterFactoryImpl(cipherProvider);
+			Provider<AuthenticatedCipher> cipherProvider,
+			FrameBufferPool bufferPool) {
+		return new StreamDecrypterFactoryImpl(cipherProvider, bufferPool);
 	}
 
 	@Provides
 	StreamEncrypterFactory provideStreamEncrypterFactory(
 			CryptoComponent crypto, TransportCrypto transportCrypto,
-			Provider<AuthenticatedCipher> cipherProvider) {
+			Provider<AuthenticatedCipher> cipherProvider,
+			FrameBufferPool bufferPool) {
 		return new StreamEncrypterFactoryImpl(crypto, transportCrypto,
-				cipherProvider);
+				cipherProvider, bufferPool);
 	}
 
 	@Provides
@@ -49,11 +49,24 @@ class EdSignature implements Signature {
 
 	@Override
 	public void initVerify(PublicKey k) throws GeneralSecurityException {
+		signature.initVerify(decodePublicKey(k));
+	}
+
+	/**
+	 * Initialises the signature for verification with a public key that has
+	 * already been decoded.
+	 *
+	 * @see #decodePublicKey(PublicKey)
+	 */
+	void initVerify(EdDSAPublicKey k) throws GeneralSecurityException {
+		signature.initVerify(k);
+	}
+
+	static EdDSAPublicKey decodePublicKey(PublicKey k) {
 		if (!k.getKeyType().equals(KEY_TYPE_SIGNATURE))
 			throw new IllegalArgumentException();
-		EdDSAPublicKey publicKey = new EdDSAPublicKey(
+		return new EdDSAPublicKey(
 				new EdDSAPublicKeySpec(k.getEncoded(), CURVE_SPEC));
-		signature.initVerify(publicKey);
 	}
 
 	@Override
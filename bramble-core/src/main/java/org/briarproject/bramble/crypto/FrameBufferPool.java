@@ -0,0 +1,69 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static org.briarproject.bramble.api.transport.TransportConstants.MAX_FRAME_LENGTH;
+
+/**
+ * A bounded pool of frame buffers that's shared by stream encrypters and
+ * decrypters, so that short-lived streams don't need to allocate buffers of
+ * their own.
+ * <p>
+ * Buffers are cleared when they're returned to the pool. Buffers that are
+ * never returned, for example because a stream was abandoned, are garbage
+ * collected as usual.
+ */
+@ThreadSafe
+@NotNullByDefault
+class FrameBufferPool {
+
+	/**
+	 * The maximum number of buffers kept in the pool. Buffers returned to a
+	 * full pool are discarded.
+	 */
+	static final int MAX_POOLED_BUFFERS = 64;
+
+	private final Object lock = new Object();
+	@GuardedBy("lock")
+	private final Deque<byte[]> buffers = new ArrayDeque<>();
+
+	/**
+	 * Returns a buffer of {@code MAX_FRAME_LENGTH} bytes, taken from the pool
+	 * if possible. The buffer initially contains zeroes.
+	 */
+	byte[] acquire() {
+		synchronized (lock) {
+			byte[] b = buffers.pollFirst();
+			if (b != null) return b;
+		}
+		return new byte[MAX_FRAME_LENGTH];
+	}
+
+	/**
+	 * Clears the given buffer and returns it to the pool. The caller must not
+	 * use the buffer afterwards.
+	 */
+	void release(byte[] b) {
+		if (b.length != MAX_FRAME_LENGTH) throw new IllegalArgumentException();
+		Arrays.fill(b, (byte) 0);
+		synchronized (lock) {
+			if (buffers.size() < MAX_POOLED_BUFFERS) buffers.addFirst(b);
+		}
+	}
+
+	/**
+	 * Returns the number of buffers currently in the pool.
+	 */
+	int getPooledBuffers() {
+		synchronized (lock) {
+			return buffers.size();
+		}
+	}
+}
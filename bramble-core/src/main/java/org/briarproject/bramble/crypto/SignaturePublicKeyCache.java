@@ -0,0 +1,66 @@
+package org.briarproject.bramble.crypto;
+
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+
+import org.briarproject.bramble.api.Bytes;
+import org.briarproject.bramble.api.crypto.PublicKey;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A cache of decoded signature public keys. Decoding a public key involves
+ * decompressing a curve point and precomputing multiples of it, which is a
+ * significant part of the cost of verifying a signature. Incoming messages
+ * are often signed by a small number of authors, so keeping the most
+ * recently used keys saves repeating that work.
+ * <p>
+ * Decoded keys are immutable, so they can be used by several threads at once.
+ */
+@ThreadSafe
+@NotNullByDefault
+class SignaturePublicKeyCache {
+
+	static final int MAX_CACHED_KEYS = 256;
+
+	private final Object lock = new Object();
+
+	@GuardedBy("lock")
+	private final Map<Bytes, EdDSAPublicKey> cache =
+			new LinkedHashMap<Bytes, EdDSAPublicKey>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Bytes, EdDSAPublicKey> eldest) {
+					return size() > MAX_CACHED_KEYS;
+				}
+			};
+
+	/**
+	 * Returns the decoded form of the given public key, decoding it if it's
+	 * not in the cache.
+	 */
+	EdDSAPublicKey get(PublicKey k) {
+		Bytes encoded = new Bytes(k.getEncoded());
+		synchronized (lock) {
+			EdDSAPublicKey decoded = cache.get(encoded);
+			if (decoded != null) return decoded;
+		}
+		// Decode the key without holding the lock. If another thread decodes
+		// the same key concurrently, both results are equivalent
+		EdDSAPublicKey decoded = EdSignature.decodePublicKey(k);
+		synchronized (lock) {
+			cache.put(encoded, decoded);
+		}
+		return decoded;
+	}
+
+	int size() {
+		synchronized (lock) {
+			return cache.size();
+		}
+	}
+}
@@ -17,24 +17,28 @@ import javax.inject.Provider;
 class StreamDecrypterFactoryImpl implements StreamDecrypterFactory {
 
 	private final Provider<AuthenticatedCipher> cipherProvider;
+	private final FrameBufferPool bufferPool;
 
 	@Inject
-	StreamDecrypterFactoryImpl(Provider<AuthenticatedCipher> cipherProvider) {
+	StreamDecrypterFactoryImpl(Provider<AuthenticatedCipher> cipherProvider,
+			FrameBufferPool bufferPool) {
 		this.cipherProvider = cipherProvider;
+		this.bufferPool = bufferPool;
 	}
 
 	@Override
 	public StreamDecrypter createStreamDecrypter(InputStream in,
 			StreamContext ctx) {
 		AuthenticatedCipher cipher = cipherProvider.get();
-		return new StreamDecrypterImpl(in, cipher, ctx.getStreamNumber(),
-				ctx.getHeaderKey());
+		return new StreamDecrypterImpl(in, cipher, bufferPool,
+				ctx.getStreamNumber(), ctx.getHeaderKey());
 	}
 
 	@Override
 	public StreamDecrypter createContactExchangeStreamDecrypter(InputStream in,
 			SecretKey headerKey) {
-		return new StreamDecrypterImpl(in, cipherProvider.get(), 0, headerKey);
+		return new StreamDecrypterImpl(in, cipherProvider.get(), bufferPool, 0,
+				headerKey);
 	}
 
 	@Override
@@ -14,11 +14,13 @@ import java.security.GeneralSecurityException;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.copyOfRange;
+import static java.util.Arrays.fill;
 import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_HEADER_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_HEADER_PLAINTEXT_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_NONCE_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.MAC_LENGTH;
-import static org.briarproject.bramble.api.transport.TransportConstants.MAX_FRAME_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.MAX_PAYLOAD_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.PROTOCOL_VERSION;
 import static org.briarproject.bramble.api.transport.TransportConstants.STREAM_HEADER_LENGTH;
@@ -33,24 +35,29 @@ class StreamDecrypterImpl implements StreamDecrypter {
 
 	private final InputStream in;
 	private final AuthenticatedCipher cipher;
+	private final FrameBufferPool bufferPool;
 	private final long streamNumber;
 	private final SecretKey streamHeaderKey;
-	private final byte[] frameNonce, frameHeader, frameCiphertext;
+	private final byte[] frameNonce, frameHeader;
 
+	// Drawn from the pool when needed and returned after the final frame
+	@Nullable
+	private byte[] frameCiphertext = null;
 	@Nullable
 	private SecretKey frameKey;
 	private long frameNumber;
 	private boolean finalFrame;
 
 	StreamDecrypterImpl(InputStream in, AuthenticatedCipher cipher,
-			long streamNumber, SecretKey streamHeaderKey) {
+			FrameBufferPool bufferPool, long streamNumber,
+			SecretKey streamHeaderKey) {
 		this.in = in;
 		this.cipher = cipher;
+		this.bufferPool = bufferPool;
 		this.streamNumber = streamNumber;
 		this.streamHeaderKey = streamHeaderKey;
 		frameNonce = new byte[FRAME_NONCE_LENGTH];
 		frameHeader = new byte[FRAME_HEADER_PLAINTEXT_LENGTH];
-		frameCiphertext = new byte[MAX_FRAME_LENGTH];
 		frameKey = null;
 		frameNumber = 0;
 		finalFrame = false;
@@ -66,10 +73,11 @@ class StreamDecrypterImpl implements StreamDecrypter {
 		if (frameNumber < 0) throw new IOException();
 		// Read the stream header if required
 		if (frameKey == null) readStreamHeader();
+		byte[] ciphertext = getFrameCiphertext();
 		// Read the frame header
 		int offset = 0;
 		while (offset < FRAME_HEADER_LENGTH) {
-			int read = in.read(frameCiphertext, offset,
+			int read = in.read(ciphertext, offset,
 					FRAME_HEADER_LENGTH - offset);
 			if (read == -1) throw new EOFException();
 			offset += read;
@@ -78,7 +86,7 @@ class StreamDecrypterImpl implements StreamDecrypter {
 		FrameEncoder.encodeNonce(frameNonce, frameNumber, true);
 		try {
 			cipher.init(false, frameKey, frameNonce);
-			int decrypted = cipher.process(frameCiphertext, 0,
+			int decrypted = cipher.process(ciphertext, 0,
 					FRAME_HEADER_LENGTH, frameHeader, 0);
 			if (decrypted != FRAME_HEADER_PLAINTEXT_LENGTH)
 				throw new RuntimeException();
@@ -95,7 +103,7 @@ class StreamDecrypterImpl implements StreamDecrypter {
 		int frameLength = FRAME_HEADER_LENGTH + payloadLength + paddingLength
 				+ MAC_LENGTH;
 		while (offset < frameLength) {
-			int read = in.read(frameCiphertext, offset, frameLength - offset);
+			int read = in.read(ciphertext, offset, frameLength - offset);
 			if (read == -1) throw new EOFException();
 			offset += read;
 		}
@@ -103,7 +111,7 @@ class StreamDecrypterImpl implements StreamDecrypter {
 		FrameEncoder.encodeNonce(frameNonce, frameNumber, false);
 		try {
 			cipher.init(false, frameKey, frameNonce);
-			int decrypted = cipher.process(frameCiphertext, FRAME_HEADER_LENGTH,
+			int decrypted = cipher.process(ciphertext, FRAME_HEADER_LENGTH,
 					payloadLength + paddingLength + MAC_LENGTH, payload, 0);
 			if (decrypted != payloadLength + paddingLength)
 				throw new RuntimeException();
@@ -114,49 +122,62 @@ class StreamDecrypterImpl implements StreamDecrypter {
 		for (int i = 0; i < paddingLength; i++)
 			if (payload[payloadLength + i] != 0) throw new FormatException();
 		frameNumber++;
+		// No more frames will be read, so return the buffer to the pool
+		if (finalFrame) releaseBuffer();
 		return payloadLength;
 	}
 
+	private byte[] getFrameCiphertext() {
+		if (frameCiphertext == null) frameCiphertext = bufferPool.acquire();
+		return frameCiphertext;
+	}
+
+	private void releaseBuffer() {
+		if (frameCiphertext != null) {
+			bufferPool.release(frameCiphertext);
+			frameCiphertext = null;
+		}
+	}
+
 	private void readStreamHeader() throws IOException {
-		byte[] streamHeaderCiphertext = new byte[STREAM_HEADER_LENGTH];
-		byte[] streamHeaderPlaintext = new byte[STREAM_HEADER_PLAINTEXT_LENGTH];
+		// Use the frame buffer for the stream header, with the plaintext
+		// placed after the ciphertext
+		byte[] buf = getFrameCiphertext();
+		int plaintextOff = STREAM_HEADER_LENGTH;
 		// Read the stream header
 		int offset = 0;
 		while (offset < STREAM_HEADER_LENGTH) {
-			int read = in.read(streamHeaderCiphertext, offset,
-					STREAM_HEADER_LENGTH - offset);
+			int read = in.read(buf, offset, STREAM_HEADER_LENGTH - offset);
 			if (read == -1) throw new EOFException();
 			offset += read;
 		}
 		// Extract the nonce
-		byte[] streamHeaderNonce = new byte[STREAM_HEADER_NONCE_LENGTH];
-		System.arraycopy(streamHeaderCiphertext, 0, streamHeaderNonce, 0,
-				STREAM_HEADER_NONCE_LENGTH);
+		byte[] streamHeaderNonce = copyOf(buf, STREAM_HEADER_NONCE_LENGTH);
 		// Decrypt and authenticate the stream header
 		try {
 			cipher.init(false, streamHeaderKey, streamHeaderNonce);
-			int decrypted = cipher.process(streamHeaderCiphertext,
-					STREAM_HEADER_NONCE_LENGTH,
+			int decrypted = cipher.process(buf, STREAM_HEADER_NONCE_LENGTH,
 					STREAM_HEADER_PLAINTEXT_LENGTH + MAC_LENGTH,
-					streamHeaderPlaintext, 0);
+					buf, plaintextOff);
 			if (decrypted != STREAM_HEADER_PLAINTEXT_LENGTH)
 				throw new RuntimeException();
 		} catch (GeneralSecurityException e) {
 			throw new FormatException();
 		}
 		// Check the protocol version
-		int receivedProtocolVersion =
-				ByteUtils.readUint16(streamHeaderPlaintext, 0);
+		int receivedProtocolVersion = ByteUtils.readUint16(buf, plaintextOff);
 		if (receivedProtocolVersion != PROTOCOL_VERSION)
 			throw new FormatException();
 		// Check the stream number
-		long receivedStreamNumber = ByteUtils.readUint64(streamHeaderPlaintext,
-				INT_16_BYTES);
+		long receivedStreamNumber = ByteUtils.readUint64(buf,
+				plaintextOff + INT_16_BYTES);
 		if (receivedStreamNumber != streamNumber) throw new FormatException();
 		// Extract the frame key
-		byte[] frameKeyBytes = new byte[SecretKey.LENGTH];
-		System.arraycopy(streamHeaderPlaintext, INT_16_BYTES + INT_64_BYTES,
-				frameKeyBytes, 0, SecretKey.LENGTH);
-		frameKey = new SecretKey(frameKeyBytes);
+		int keyOff = plaintextOff + INT_16_BYTES + INT_64_BYTES;
+		frameKey = new SecretKey(copyOfRange(buf, keyOff,
+				keyOff + SecretKey.LENGTH));
+		// Don't leave the frame key lying around in the buffer
+		fill(buf, plaintextOff, plaintextOff + STREAM_HEADER_PLAINTEXT_LENGTH,
+				(byte) 0);
 	}
-}
\ No newline at end of file
+}
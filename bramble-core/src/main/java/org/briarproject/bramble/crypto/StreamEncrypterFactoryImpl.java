@@ -25,14 +25,17 @@ class StreamEncrypterFactoryImpl implements StreamEncrypterFactory {
 	private final CryptoComponent crypto;
 	private final TransportCrypto transportCrypto;
 	private final Provider<AuthenticatedCipher> cipherProvider;
+	private final FrameBufferPool bufferPool;
 
 	@Inject
 	StreamEncrypterFactoryImpl(CryptoComponent crypto,
 			TransportCrypto transportCrypto,
-			Provider<AuthenticatedCipher> cipherProvider) {
+			Provider<AuthenticatedCipher> cipherProvider,
+			FrameBufferPool bufferPool) {
 		this.crypto = crypto;
 		this.transportCrypto = transportCrypto;
 		this.cipherProvider = cipherProvider;
+		this.bufferPool = bufferPool;
 	}
 
 	@Override
@@ -46,8 +49,8 @@ class StreamEncrypterFactoryImpl implements StreamEncrypterFactory {
 		byte[] streamHeaderNonce = new byte[STREAM_HEADER_NONCE_LENGTH];
 		crypto.getSecureRandom().nextBytes(streamHeaderNonce);
 		SecretKey frameKey = crypto.generateSecretKey();
-		return new StreamEncrypterImpl(out, cipher, streamNumber, tag,
-				streamHeaderNonce, ctx.getHeaderKey(), frameKey);
+		return new StreamEncrypterImpl(out, cipher, bufferPool, streamNumber,
+				tag, streamHeaderNonce, ctx.getHeaderKey(), frameKey);
 	}
 
 	@Override
@@ -57,8 +60,8 @@ class StreamEncrypterFactoryImpl implements StreamEncrypterFactory {
 		byte[] streamHeaderNonce = new byte[STREAM_HEADER_NONCE_LENGTH];
 		crypto.getSecureRandom().nextBytes(streamHeaderNonce);
 		SecretKey frameKey = crypto.generateSecretKey();
-		return new StreamEncrypterImpl(out, cipher, 0, null, streamHeaderNonce,
-				headerKey, frameKey);
+		return new StreamEncrypterImpl(out, cipher, bufferPool, 0, null,
+				streamHeaderNonce, headerKey, frameKey);
 	}
 
 	@Override
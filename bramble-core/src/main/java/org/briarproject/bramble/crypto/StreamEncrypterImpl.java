@@ -8,6 +8,7 @@ import org.briarproject.nullsafety.NotNullByDefault;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -16,7 +17,6 @@ import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_HE
 import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_HEADER_PLAINTEXT_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.FRAME_NONCE_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.MAC_LENGTH;
-import static org.briarproject.bramble.api.transport.TransportConstants.MAX_FRAME_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.MAX_PAYLOAD_LENGTH;
 import static org.briarproject.bramble.api.transport.TransportConstants.PROTOCOL_VERSION;
 import static org.briarproject.bramble.api.transport.TransportConstants.STREAM_HEADER_LENGTH;
@@ -31,22 +31,27 @@ class StreamEncrypterImpl implements StreamEncrypter {
 
 	private final OutputStream out;
 	private final AuthenticatedCipher cipher;
+	private final FrameBufferPool bufferPool;
 	private final SecretKey streamHeaderKey, frameKey;
 	private final long streamNumber;
 	@Nullable
 	private final byte[] tag;
 	private final byte[] streamHeaderNonce;
 	private final byte[] frameNonce, frameHeader;
-	private final byte[] framePlaintext, frameCiphertext;
 
+	// Drawn from the pool when needed and returned after the final frame
+	@Nullable
+	private byte[] framePlaintext = null, frameCiphertext = null;
 	private long frameNumber;
 	private boolean writeTag, writeStreamHeader;
 
 	StreamEncrypterImpl(OutputStream out, AuthenticatedCipher cipher,
-			long streamNumber, @Nullable byte[] tag, byte[] streamHeaderNonce,
-			SecretKey streamHeaderKey, SecretKey frameKey) {
+			FrameBufferPool bufferPool, long streamNumber, @Nullable byte[] tag,
+			byte[] streamHeaderNonce, SecretKey streamHeaderKey,
+			SecretKey frameKey) {
 		this.out = out;
 		this.cipher = cipher;
+		this.bufferPool = bufferPool;
 		this.streamNumber = streamNumber;
 		this.tag = tag;
 		this.streamHeaderNonce = streamHeaderNonce;
@@ -54,8 +59,6 @@ class StreamEncrypterImpl implements StreamEncrypter {
 		this.frameKey = frameKey;
 		frameNonce = new byte[FRAME_NONCE_LENGTH];
 		frameHeader = new byte[FRAME_HEADER_PLAINTEXT_LENGTH];
-		framePlaintext = new byte[MAX_PAYLOAD_LENGTH];
-		frameCiphertext = new byte[MAX_FRAME_LENGTH];
 		frameNumber = 0;
 		writeTag = (tag != null);
 		writeStreamHeader = true;
@@ -74,6 +77,7 @@ class StreamEncrypterImpl implements StreamEncrypter {
 		if (writeTag) writeTag();
 		// Write the stream header if required
 		if (writeStreamHeader) writeStreamHeader();
+		byte[] ciphertext = getFrameCiphertext();
 		// Encode the frame header
 		FrameEncoder.encodeHeader(frameHeader, finalFrame, payloadLength,
 				paddingLength);
@@ -82,21 +86,28 @@ class StreamEncrypterImpl implements StreamEncrypter {
 		try {
 			cipher.init(true, frameKey, frameNonce);
 			int encrypted = cipher.process(frameHeader, 0,
-					FRAME_HEADER_PLAINTEXT_LENGTH, frameCiphertext, 0);
+					FRAME_HEADER_PLAINTEXT_LENGTH, ciphertext, 0);
 			if (encrypted != FRAME_HEADER_LENGTH) throw new RuntimeException();
 		} catch (GeneralSecurityException badCipher) {
 			throw new RuntimeException(badCipher);
 		}
-		// Combine the payload and padding
-		System.arraycopy(payload, 0, framePlaintext, 0, payloadLength);
-		for (int i = 0; i < paddingLength; i++)
-			framePlaintext[payloadLength + i] = 0;
+		// Combine the payload and padding, unless there's no padding, in
+		// which case the payload can be encrypted without being copied
+		byte[] plaintext;
+		if (paddingLength == 0) {
+			plaintext = payload;
+		} else {
+			plaintext = getFramePlaintext();
+			System.arraycopy(payload, 0, plaintext, 0, payloadLength);
+			for (int i = 0; i < paddingLength; i++)
+				plaintext[payloadLength + i] = 0;
+		}
 		// Encrypt and authenticate the payload and padding
 		FrameEncoder.encodeNonce(frameNonce, frameNumber, false);
 		try {
 			cipher.init(true, frameKey, frameNonce);
-			int encrypted = cipher.process(framePlaintext, 0,
-					payloadLength + paddingLength, frameCiphertext,
+			int encrypted = cipher.process(plaintext, 0,
+					payloadLength + paddingLength, ciphertext,
 					FRAME_HEADER_LENGTH);
 			if (encrypted != payloadLength + paddingLength + MAC_LENGTH)
 				throw new RuntimeException();
@@ -104,9 +115,32 @@ class StreamEncrypterImpl implements StreamEncrypter {
 			throw new RuntimeException(badCipher);
 		}
 		// Write the frame
-		out.write(frameCiphertext, 0, FRAME_HEADER_LENGTH + payloadLength
+		out.write(ciphertext, 0, FRAME_HEADER_LENGTH + payloadLength
 				+ paddingLength + MAC_LENGTH);
 		frameNumber++;
+		// No more frames will be written, so return the buffers to the pool
+		if (finalFrame) releaseBuffers();
+	}
+
+	private byte[] getFramePlaintext() {
+		if (framePlaintext == null) framePlaintext = bufferPool.acquire();
+		return framePlaintext;
+	}
+
+	private byte[] getFrameCiphertext() {
+		if (frameCiphertext == null) frameCiphertext = bufferPool.acquire();
+		return frameCiphertext;
+	}
+
+	private void releaseBuffers() {
+		if (framePlaintext != null) {
+			bufferPool.release(framePlaintext);
+			framePlaintext = null;
+		}
+		if (frameCiphertext != null) {
+			bufferPool.release(frameCiphertext);
+			frameCiphertext = null;
+		}
 	}
 
 	private void writeTag() throws IOException {
@@ -116,28 +150,32 @@ class StreamEncrypterImpl implements StreamEncrypter {
 	}
 
 	private void writeStreamHeader() throws IOException {
+		// Use the frame buffer for the stream header, with the plaintext
+		// placed after the space for the ciphertext
+		byte[] buf = getFrameCiphertext();
+		int plaintextOff = STREAM_HEADER_LENGTH;
 		// The header contains the protocol version, stream number and frame key
-		byte[] streamHeaderPlaintext = new byte[STREAM_HEADER_PLAINTEXT_LENGTH];
-		ByteUtils.writeUint16(PROTOCOL_VERSION, streamHeaderPlaintext, 0);
-		ByteUtils.writeUint64(streamNumber, streamHeaderPlaintext,
-				INT_16_BYTES);
-		System.arraycopy(frameKey.getBytes(), 0, streamHeaderPlaintext,
-				INT_16_BYTES + INT_64_BYTES, SecretKey.LENGTH);
-		byte[] streamHeaderCiphertext = new byte[STREAM_HEADER_LENGTH];
-		System.arraycopy(streamHeaderNonce, 0, streamHeaderCiphertext, 0,
+		ByteUtils.writeUint16(PROTOCOL_VERSION, buf, plaintextOff);
+		ByteUtils.writeUint64(streamNumber, buf, plaintextOff + INT_16_BYTES);
+		System.arraycopy(frameKey.getBytes(), 0, buf,
+				plaintextOff + INT_16_BYTES + INT_64_BYTES, SecretKey.LENGTH);
+		System.arraycopy(streamHeaderNonce, 0, buf, 0,
 				STREAM_HEADER_NONCE_LENGTH);
 		// Encrypt and authenticate the stream header key
 		try {
 			cipher.init(true, streamHeaderKey, streamHeaderNonce);
-			int encrypted = cipher.process(streamHeaderPlaintext, 0,
-					STREAM_HEADER_PLAINTEXT_LENGTH, streamHeaderCiphertext,
+			int encrypted = cipher.process(buf, plaintextOff,
+					STREAM_HEADER_PLAINTEXT_LENGTH, buf,
 					STREAM_HEADER_NONCE_LENGTH);
 			if (encrypted != STREAM_HEADER_PLAINTEXT_LENGTH + MAC_LENGTH)
 				throw new RuntimeException();
 		} catch (GeneralSecurityException badCipher) {
 			throw new RuntimeException(badCipher);
 		}
-		out.write(streamHeaderCiphertext);
+		// Don't leave the frame key lying around in the buffer
+		Arrays.fill(buf, plaintextOff,
+				plaintextOff + STREAM_HEADER_PLAINTEXT_LENGTH, (byte) 0);
+		out.write(buf, 0, STREAM_HEADER_LENGTH);
 		writeStreamHeader = false;
 	}
 
@@ -10,7 +10,9 @@ import org.briarproject.bramble.api.crypto.SecretKey;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import static org.briarproject.bramble.api.transport.TransportConstants.MAC_LENGTH;
@@ -38,19 +40,36 @@ class XSalsa20Poly1305AuthenticatedCipher implements AuthenticatedCipher {
 
 	private final XSalsa20Engine xSalsa20Engine;
 	private final Poly1305 poly1305;
+	// Scratch space that's reused for each call to process()
+	private final byte[] zero, subKey, mac;
 
 	private boolean encrypting;
 
+	// The key parameter for the most recently used key, which is reused if
+	// the same key is used again, as it is for each frame of a stream
+	@Nullable
+	private SecretKey lastKey = null;
+	@Nullable
+	private KeyParameter lastKeyParameter = null;
+
 	XSalsa20Poly1305AuthenticatedCipher() {
 		xSalsa20Engine = new XSalsa20Engine();
 		poly1305 = new Poly1305();
+		zero = new byte[SUBKEY_LENGTH];
+		subKey = new byte[SUBKEY_LENGTH];
+		mac = new byte[MAC_LENGTH];
 	}
 
 	@Override
 	public void init(boolean encrypt, SecretKey key, byte[] iv)
 			throws GeneralSecurityException {
 		encrypting = encrypt;
-		KeyParameter k = new KeyParameter(key.getBytes());
+		KeyParameter k = lastKeyParameter;
+		if (key != lastKey || k == null) {
+			k = new KeyParameter(key.getBytes());
+			lastKey = key;
+			lastKeyParameter = k;
+		}
 		ParametersWithIV params = new ParametersWithIV(k, iv);
 		try {
 			xSalsa20Engine.init(encrypt, params);
@@ -66,8 +85,6 @@ class XSalsa20Poly1305AuthenticatedCipher implements AuthenticatedCipher {
 			throw new GeneralSecurityException("Invalid MAC");
 		try {
 			// Generate the Poly1305 subkey from an empty array
-			byte[] zero = new byte[SUBKEY_LENGTH];
-			byte[] subKey = new byte[SUBKEY_LENGTH];
 			xSalsa20Engine.processBytes(zero, 0, SUBKEY_LENGTH, subKey, 0);
 
 			// Clamp the subkey
@@ -76,16 +93,18 @@ class XSalsa20Poly1305AuthenticatedCipher implements AuthenticatedCipher {
 			// Initialize Poly1305 with the subkey
 			KeyParameter k = new KeyParameter(subKey);
 			poly1305.init(k);
+			// The key parameter has its own copy of the subkey
+			Arrays.fill(subKey, (byte) 0);
 
 			// If we are decrypting, verify the MAC
 			if (!encrypting) {
-				byte[] mac = new byte[MAC_LENGTH];
 				poly1305.update(input, inputOff + MAC_LENGTH, len - MAC_LENGTH);
 				poly1305.doFinal(mac, 0);
 				// Constant-time comparison
 				int cmp = 0;
 				for (int i = 0; i < MAC_LENGTH; i++)
 					cmp |= mac[i] ^ input[inputOff + i];
+				Arrays.fill(mac, (byte) 0);
 				if (cmp != 0)
 					throw new GeneralSecurityException("Invalid MAC");
 			}
@@ -0,0 +1,425 @@
+package org.briarproject.bramble.data;
+
+import org.briarproject.bramble.api.FormatException;
+import org.briarproject.bramble.api.data.BdfDictionary;
+import org.briarproject.bramble.api.data.BdfList;
+import org.briarproject.bramble.api.data.BdfReader;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static java.util.Arrays.copyOfRange;
+import static org.briarproject.bramble.api.data.BdfDictionary.NULL_VALUE;
+import static org.briarproject.bramble.data.Types.DICTIONARY;
+import static org.briarproject.bramble.data.Types.END;
+import static org.briarproject.bramble.data.Types.FALSE;
+import static org.briarproject.bramble.data.Types.FLOAT_64;
+import static org.briarproject.bramble.data.Types.INT_16;
+import static org.briarproject.bramble.data.Types.INT_32;
+import static org.briarproject.bramble.data.Types.INT_64;
+import static org.briarproject.bramble.data.Types.INT_8;
+import static org.briarproject.bramble.data.Types.LIST;
+import static org.briarproject.bramble.data.Types.NULL;
+import static org.briarproject.bramble.data.Types.RAW_16;
+import static org.briarproject.bramble.data.Types.RAW_32;
+import static org.briarproject.bramble.data.Types.RAW_8;
+import static org.briarproject.bramble.data.Types.STRING_16;
+import static org.briarproject.bramble.data.Types.STRING_32;
+import static org.briarproject.bramble.data.Types.STRING_8;
+import static org.briarproject.bramble.data.Types.TRUE;
+import static org.briarproject.bramble.util.StringUtils.fromUtf8;
+
+/**
+ * A {@link BdfReader} that reads from a range of an in-memory array. Unlike
+ * {@link BdfReaderImpl}, it reads the array directly by index, so it doesn't
+ * need a lookahead byte or an intermediate buffer. It accepts and rejects
+ * exactly the same input as {@link BdfReaderImpl}.
+ */
+@NotThreadSafe
+@NotNullByDefault
+final class ArrayBdfReaderImpl implements BdfReader {
+
+	private static final byte[] EMPTY_BUFFER = new byte[0];
+
+	private final byte[] buf;
+	private final int end, nestedLimit, maxBufferSize;
+	private final boolean canonical;
+
+	private int pos;
+
+	ArrayBdfReaderImpl(byte[] buf, int off, int len, int nestedLimit,
+			int maxBufferSize, boolean canonical) {
+		if (off < 0 || len < 0 || len > buf.length - off)
+			throw new IllegalArgumentException();
+		this.buf = buf;
+		this.nestedLimit = nestedLimit;
+		this.maxBufferSize = maxBufferSize;
+		this.canonical = canonical;
+		pos = off;
+		end = off + len;
+	}
+
+	/**
+	 * Returns the type of the next object, which must exist.
+	 */
+	private byte next() {
+		return buf[pos];
+	}
+
+	/**
+	 * Returns the position of the next object after checking that the
+	 * given number of bytes are available, and advances past them.
+	 */
+	private int consume(int length) throws FormatException {
+		if (end - pos < length) throw new FormatException();
+		int start = pos;
+		pos += length;
+		return start;
+	}
+
+	private Object readObject(int level) throws IOException {
+		if (hasNull()) {
+			readNull();
+			return NULL_VALUE;
+		}
+		if (hasBoolean()) return readBoolean();
+		if (hasLong()) return readLong();
+		if (hasDouble()) return readDouble();
+		if (hasString()) return readString();
+		if (hasRaw()) return readRaw();
+		if (hasList()) return readList(level);
+		if (hasDictionary()) return readDictionary(level);
+		throw new FormatException();
+	}
+
+	private void skipObject() throws IOException {
+		if (hasNull()) skipNull();
+		else if (hasBoolean()) skipBoolean();
+		else if (hasLong()) skipLong();
+		else if (hasDouble()) skipDouble();
+		else if (hasString()) skipString();
+		else if (hasRaw()) skipRaw();
+		else if (hasList()) skipList();
+		else if (hasDictionary()) skipDictionary();
+		else throw new FormatException();
+	}
+
+	@Override
+	public boolean eof() {
+		return pos >= end;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to close
+	}
+
+	@Override
+	public boolean hasNull() {
+		return !eof() && next() == NULL;
+	}
+
+	@Override
+	public void readNull() throws IOException {
+		if (!hasNull()) throw new FormatException();
+		pos++;
+	}
+
+	@Override
+	public void skipNull() throws IOException {
+		readNull();
+	}
+
+	@Override
+	public boolean hasBoolean() {
+		if (eof()) return false;
+		byte next = next();
+		return next == FALSE || next == TRUE;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		if (!hasBoolean()) throw new FormatException();
+		return buf[pos++] == TRUE;
+	}
+
+	@Override
+	public void skipBoolean() throws IOException {
+		if (!hasBoolean()) throw new FormatException();
+		pos++;
+	}
+
+	@Override
+	public boolean hasLong() {
+		if (eof()) return false;
+		byte next = next();
+		return next == INT_8 || next == INT_16 || next == INT_32 ||
+				next == INT_64;
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		if (!hasLong()) throw new FormatException();
+		byte type = buf[pos++];
+		if (type == INT_8) return readInt8();
+		if (type == INT_16) return readInt16();
+		if (type == INT_32) return readInt32();
+		return readInt64();
+	}
+
+	private int readInt8() throws FormatException {
+		return buf[consume(1)];
+	}
+
+	private short readInt16() throws FormatException {
+		int i = consume(2);
+		short value = (short) (((buf[i] & 0xFF) << 8) + (buf[i + 1] & 0xFF));
+		if (canonical && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			// Value could have been encoded as an INT_8
+			throw new FormatException();
+		}
+		return value;
+	}
+
+	private int readInt32() throws FormatException {
+		int i = consume(4);
+		int value = 0;
+		for (int j = 0; j < 4; j++)
+			value |= (buf[i + j] & 0xFF) << (24 - j * 8);
+		if (canonical && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			// Value could have been encoded as an INT_16
+			throw new FormatException();
+		}
+		return value;
+	}
+
+	private long readInt64() throws FormatException {
+		long value = readUint64();
+		if (canonical && value >= Integer.MIN_VALUE &&
+				value <= Integer.MAX_VALUE) {
+			// Value could have been encoded as an INT_32
+			throw new FormatException();
+		}
+		return value;
+	}
+
+	private long readUint64() throws FormatException {
+		int i = consume(8);
+		long value = 0;
+		for (int j = 0; j < 8; j++)
+			value |= (buf[i + j] & 0xFFL) << (56 - j * 8);
+		return value;
+	}
+
+	@Override
+	public void skipLong() throws IOException {
+		if (!hasLong()) throw new FormatException();
+		byte type = buf[pos++];
+		if (type == INT_8) consume(1);
+		else if (type == INT_16) consume(2);
+		else if (type == INT_32) consume(4);
+		else consume(8);
+	}
+
+	@Override
+	public boolean hasInt() {
+		if (eof()) return false;
+		byte next = next();
+		return next == INT_8 || next == INT_16 || next == INT_32;
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		if (!hasInt()) throw new FormatException();
+		byte type = buf[pos++];
+		if (type == INT_8) return readInt8();
+		if (type == INT_16) return readInt16();
+		return readInt32();
+	}
+
+	@Override
+	public void skipInt() throws IOException {
+		if (!hasInt()) throw new FormatException();
+		byte type = buf[pos++];
+		if (type == INT_8) consume(1);
+		else if (type == INT_16) consume(2);
+		else consume(4);
+	}
+
+	@Override
+	public boolean hasDouble() {
+		return !eof() && next() == FLOAT_64;
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		if (!hasDouble()) throw new FormatException();
+		pos++;
+		return Double.longBitsToDouble(readUint64());
+	}
+
+	@Override
+	public void skipDouble() throws IOException {
+		if (!hasDouble()) throw new FormatException();
+		pos++;
+		consume(8);
+	}
+
+	@Override
+	public boolean hasString() {
+		if (eof()) return false;
+		byte next = next();
+		return next == STRING_8 || next == STRING_16 || next == STRING_32;
+	}
+
+	@Override
+	public String readString() throws IOException {
+		if (!hasString()) throw new FormatException();
+		int length = readStringLength(buf[pos++]);
+		if (length < 0 || length > maxBufferSize) throw new FormatException();
+		if (length == 0) return "";
+		return fromUtf8(buf, consume(length), length);
+	}
+
+	private int readStringLength(byte type) throws FormatException {
+		if (type == STRING_8) return readInt8();
+		if (type == STRING_16) return readInt16();
+		if (type == STRING_32) return readInt32();
+		throw new FormatException();
+	}
+
+	@Override
+	public void skipString() throws IOException {
+		if (!hasString()) throw new FormatException();
+		int length = readStringLength(buf[pos++]);
+		if (length < 0) throw new FormatException();
+		consume(length);
+	}
+
+	@Override
+	public boolean hasRaw() {
+		if (eof()) return false;
+		byte next = next();
+		return next == RAW_8 || next == RAW_16 || next == RAW_32;
+	}
+
+	@Override
+	public byte[] readRaw() throws IOException {
+		int length = readRawHeader();
+		if (length == 0) return EMPTY_BUFFER;
+		int start = consume(length);
+		return copyOfRange(buf, start, start + length);
+	}
+
+	@Override
+	public ByteBuffer readRawView() throws IOException {
+		int length = readRawHeader();
+		int start = consume(length);
+		return ByteBuffer.wrap(buf, start, length).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Reads the type and length of a raw and returns the length.
+	 */
+	private int readRawHeader() throws IOException {
+		if (!hasRaw()) throw new FormatException();
+		int length = readRawLength(buf[pos++]);
+		if (length < 0 || length > maxBufferSize) throw new FormatException();
+		return length;
+	}
+
+	private int readRawLength(byte type) throws FormatException {
+		if (type == RAW_8) return readInt8();
+		if (type == RAW_16) return readInt16();
+		if (type == RAW_32) return readInt32();
+		throw new FormatException();
+	}
+
+	@Override
+	public void skipRaw() throws IOException {
+		if (!hasRaw()) throw new FormatException();
+		int length = readRawLength(buf[pos++]);
+		if (length < 0) throw new FormatException();
+		consume(length);
+	}
+
+	@Override
+	public boolean hasList() {
+		return !eof() && next() == LIST;
+	}
+
+	@Override
+	public BdfList readList() throws IOException {
+		return readList(1);
+	}
+
+	private BdfList readList(int level) throws IOException {
+		if (!hasList()) throw new FormatException();
+		if (level > nestedLimit) throw new FormatException();
+		pos++;
+		BdfList list = new BdfList();
+		while (!hasEnd()) list.add(readObject(level + 1));
+		readEnd();
+		return list;
+	}
+
+	private boolean hasEnd() {
+		return !eof() && next() == END;
+	}
+
+	private void readEnd() throws FormatException {
+		if (!hasEnd()) throw new FormatException();
+		pos++;
+	}
+
+	@Override
+	public void skipList() throws IOException {
+		if (!hasList()) throw new FormatException();
+		pos++;
+		while (!hasEnd()) skipObject();
+		pos++;
+	}
+
+	@Override
+	public boolean hasDictionary() {
+		return !eof() && next() == DICTIONARY;
+	}
+
+	@Override
+	public BdfDictionary readDictionary() throws IOException {
+		return readDictionary(1);
+	}
+
+	private BdfDictionary readDictionary(int level) throws IOException {
+		if (!hasDictionary()) throw new FormatException();
+		if (level > nestedLimit) throw new FormatException();
+		pos++;
+		BdfDictionary dictionary = new BdfDictionary();
+		String prevKey = null;
+		while (!hasEnd()) {
+			String key = readString();
+			if (canonical && prevKey != null && key.compareTo(prevKey) <= 0) {
+				// Keys not unique and sorted
+				throw new FormatException();
+			}
+			dictionary.put(key, readObject(level + 1));
+			prevKey = key;
+		}
+		readEnd();
+		return dictionary;
+	}
+
+	@Override
+	public void skipDictionary() throws IOException {
+		if (!hasDictionary()) throw new FormatException();
+		pos++;
+		while (!hasEnd()) {
+			skipString();
+			skipObject();
+		}
+		pos++;
+	}
+}
@@ -5,6 +5,7 @@ import org.briarproject.bramble.api.data.BdfReaderFactory;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -32,4 +33,30 @@ class BdfReaderFactoryImpl implements BdfReaderFactory {
 			int maxBufferSize, boolean canonical) {
 		return new BdfReaderImpl(in, nestedLimit, maxBufferSize, canonical);
 	}
+
+	@Override
+	public BdfReader createReader(byte[] b, int off, int len) {
+		return new ArrayBdfReaderImpl(b, off, len, DEFAULT_NESTED_LIMIT,
+				DEFAULT_MAX_BUFFER_SIZE, true);
+	}
+
+	@Override
+	public BdfReader createReader(byte[] b, int off, int len,
+			boolean canonical) {
+		return new ArrayBdfReaderImpl(b, off, len, DEFAULT_NESTED_LIMIT,
+				DEFAULT_MAX_BUFFER_SIZE, canonical);
+	}
+
+	@Override
+	public BdfReader createReader(ByteBuffer b) {
+		if (b.hasArray()) {
+			return createReader(b.array(), b.arrayOffset() + b.position(),
+					b.remaining());
+		}
+		// Direct and read-only buffers don't expose an array, so copy the
+		// contents without changing the buffer's position
+		byte[] copy = new byte[b.remaining()];
+		b.duplicate().get(copy);
+		return createReader(copy, 0, copy.length);
+	}
 }
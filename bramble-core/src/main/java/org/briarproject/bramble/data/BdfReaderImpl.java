@@ -8,6 +8,7 @@ import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -334,6 +335,11 @@ final class BdfReaderImpl implements BdfReader {
 		return b;
 	}
 
+	@Override
+	public ByteBuffer readRawView() throws IOException {
+		return ByteBuffer.wrap(readRaw()).asReadOnlyBuffer();
+	}
+
 	private int readRawLength() throws IOException {
 		if (next == RAW_8) return readInt8();
 		if (next == RAW_16) return readInt16();
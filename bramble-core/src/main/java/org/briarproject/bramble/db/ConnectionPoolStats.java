@@ -0,0 +1,138 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A snapshot of the usage statistics of a {@link JdbcDatabase JdbcDatabase's}
+ * connection pool.
+ */
+@Immutable
+@NotNullByDefault
+class ConnectionPoolStats {
+
+	private final int poolSize, openConnections, idleConnections;
+	private final long transactions, connectionsCreated;
+	private final long totalWaitNanos, maxWaitNanos;
+	private final long totalHoldNanos, maxHoldNanos;
+	private final long statementCacheHits, statementCacheMisses;
+
+	ConnectionPoolStats(int poolSize, int openConnections,
+			int idleConnections, long transactions, long connectionsCreated,
+			long totalWaitNanos, long maxWaitNanos, long totalHoldNanos,
+			long maxHoldNanos, long statementCacheHits,
+			long statementCacheMisses) {
+		this.poolSize = poolSize;
+		this.openConnections = openConnections;
+		this.idleConnections = idleConnections;
+		this.transactions = transactions;
+		this.connectionsCreated = connectionsCreated;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+		this.totalHoldNanos = totalHoldNanos;
+		this.maxHoldNanos = maxHoldNanos;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+	}
+
+	/**
+	 * Returns the number of connections that are opened in advance and kept
+	 * open while idle.
+	 */
+	int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Returns the number of connections that are currently open, including
+	 * idle connections.
+	 */
+	int getOpenConnections() {
+		return openConnections;
+	}
+
+	/**
+	 * Returns the number of connections that are currently idle.
+	 */
+	int getIdleConnections() {
+		return idleConnections;
+	}
+
+	/**
+	 * Returns the number of transactions that have been started.
+	 */
+	long getTransactions() {
+		return transactions;
+	}
+
+	/**
+	 * Returns the number of connections that have been opened because no
+	 * idle connection was available when a transaction was started.
+	 */
+	long getConnectionsCreated() {
+		return connectionsCreated;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent waiting for a connection
+	 * when starting transactions.
+	 */
+	long getTotalWaitNanos() {
+		return totalWaitNanos;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds spent waiting for a connection
+	 * when starting a transaction.
+	 */
+	long getMaxWaitNanos() {
+		return maxWaitNanos;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds for which connections have been
+	 * held by transactions that have finished.
+	 */
+	long getTotalHoldNanos() {
+		return totalHoldNanos;
+	}
+
+	/**
+	 * Returns the longest time in nanoseconds for which a connection has
+	 * been held by a transaction that has finished.
+	 */
+	long getMaxHoldNanos() {
+		return maxHoldNanos;
+	}
+
+	/**
+	 * Returns the number of times a prepared statement has been reused from
+	 * a connection's statement cache.
+	 */
+	long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	/**
+	 * Returns the number of times a statement has been prepared because it
+	 * wasn't in a connection's statement cache.
+	 */
+	long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	@Override
+	public String toString() {
+		long meanWait = transactions == 0 ? 0 : totalWaitNanos / transactions;
+		long meanHold = transactions == 0 ? 0 : totalHoldNanos / transactions;
+		return "pool size " + poolSize + ", " + openConnections + " open, "
+				+ idleConnections + " idle, " + transactions
+				+ " transactions, " + connectionsCreated + " created, "
+				+ "mean wait " + meanWait + " ns, max wait " + maxWaitNanos
+				+ " ns, mean hold " + meanHold + " ns, max hold "
+				+ maxHoldNanos + " ns, " + statementCacheHits
+				+ " statement cache hits, " + statementCacheMisses
+				+ " misses";
+	}
+}
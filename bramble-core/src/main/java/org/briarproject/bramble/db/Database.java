@@ -12,6 +12,7 @@ import org.briarproject.bramble.api.db.DataTooOldException;
 import org.briarproject.bramble.api.db.DatabaseComponent;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.MessageDeletedException;
+import org.briarproject.bramble.api.db.MessageMetadataVisitor;
 import org.briarproject.bramble.api.db.Metadata;
 import org.briarproject.bramble.api.db.MigrationListener;
 import org.briarproject.bramble.api.identity.Author;
@@ -327,6 +328,13 @@ interface Database<T> {
 	 */
 	GroupId getGroupId(T txn, MessageId m) throws DbException;
 
+	/**
+	 * Returns the counters for the given group.
+	 * <p/>
+	 * Read-only.
+	 */
+	Map<String, Long> getGroupCounters(T txn, GroupId g) throws DbException;
+
 	/**
 	 * Returns the metadata for the given group.
 	 * <p/>
@@ -386,6 +394,16 @@ interface Database<T> {
 	 */
 	Message getMessage(T txn, MessageId m) throws DbException;
 
+	/**
+	 * Returns the message with the given ID, wrapping the raw message so it
+	 * can be sent without being copied.
+	 * <p/>
+	 * Read-only.
+	 *
+	 * @throws MessageDeletedException if the message has been deleted
+	 */
+	Message getMessageToSend(T txn, MessageId m) throws DbException;
+
 	/**
 	 * Returns the IDs and states of all dependencies of the given message.
 	 * For missing dependencies and dependencies in other groups, the state
@@ -686,6 +704,13 @@ interface Database<T> {
 	void lowerRequestedFlag(T txn, ContactId c, Collection<MessageId> requested)
 			throws DbException;
 
+	/**
+	 * Merges the given counters with the existing counters for the given
+	 * group.
+	 */
+	void mergeGroupCounters(T txn, GroupId g, Map<String, Long> counters)
+			throws DbException;
+
 	/**
 	 * Merges the given metadata with the existing metadata for the given
 	 * group.
@@ -779,6 +804,14 @@ interface Database<T> {
 	void removeTransportKeys(T txn, TransportId t, KeySetId k)
 			throws DbException;
 
+	/**
+	 * Replaces the given value of the given metadata key with a new value
+	 * for all delivered messages in the given group, and returns the IDs of
+	 * the messages that were updated.
+	 */
+	Collection<MessageId> replaceMessageMetadata(T txn, GroupId g, String key,
+			byte[] oldValue, byte[] newValue) throws DbException;
+
 	/**
 	 * Resets the transmission count and expiry time of the given message with
 	 * respect to the given contact.
@@ -890,4 +923,17 @@ interface Database<T> {
 	 * Stores the given transport keys, deleting any keys they have replaced.
 	 */
 	void updateTransportKeys(T txn, TransportKeySet ks) throws DbException;
+
+	/**
+	 * Passes the metadata for any delivered messages in the given group with
+	 * metadata that matches all entries in the given query to the given
+	 * visitor, one message at a time, in descending order of timestamp. If
+	 * the query is empty, all delivered messages are visited. Visiting stops
+	 * early if the visitor returns false.
+	 * <p/>
+	 * Read-only.
+	 */
+	<E extends Exception> void visitMessageMetadata(T txn, GroupId g,
+			Metadata query, MessageMetadataVisitor<E> v)
+			throws DbException, E;
 }
@@ -22,6 +22,7 @@ import org.briarproject.bramble.api.db.DbCallable;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.DbRunnable;
 import org.briarproject.bramble.api.db.EventAction;
+import org.briarproject.bramble.api.db.MessageMetadataVisitor;
 import org.briarproject.bramble.api.db.Metadata;
 import org.briarproject.bramble.api.db.MigrationListener;
 import org.briarproject.bramble.api.db.NoSuchContactException;
@@ -87,6 +88,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
 import static java.util.Collections.singletonList;
+import static java.util.logging.Level.INFO;
 import static java.util.logging.Level.WARNING;
 import static java.util.logging.Logger.getLogger;
 import static org.briarproject.bramble.api.sync.Group.Visibility.INVISIBLE;
@@ -115,15 +117,38 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 			new ReentrantReadWriteLock(true);
 	private final Visitor visitor = new CommitActionVisitor();
 
+	/*
+	 * Caches of group metadata and delivered message metadata. The caches
+	 * are only populated by read-only transactions, which can't run
+	 * concurrently with write transactions, so the caches never contain
+	 * uncommitted changes and don't need to be rolled back. Write
+	 * transactions invalidate any metadata they modify.
+	 */
+	private final MetadataCache<GroupId> groupMetadataCache;
+	private final MetadataCache<MessageId> messageMetadataCache;
+
 	@Inject
 	DatabaseComponentImpl(Database<T> db, Class<T> txnClass, EventBus eventBus,
 			@EventExecutor Executor eventExecutor,
 			ShutdownManager shutdownManager) {
+		this(db, txnClass, eventBus, eventExecutor, shutdownManager, 0);
+	}
+
+	/**
+	 * @param maxMetadataCacheBytes The estimated maximum memory in bytes to
+	 * use for caching group metadata, and the same again for caching
+	 * message metadata. If this is zero, metadata is not cached.
+	 */
+	DatabaseComponentImpl(Database<T> db, Class<T> txnClass, EventBus eventBus,
+			@EventExecutor Executor eventExecutor,
+			ShutdownManager shutdownManager, long maxMetadataCacheBytes) {
 		this.db = db;
 		this.txnClass = txnClass;
 		this.eventBus = eventBus;
 		this.eventExecutor = eventExecutor;
 		this.shutdownManager = shutdownManager;
+		groupMetadataCache = new MetadataCache<>(maxMetadataCacheBytes);
+		messageMetadataCache = new MetadataCache<>(maxMetadataCacheBytes);
 	}
 
 	@Override
@@ -143,6 +168,10 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 	@Override
 	public void close() throws DbException {
 		if (closed.getAndSet(true)) return;
+		if (LOG.isLoggable(INFO)) {
+			LOG.info("Group metadata cache: " + groupMetadataCache);
+			LOG.info("Message metadata cache: " + messageMetadataCache);
+		}
 		db.close();
 	}
 
@@ -295,6 +324,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 			}
 		}
 		db.mergeMessageMetadata(txn, m.getId(), meta);
+		messageMetadataCache.invalidate(m.getId());
 	}
 
 	@Override
@@ -409,6 +439,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsMessage(txn, m))
 			throw new NoSuchMessageException();
 		db.deleteMessage(txn, m);
+		messageMetadataCache.invalidate(m);
 	}
 
 	@Override
@@ -419,6 +450,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsMessage(txn, m))
 			throw new NoSuchMessageException();
 		db.deleteMessageMetadata(txn, m);
+		messageMetadataCache.invalidate(m);
 	}
 
 	@Nullable
@@ -449,7 +481,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		long totalLength = 0;
 		List<Message> messages = new ArrayList<>(ids.size());
 		for (MessageId m : ids) {
-			Message message = db.getMessage(txn, m);
+			Message message = db.getMessageToSend(txn, m);
 			totalLength += message.getRawLength();
 			messages.add(message);
 			db.updateRetransmissionData(txn, c, m, maxLatency);
@@ -504,7 +536,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		long totalLength = 0;
 		List<Message> messages = new ArrayList<>(ids.size());
 		for (MessageId m : ids) {
-			Message message = db.getMessage(txn, m);
+			Message message = db.getMessageToSend(txn, m);
 			totalLength += message.getRawLength();
 			messages.add(message);
 			db.updateRetransmissionData(txn, c, m, maxLatency);
@@ -564,13 +596,26 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		return db.getGroupId(txn, m);
 	}
 
+	@Override
+	public Map<String, Long> getGroupCounters(Transaction transaction,
+			GroupId g) throws DbException {
+		T txn = unbox(transaction);
+		if (!db.containsGroup(txn, g))
+			throw new NoSuchGroupException();
+		return db.getGroupCounters(txn, g);
+	}
+
 	@Override
 	public Metadata getGroupMetadata(Transaction transaction, GroupId g)
 			throws DbException {
 		T txn = unbox(transaction);
+		Metadata cached = groupMetadataCache.get(g);
+		if (cached != null) return cached;
 		if (!db.containsGroup(txn, g))
 			throw new NoSuchGroupException();
-		return db.getGroupMetadata(txn, g);
+		Metadata meta = db.getGroupMetadata(txn, g);
+		if (transaction.isReadOnly()) groupMetadataCache.put(g, meta);
+		return meta;
 	}
 
 	@Override
@@ -700,9 +745,13 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 	public Metadata getMessageMetadata(Transaction transaction, MessageId m)
 			throws DbException {
 		T txn = unbox(transaction);
+		Metadata cached = messageMetadataCache.get(m);
+		if (cached != null) return cached;
 		if (!db.containsMessage(txn, m))
 			throw new NoSuchMessageException();
-		return db.getMessageMetadata(txn, m);
+		Metadata meta = db.getMessageMetadata(txn, m);
+		if (transaction.isReadOnly()) messageMetadataCache.put(m, meta);
+		return meta;
 	}
 
 	@Override
@@ -767,7 +816,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsContact(txn, c))
 			throw new NoSuchContactException();
 		if (!db.containsVisibleMessage(txn, c, m)) return null;
-		Message message = db.getMessage(txn, m);
+		Message message = db.getMessageToSend(txn, m);
 		if (markAsSent) {
 			db.updateRetransmissionData(txn, c, m, maxLatency);
 			db.lowerRequestedFlag(txn, c, singletonList(m));
@@ -894,6 +943,16 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		db.incrementStreamCounter(txn, t, k);
 	}
 
+	@Override
+	public void mergeGroupCounters(Transaction transaction, GroupId g,
+			Map<String, Long> counters) throws DbException {
+		if (transaction.isReadOnly()) throw new IllegalArgumentException();
+		T txn = unbox(transaction);
+		if (!db.containsGroup(txn, g))
+			throw new NoSuchGroupException();
+		db.mergeGroupCounters(txn, g, counters);
+	}
+
 	@Override
 	public void mergeGroupMetadata(Transaction transaction, GroupId g,
 			Metadata meta) throws DbException {
@@ -902,6 +961,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsGroup(txn, g))
 			throw new NoSuchGroupException();
 		db.mergeGroupMetadata(txn, g, meta);
+		groupMetadataCache.invalidate(g);
 	}
 
 	@Override
@@ -912,6 +972,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsMessage(txn, m))
 			throw new NoSuchMessageException();
 		db.mergeMessageMetadata(txn, m, meta);
+		messageMetadataCache.invalidate(m);
 	}
 
 	@Override
@@ -1040,6 +1101,9 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		Collection<ContactId> affected =
 				db.getGroupVisibility(txn, id).keySet();
 		db.removeGroup(txn, id);
+		groupMetadataCache.invalidate(id);
+		// The group's messages have been removed
+		messageMetadataCache.clear();
 		transaction.attach(new GroupRemovedEvent(g));
 		transaction.attach(new GroupVisibilityUpdatedEvent(INVISIBLE,
 				affected));
@@ -1065,6 +1129,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 			throw new NoSuchMessageException();
 		// TODO: Don't allow messages with dependents to be removed
 		db.removeMessage(txn, m);
+		messageMetadataCache.invalidate(m);
 	}
 
 	@Override
@@ -1084,6 +1149,7 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (transaction.isReadOnly()) throw new IllegalArgumentException();
 		T txn = unbox(transaction);
 		db.removeTemporaryMessages(txn);
+		messageMetadataCache.clear();
 	}
 
 	@Override
@@ -1106,6 +1172,20 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		db.removeTransportKeys(txn, t, k);
 	}
 
+	@Override
+	public Collection<MessageId> replaceMessageMetadata(
+			Transaction transaction, GroupId g, String key, byte[] oldValue,
+			byte[] newValue) throws DbException {
+		if (transaction.isReadOnly()) throw new IllegalArgumentException();
+		T txn = unbox(transaction);
+		if (!db.containsGroup(txn, g))
+			throw new NoSuchGroupException();
+		Collection<MessageId> ids =
+				db.replaceMessageMetadata(txn, g, key, oldValue, newValue);
+		for (MessageId m : ids) messageMetadataCache.invalidate(m);
+		return ids;
+	}
+
 	@Override
 	public void setAckSent(Transaction transaction, ContactId c,
 			Collection<MessageId> acked) throws DbException {
@@ -1209,6 +1289,8 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		if (!db.containsMessage(txn, m))
 			throw new NoSuchMessageException();
 		db.setMessageState(txn, m, state);
+		// Message metadata is only visible when the message is delivered
+		messageMetadataCache.invalidate(m);
 		transaction.attach(new MessageStateChangedEvent(m, false, state));
 	}
 
@@ -1327,6 +1409,16 @@ class DatabaseComponentImpl<T> implements DatabaseComponent {
 		}
 	}
 
+	@Override
+	public <E extends Exception> void visitMessageMetadata(
+			Transaction transaction, GroupId g, Metadata query,
+			MessageMetadataVisitor<E> v) throws DbException, E {
+		T txn = unbox(transaction);
+		if (!db.containsGroup(txn, g))
+			throw new NoSuchGroupException();
+		db.visitMessageMetadata(txn, g, query, v);
+	}
+
 	private class CommitActionVisitor implements Visitor {
 
 		@Override
@@ -11,6 +11,12 @@ interface DatabaseConstants {
 	 */
 	int MAX_OFFERED_MESSAGES = 1000;
 
+	/**
+	 * The estimated maximum memory in bytes to use for caching group
+	 * metadata, and the same again for caching message metadata.
+	 */
+	long MAX_METADATA_CACHE_BYTES = 1024 * 1024;
+
 	/**
 	 * The namespace of the {@link Settings} where the database schema version
 	 * is stored.
@@ -1,7 +1,10 @@
 package org.briarproject.bramble.db;
 
+import org.briarproject.bramble.PriorityExecutor;
 import org.briarproject.bramble.TimeLoggingExecutor;
+import org.briarproject.bramble.api.db.BackgroundDatabaseExecutor;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 
 import java.util.concurrent.BlockingQueue;
@@ -18,6 +21,8 @@ import javax.inject.Singleton;
 import dagger.Module;
 import dagger.Provides;
 
+import static java.lang.Integer.MAX_VALUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 @Module
@@ -29,20 +34,63 @@ public class DatabaseExecutorModule {
 		ExecutorService executorService;
 	}
 
+	/**
+	 * The priority classes of database tasks, from highest to lowest. These
+	 * can be passed to {@link PriorityExecutor#getStats(int)} on the
+	 * {@link DatabaseExecutor} priority executor to get the usage statistics
+	 * of each class.
+	 */
+	public static final int PRIORITY_INTERACTIVE = 0, PRIORITY_SYNC = 1,
+			PRIORITY_BACKGROUND = 2;
+
+	/**
+	 * The maximum number of database tasks that run concurrently. As tasks
+	 * in the same priority class don't run concurrently, this is less than
+	 * the number of classes, so the classes compete for threads when they're
+	 * all busy. An interactive task never has to wait for more than one
+	 * running task to finish.
+	 */
+	private static final int MAX_CONCURRENT_TASKS = 2;
+
+	/**
+	 * The time a task must spend in the queue to have its priority raised by
+	 * one class.
+	 */
+	private static final long AGING_TIME_MS = 500;
+
+	/**
+	 * The maximum number of queued tasks in the interactive and background
+	 * classes. The sync class has an unbounded queue so that the contract
+	 * of {@link DatabaseExecutor} isn't changed.
+	 */
+	private static final int MAX_QUEUED_TASKS = 1000;
+
+	/**
+	 * Provides the thread pool shared by the database priority classes as a
+	 * {@link TimeLoggingExecutor} so its usage statistics can be inspected
+	 * at runtime. The statistics of each class are available from the
+	 * {@link DatabaseExecutor} {@link PriorityExecutor}.
+	 */
 	@Provides
 	@Singleton
 	@DatabaseExecutor
-	ExecutorService provideDatabaseExecutorService(
+	TimeLoggingExecutor provideDatabaseTimeLoggingExecutor(
 			LifecycleManager lifecycleManager, ThreadFactory threadFactory) {
 		// Use an unbounded queue
 		BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
 		// Discard tasks that are submitted during shutdown
 		RejectedExecutionHandler policy =
 				new ThreadPoolExecutor.DiscardPolicy();
-		// Use a single thread and keep it in the pool for 60 secs
-		ExecutorService databaseExecutor = new TimeLoggingExecutor(
-				"DatabaseExecutor", 0, 1, 60, SECONDS, queue, threadFactory,
-				policy);
+		// The thread pool is shared by all the priority classes, which limit
+		// the number of concurrent tasks, so tasks should be submitted to the
+		// classes rather than the pool. A pool with an unbounded queue never
+		// grows beyond its core size, so make the core size the maximum size.
+		// Allow core threads to time out so idle threads are only kept in the
+		// pool for 60 secs
+		TimeLoggingExecutor databaseExecutor = new TimeLoggingExecutor(
+				"DatabaseExecutor", MAX_CONCURRENT_TASKS, MAX_CONCURRENT_TASKS,
+				60, SECONDS, queue, threadFactory, policy);
+		databaseExecutor.allowCoreThreadTimeOut(true);
 		lifecycleManager.registerForShutdown(databaseExecutor);
 		return databaseExecutor;
 	}
@@ -50,8 +98,42 @@ public class DatabaseExecutorModule {
 	@Provides
 	@Singleton
 	@DatabaseExecutor
-	Executor provideDatabaseExecutor(
+	ExecutorService provideDatabaseExecutorService(
+			@DatabaseExecutor TimeLoggingExecutor databaseExecutor) {
+		return databaseExecutor;
+	}
+
+	@Provides
+	@Singleton
+	@DatabaseExecutor
+	PriorityExecutor provideDatabasePriorityExecutor(
 			@DatabaseExecutor ExecutorService dbExecutor) {
-		return dbExecutor;
+		return new PriorityExecutor("DatabaseExecutor", dbExecutor,
+				MAX_CONCURRENT_TASKS, AGING_TIME_MS, MILLISECONDS,
+				MAX_QUEUED_TASKS, MAX_VALUE, MAX_QUEUED_TASKS);
+	}
+
+	@Provides
+	@Singleton
+	@DatabaseExecutor
+	Executor provideDatabaseExecutor(
+			@DatabaseExecutor PriorityExecutor priorityExecutor) {
+		return priorityExecutor.getExecutor(PRIORITY_SYNC);
+	}
+
+	@Provides
+	@Singleton
+	@InteractiveDatabaseExecutor
+	Executor provideInteractiveDatabaseExecutor(
+			@DatabaseExecutor PriorityExecutor priorityExecutor) {
+		return priorityExecutor.getExecutor(PRIORITY_INTERACTIVE);
+	}
+
+	@Provides
+	@Singleton
+	@BackgroundDatabaseExecutor
+	Executor provideBackgroundDatabaseExecutor(
+			@DatabaseExecutor PriorityExecutor priorityExecutor) {
+		return priorityExecutor.getExecutor(PRIORITY_BACKGROUND);
 	}
 }
@@ -17,6 +17,8 @@ import javax.inject.Singleton;
 import dagger.Module;
 import dagger.Provides;
 
+import static org.briarproject.bramble.db.DatabaseConstants.MAX_METADATA_CACHE_BYTES;
+
 @Module
 public class DatabaseModule {
 
@@ -33,7 +35,7 @@ public class DatabaseModule {
 			EventBus eventBus, @EventExecutor Executor eventExecutor,
 			ShutdownManager shutdownManager) {
 		return new DatabaseComponentImpl<>(db, Connection.class, eventBus,
-				eventExecutor, shutdownManager);
+				eventExecutor, shutdownManager, MAX_METADATA_CACHE_BYTES);
 	}
 
 	@Provides
@@ -16,6 +16,7 @@ import org.briarproject.bramble.api.db.DataTooOldException;
 import org.briarproject.bramble.api.db.DbClosedException;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.MessageDeletedException;
+import org.briarproject.bramble.api.db.MessageMetadataVisitor;
 import org.briarproject.bramble.api.db.Metadata;
 import org.briarproject.bramble.api.db.MigrationListener;
 import org.briarproject.bramble.api.identity.Author;
@@ -47,15 +48,21 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -101,12 +108,13 @@ import static org.briarproject.bramble.util.LogUtils.now;
 abstract class JdbcDatabase implements Database<Connection> {
 
 	// Package access for testing
-	static final int CODE_SCHEMA_VERSION = 50;
+	static final int CODE_SCHEMA_VERSION = 52;
 
 	/**
-	 * The maximum number of idle connections to keep open.
+	 * The maximum number of prepared statements to cache for each
+	 * connection.
 	 */
-	private static final int MAX_CONNECTION_POOL_SIZE = 1;
+	private static final int MAX_CACHED_STATEMENTS = 100;
 
 	// Time period offsets for incoming transport keys
 	private static final int OFFSET_PREV = -1;
@@ -167,6 +175,16 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " REFERENCES groups (groupId)"
 					+ " ON DELETE CASCADE)";
 
+	private static final String CREATE_GROUP_COUNTERS =
+			"CREATE TABLE groupCounters"
+					+ " (groupId _HASH NOT NULL,"
+					+ " counterKey _STRING NOT NULL,"
+					+ " value BIGINT NOT NULL,"
+					+ " PRIMARY KEY (groupId, counterKey),"
+					+ " FOREIGN KEY (groupId)"
+					+ " REFERENCES groups (groupId)"
+					+ " ON DELETE CASCADE)";
+
 	private static final String CREATE_GROUP_VISIBILITIES =
 			"CREATE TABLE groupVisibilities"
 					+ " (contactId INT NOT NULL,"
@@ -337,6 +355,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 			"CREATE INDEX IF NOT EXISTS messageMetadataByGroupIdState"
 					+ " ON messageMetadata (groupId, state)";
 
+	private static final String
+			INDEX_MESSAGE_METADATA_BY_GROUP_ID_META_KEY_VALUE =
+			"CREATE INDEX IF NOT EXISTS messageMetadataByGroupIdMetaKeyValue"
+					+ " ON messageMetadata (groupId, metaKey, value)";
+
 	private static final String INDEX_MESSAGE_DEPENDENCIES_BY_DEPENDENCY_ID =
 			"CREATE INDEX IF NOT EXISTS messageDependenciesByDependencyId"
 					+ " ON messageDependencies (dependencyId)";
@@ -364,6 +387,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 	private final MessageFactory messageFactory;
 	private final Clock clock;
 	private final DatabaseTypes dbTypes;
+	/**
+	 * The number of connections to open in advance and keep open while
+	 * idle.
+	 */
+	private final int connectionPoolSize;
 
 	private final Lock connectionsLock = new ReentrantLock();
 	private final Condition connectionsChanged = connectionsLock.newCondition();
@@ -376,6 +404,29 @@ abstract class JdbcDatabase implements Database<Connection> {
 	@GuardedBy("connectionsLock")
 	private boolean closed = false;
 
+	// Usage statistics for the connection pool
+	@GuardedBy("connectionsLock")
+	private final Map<Connection, Long> transactionStartTimes =
+			new IdentityHashMap<>();
+	@GuardedBy("connectionsLock")
+	private long transactions = 0, connectionsCreated = 0;
+	@GuardedBy("connectionsLock")
+	private long totalWaitNanos = 0, maxWaitNanos = 0;
+	@GuardedBy("connectionsLock")
+	private long totalHoldNanos = 0, maxHoldNanos = 0;
+	private final AtomicLong statementCacheHits = new AtomicLong(0);
+	private final AtomicLong statementCacheMisses = new AtomicLong(0);
+
+	/**
+	 * The prepared statements cached for each open connection, keyed by
+	 * their SQL. Each connection's cache is only accessed by the thread
+	 * that's using the connection for a transaction. Statements are removed
+	 * from the cache while they're in use, so the iteration order of each
+	 * cache is least recently used first.
+	 */
+	private final Map<Connection, LinkedHashMap<String, PreparedStatement>>
+			statementCaches = new ConcurrentHashMap<>();
+
 	private volatile boolean wasDirtyOnInitialisation = false;
 
 	protected abstract Connection createConnection()
@@ -386,10 +437,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 	protected abstract void compactAndClose() throws DbException;
 
 	JdbcDatabase(DatabaseTypes databaseTypes, MessageFactory messageFactory,
-			Clock clock) {
+			Clock clock, int connectionPoolSize) {
+		if (connectionPoolSize < 1) throw new IllegalArgumentException();
 		this.dbTypes = databaseTypes;
 		this.messageFactory = messageFactory;
 		this.clock = clock;
+		this.connectionPoolSize = connectionPoolSize;
 	}
 
 	protected void open(String driverClass, boolean reopen,
@@ -440,6 +493,40 @@ abstract class JdbcDatabase implements Database<Connection> {
 				connectionsLock.unlock();
 			}
 		}
+		// Open the rest of the connections in advance
+		fillConnectionPool();
+	}
+
+	private void fillConnectionPool() throws DbException {
+		List<Connection> opened = new ArrayList<>();
+		try {
+			while (true) {
+				connectionsLock.lock();
+				try {
+					if (closed) throw new DbClosedException();
+					if (openConnections + opened.size() >= connectionPoolSize)
+						break;
+				} finally {
+					connectionsLock.unlock();
+				}
+				opened.add(openConnection());
+			}
+		} catch (SQLException e) {
+			for (Connection txn : opened) close(txn);
+			throw new DbException(e);
+		} catch (DbException e) {
+			for (Connection txn : opened) close(txn);
+			throw e;
+		}
+		connectionsLock.lock();
+		try {
+			openConnections += opened.size();
+			connectionPool.addAll(opened);
+			logConnectionCounts();
+			connectionsChanged.signalAll();
+		} finally {
+			connectionsLock.unlock();
+		}
 	}
 
 	@Override
@@ -499,7 +586,9 @@ abstract class JdbcDatabase implements Database<Connection> {
 				new Migration46_47(dbTypes),
 				new Migration47_48(),
 				new Migration48_49(),
-				new Migration49_50()
+				new Migration49_50(),
+				new Migration50_51(),
+				new Migration51_52(dbTypes)
 		);
 	}
 
@@ -535,6 +624,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_CONTACTS));
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_GROUPS));
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_GROUP_METADATA));
+			s.executeUpdate(dbTypes.replaceTypes(CREATE_GROUP_COUNTERS));
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_GROUP_VISIBILITIES));
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_MESSAGES));
 			s.executeUpdate(dbTypes.replaceTypes(CREATE_MESSAGE_METADATA));
@@ -559,6 +649,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			s.executeUpdate(INDEX_CONTACTS_BY_AUTHOR_ID);
 			s.executeUpdate(INDEX_GROUPS_BY_CLIENT_ID_MAJOR_VERSION);
 			s.executeUpdate(INDEX_MESSAGE_METADATA_BY_GROUP_ID_STATE);
+			s.executeUpdate(INDEX_MESSAGE_METADATA_BY_GROUP_ID_META_KEY_VALUE);
 			s.executeUpdate(INDEX_MESSAGE_DEPENDENCIES_BY_DEPENDENCY_ID);
 			s.executeUpdate(INDEX_STATUSES_BY_CONTACT_ID_GROUP_ID);
 			s.executeUpdate(INDEX_STATUSES_BY_CONTACT_ID_TIMESTAMP);
@@ -573,11 +664,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 
 	@Override
 	public Connection startTransaction() throws DbException {
+		long start = System.nanoTime();
 		Connection txn;
 		connectionsLock.lock();
 		try {
 			if (closed) throw new DbClosedException();
 			txn = connectionPool.poll();
+			if (txn != null) transactionStarted(txn, start);
 			logConnectionCounts();
 		} finally {
 			connectionsLock.unlock();
@@ -585,16 +678,17 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			if (txn == null) {
 				// Open a new connection
-				txn = createConnection();
-				txn.setAutoCommit(false);
+				txn = openConnection();
 				connectionsLock.lock();
 				try {
 					// The DB may have been closed since the check above
 					if (closed) {
-						tryToClose(txn, LOG, WARNING);
+						close(txn);
 						throw new DbClosedException();
 					}
 					openConnections++;
+					connectionsCreated++;
+					transactionStarted(txn, start);
 					logConnectionCounts();
 					connectionsChanged.signalAll();
 				} finally {
@@ -607,6 +701,122 @@ abstract class JdbcDatabase implements Database<Connection> {
 		return txn;
 	}
 
+	/**
+	 * Opens a connection for use in transactions. Statements prepared on
+	 * the connection are cached for as long as the connection stays open.
+	 */
+	private Connection openConnection() throws DbException, SQLException {
+		Connection txn = createConnection();
+		try {
+			txn.setAutoCommit(false);
+		} catch (SQLException e) {
+			tryToClose(txn, LOG, WARNING);
+			throw e;
+		}
+		statementCaches.put(txn, new LinkedHashMap<>());
+		return txn;
+	}
+
+	/**
+	 * Closes a connection, discarding its cached statements. Closing the
+	 * connection closes the statements.
+	 */
+	private void close(Connection txn) {
+		statementCaches.remove(txn);
+		tryToClose(txn, LOG, WARNING);
+	}
+
+	/**
+	 * Returns a statement for the given SQL, reusing a statement from the
+	 * connection's cache if possible. When the caller has finished with the
+	 * statement it should return it with
+	 * {@link #releaseStatement(Connection, String, PreparedStatement)}
+	 * rather than closing it.
+	 */
+	private PreparedStatement prepareStatement(Connection txn, String sql)
+			throws SQLException {
+		Map<String, PreparedStatement> cache = statementCaches.get(txn);
+		PreparedStatement ps = cache == null ? null : cache.remove(sql);
+		// A statement that was closed after being returned to the cache
+		// can't be reused
+		if (ps == null || ps.isClosed()) {
+			statementCacheMisses.incrementAndGet();
+			return txn.prepareStatement(sql);
+		}
+		statementCacheHits.incrementAndGet();
+		return ps;
+	}
+
+	/**
+	 * Resets a statement returned by
+	 * {@link #prepareStatement(Connection, String)} and returns it to the
+	 * connection's cache, closing the least recently used statement if the
+	 * cache is full. If the statement can't be reset it's closed instead.
+	 */
+	private void releaseStatement(Connection txn, String sql,
+			PreparedStatement ps) {
+		LinkedHashMap<String, PreparedStatement> cache =
+				statementCaches.get(txn);
+		if (cache == null || cache.containsKey(sql)) {
+			tryToClose(ps, LOG, WARNING);
+			return;
+		}
+		try {
+			ps.clearParameters();
+			ps.clearBatch();
+		} catch (SQLException e) {
+			logException(LOG, WARNING, e);
+			tryToClose(ps, LOG, WARNING);
+			return;
+		}
+		cache.put(sql, ps);
+		if (cache.size() > MAX_CACHED_STATEMENTS) {
+			Iterator<PreparedStatement> it = cache.values().iterator();
+			PreparedStatement eldest = it.next();
+			it.remove();
+			tryToClose(eldest, LOG, WARNING);
+		}
+	}
+
+	@GuardedBy("connectionsLock")
+	private void transactionStarted(Connection txn, long start) {
+		long now = System.nanoTime();
+		long wait = now - start;
+		transactions++;
+		totalWaitNanos += wait;
+		if (wait > maxWaitNanos) maxWaitNanos = wait;
+		transactionStartTimes.put(txn, now);
+	}
+
+	@GuardedBy("connectionsLock")
+	private void transactionFinished(Connection txn) {
+		Long start = transactionStartTimes.remove(txn);
+		if (start == null) return;
+		long hold = System.nanoTime() - start;
+		totalHoldNanos += hold;
+		if (hold > maxHoldNanos) maxHoldNanos = hold;
+	}
+
+	/**
+	 * Returns a snapshot of the connection pool's usage statistics.
+	 */
+	ConnectionPoolStats getConnectionPoolStats() {
+		connectionsLock.lock();
+		try {
+			return createConnectionPoolStats();
+		} finally {
+			connectionsLock.unlock();
+		}
+	}
+
+	@GuardedBy("connectionsLock")
+	private ConnectionPoolStats createConnectionPoolStats() {
+		return new ConnectionPoolStats(connectionPoolSize, openConnections,
+				connectionPool.size(), transactions, connectionsCreated,
+				totalWaitNanos, maxWaitNanos, totalHoldNanos, maxHoldNanos,
+				statementCacheHits.get(), statementCacheMisses.get());
+	}
+
 	@GuardedBy("connectionsLock")
 	private void logConnectionCounts() {
 		if (LOG.isLoggable(FINE)) {
@@ -628,10 +838,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 	}
 
 	private void closeConnection(Connection txn) {
-		tryToClose(txn, LOG, WARNING);
+		close(txn);
 		connectionsLock.lock();
 		try {
 			openConnections--;
+			transactionFinished(txn);
 			logConnectionCounts();
 			connectionsChanged.signalAll();
 		} finally {
@@ -657,7 +868,8 @@ abstract class JdbcDatabase implements Database<Connection> {
 		boolean shouldClose;
 		connectionsLock.lock();
 		try {
-			shouldClose = connectionPool.size() >= MAX_CONNECTION_POOL_SIZE;
+			transactionFinished(txn);
+			shouldClose = connectionPool.size() >= connectionPoolSize;
 			if (shouldClose) openConnections--;
 			else connectionPool.add(txn);
 			logConnectionCounts();
@@ -665,7 +877,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		} finally {
 			connectionsLock.unlock();
 		}
-		if (shouldClose) tryToClose(txn, LOG, WARNING);
+		if (shouldClose) close(txn);
 	}
 
 	void closeAllConnections() {
@@ -673,7 +885,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		connectionsLock.lock();
 		try {
 			closed = true;
-			for (Connection c : connectionPool) tryToClose(c, LOG, WARNING);
+			for (Connection c : connectionPool) close(c);
 			openConnections -= connectionPool.size();
 			connectionPool.clear();
 			while (openConnections > 0) {
@@ -687,11 +899,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 					LOG.warning("Interrupted while closing connections");
 					interrupted = true;
 				}
-				for (Connection c : connectionPool) tryToClose(c, LOG, WARNING);
+				for (Connection c : connectionPool) close(c);
 				openConnections -= connectionPool.size();
 				connectionPool.clear();
 			}
 			LOG.info("All connections closed");
+			if (LOG.isLoggable(INFO)) {
+				LOG.info("Connection pool: " + createConnectionPoolStats());
+			}
 		} finally {
 			connectionsLock.unlock();
 		}
@@ -711,7 +926,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " (authorId, formatVersion, name, publicKey,"
 					+ " localAuthorId, handshakePublicKey, verified)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, remote.getId().getBytes());
 			ps.setInt(2, remote.getFormatVersion());
 			ps.setString(3, remote.getName());
@@ -722,17 +937,17 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setBoolean(7, verified);
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Get the new (highest) contact ID
 			sql = "SELECT contactId FROM contacts"
 					+ " ORDER BY contactId DESC LIMIT 1";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			ContactId c = new ContactId(rs.getInt(1));
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return c;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -748,14 +963,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "INSERT INTO groups"
 					+ " (groupId, clientId, majorVersion, descriptor)"
 					+ " VALUES (?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getId().getBytes());
 			ps.setString(2, g.getClientId().getString());
 			ps.setInt(3, g.getMajorVersion());
 			ps.setBytes(4, g.getDescriptor());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -770,13 +985,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "INSERT INTO groupVisibilities"
 					+ " (contactId, groupId, shared)"
 					+ " VALUES (?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setBytes(2, g.getBytes());
 			ps.setBoolean(3, groupShared);
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Create a status row for each message in the group
 			addStatus(txn, c, g, groupShared);
 		} catch (SQLException e) {
@@ -794,7 +1009,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " length, raw IS NULL"
 					+ " FROM messages"
 					+ " WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			rs = ps.executeQuery();
 			while (rs.next()) {
@@ -809,7 +1024,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 						messageShared, deleted, seen);
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
@@ -825,7 +1040,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " (authorId, formatVersion, name, publicKey, privateKey,"
 					+ " handshakePublicKey, handshakePrivateKey, created)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			LocalAuthor local = i.getLocalAuthor();
 			ps.setBytes(1, local.getId().getBytes());
 			ps.setInt(2, local.getFormatVersion());
@@ -839,7 +1054,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setLong(8, i.getTimeCreated());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -855,7 +1070,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "INSERT INTO messages (messageId, groupId, timestamp,"
 					+ " state, shared, temporary, length, raw)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getId().getBytes());
 			ps.setBytes(2, m.getGroupId().getBytes());
 			ps.setLong(3, m.getTimestamp());
@@ -867,7 +1082,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setBytes(8, raw);
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Create a status row for each contact that can see the group
 			Map<ContactId, Boolean> visibility =
 					getGroupVisibility(txn, m.getGroupId());
@@ -882,13 +1097,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// is in same group as dependent
 			sql = "UPDATE messageDependencies SET dependencyState = ?"
 					+ " WHERE groupId = ? AND dependencyId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getGroupId().getBytes());
 			ps.setBytes(3, m.getId().getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -903,22 +1118,22 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT NULL FROM offers"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			if (found) return;
 			sql = "INSERT INTO offers (messageId, contactId) VALUES (?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
@@ -938,7 +1153,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " maxLatency)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, 0, 0,"
 					+ " NULL)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			ps.setBytes(3, g.getBytes());
@@ -952,7 +1167,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setBoolean(11, seen);
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -969,7 +1184,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// Get state of dependency if present and in same group as dependent
 			String sql = "SELECT state FROM messages"
 					+ " WHERE messageId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, dependency.getBytes());
 			ps.setBytes(2, dependent.getGroupId().getBytes());
 			rs = ps.executeQuery();
@@ -979,13 +1194,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rs.next()) throw new DbStateException();
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Create messageDependencies row
 			sql = "INSERT INTO messageDependencies"
 					+ " (groupId, messageId, dependencyId, messageState,"
 					+ " dependencyState)"
 					+ " VALUES (?, ?, ?, ? ,?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, dependent.getGroupId().getBytes());
 			ps.setBytes(2, dependent.getId().getBytes());
 			ps.setBytes(3, dependency.getBytes());
@@ -994,7 +1209,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			else ps.setInt(5, dependencyState.getValue());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
@@ -1010,14 +1225,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "INSERT INTO pendingContacts (pendingContactId,"
 					+ " publicKey, alias, timestamp)"
 					+ " VALUES (?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, p.getId().getBytes());
 			ps.setBytes(2, p.getPublicKey().getEncoded());
 			ps.setString(3, p.getAlias());
 			ps.setLong(4, p.getTimestamp());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -1031,12 +1246,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "INSERT INTO transports (transportId, maxLatency)"
 					+ " VALUES (?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			ps.setLong(2, maxLatency);
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -1066,7 +1281,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " contactId, pendingContactId, tagKey, headerKey,"
 					+ " stream, active, rootKey, alice)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, k.getTransportId().getString());
 			ps.setLong(2, k.getTimePeriod());
 			if (c == null) ps.setNull(3, INTEGER);
@@ -1087,23 +1302,23 @@ abstract class JdbcDatabase implements Database<Connection> {
 			}
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Get the new (highest) key set ID
 			sql = "SELECT keySetId FROM outgoingKeys"
 					+ " ORDER BY keySetId DESC LIMIT 1";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			KeySetId keySetId = new KeySetId(rs.getInt(1));
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Store the incoming keys
 			sql = "INSERT INTO incomingKeys (transportId, keySetId,"
 					+ " timePeriod, tagKey, headerKey, base, bitmap,"
 					+ " periodOffset)"
 					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, k.getTransportId().getString());
 			ps.setInt(2, keySetId.getInt());
 			// Previous time period
@@ -1137,7 +1352,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			if (batchAffected.length != 3) throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return keySetId;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1154,12 +1369,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT NULL FROM statuses"
 					+ " WHERE contactId = ? AND ack = TRUE";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			rs = ps.executeQuery();
 			boolean acksToSend = rs.next();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return acksToSend;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1176,14 +1391,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT NULL FROM contacts"
 					+ " WHERE authorId = ? AND localAuthorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, remote.getBytes());
 			ps.setBytes(2, local.getBytes());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1199,13 +1414,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT NULL FROM contacts WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1221,13 +1436,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT NULL FROM groups WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1243,13 +1458,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT NULL FROM localAuthors WHERE authorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, a.getBytes());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1265,13 +1480,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT NULL FROM messages WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1286,23 +1501,24 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		ResultSet rs = null;
 		try {
+			String sql;
 			if (eager) {
-				String sql = "SELECT NULL from statuses"
+				sql = "SELECT NULL from statuses"
 						+ " WHERE contactId = ? AND state = ?"
 						+ " AND groupShared = TRUE AND messageShared = TRUE"
 						+ " AND deleted = FALSE AND seen = FALSE";
-				ps = txn.prepareStatement(sql);
+				ps = prepareStatement(txn, sql);
 				ps.setInt(1, c.getInt());
 				ps.setInt(2, DELIVERED.getValue());
 			} else {
 				long now = clock.currentTimeMillis();
-				String sql = "SELECT NULL FROM statuses"
+				sql = "SELECT NULL FROM statuses"
 						+ " WHERE contactId = ? AND state = ?"
 						+ " AND groupShared = TRUE AND messageShared = TRUE"
 						+ " AND deleted = FALSE AND seen = FALSE"
 						+ " AND (expiry <= ? OR maxLatency IS NULL"
 						+ " OR ? < maxLatency)";
-				ps = txn.prepareStatement(sql);
+				ps = prepareStatement(txn, sql);
 				ps.setInt(1, c.getInt());
 				ps.setInt(2, DELIVERED.getValue());
 				ps.setLong(3, now);
@@ -1311,7 +1527,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			rs = ps.executeQuery();
 			boolean messagesToSend = rs.next();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return messagesToSend;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1328,13 +1544,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT NULL FROM pendingContacts"
 					+ " WHERE pendingContactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, p.getBytes());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1350,13 +1566,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT NULL FROM transports WHERE transportId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1373,13 +1589,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT NULL FROM outgoingKeys"
 					+ " WHERE contactId = ? AND transportId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setString(2, t.getString());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1397,14 +1613,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT NULL FROM statuses"
 					+ " WHERE messageId = ? AND contactId = ?"
 					+ " AND messageShared = TRUE";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return found;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1421,14 +1637,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT COUNT (messageId) FROM offers "
 					+ " WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbException();
 			int count = rs.getInt(1);
 			if (rs.next()) throw new DbException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return count;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1444,19 +1660,19 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "UPDATE messages"
 					+ " SET raw = NULL, cleanupDeadline = NULL"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
 			if (affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in statuses
 			sql = "UPDATE statuses SET deleted = TRUE WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -1469,11 +1685,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM messageMetadata WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -1489,7 +1705,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " publicKey, handshakePublicKey, localAuthorId, verified"
 					+ " FROM contacts"
 					+ " WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
@@ -1502,7 +1718,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			AuthorId localAuthorId = new AuthorId(rs.getBytes(7));
 			boolean verified = rs.getBoolean(8);
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			Author author =
 					new Author(authorId, formatVersion, name, publicKey);
 			PublicKey handshakePublicKey = handshakePub == null ?
@@ -1563,13 +1779,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT contactId FROM contacts"
 					+ " WHERE localAuthorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, local.getBytes());
 			rs = ps.executeQuery();
 			List<ContactId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new ContactId(rs.getInt(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1588,7 +1804,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " publicKey, handshakePublicKey, localAuthorId, verified"
 					+ " FROM contacts"
 					+ " WHERE authorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, remote.getBytes());
 			rs = ps.executeQuery();
 			List<Contact> contacts = new ArrayList<>();
@@ -1609,7 +1825,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 						alias, handshakePublicKey, verified));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return contacts;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1629,13 +1845,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " alias, publicKey, verified"
 					+ " FROM contacts"
 					+ " WHERE handshakePublicKey = ? AND localAuthorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, handshakePublicKey.getEncoded());
 			ps.setBytes(2, localAuthorId.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) {
 				rs.close();
-				ps.close();
+				releaseStatement(txn, sql, ps);
 				return null;
 			}
 			ContactId contactId = new ContactId(rs.getInt(1));
@@ -1647,7 +1863,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			boolean verified = rs.getBoolean(7);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			Author author =
 					new Author(authorId, formatVersion, name, publicKey);
 			return new Contact(contactId, author, localAuthorId, alias,
@@ -1666,7 +1882,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT clientId, majorVersion, descriptor"
 					+ " FROM groups WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
@@ -1674,7 +1890,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			int majorVersion = rs.getInt(2);
 			byte[] descriptor = rs.getBytes(3);
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return new Group(g, clientId, majorVersion, descriptor);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1689,13 +1905,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT groupId FROM messages WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			GroupId g = new GroupId(rs.getBytes(1));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return g;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1712,7 +1928,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT groupId, descriptor FROM groups"
 					+ " WHERE clientId = ? AND majorVersion = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, c.getString());
 			ps.setInt(2, majorVersion);
 			rs = ps.executeQuery();
@@ -1723,7 +1939,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				groups.add(new Group(id, c, majorVersion, descriptor));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return groups;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1740,7 +1956,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT shared FROM groupVisibilities"
 					+ " WHERE contactId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setBytes(2, g.getBytes());
 			rs = ps.executeQuery();
@@ -1749,7 +1965,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			else v = INVISIBLE;
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return v;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1766,14 +1982,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT contactId, shared FROM groupVisibilities"
 					+ " WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			rs = ps.executeQuery();
 			Map<ContactId, Boolean> visible = new HashMap<>();
 			while (rs.next())
 				visible.put(new ContactId(rs.getInt(1)), rs.getBoolean(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return visible;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1791,7 +2007,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " handshakePublicKey, handshakePrivateKey, created"
 					+ " FROM localAuthors"
 					+ " WHERE authorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, a.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
@@ -1804,7 +2020,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			long created = rs.getLong(7);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			LocalAuthor local = new LocalAuthor(a, formatVersion, name,
 					publicKey, privateKey);
 			PublicKey handshakePublicKey = handshakePub == null ?
@@ -1830,7 +2046,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " privateKey, handshakePublicKey, handshakePrivateKey,"
 					+ " created"
 					+ " FROM localAuthors";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			rs = ps.executeQuery();
 			List<Identity> identities = new ArrayList<>();
 			while (rs.next()) {
@@ -1852,7 +2068,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 						handshakePrivateKey, created));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return identities;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1863,12 +2079,23 @@ abstract class JdbcDatabase implements Database<Connection> {
 
 	@Override
 	public Message getMessage(Connection txn, MessageId m) throws DbException {
+		return getMessage(txn, m, false);
+	}
+
+	@Override
+	public Message getMessageToSend(Connection txn, MessageId m)
+			throws DbException {
+		return getMessage(txn, m, true);
+	}
+
+	private Message getMessage(Connection txn, MessageId m, boolean wrap)
+			throws DbException {
 		PreparedStatement ps = null;
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT groupId, timestamp, raw FROM messages"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
@@ -1877,9 +2104,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 			byte[] raw = rs.getBytes(3);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			if (raw == null) throw new MessageDeletedException();
 			if (raw.length <= MESSAGE_HEADER_LENGTH) throw new AssertionError();
+			// Wrap the raw message so it can be sent without being copied
+			if (wrap) return Message.wrapRawMessage(m, g, timestamp, raw);
 			byte[] body = new byte[raw.length - MESSAGE_HEADER_LENGTH];
 			System.arraycopy(raw, MESSAGE_HEADER_LENGTH, body, 0, body.length);
 			return new Message(m, g, timestamp, body);
@@ -1898,14 +2127,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT messageId FROM messages"
 					+ " WHERE groupId = ? AND state = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1928,7 +2157,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " WHERE groupId = ? AND state = ?"
 					+ " AND metaKey = ? AND value = ?";
 			for (Entry<String, byte[]> e : query.entrySet()) {
-				ps = txn.prepareStatement(sql);
+				ps = prepareStatement(txn, sql);
 				ps.setBytes(1, g.getBytes());
 				ps.setInt(2, DELIVERED.getValue());
 				ps.setString(3, e.getKey());
@@ -1937,7 +2166,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				Set<MessageId> ids = new HashSet<>();
 				while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 				rs.close();
-				ps.close();
+				releaseStatement(txn, sql, ps);
 				if (intersection == null) intersection = ids;
 				else intersection.retainAll(ids);
 				// Return early if there are no matches
@@ -1959,7 +2188,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT length from messages"
 					+ " WHERE messageId = ? AND state = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
@@ -1967,7 +2196,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			int length = rs.getInt(1);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return length;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -1985,7 +2214,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT messageId, metaKey, value"
 					+ " FROM messageMetadata"
 					+ " WHERE groupId = ? AND state = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
@@ -2000,7 +2229,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				metadata.put(rs.getString(2), rs.getBytes(3));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return all;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2012,13 +2241,67 @@ abstract class JdbcDatabase implements Database<Connection> {
 	@Override
 	public Map<MessageId, Metadata> getMessageMetadata(Connection txn,
 			GroupId g, Metadata query) throws DbException {
-		// Retrieve the matching message IDs
-		Collection<MessageId> matches = getMessageIds(txn, g, query);
-		if (matches.isEmpty()) return Collections.emptyMap();
-		// Retrieve the metadata for each match
-		Map<MessageId, Metadata> all = new HashMap<>(matches.size());
-		for (MessageId m : matches) all.put(m, getMessageMetadata(txn, m));
-		return all;
+		// If there are no query terms, return all delivered messages,
+		// including any messages without metadata
+		if (query.isEmpty()) {
+			Map<MessageId, Metadata> all = getMessageMetadata(txn, g);
+			for (MessageId m : getMessageIds(txn, g)) {
+				if (!all.containsKey(m)) all.put(m, new Metadata());
+			}
+			return all;
+		}
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			// A message matches if it has a row for every query term
+			String sql = "SELECT md.messageId, md.metaKey, md.value"
+					+ " FROM messageMetadata AS md"
+					+ " JOIN " + getMatchingMessagesSubquery(query.size())
+					+ " AS matches ON md.messageId = matches.messageId";
+			ps = prepareStatement(txn, sql);
+			setMatchingMessagesParameters(ps, 1, g, query);
+			rs = ps.executeQuery();
+			Map<MessageId, Metadata> all = new HashMap<>();
+			while (rs.next()) {
+				MessageId messageId = new MessageId(rs.getBytes(1));
+				Metadata metadata = all.get(messageId);
+				if (metadata == null) {
+					metadata = new Metadata();
+					all.put(messageId, metadata);
+				}
+				metadata.put(rs.getString(2), rs.getBytes(3));
+			}
+			rs.close();
+			releaseStatement(txn, sql, ps);
+			return all;
+		} catch (SQLException e) {
+			tryToClose(rs, LOG, WARNING);
+			tryToClose(ps, LOG, WARNING);
+			throw new DbException(e);
+		}
+	}
+
+	@Override
+	public Map<String, Long> getGroupCounters(Connection txn, GroupId g)
+			throws DbException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			String sql = "SELECT counterKey, value FROM groupCounters"
+					+ " WHERE groupId = ?";
+			ps = prepareStatement(txn, sql);
+			ps.setBytes(1, g.getBytes());
+			rs = ps.executeQuery();
+			Map<String, Long> counters = new HashMap<>();
+			while (rs.next()) counters.put(rs.getString(1), rs.getLong(2));
+			rs.close();
+			releaseStatement(txn, sql, ps);
+			return counters;
+		} catch (SQLException e) {
+			tryToClose(rs, LOG, WARNING);
+			tryToClose(ps, LOG, WARNING);
+			throw new DbException(e);
+		}
 	}
 
 	@Override
@@ -2029,13 +2312,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT metaKey, value FROM groupMetadata"
 					+ " WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			rs = ps.executeQuery();
 			Metadata metadata = new Metadata();
 			while (rs.next()) metadata.put(rs.getString(1), rs.getBytes(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return metadata;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2052,14 +2335,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT metaKey, value FROM messageMetadata"
 					+ " WHERE state = ? AND messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, DELIVERED.getValue());
 			ps.setBytes(2, m.getBytes());
 			rs = ps.executeQuery();
 			Metadata metadata = new Metadata();
 			while (rs.next()) metadata.put(rs.getString(1), rs.getBytes(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return metadata;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2077,7 +2360,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT metaKey, value FROM messageMetadata"
 					+ " WHERE (state = ? OR state = ?)"
 					+ " AND messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, DELIVERED.getValue());
 			ps.setInt(2, PENDING.getValue());
 			ps.setBytes(3, m.getBytes());
@@ -2085,7 +2368,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			Metadata metadata = new Metadata();
 			while (rs.next()) metadata.put(rs.getString(1), rs.getBytes(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return metadata;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2102,7 +2385,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT messageId, txCount > 0, seen FROM statuses"
 					+ " WHERE groupId = ? AND contactId = ? AND state = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			ps.setInt(2, c.getInt());
 			ps.setInt(3, DELIVERED.getValue());
@@ -2115,7 +2398,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				statuses.add(new MessageStatus(messageId, c, sent, seen));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return statuses;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2133,7 +2416,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT txCount > 0, seen FROM statuses"
 					+ " WHERE messageId = ? AND contactId = ? AND state = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			ps.setInt(3, DELIVERED.getValue());
@@ -2146,7 +2429,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			}
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return status;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2164,7 +2447,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT dependencyId, dependencyState"
 					+ " FROM messageDependencies"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			Map<MessageId, MessageState> dependencies = new HashMap<>();
@@ -2176,7 +2459,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				dependencies.put(dependency, state);
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return dependencies;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2197,7 +2480,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " FROM messageDependencies"
 					+ " WHERE dependencyId = ?"
 					+ " AND dependencyState IS NOT NULL";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			Map<MessageId, MessageState> dependents = new HashMap<>();
@@ -2207,7 +2490,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				dependents.put(dependent, state);
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return dependents;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2223,14 +2506,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 		ResultSet rs = null;
 		try {
 			String sql = "SELECT state FROM messages WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			MessageState state = MessageState.fromValue(rs.getInt(1));
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return state;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2248,14 +2531,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT messageId FROM statuses"
 					+ " WHERE contactId = ? AND ack = TRUE"
 					+ " LIMIT ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, maxMessages);
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2279,7 +2562,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND (expiry <= ? OR maxLatency IS NULL"
 					+ " OR ? < maxLatency)"
 					+ " ORDER BY timestamp LIMIT ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			ps.setLong(3, now);
@@ -2289,7 +2572,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2307,14 +2590,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT messageId FROM offers"
 					+ " WHERE contactId = ?"
 					+ " LIMIT ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, maxMessages);
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2338,7 +2621,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND (expiry <= ? OR maxLatency IS NULL"
 					+ " OR ? < maxLatency)"
 					+ " ORDER BY timestamp";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			ps.setLong(3, now);
@@ -2352,7 +2635,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				capacity -= RECORD_HEADER_BYTES + length;
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2372,14 +2655,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND groupShared = TRUE AND messageShared = TRUE"
 					+ " AND deleted = FALSE AND seen = FALSE"
 					+ " ORDER BY txCount, timestamp";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2398,14 +2681,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " WHERE contactId = ? AND state = ?"
 					+ " AND groupShared = TRUE AND messageShared = TRUE"
 					+ " AND deleted = FALSE AND seen = FALSE";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
 			rs.next();
 			long total = rs.getLong(1);
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return total;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2433,13 +2716,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT messageId FROM messages"
 					+ " WHERE state = ? AND raw IS NOT NULL";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2461,13 +2744,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " ON d.messageId = m1.messageId"
 					+ " WHERE m.state = ?"
 					+ " AND m.shared = FALSE AND m1.shared = TRUE";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, DELIVERED.getValue());
 			rs = ps.executeQuery();
 			List<MessageId> ids = new ArrayList<>();
 			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2485,7 +2768,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT messageId, groupId FROM messages"
 					+ " WHERE cleanupDeadline <= ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setLong(1, now);
 			rs = ps.executeQuery();
 			Map<GroupId, Collection<MessageId>> ids = new HashMap<>();
@@ -2501,7 +2784,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				messageIds.add(m);
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2522,14 +2805,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND groupShared = TRUE AND messageShared = TRUE"
 					+ " AND deleted = FALSE AND seen = FALSE"
 					+ " AND (maxLatency IS NULL OR ? < maxLatency)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			ps.setLong(3, maxLatency);
 			rs = ps.executeQuery();
 			boolean found = rs.next();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			if (found) return 0;
 			// When is the earliest expiry time (could be in the past)?
 			sql = "SELECT expiry FROM statuses"
@@ -2537,7 +2820,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND groupShared = TRUE AND messageShared = TRUE"
 					+ " AND deleted = FALSE AND seen = FALSE"
 					+ " ORDER BY expiry LIMIT 1";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			rs = ps.executeQuery();
@@ -2547,7 +2830,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rs.next()) throw new AssertionError();
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return nextSendTime;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2590,13 +2873,15 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "SELECT publicKey, alias, timestamp"
 					+ " FROM pendingContacts"
 					+ " WHERE pendingContactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, p.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			PublicKey publicKey = new AgreementPublicKey(rs.getBytes(1));
 			String alias = rs.getString(2);
 			long timestamp = rs.getLong(3);
+			rs.close();
+			releaseStatement(txn, sql, ps);
 			return new PendingContact(p, publicKey, alias, timestamp);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2649,7 +2934,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " AND (expiry <= ? OR maxLatency IS NULL"
 					+ " OR ? < maxLatency)"
 					+ " ORDER BY timestamp";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			ps.setLong(3, now);
@@ -2663,7 +2948,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				capacity -= RECORD_HEADER_BYTES + length;
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return ids;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2680,13 +2965,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT settingKey, value FROM settings"
 					+ " WHERE namespace = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, namespace);
 			rs = ps.executeQuery();
 			Settings s = new Settings();
 			while (rs.next()) s.put(rs.getString(1), rs.getString(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return s;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2703,7 +2988,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT syncVersions FROM contacts"
 					+ " WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
@@ -2712,7 +2997,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			for (byte b : bytes) supported.add(b);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return supported;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2732,7 +3017,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " FROM incomingKeys"
 					+ " WHERE transportId = ?"
 					+ " ORDER BY keySetId, periodOffset";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			rs = ps.executeQuery();
 			List<IncomingKeys> inKeys = new ArrayList<>();
@@ -2746,14 +3031,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 						windowBase, windowBitmap));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Retrieve the outgoing keys in the same order
 			sql = "SELECT keySetId, timePeriod, contactId, pendingContactId,"
 					+ " tagKey, headerKey, stream, active, rootKey, alice"
 					+ " FROM outgoingKeys"
 					+ " WHERE transportId = ?"
 					+ " ORDER BY keySetId";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			rs = ps.executeQuery();
 			Collection<TransportKeySet> keys = new ArrayList<>();
@@ -2790,7 +3075,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 						pendingContactId, transportKeys));
 			}
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return keys;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -2839,12 +3124,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE outgoingKeys SET stream = stream + 1"
 					+ " WHERE transportId = ? AND keySetId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			ps.setInt(2, k.getInt());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -2858,7 +3143,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET ack = FALSE"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(2, c.getInt());
 			for (MessageId m : acked) {
 				ps.setBytes(1, m.getBytes());
@@ -2871,7 +3156,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rows < 0) throw new DbStateException();
 				if (rows > 1) throw new DbStateException();
 			}
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -2885,7 +3170,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET requested = FALSE"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(2, c.getInt());
 			for (MessageId m : requested) {
 				ps.setBytes(1, m.getBytes());
@@ -2898,7 +3183,58 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rows < 0) throw new DbStateException();
 				if (rows > 1) throw new DbStateException();
 			}
-			ps.close();
+			releaseStatement(txn, sql, ps);
+		} catch (SQLException e) {
+			tryToClose(ps, LOG, WARNING);
+			throw new DbException(e);
+		}
+	}
+
+	@Override
+	public void mergeGroupCounters(Connection txn, GroupId g,
+			Map<String, Long> counters) throws DbException {
+		PreparedStatement ps = null;
+		try {
+			// Update any counters that already exist
+			String sql = "UPDATE groupCounters SET value = ?"
+					+ " WHERE groupId = ? AND counterKey = ?";
+			ps = prepareStatement(txn, sql);
+			ps.setBytes(2, g.getBytes());
+			for (Entry<String, Long> e : counters.entrySet()) {
+				ps.setLong(1, e.getValue());
+				ps.setString(3, e.getKey());
+				ps.addBatch();
+			}
+			int[] batchAffected = ps.executeBatch();
+			if (batchAffected.length != counters.size())
+				throw new DbStateException();
+			for (int rows : batchAffected) {
+				if (rows < 0) throw new DbStateException();
+				if (rows > 1) throw new DbStateException();
+			}
+			releaseStatement(txn, sql, ps);
+			// Insert any counters that don't already exist
+			sql = "INSERT INTO groupCounters (groupId, counterKey, value)"
+					+ " VALUES (?, ?, ?)";
+			ps = prepareStatement(txn, sql);
+			ps.setBytes(1, g.getBytes());
+			int updateIndex = 0, inserted = 0;
+			for (Entry<String, Long> e : counters.entrySet()) {
+				if (batchAffected[updateIndex++] == 0) {
+					ps.setString(2, e.getKey());
+					ps.setLong(3, e.getValue());
+					ps.addBatch();
+					inserted++;
+				}
+			}
+			if (inserted > 0) {
+				batchAffected = ps.executeBatch();
+				if (batchAffected.length != inserted)
+					throw new DbStateException();
+				for (int rows : batchAffected)
+					if (rows != 1) throw new DbStateException();
+			}
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -2916,7 +3252,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// Insert any keys that don't already exist
 			String sql = "INSERT INTO groupMetadata (groupId, metaKey, value)"
 					+ " VALUES (?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			for (Entry<String, byte[]> e : added.entrySet()) {
 				ps.setString(2, e.getKey());
@@ -2928,7 +3264,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -2947,19 +3283,19 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// Get the group ID and message state for the denormalised columns
 			String sql = "SELECT groupId, state FROM messages"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			GroupId g = new GroupId(rs.getBytes(1));
 			MessageState state = MessageState.fromValue(rs.getInt(2));
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Insert any keys that don't already exist
 			sql = "INSERT INTO messageMetadata"
 					+ " (messageId, groupId, state, metaKey, value)"
 					+ " VALUES (?, ?, ?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setBytes(2, g.getBytes());
 			ps.setInt(3, state.getValue());
@@ -2973,7 +3309,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
@@ -2999,7 +3335,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			if (!removed.isEmpty()) {
 				String sql = "DELETE FROM " + tableName
 						+ " WHERE " + columnName + " = ? AND metaKey = ?";
-				ps = txn.prepareStatement(sql);
+				ps = prepareStatement(txn, sql);
 				ps.setBytes(1, id);
 				for (String key : removed) {
 					ps.setString(2, key);
@@ -3012,13 +3348,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 					if (rows < 0) throw new DbStateException();
 					if (rows > 1) throw new DbStateException();
 				}
-				ps.close();
+				releaseStatement(txn, sql, ps);
 			}
 			if (notRemoved.isEmpty()) return Collections.emptyMap();
 			// Update any keys that already exist
 			String sql = "UPDATE " + tableName + " SET value = ?"
 					+ " WHERE " + columnName + " = ? AND metaKey = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(2, id);
 			for (Entry<String, byte[]> e : notRemoved.entrySet()) {
 				ps.setBytes(1, e.getValue());
@@ -3032,7 +3368,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rows < 0) throw new DbStateException();
 				if (rows > 1) throw new DbStateException();
 			}
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Are there any keys that don't already exist?
 			Map<String, byte[]> added = new HashMap<>();
 			int updateIndex = 0;
@@ -3055,7 +3391,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// Update any settings that already exist
 			String sql = "UPDATE settings SET value = ?"
 					+ " WHERE namespace = ? AND settingKey = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			for (Entry<String, String> e : s.entrySet()) {
 				ps.setString(1, e.getValue());
 				ps.setString(2, namespace);
@@ -3068,10 +3404,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 				if (rows < 0) throw new DbStateException();
 				if (rows > 1) throw new DbStateException();
 			}
+			releaseStatement(txn, sql, ps);
 			// Insert any settings that don't already exist
 			sql = "INSERT INTO settings (namespace, settingKey, value)"
 					+ " VALUES (?, ?, ?)";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			int updateIndex = 0, inserted = 0;
 			for (Entry<String, String> e : s.entrySet()) {
 				if (batchAffected[updateIndex] == 0) {
@@ -3087,7 +3424,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			if (batchAffected.length != inserted) throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3101,12 +3438,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET ack = TRUE"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3120,12 +3457,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET requested = TRUE"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3139,12 +3476,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET seen = TRUE"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return affected == 1;
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
@@ -3158,11 +3495,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM contacts WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3174,11 +3511,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM groups WHERE groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, g.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3192,21 +3529,21 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "DELETE FROM groupVisibilities"
 					+ " WHERE contactId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setBytes(2, g.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Remove status rows for the messages in the group
 			sql = "DELETE FROM statuses"
 					+ " WHERE contactId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setBytes(2, g.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3218,11 +3555,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM localAuthors WHERE authorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, a.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3234,11 +3571,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM messages WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3251,12 +3588,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "DELETE FROM offers"
 					+ " WHERE contactId = ? AND messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setBytes(2, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return affected == 1;
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
@@ -3271,7 +3608,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "DELETE FROM offers"
 					+ " WHERE contactId = ? AND messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			for (MessageId m : requested) {
 				ps.setBytes(2, m.getBytes());
@@ -3282,7 +3619,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 				throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3296,11 +3633,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "DELETE FROM pendingContacts"
 					+ " WHERE pendingContactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, p.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3328,11 +3665,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "DELETE FROM transports WHERE transportId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3348,18 +3685,61 @@ abstract class JdbcDatabase implements Database<Connection> {
 			// incoming keys with the same key set ID
 			String sql = "DELETE FROM outgoingKeys"
 					+ " WHERE transportId = ? AND keySetId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			ps.setInt(2, k.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
 		}
 	}
 
+	@Override
+	public Collection<MessageId> replaceMessageMetadata(Connection txn,
+			GroupId g, String key, byte[] oldValue, byte[] newValue)
+			throws DbException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			// Find the messages that will be updated
+			String sql = "SELECT messageId FROM messageMetadata"
+					+ " WHERE groupId = ? AND state = ?"
+					+ " AND metaKey = ? AND value = ?";
+			ps = prepareStatement(txn, sql);
+			ps.setBytes(1, g.getBytes());
+			ps.setInt(2, DELIVERED.getValue());
+			ps.setString(3, key);
+			ps.setBytes(4, oldValue);
+			rs = ps.executeQuery();
+			List<MessageId> ids = new ArrayList<>();
+			while (rs.next()) ids.add(new MessageId(rs.getBytes(1)));
+			rs.close();
+			releaseStatement(txn, sql, ps);
+			if (ids.isEmpty()) return ids;
+			// Update all the messages with a single statement
+			sql = "UPDATE messageMetadata SET value = ?"
+					+ " WHERE groupId = ? AND state = ?"
+					+ " AND metaKey = ? AND value = ?";
+			ps = prepareStatement(txn, sql);
+			ps.setBytes(1, newValue);
+			ps.setBytes(2, g.getBytes());
+			ps.setInt(3, DELIVERED.getValue());
+			ps.setString(4, key);
+			ps.setBytes(5, oldValue);
+			int affected = ps.executeUpdate();
+			if (affected != ids.size()) throw new DbStateException();
+			releaseStatement(txn, sql, ps);
+			return ids;
+		} catch (SQLException e) {
+			tryToClose(rs, LOG, WARNING);
+			tryToClose(ps, LOG, WARNING);
+			throw new DbException(e);
+		}
+	}
+
 	@Override
 	public void resetExpiryTime(Connection txn, ContactId c, MessageId m)
 			throws DbException {
@@ -3367,12 +3747,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE statuses SET expiry = 0, txCount = 0"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3389,14 +3769,14 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " WHERE contactId = ? AND state = ?"
 					+ " AND groupShared = TRUE AND messageShared = TRUE"
 					+ " AND deleted = FALSE AND seen = FALSE";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, c.getInt());
 			ps.setInt(2, DELIVERED.getValue());
 			int affected = ps.executeUpdate();
 			if (affected < 0) {
 				throw new DbStateException();
 			}
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3410,12 +3790,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE messages SET cleanupTimerDuration = ?"
 					+ " WHERE messageId = ? AND cleanupTimerDuration IS NULL";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setLong(1, duration);
 			ps.setBytes(2, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3428,12 +3808,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "UPDATE contacts SET verified = ? WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBoolean(1, true);
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3446,13 +3826,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "UPDATE contacts SET alias = ? WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			if (alias == null) ps.setNull(1, VARCHAR);
 			else ps.setString(1, alias);
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3466,23 +3846,23 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE groupVisibilities SET shared = ?"
 					+ " WHERE contactId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBoolean(1, shared);
 			ps.setInt(2, c.getInt());
 			ps.setBytes(3, g.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in statuses
 			sql = "UPDATE statuses SET groupShared = ?"
 					+ " WHERE contactId = ? AND groupId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBoolean(1, shared);
 			ps.setInt(2, c.getInt());
 			ps.setBytes(3, g.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3497,13 +3877,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "UPDATE localAuthors"
 					+ " SET handshakePublicKey = ?, handshakePrivateKey = ?"
 					+ " WHERE authorId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, publicKey.getEncoded());
 			ps.setBytes(2, privateKey.getEncoded());
 			ps.setBytes(3, local.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3517,11 +3897,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE messages SET temporary = FALSE"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3535,21 +3915,21 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE messages SET shared = ?"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBoolean(1, shared);
 			ps.setBytes(2, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in statuses
 			sql = "UPDATE statuses SET messageShared = ?"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBoolean(1, shared);
 			ps.setBytes(2, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3562,47 +3942,47 @@ abstract class JdbcDatabase implements Database<Connection> {
 		PreparedStatement ps = null;
 		try {
 			String sql = "UPDATE messages SET state = ? WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in messageMetadata
 			sql = "UPDATE messageMetadata SET state = ? WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in statuses
 			sql = "UPDATE statuses SET state = ? WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in messageDependencies
 			sql = "UPDATE messageDependencies SET messageState = ?"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update denormalised column in messageDependencies if dependency
 			// is present and in same group as dependent
 			sql = "UPDATE messageDependencies SET dependencyState = ?"
 					+ " WHERE dependencyId = ? AND dependencyState IS NOT NULL";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setInt(1, state.getValue());
 			ps.setBytes(2, m.getBytes());
 			affected = ps.executeUpdate();
 			if (affected < 0) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3618,7 +3998,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "UPDATE incomingKeys SET base = ?, bitmap = ?"
 					+ " WHERE transportId = ? AND keySetId = ?"
 					+ " AND timePeriod = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setLong(1, base);
 			ps.setBytes(2, bitmap);
 			ps.setString(3, t.getString());
@@ -3626,7 +4006,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setLong(5, timePeriod);
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3640,7 +4020,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE contacts SET syncVersions = ?"
 					+ " WHERE contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			byte[] bytes = new byte[supported.size()];
 			for (int i = 0; i < bytes.length; i++) {
 				bytes[i] = supported.get(i);
@@ -3649,7 +4029,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setInt(2, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3663,12 +4043,12 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE outgoingKeys SET active = true"
 					+ " WHERE transportId = ? AND keySetId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(1, t.getString());
 			ps.setInt(2, k.getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3687,22 +4067,22 @@ abstract class JdbcDatabase implements Database<Connection> {
 					+ " WHERE messageId = ?"
 					+ " AND cleanupTimerDuration IS NOT NULL"
 					+ " AND cleanupDeadline IS NULL";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setLong(1, now);
 			ps.setBytes(2, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			if (affected == 0) return TIMER_NOT_STARTED;
 			sql = "SELECT cleanupDeadline FROM messages WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			rs = ps.executeQuery();
 			if (!rs.next()) throw new DbStateException();
 			long deadline = rs.getLong(1);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			return deadline;
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
@@ -3718,11 +4098,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "UPDATE messages SET cleanupDeadline = NULL"
 					+ " WHERE messageId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
@@ -3737,7 +4117,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 		try {
 			String sql = "SELECT txCount FROM statuses"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setBytes(1, m.getBytes());
 			ps.setInt(2, c.getInt());
 			rs = ps.executeQuery();
@@ -3745,11 +4125,11 @@ abstract class JdbcDatabase implements Database<Connection> {
 			int txCount = rs.getInt(1);
 			if (rs.next()) throw new DbStateException();
 			rs.close();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			sql = "UPDATE statuses"
 					+ " SET expiry = ?, txCount = txCount + 1, maxLatency = ?"
 					+ " WHERE messageId = ? AND contactId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			long now = clock.currentTimeMillis();
 			ps.setLong(1, calculateExpiry(now, maxLatency, txCount));
 			ps.setLong(2, maxLatency);
@@ -3757,7 +4137,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setInt(4, c.getInt());
 			int affected = ps.executeUpdate();
 			if (affected != 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 		} catch (SQLException e) {
 			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
@@ -3774,7 +4154,7 @@ abstract class JdbcDatabase implements Database<Connection> {
 			String sql = "UPDATE outgoingKeys SET timePeriod = ?,"
 					+ " tagKey = ?, headerKey = ?, stream = ?"
 					+ " WHERE transportId = ? AND keySetId = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			TransportKeys k = ks.getKeys();
 			OutgoingKeys outCurr = k.getCurrentOutgoingKeys();
 			ps.setLong(1, outCurr.getTimePeriod());
@@ -3785,13 +4165,13 @@ abstract class JdbcDatabase implements Database<Connection> {
 			ps.setInt(6, ks.getKeySetId().getInt());
 			int affected = ps.executeUpdate();
 			if (affected < 0 || affected > 1) throw new DbStateException();
-			ps.close();
+			releaseStatement(txn, sql, ps);
 			// Update the incoming keys
 			sql = "UPDATE incomingKeys SET timePeriod = ?,"
 					+ " tagKey = ?, headerKey = ?, base = ?, bitmap = ?"
 					+ " WHERE transportId = ? AND keySetId = ?"
 					+ " AND periodOffset = ?";
-			ps = txn.prepareStatement(sql);
+			ps = prepareStatement(txn, sql);
 			ps.setString(6, k.getTransportId().getString());
 			ps.setInt(7, ks.getKeySetId().getInt());
 			// Previous time period
@@ -3825,10 +4205,104 @@ abstract class JdbcDatabase implements Database<Connection> {
 			if (batchAffected.length != 3) throw new DbStateException();
 			for (int rows : batchAffected)
 				if (rows < 0 || rows > 1) throw new DbStateException();
+			releaseStatement(txn, sql, ps);
+		} catch (SQLException e) {
+			tryToClose(ps, LOG, WARNING);
+			throw new DbException(e);
+		}
+	}
+
+	@Override
+	public <E extends Exception> void visitMessageMetadata(Connection txn,
+			GroupId g, Metadata query, MessageMetadataVisitor<E> v)
+			throws DbException, E {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			// Messages without metadata are included by the outer join.
+			// Sorting by timestamp and message ID keeps each message's rows
+			// together, so only one message's metadata is held at a time
+			StringBuilder sb = new StringBuilder();
+			sb.append("SELECT m.messageId, md.metaKey, md.value")
+					.append(" FROM messages AS m");
+			if (!query.isEmpty()) {
+				sb.append(" JOIN ")
+						.append(getMatchingMessagesSubquery(query.size()))
+						.append(" AS matches")
+						.append(" ON m.messageId = matches.messageId");
+			}
+			sb.append(" LEFT OUTER JOIN messageMetadata AS md")
+					.append(" ON m.messageId = md.messageId")
+					.append(" WHERE m.groupId = ? AND m.state = ?")
+					.append(" ORDER BY m.timestamp DESC, m.messageId");
+			ps = txn.prepareStatement(sb.toString());
+			int index = 1;
+			if (!query.isEmpty())
+				index = setMatchingMessagesParameters(ps, index, g, query);
+			ps.setBytes(index++, g.getBytes());
+			ps.setInt(index, DELIVERED.getValue());
+			rs = ps.executeQuery();
+			MessageId current = null;
+			Metadata metadata = null;
+			boolean more = true;
+			while (more && rs.next()) {
+				byte[] id = rs.getBytes(1);
+				if (current == null || !Arrays.equals(id, current.getBytes())) {
+					if (current != null) more = v.visit(current, metadata);
+					current = new MessageId(id);
+					metadata = new Metadata();
+				}
+				String key = rs.getString(2);
+				if (key != null) metadata.put(key, rs.getBytes(3));
+			}
+			if (more && current != null) v.visit(current, metadata);
+			rs.close();
 			ps.close();
 		} catch (SQLException e) {
+			tryToClose(rs, LOG, WARNING);
 			tryToClose(ps, LOG, WARNING);
 			throw new DbException(e);
+		} catch (Exception e) {
+			// The visitor threw an exception
+			tryToClose(rs, LOG, WARNING);
+			tryToClose(ps, LOG, WARNING);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a subquery that selects the IDs of the delivered messages in a
+	 * group with metadata matching all of the given number of query terms.
+	 * The primary key of the messageMetadata table ensures that each message
+	 * has at most one row per key, so a message matches if the number of
+	 * rows matching any of the terms equals the number of terms.
+	 */
+	private String getMatchingMessagesSubquery(int terms) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("(SELECT messageId FROM messageMetadata")
+				.append(" WHERE groupId = ? AND state = ? AND (");
+		for (int i = 0; i < terms; i++) {
+			if (i > 0) sb.append(" OR ");
+			sb.append("(metaKey = ? AND value = ?)");
+		}
+		sb.append(") GROUP BY messageId HAVING COUNT(*) = ?)");
+		return sb.toString();
+	}
+
+	/**
+	 * Sets the parameters of a subquery returned by
+	 * {@link #getMatchingMessagesSubquery(int)}, starting at the given
+	 * index, and returns the index of the next parameter.
+	 */
+	private int setMatchingMessagesParameters(PreparedStatement ps, int index,
+			GroupId g, Metadata query) throws SQLException {
+		ps.setBytes(index++, g.getBytes());
+		ps.setInt(index++, DELIVERED.getValue());
+		for (Entry<String, byte[]> e : query.entrySet()) {
+			ps.setString(index++, e.getKey());
+			ps.setBytes(index++, e.getValue());
 		}
+		ps.setInt(index++, query.size());
+		return index;
 	}
 }
@@ -0,0 +1,188 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.db.Metadata;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded, least recently used cache of {@link Metadata}. The size of the
+ * cache is bounded by an estimate of the memory used by the cached metadata.
+ * <p>
+ * The cache stores and returns deep copies of the metadata, so callers are
+ * free to modify the metadata they pass in or get back.
+ */
+@ThreadSafe
+@NotNullByDefault
+class MetadataCache<K> {
+
+	/**
+	 * The estimated overhead in bytes of each cache entry, including the
+	 * key and the metadata object.
+	 */
+	private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+	/**
+	 * The estimated overhead in bytes of each metadata key/value pair.
+	 */
+	private static final int PAIR_OVERHEAD_BYTES = 64;
+
+	private final long maxBytes;
+
+	private final Object lock = new Object();
+	@GuardedBy("lock")
+	private final LinkedHashMap<K, Metadata> cache =
+			new LinkedHashMap<>(16, 0.75f, true);
+	@GuardedBy("lock")
+	private long bytes = 0, hits = 0, misses = 0, evictions = 0;
+
+	/**
+	 * @param maxBytes The estimated maximum memory in bytes to use for
+	 * cached metadata. If this is zero, nothing is cached.
+	 */
+	MetadataCache(long maxBytes) {
+		if (maxBytes < 0) throw new IllegalArgumentException();
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns a copy of the cached metadata for the given key, or null if
+	 * the metadata is not cached.
+	 */
+	@Nullable
+	Metadata get(K key) {
+		if (maxBytes == 0) return null;
+		synchronized (lock) {
+			Metadata meta = cache.get(key);
+			if (meta == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			return copy(meta);
+		}
+	}
+
+	/**
+	 * Caches a copy of the given metadata, evicting the least recently used
+	 * metadata if necessary.
+	 */
+	void put(K key, Metadata meta) {
+		if (maxBytes == 0) return;
+		long size = estimateSize(meta);
+		if (size > maxBytes) return;
+		Metadata copy = copy(meta);
+		synchronized (lock) {
+			Metadata old = cache.put(key, copy);
+			if (old != null) bytes -= estimateSize(old);
+			bytes += size;
+			Iterator<Entry<K, Metadata>> it = cache.entrySet().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				bytes -= estimateSize(it.next().getValue());
+				it.remove();
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Removes any cached metadata for the given key.
+	 */
+	void invalidate(K key) {
+		if (maxBytes == 0) return;
+		synchronized (lock) {
+			Metadata old = cache.remove(key);
+			if (old != null) bytes -= estimateSize(old);
+		}
+	}
+
+	/**
+	 * Removes all cached metadata.
+	 */
+	void clear() {
+		if (maxBytes == 0) return;
+		synchronized (lock) {
+			cache.clear();
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 */
+	int getSize() {
+		synchronized (lock) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Returns the estimated memory in bytes used by the cached metadata.
+	 */
+	long getBytes() {
+		synchronized (lock) {
+			return bytes;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that found cached metadata.
+	 */
+	long getHits() {
+		synchronized (lock) {
+			return hits;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that did not find cached metadata.
+	 */
+	long getMisses() {
+		synchronized (lock) {
+			return misses;
+		}
+	}
+
+	/**
+	 * Returns the number of entries that have been evicted to keep the
+	 * cache within its size limit.
+	 */
+	long getEvictions() {
+		synchronized (lock) {
+			return evictions;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (lock) {
+			long lookups = hits + misses;
+			long hitRate = lookups == 0 ? 0 : hits * 100 / lookups;
+			return cache.size() + " entries, " + bytes + " of " + maxBytes
+					+ " bytes, " + hits + " hits, " + misses + " misses ("
+					+ hitRate + "% hit rate), " + evictions + " evictions";
+		}
+	}
+
+	private static Metadata copy(Metadata meta) {
+		Metadata copy = new Metadata();
+		for (Entry<String, byte[]> e : meta.entrySet())
+			copy.put(e.getKey(), e.getValue().clone());
+		return copy;
+	}
+
+	private static long estimateSize(Metadata meta) {
+		long size = ENTRY_OVERHEAD_BYTES;
+		for (Entry<String, byte[]> e : meta.entrySet()) {
+			size += PAIR_OVERHEAD_BYTES + e.getKey().length() * 2L
+					+ e.getValue().length;
+		}
+		return size;
+	}
+}
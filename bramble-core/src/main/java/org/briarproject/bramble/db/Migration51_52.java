@@ -0,0 +1,52 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.db.DbException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+import static java.util.logging.Logger.getLogger;
+import static org.briarproject.bramble.db.JdbcUtils.tryToClose;
+
+class Migration51_52 implements Migration<Connection> {
+
+	private static final Logger LOG = getLogger(Migration51_52.class.getName());
+
+	private final DatabaseTypes dbTypes;
+
+	Migration51_52(DatabaseTypes dbTypes) {
+		this.dbTypes = dbTypes;
+	}
+
+	@Override
+	public int getStartVersion() {
+		return 51;
+	}
+
+	@Override
+	public int getEndVersion() {
+		return 52;
+	}
+
+	@Override
+	public void migrate(Connection txn) throws DbException {
+		Statement s = null;
+		try {
+			s = txn.createStatement();
+			s.execute(dbTypes.replaceTypes("CREATE TABLE groupCounters"
+					+ " (groupId _HASH NOT NULL,"
+					+ " counterKey _STRING NOT NULL,"
+					+ " value BIGINT NOT NULL,"
+					+ " PRIMARY KEY (groupId, counterKey),"
+					+ " FOREIGN KEY (groupId)"
+					+ " REFERENCES groups (groupId)"
+					+ " ON DELETE CASCADE)"));
+		} catch (SQLException e) {
+			tryToClose(s, LOG, WARNING);
+			throw new DbException(e);
+		}
+	}
+}
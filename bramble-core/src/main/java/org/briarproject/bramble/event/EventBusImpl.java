@@ -6,20 +6,68 @@ import org.briarproject.bramble.api.event.EventExecutor;
 import org.briarproject.bramble.api.event.EventListener;
 import org.briarproject.nullsafety.NotNullByDefault;
 
-import java.util.Collection;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.logging.Level.WARNING;
+import static java.util.logging.Logger.getLogger;
+import static org.briarproject.bramble.util.LogUtils.logException;
+
+/**
+ * An {@link EventBus} that indexes listeners by the class of event they
+ * subscribe to, so broadcasting an event only touches the listeners that are
+ * interested in it.
+ * <p>
+ * Events are dispatched on the {@link EventExecutor}. Listeners that were
+ * added with their own executor have a dispatch queue of their own, which is
+ * drained on that executor, so they can't delay the delivery of events to
+ * other listeners. A listener that subscribes to several classes of event
+ * still has a single dispatch queue, and is notified at most once per
+ * event.
+ */
 @ThreadSafe
 @NotNullByDefault
 class EventBusImpl implements EventBus {
 
-	private final Collection<EventListener> listeners =
-			new CopyOnWriteArrayList<>();
+	private static final Logger LOG = getLogger(EventBusImpl.class.getName());
+
+	/**
+	 * If a listener's dispatch queue grows beyond this many events, a warning
+	 * is logged. Events are never dropped, as listeners depend on seeing
+	 * every event they subscribe to.
+	 */
+	static final int MAX_QUEUED_EVENTS = 1000;
+
+	/**
+	 * If a listener takes longer than this to handle an event, a warning is
+	 * logged.
+	 */
+	static final long SLOW_LISTENER_MS = 100;
+
 	private final Executor eventExecutor;
+	private final Object lock = new Object();
+	private final AtomicInteger queuedBroadcasts = new AtomicInteger(0);
+
+	/**
+	 * Replaced while holding the lock whenever a listener is added or
+	 * removed, so dispatching an event never needs to hold the lock.
+	 */
+	private volatile Subscriptions subscriptions =
+			new Subscriptions(emptyList());
 
 	@Inject
 	EventBusImpl(@EventExecutor Executor eventExecutor) {
@@ -28,18 +76,246 @@ class EventBusImpl implements EventBus {
 
 	@Override
 	public void addListener(EventListener l) {
-		listeners.add(l);
+		add(l, null, null);
+	}
+
+	@Override
+	public void addListener(Class<? extends Event> c, EventListener l) {
+		add(l, c, null);
+	}
+
+	@Override
+	public void addListener(Class<? extends Event> c, EventListener l,
+			Executor executor) {
+		add(l, c, executor);
+	}
+
+	private void add(EventListener l, @Nullable Class<? extends Event> c,
+			@Nullable Executor executor) {
+		synchronized (lock) {
+			List<Subscription> all = new ArrayList<>(subscriptions.all);
+			for (int i = 0; i < all.size(); i++) {
+				Subscription s = all.get(i);
+				if (s.dispatcher.listener == l) {
+					// Each listener has a single dispatcher, so it's notified
+					// at most once per event and never concurrently
+					if (s.dispatcher.executor != executor)
+						throw new IllegalArgumentException();
+					all.set(i, s.withEventClass(c));
+					subscriptions = new Subscriptions(all);
+					return;
+				}
+			}
+			Dispatcher d = new Dispatcher(l, executor);
+			all.add(new Subscription(d, c == null ? null : singletonList(c)));
+			subscriptions = new Subscriptions(all);
+		}
 	}
 
 	@Override
 	public void removeListener(EventListener l) {
-		listeners.remove(l);
+		synchronized (lock) {
+			List<Subscription> all = new ArrayList<>();
+			for (Subscription s : subscriptions.all) {
+				if (s.dispatcher.listener == l) s.dispatcher.removed = true;
+				else all.add(s);
+			}
+			subscriptions = new Subscriptions(all);
+		}
 	}
 
 	@Override
 	public void broadcast(Event e) {
+		queuedBroadcasts.incrementAndGet();
 		eventExecutor.execute(() -> {
-			for (EventListener l : listeners) l.eventOccurred(e);
+			queuedBroadcasts.decrementAndGet();
+			// Look up the subscriptions when the event is dispatched, so
+			// listeners removed since the event was broadcast aren't notified
+			for (Subscription s : subscriptions.get(e.getClass()))
+				s.dispatcher.dispatch(e);
 		});
 	}
+
+	/**
+	 * Returns the number of broadcast events waiting to be dispatched on the
+	 * {@link EventExecutor}.
+	 */
+	int getQueuedBroadcasts() {
+		return queuedBroadcasts.get();
+	}
+
+	/**
+	 * Returns the number of events waiting in the dispatch queue of the
+	 * given listener.
+	 */
+	int getQueuedEvents(EventListener l) {
+		Dispatcher d = getDispatcher(l);
+		return d == null ? 0 : d.queued.get();
+	}
+
+	/**
+	 * Returns the number of events the given listener has handled.
+	 */
+	long getHandledEvents(EventListener l) {
+		Dispatcher d = getDispatcher(l);
+		return d == null ? 0 : d.handled.get();
+	}
+
+	/**
+	 * Returns the total time in milliseconds the given listener has spent
+	 * handling events.
+	 */
+	long getHandlingTime(EventListener l) {
+		Dispatcher d = getDispatcher(l);
+		return d == null ? 0 : d.handlingTime.get() / 1_000_000;
+	}
+
+	@Nullable
+	private Dispatcher getDispatcher(EventListener l) {
+		for (Subscription s : subscriptions.all)
+			if (s.dispatcher.listener == l) return s.dispatcher;
+		return null;
+	}
+
+	/**
+	 * An immutable snapshot of the subscriptions, with a cache of the
+	 * subscriptions that match each class of event.
+	 */
+	@ThreadSafe
+	@NotNullByDefault
+	private static class Subscriptions {
+
+		private final List<Subscription> all;
+		private final ConcurrentHashMap<Class<?>, List<Subscription>>
+				byClass = new ConcurrentHashMap<>();
+
+		private Subscriptions(List<Subscription> all) {
+			this.all = unmodifiableList(all);
+		}
+
+		private List<Subscription> get(Class<?> c) {
+			List<Subscription> matching = byClass.get(c);
+			if (matching == null) {
+				List<Subscription> list = new ArrayList<>();
+				for (Subscription s : all) if (s.accepts(c)) list.add(s);
+				matching = unmodifiableList(list);
+				byClass.put(c, matching);
+			}
+			return matching;
+		}
+	}
+
+	/**
+	 * An immutable record of the classes of event a listener subscribes to.
+	 * Each listener has one subscription, which is replaced when the
+	 * listener subscribes to another class of event.
+	 */
+	@ThreadSafe
+	@NotNullByDefault
+	private static class Subscription {
+
+		private final Dispatcher dispatcher;
+		/**
+		 * The classes of event the listener subscribes to, or null if it
+		 * subscribes to all events.
+		 */
+		@Nullable
+		private final List<Class<? extends Event>> eventClasses;
+
+		private Subscription(Dispatcher dispatcher,
+				@Nullable List<Class<? extends Event>> eventClasses) {
+			this.dispatcher = dispatcher;
+			this.eventClasses = eventClasses;
+		}
+
+		private Subscription withEventClass(
+				@Nullable Class<? extends Event> c) {
+			if (eventClasses == null) return this;
+			if (c == null) return new Subscription(dispatcher, null);
+			if (eventClasses.contains(c)) return this;
+			List<Class<? extends Event>> classes =
+					new ArrayList<>(eventClasses);
+			classes.add(c);
+			return new Subscription(dispatcher, unmodifiableList(classes));
+		}
+
+		private boolean accepts(Class<?> c) {
+			if (eventClasses == null) return true;
+			for (Class<? extends Event> e : eventClasses)
+				if (e.isAssignableFrom(c)) return true;
+			return false;
+		}
+	}
+
+	/**
+	 * Delivers events to a listener, either directly on the
+	 * {@link EventExecutor} or through a dispatch queue that's drained on the
+	 * listener's executor.
+	 */
+	@ThreadSafe
+	@NotNullByDefault
+	private static class Dispatcher {
+
+		private final EventListener listener;
+		@Nullable
+		private final Executor executor;
+		private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger queued = new AtomicInteger(0);
+		private final AtomicLong handled = new AtomicLong(0);
+		private final AtomicLong handlingTime = new AtomicLong(0);
+
+		private volatile boolean removed = false;
+
+		private Dispatcher(EventListener listener,
+				@Nullable Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+
+		@EventExecutor
+		private void dispatch(Event e) {
+			if (executor == null) {
+				deliver(e);
+				return;
+			}
+			// Only the event executor adds events to the queue, and only
+			// one drain task runs at a time, so events are delivered in order
+			queue.add(e);
+			int size = queued.incrementAndGet();
+			if (size == 1) {
+				executor.execute(this::drain);
+			} else if (size == MAX_QUEUED_EVENTS + 1 &&
+					LOG.isLoggable(WARNING)) {
+				LOG.warning(MAX_QUEUED_EVENTS + " events queued for "
+						+ listener.getClass().getName());
+			}
+		}
+
+		private void drain() {
+			do {
+				Event e = queue.poll();
+				if (e == null) throw new AssertionError();
+				try {
+					deliver(e);
+				} catch (RuntimeException ex) {
+					// Keep draining so later events aren't stranded
+					logException(LOG, WARNING, ex);
+				}
+			} while (queued.decrementAndGet() > 0);
+		}
+
+		private void deliver(Event e) {
+			if (removed) return;
+			long start = System.nanoTime();
+			listener.eventOccurred(e);
+			long duration = System.nanoTime() - start;
+			handled.incrementAndGet();
+			handlingTime.addAndGet(duration);
+			long millis = duration / 1_000_000;
+			if (millis > SLOW_LISTENER_MS && LOG.isLoggable(WARNING)) {
+				LOG.warning(listener.getClass().getName() + " took " + millis
+						+ " ms to handle " + e.getClass().getSimpleName());
+			}
+		}
+	}
 }
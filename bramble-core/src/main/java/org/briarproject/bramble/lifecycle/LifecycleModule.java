@@ -4,6 +4,7 @@ import org.briarproject.bramble.api.lifecycle.IoExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.bramble.api.lifecycle.ShutdownManager;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -11,7 +12,9 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -19,10 +22,24 @@ import dagger.Module;
 import dagger.Provides;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Logger.getLogger;
 
 @Module
 public class LifecycleModule {
 
+	private static final Logger LOG =
+			getLogger(LifecycleModule.class.getName());
+
+	/**
+	 * The name of a system property that can be set to "true" to run IO
+	 * tasks on virtual threads, if the JVM supports them. A task that's
+	 * blocked on a socket then holds a small heap object rather than a
+	 * platform thread and its stack, so many more connections can be open
+	 * at once. The property must be set before the IO executor is created.
+	 */
+	public static final String PROP_VIRTUAL_THREADS =
+			"org.briarproject.bramble.virtualThreads";
+
 	public static class EagerSingletons {
 		@Inject
 		@IoExecutor
@@ -47,15 +64,50 @@ public class LifecycleModule {
 	@IoExecutor
 	Executor provideIoExecutor(LifecycleManager lifecycleManager,
 			ThreadFactory threadFactory) {
+		if (Boolean.getBoolean(PROP_VIRTUAL_THREADS)) {
+			ThreadFactory virtualThreadFactory = getVirtualThreadFactory();
+			if (virtualThreadFactory == null) {
+				LOG.info("Virtual threads are not supported");
+			} else {
+				LOG.info("Using virtual threads for IO tasks");
+				threadFactory = virtualThreadFactory;
+			}
+		}
+		ExecutorService ioExecutor = createIoExecutor(threadFactory);
+		lifecycleManager.registerForShutdown(ioExecutor);
+		return ioExecutor;
+	}
+
+	// Package access for testing
+	static ExecutorService createIoExecutor(ThreadFactory threadFactory) {
 		// The thread pool is unbounded, so use direct handoff
 		BlockingQueue<Runnable> queue = new SynchronousQueue<>();
 		// Discard tasks that are submitted during shutdown
 		RejectedExecutionHandler policy =
 				new ThreadPoolExecutor.DiscardPolicy();
-		// Create threads as required and keep them in the pool for 60 seconds
-		ExecutorService ioExecutor = new ThreadPoolExecutor(0,
-				Integer.MAX_VALUE, 60, SECONDS, queue, threadFactory, policy);
-		lifecycleManager.registerForShutdown(ioExecutor);
-		return ioExecutor;
+		// Create threads as required and keep them in the pool for 60 seconds.
+		// Idle virtual threads are parked while they're in the pool, so they
+		// don't tie up any platform threads
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, SECONDS,
+				queue, threadFactory, policy);
+	}
+
+	/**
+	 * Returns a factory for virtual threads, or null if the JVM doesn't
+	 * support virtual threads. The factory is looked up by reflection, as
+	 * this code is built against an API that predates virtual threads.
+	 */
+	@Nullable
+	static ThreadFactory getVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			return (ThreadFactory) builderClass.getMethod("factory")
+					.invoke(builder);
+		} catch (NoSuchMethodException | ClassNotFoundException |
+				IllegalAccessException | InvocationTargetException e) {
+			// Virtual threads are missing or are a disabled preview feature
+			return null;
+		}
 	}
 }
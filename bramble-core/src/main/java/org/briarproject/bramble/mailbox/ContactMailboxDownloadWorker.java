@@ -27,9 +27,12 @@ class ContactMailboxDownloadWorker extends MailboxDownloadWorker {
 			MailboxApiCaller mailboxApiCaller,
 			MailboxApi mailboxApi,
 			MailboxFileManager mailboxFileManager,
-			MailboxProperties mailboxProperties) {
+			MailboxProperties mailboxProperties,
+			int maxConcurrentDownloads,
+			boolean streamTransfers) {
 		super(connectivityChecker, torReachabilityMonitor, mailboxApiCaller,
-				mailboxApi, mailboxFileManager, mailboxProperties);
+				mailboxApi, mailboxFileManager, mailboxProperties,
+				maxConcurrentDownloads, streamTransfers);
 		if (mailboxProperties.isOwner()) throw new IllegalArgumentException();
 	}
 
@@ -59,7 +62,7 @@ class ContactMailboxDownloadWorker extends MailboxDownloadWorker {
 			for (MailboxFile file : files) {
 				queue.add(new FolderFile(folderId, file.name));
 			}
-			downloadNextFile(queue);
+			downloadFiles(queue);
 		}
 	}
 }
@@ -12,6 +12,8 @@ import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -87,6 +89,17 @@ interface MailboxApi {
 	void addFile(MailboxProperties properties, MailboxFolderId folderId,
 			File file) throws IOException, ApiException;
 
+	/**
+	 * Like {@link #addFile(MailboxProperties, MailboxFolderId, File)}, but
+	 * the file is written by the given {@link UploadWriter} as it's uploaded,
+	 * rather than being read from disk.
+	 * <p>
+	 * The writer is called at most once, so if this method throws an
+	 * exception the writer must be called again to retry the upload.
+	 */
+	void addFile(MailboxProperties properties, MailboxFolderId folderId,
+			UploadWriter writer) throws IOException, ApiException;
+
 	/**
 	 * Used by owner and contacts to list their files to retrieve.
 	 * <p>
@@ -114,6 +127,16 @@ interface MailboxApi {
 			MailboxFileId fileId, File file)
 			throws IOException, ApiException, TolerableFailureException;
 
+	/**
+	 * Like {@link #getFile(MailboxProperties, MailboxFolderId, MailboxFileId,
+	 * File)}, but the response bytes are passed to the given
+	 * {@link DownloadHandler} as they're downloaded, rather than being
+	 * written to disk.
+	 */
+	void getFile(MailboxProperties properties, MailboxFolderId folderId,
+			MailboxFileId fileId, DownloadHandler handler)
+			throws IOException, ApiException, TolerableFailureException;
+
 	/**
 	 * Used by owner and contacts to delete files.
 	 * <p>
@@ -138,6 +161,28 @@ interface MailboxApi {
 	List<MailboxFolderId> getFolders(MailboxProperties properties)
 			throws IOException, ApiException;
 
+	/**
+	 * Writes a file as it's uploaded.
+	 */
+	interface UploadWriter {
+
+		/**
+		 * Writes the file to the given stream, which should not be closed.
+		 */
+		void writeFile(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Handles a file as it's downloaded.
+	 */
+	interface DownloadHandler {
+
+		/**
+		 * Reads the file from the given stream, which should not be closed.
+		 */
+		void handleFile(InputStream in) throws IOException;
+	}
+
 	@Immutable
 	@JsonSerialize
 	class MailboxContact {
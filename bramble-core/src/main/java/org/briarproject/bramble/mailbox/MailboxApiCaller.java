@@ -20,6 +20,11 @@ interface MailboxApiCaller {
 	 */
 	long MAX_RETRY_INTERVAL_MS = DAYS.toMillis(1);
 
+	/**
+	 * The maximum number of file transfers that run concurrently.
+	 */
+	int MAX_CONCURRENT_TRANSFERS = 4;
+
 	/**
 	 * Asynchronously calls the given API call on the {@link IoExecutor},
 	 * automatically retrying at increasing intervals until the API call
@@ -31,4 +36,18 @@ interface MailboxApiCaller {
 	 * retries.
 	 */
 	Cancellable retryWithBackoff(ApiCall apiCall);
+
+	/**
+	 * Like {@link #retryWithBackoff(ApiCall)}, but for API calls that upload,
+	 * download or delete files. These calls share the HTTP client with all
+	 * other API calls, so the number of them that run concurrently is
+	 * limited by {@link MailboxConfig#getMaxConcurrentTransfers()}. Further
+	 * calls are queued and run in the order they were made.
+	 * <p>
+	 * This method is safe to call while holding a lock.
+	 *
+	 * @return A {@link Cancellable} that can be used to cancel the API call
+	 * if it hasn't started yet, or any future retries.
+	 */
+	Cancellable retryTransferWithBackoff(ApiCall apiCall);
 }
@@ -1,5 +1,6 @@
 package org.briarproject.bramble.mailbox;
 
+import org.briarproject.bramble.PoliteExecutor;
 import org.briarproject.bramble.api.Cancellable;
 import org.briarproject.bramble.api.lifecycle.IoExecutor;
 import org.briarproject.bramble.api.system.TaskScheduler;
@@ -22,6 +23,10 @@ class MailboxApiCallerImpl implements MailboxApiCaller {
 	private final TaskScheduler taskScheduler;
 	private final MailboxConfig mailboxConfig;
 	private final Executor ioExecutor;
+	/**
+	 * An executor that limits the number of concurrent file transfers.
+	 */
+	private final Executor transferExecutor;
 
 	@Inject
 	MailboxApiCallerImpl(TaskScheduler taskScheduler,
@@ -30,11 +35,20 @@ class MailboxApiCallerImpl implements MailboxApiCaller {
 		this.taskScheduler = taskScheduler;
 		this.mailboxConfig = mailboxConfig;
 		this.ioExecutor = ioExecutor;
+		transferExecutor = new PoliteExecutor("MailboxTransferExecutor",
+				ioExecutor, mailboxConfig.getMaxConcurrentTransfers());
 	}
 
 	@Override
 	public Cancellable retryWithBackoff(ApiCall apiCall) {
-		Task task = new Task(apiCall);
+		Task task = new Task(apiCall, ioExecutor);
+		task.start();
+		return task;
+	}
+
+	@Override
+	public Cancellable retryTransferWithBackoff(ApiCall apiCall) {
+		Task task = new Task(apiCall, transferExecutor);
 		task.start();
 		return task;
 	}
@@ -42,6 +56,7 @@ class MailboxApiCallerImpl implements MailboxApiCaller {
 	private class Task implements Cancellable {
 
 		private final ApiCall apiCall;
+		private final Executor executor;
 		private final Object lock = new Object();
 
 		@GuardedBy("lock")
@@ -55,14 +70,15 @@ class MailboxApiCallerImpl implements MailboxApiCaller {
 		private long retryIntervalMs =
 				mailboxConfig.getApiCallerMinRetryInterval();
 
-		private Task(ApiCall apiCall) {
+		private Task(ApiCall apiCall, Executor executor) {
 			this.apiCall = apiCall;
+			this.executor = executor;
 		}
 
 		private void start() {
 			synchronized (lock) {
 				if (cancelled) throw new AssertionError();
-				ioExecutor.execute(this::callApi);
+				executor.execute(this::callApi);
 			}
 		}
 
@@ -76,7 +92,7 @@ class MailboxApiCallerImpl implements MailboxApiCaller {
 				synchronized (lock) {
 					if (cancelled) return;
 					scheduledTask = taskScheduler.schedule(this::callApi,
-							ioExecutor, retryIntervalMs, MILLISECONDS);
+							executor, retryIntervalMs, MILLISECONDS);
 					// Increase the retry interval each time we retry
 					retryIntervalMs = min(
 							mailboxConfig.getApiCallerMaxRetryInterval(),
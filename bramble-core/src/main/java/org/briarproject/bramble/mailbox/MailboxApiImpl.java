@@ -32,6 +32,7 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSink;
 
 import static com.fasterxml.jackson.databind.MapperFeature.BLOCK_UNSAFE_POLYMORPHIC_BASE_TYPES;
 import static java.util.Collections.sort;
@@ -216,6 +217,33 @@ class MailboxApiImpl implements MailboxApi {
 		if (response.code() != 200) throw new ApiException();
 	}
 
+	@Override
+	public void addFile(MailboxProperties properties, MailboxFolderId folderId,
+			UploadWriter writer) throws IOException, ApiException {
+		String path = "/files/" + folderId;
+		// The length of the file isn't known in advance, so the body is
+		// sent with chunked encoding
+		RequestBody body = new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return FILE;
+			}
+
+			@Override
+			public boolean isOneShot() {
+				// Don't let the client retry by writing the file again
+				return true;
+			}
+
+			@Override
+			public void writeTo(BufferedSink sink) throws IOException {
+				writer.writeFile(sink.outputStream());
+			}
+		};
+		Response response = sendPostRequest(properties, path, body);
+		if (response.code() != 200) throw new ApiException();
+	}
+
 	@Override
 	public List<MailboxFile> getFiles(MailboxProperties properties,
 			MailboxFolderId folderId)
@@ -269,6 +297,24 @@ class MailboxApiImpl implements MailboxApi {
 		copyAndClose(body.byteStream(), outputStream);
 	}
 
+	@Override
+	public void getFile(MailboxProperties properties, MailboxFolderId folderId,
+			MailboxFileId fileId, DownloadHandler handler)
+			throws IOException, ApiException, TolerableFailureException {
+		String path = "/files/" + folderId + "/" + fileId;
+		Response response = sendGetRequest(properties, path);
+		if (response.code() == 404) throw new TolerableFailureException();
+		if (response.code() != 200) throw new ApiException();
+
+		ResponseBody body = response.body();
+		if (body == null) throw new ApiException();
+		try {
+			handler.handleFile(body.byteStream());
+		} finally {
+			body.close();
+		}
+	}
+
 	@Override
 	public void deleteFile(MailboxProperties properties,
 			MailboxFolderId folderId, MailboxFileId fileId)
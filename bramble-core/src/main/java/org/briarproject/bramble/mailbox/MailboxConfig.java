@@ -21,4 +21,16 @@ interface MailboxConfig {
 	 */
 	long getTorReachabilityPeriod();
 
+	/**
+	 * The maximum number of file uploads, downloads and deletions that run
+	 * concurrently.
+	 */
+	int getMaxConcurrentTransfers();
+
+	/**
+	 * Whether files should be written as they're uploaded and read as
+	 * they're downloaded, rather than being staged in temporary files.
+	 */
+	boolean shouldStreamTransfers();
+
 }
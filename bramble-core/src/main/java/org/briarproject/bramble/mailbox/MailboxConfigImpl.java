@@ -27,4 +27,14 @@ class MailboxConfigImpl implements MailboxConfig {
 	public long getTorReachabilityPeriod() {
 		return TorReachabilityMonitor.REACHABILITY_PERIOD_MS;
 	}
+
+	@Override
+	public int getMaxConcurrentTransfers() {
+		return MailboxApiCaller.MAX_CONCURRENT_TRANSFERS;
+	}
+
+	@Override
+	public boolean shouldStreamTransfers() {
+		return true;
+	}
 }
@@ -12,6 +12,8 @@ import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.logging.Logger;
 
@@ -37,6 +39,9 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 	 * tried and failed to connect to our hidden service before it was
 	 * reachable, and therefore uploaded a file to the mailbox instead, we'll
 	 * find the file in the second download cycle.
+	 * <p>
+	 * Within each download cycle, several files may be downloaded and
+	 * deleted concurrently.
 	 */
 	protected enum State {
 		CREATED,
@@ -57,6 +62,8 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 	protected final MailboxApi mailboxApi;
 	private final MailboxFileManager mailboxFileManager;
 	protected final MailboxProperties mailboxProperties;
+	private final int maxConcurrentDownloads;
+	private final boolean streamTransfers;
 	protected final Object lock = new Object();
 
 	@GuardedBy("lock")
@@ -66,6 +73,19 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 	@Nullable
 	protected Cancellable apiCall = null;
 
+	/**
+	 * The download and delete calls that have been started since the
+	 * worker last checked for files.
+	 */
+	@GuardedBy("lock")
+	private final List<Cancellable> transferCalls = new ArrayList<>();
+
+	/**
+	 * The number of files that are being downloaded or deleted.
+	 */
+	@GuardedBy("lock")
+	private int activeDownloads = 0;
+
 	/**
 	 * Creates the API call that starts the worker's download cycle.
 	 */
@@ -77,13 +97,18 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 			MailboxApiCaller mailboxApiCaller,
 			MailboxApi mailboxApi,
 			MailboxFileManager mailboxFileManager,
-			MailboxProperties mailboxProperties) {
+			MailboxProperties mailboxProperties,
+			int maxConcurrentDownloads,
+			boolean streamTransfers) {
+		if (maxConcurrentDownloads < 1) throw new IllegalArgumentException();
 		this.connectivityChecker = connectivityChecker;
 		this.torReachabilityMonitor = torReachabilityMonitor;
 		this.mailboxApiCaller = mailboxApiCaller;
 		this.mailboxApi = mailboxApi;
 		this.mailboxFileManager = mailboxFileManager;
 		this.mailboxProperties = mailboxProperties;
+		this.maxConcurrentDownloads = maxConcurrentDownloads;
+		this.streamTransfers = streamTransfers;
 	}
 
 	@Override
@@ -108,12 +133,16 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 	public void destroy() {
 		LOG.info("Destroyed");
 		Cancellable apiCall;
+		List<Cancellable> transferCalls;
 		synchronized (lock) {
 			state = State.DESTROYED;
 			apiCall = this.apiCall;
 			this.apiCall = null;
+			transferCalls = new ArrayList<>(this.transferCalls);
+			this.transferCalls.clear();
 		}
 		if (apiCall != null) apiCall.cancel();
+		for (Cancellable transferCall : transferCalls) transferCall.cancel();
 		connectivityChecker.removeObserver(this);
 		torReachabilityMonitor.removeObserver(this);
 	}
@@ -156,56 +185,95 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 		}
 	}
 
-	void downloadNextFile(Queue<FolderFile> queue) {
+	/**
+	 * Downloads and deletes the files in the given queue, and then checks
+	 * for files again. The caller must not access the queue after calling
+	 * this method.
+	 */
+	void downloadFiles(Queue<FolderFile> queue) {
 		synchronized (lock) {
 			if (state == State.DESTROYED) return;
 			if (queue.isEmpty()) {
-				// Check for files again, as new files may have arrived while
-				// we were downloading
-				apiCall = mailboxApiCaller.retryWithBackoff(
-						createApiCallForDownloadCycle());
+				checkForFiles();
 			} else {
-				FolderFile file = queue.remove();
-				apiCall = mailboxApiCaller.retryWithBackoff(
-						new SimpleApiCall(() ->
-								apiCallDownloadFile(file, queue)));
+				while (activeDownloads < maxConcurrentDownloads
+						&& !queue.isEmpty()) {
+					startDownload(queue.remove(), queue);
+				}
 			}
 		}
 	}
 
+	@GuardedBy("lock")
+	private void startDownload(FolderFile file, Queue<FolderFile> queue) {
+		activeDownloads++;
+		transferCalls.add(mailboxApiCaller.retryTransferWithBackoff(
+				new SimpleApiCall(() -> apiCallDownloadFile(file, queue))));
+	}
+
+	@GuardedBy("lock")
+	private void checkForFiles() {
+		// Check for files again, as new files may have arrived while we were
+		// downloading
+		transferCalls.clear();
+		apiCall = mailboxApiCaller.retryWithBackoff(
+				createApiCallForDownloadCycle());
+	}
+
+	private void onFileFinished(Queue<FolderFile> queue) {
+		synchronized (lock) {
+			if (state == State.DESTROYED) return;
+			activeDownloads--;
+			if (!queue.isEmpty()) startDownload(queue.remove(), queue);
+			else if (activeDownloads == 0) checkForFiles();
+		}
+	}
+
 	private void apiCallDownloadFile(FolderFile file, Queue<FolderFile> queue)
 			throws IOException, ApiException {
 		synchronized (lock) {
 			if (state == State.DESTROYED) return;
 		}
 		LOG.info("Downloading file");
-		File tempFile = mailboxFileManager.createTempFileForDownload();
 		try {
-			mailboxApi.getFile(mailboxProperties, file.folderId, file.fileId,
-					tempFile);
-		} catch (IOException | ApiException e) {
-			if (!tempFile.delete()) {
-				LOG.warning("Failed to delete temporary file");
+			if (streamTransfers) {
+				// Read the file as it's downloaded. If the download fails
+				// before the file has been handled, we'll download it again
+				mailboxApi.getFile(mailboxProperties, file.folderId,
+						file.fileId, mailboxFileManager::handleDownloadStream);
+			} else {
+				downloadAndHandleTempFile(file);
 			}
-			throw e;
 		} catch (TolerableFailureException e) {
 			// File not found - continue to the next file
 			LOG.warning("File does not exist");
+			onFileFinished(queue);
+			return;
+		}
+		// The file has been handled, so it can be deleted from the mailbox
+		deleteFile(file, queue);
+	}
+
+	private void downloadAndHandleTempFile(FolderFile file)
+			throws IOException, ApiException, TolerableFailureException {
+		File tempFile = mailboxFileManager.createTempFileForDownload();
+		try {
+			mailboxApi.getFile(mailboxProperties, file.folderId, file.fileId,
+					tempFile);
+		} catch (IOException | ApiException | TolerableFailureException e) {
 			if (!tempFile.delete()) {
 				LOG.warning("Failed to delete temporary file");
 			}
-			downloadNextFile(queue);
-			return;
+			throw e;
 		}
 		mailboxFileManager.handleDownloadedFile(tempFile);
-		deleteFile(file, queue);
 	}
 
 	private void deleteFile(FolderFile file, Queue<FolderFile> queue) {
 		synchronized (lock) {
 			if (state == State.DESTROYED) return;
-			apiCall = mailboxApiCaller.retryWithBackoff(
-					new SimpleApiCall(() -> apiCallDeleteFile(file, queue)));
+			transferCalls.add(mailboxApiCaller.retryTransferWithBackoff(
+					new SimpleApiCall(() -> apiCallDeleteFile(file, queue))));
 		}
 	}
 
@@ -221,7 +289,7 @@ abstract class MailboxDownloadWorker implements MailboxWorker,
 			// File not found - continue to the next file
 			LOG.warning("File does not exist");
 		}
-		downloadNextFile(queue);
+		onFileFinished(queue);
 	}
 
 	@Override
@@ -6,6 +6,8 @@ import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -31,4 +33,27 @@ interface MailboxFileManager {
 	 * with {@link #createTempFileForDownload()}.
 	 */
 	void handleDownloadedFile(File f);
+
+	/**
+	 * Writes any waiting data for the given contact to the given stream, to
+	 * be uploaded without staging it in a file. The IDs of any messages sent
+	 * or acked will be added to the given {@link OutgoingSessionRecord}. The
+	 * stream is not closed.
+	 * <p>
+	 * This method blocks until the data has been written.
+	 */
+	void writeStreamForUpload(ContactId contactId,
+			OutgoingSessionRecord sessionRecord, OutputStream out)
+			throws IOException;
+
+	/**
+	 * Handles a file by reading it from the given stream as it's downloaded,
+	 * without staging it in a file. The stream is not closed.
+	 * <p>
+	 * This method blocks until the file has been handled.
+	 *
+	 * @throws IOException if the stream failed before the file could be
+	 * handled, in which case the file should be downloaded again.
+	 */
+	void handleDownloadStream(InputStream in) throws IOException;
 }
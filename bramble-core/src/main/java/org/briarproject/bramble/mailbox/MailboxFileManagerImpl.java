@@ -18,6 +18,8 @@ import org.briarproject.bramble.api.sync.OutgoingSessionRecord;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,6 +36,7 @@ import static java.util.logging.Level.WARNING;
 import static java.util.logging.Logger.getLogger;
 import static org.briarproject.bramble.api.lifecycle.LifecycleManager.LifecycleState.RUNNING;
 import static org.briarproject.bramble.api.mailbox.MailboxConstants.ID;
+import static org.briarproject.bramble.api.mailbox.MailboxConstants.MAX_LATENCY;
 import static org.briarproject.bramble.api.plugin.file.FileConstants.PROP_PATH;
 import static org.briarproject.bramble.util.IoUtils.delete;
 import static org.briarproject.bramble.util.LogUtils.logException;
@@ -143,6 +146,35 @@ class MailboxFileManagerImpl implements MailboxFileManager, EventListener {
 				exception -> isHandlingComplete(exception, true));
 	}
 
+	@Override
+	public void writeStreamForUpload(ContactId contactId,
+			OutgoingSessionRecord sessionRecord, OutputStream out)
+			throws IOException {
+		MailboxStreamWriter writer = new MailboxStreamWriter(out);
+		LOG.info("Writing stream for upload");
+		connectionManager.manageOutgoingConnection(contactId, ID, writer,
+				sessionRecord);
+		if (writer.awaitDisposal()) {
+			// An exception was thrown during the session
+			throw new IOException();
+		}
+	}
+
+	@Override
+	public void handleDownloadStream(InputStream in) throws IOException {
+		MailboxStreamReader reader = new MailboxStreamReader(in);
+		LOG.info("Reading downloaded stream");
+		// If the stream fails, don't mark the tag as recognised, so we can
+		// recognise it when the file is downloaded again
+		connectionManager.manageIncomingConnection(ID, reader,
+				exception -> !reader.streamFailed &&
+						isHandlingComplete(exception, true));
+		if (!reader.awaitDisposal()) {
+			// The file will stay in the mailbox and be downloaded again
+			throw new IOException();
+		}
+	}
+
 	private boolean isHandlingComplete(boolean exception, boolean recognised) {
 		// If we've successfully read the file then we're done
 		if (!exception && recognised) return true;
@@ -268,4 +300,140 @@ class MailboxFileManagerImpl implements MailboxFileManager, EventListener {
 			}
 		}
 	}
+
+	/**
+	 * A reader for a file that's being downloaded. If the download fails,
+	 * the file stays in the mailbox, so it shouldn't be treated as handled.
+	 */
+	private class MailboxStreamReader implements TransportConnectionReader {
+
+		private final InputStream in;
+		private final BlockingQueue<Boolean> disposalResult =
+				new ArrayBlockingQueue<>(1);
+
+		private volatile boolean streamFailed = false;
+
+		private MailboxStreamReader(InputStream in) {
+			// Record any exceptions thrown by the stream, as the connection
+			// doesn't distinguish them from other failures
+			this.in = new FilterInputStream(in) {
+				@Override
+				public int read() throws IOException {
+					try {
+						return super.read();
+					} catch (IOException e) {
+						streamFailed = true;
+						throw e;
+					}
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len)
+						throws IOException {
+					try {
+						return super.read(b, off, len);
+					} catch (IOException e) {
+						streamFailed = true;
+						throw e;
+					}
+				}
+
+				@Override
+				public void close() {
+					// The stream belongs to the caller
+				}
+			};
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return in;
+		}
+
+		@Override
+		public void dispose(boolean exception, boolean recognised) {
+			disposalResult.add(!streamFailed &&
+					isHandlingComplete(exception, recognised));
+		}
+
+		/**
+		 * Waits for the reader to be disposed and returns true if the file
+		 * was handled.
+		 */
+		private boolean awaitDisposal() {
+			try {
+				return disposalResult.take();
+			} catch (InterruptedException e) {
+				LOG.info("Interrupted while waiting for disposal");
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * A writer for a file that's being uploaded.
+	 */
+	private static class MailboxStreamWriter
+			implements TransportConnectionWriter {
+
+		private final OutputStream out;
+		private final BlockingQueue<Boolean> disposalResult =
+				new ArrayBlockingQueue<>(1);
+
+		private MailboxStreamWriter(OutputStream out) {
+			this.out = new FilterOutputStream(out) {
+				@Override
+				public void write(byte[] b, int off, int len)
+						throws IOException {
+					// Avoid writing one byte at a time
+					this.out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					// The stream belongs to the caller
+					flush();
+				}
+			};
+		}
+
+		@Override
+		public long getMaxLatency() {
+			return MAX_LATENCY;
+		}
+
+		@Override
+		public int getMaxIdleTime() {
+			// Unused for simplex transports
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isLossyAndCheap() {
+			return false;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return out;
+		}
+
+		@Override
+		public void dispose(boolean exception) {
+			disposalResult.add(exception);
+		}
+
+		/**
+		 * Waits for the writer to be disposed and returns true if an
+		 * exception occurred.
+		 */
+		private boolean awaitDisposal() {
+			try {
+				return disposalResult.take();
+			} catch (InterruptedException e) {
+				LOG.info("Interrupted while waiting for disposal");
+				return true;
+			}
+		}
+	}
 }
@@ -127,6 +127,7 @@ public class MailboxModule {
 	}
 
 	@Provides
+	@Singleton
 	MailboxApiCaller provideMailboxApiCaller(
 			MailboxApiCallerImpl mailboxApiCaller) {
 		return mailboxApiCaller;
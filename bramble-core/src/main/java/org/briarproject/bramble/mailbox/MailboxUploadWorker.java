@@ -56,6 +56,10 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 	 * to send, the worker waits for a connectivity check, then writes and
 	 * uploads a file and checks again for data to send.
 	 * <p>
+	 * If streaming is enabled, the file is written as it's uploaded rather
+	 * than being written to disk first, and each attempt to upload the file
+	 * writes whatever data is ready to send at the time.
+	 * <p>
 	 * If data is due to be sent at some time in the future, the worker
 	 * schedules a wakeup for that time and also listens for events indicating
 	 * that new data may be ready to send.
@@ -114,6 +118,7 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 	private final MailboxProperties mailboxProperties;
 	private final MailboxFolderId folderId;
 	private final ContactId contactId;
+	private final boolean streamTransfers;
 
 	private final Object lock = new Object();
 
@@ -140,7 +145,8 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 			MailboxFileManager mailboxFileManager,
 			MailboxProperties mailboxProperties,
 			MailboxFolderId folderId,
-			ContactId contactId) {
+			ContactId contactId,
+			boolean streamTransfers) {
 		this.ioExecutor = ioExecutor;
 		this.db = db;
 		this.clock = clock;
@@ -154,6 +160,7 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 		this.mailboxProperties = mailboxProperties;
 		this.folderId = folderId;
 		this.contactId = contactId;
+		this.streamTransfers = streamTransfers;
 	}
 
 	@Override
@@ -299,6 +306,11 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 		synchronized (lock) {
 			if (state != State.CONNECTIVITY_CHECK) return;
 			state = State.WRITING_UPLOADING;
+			if (streamTransfers) {
+				apiCall = mailboxApiCaller.retryTransferWithBackoff(
+						new SimpleApiCall(this::apiCallWriteAndUploadFile));
+				return;
+			}
 		}
 		ioExecutor.execute(this::writeAndUploadFile);
 	}
@@ -328,7 +340,7 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 		synchronized (lock) {
 			if (state == State.WRITING_UPLOADING) {
 				this.file = file;
-				apiCall = mailboxApiCaller.retryWithBackoff(
+				apiCall = mailboxApiCaller.retryTransferWithBackoff(
 						new SimpleApiCall(() -> apiCallUploadFile(file,
 								sessionRecord)));
 			} else {
@@ -358,6 +370,27 @@ class MailboxUploadWorker implements MailboxWorker, ConnectivityObserver,
 		checkForDataToSend();
 	}
 
+	@IoExecutor
+	private void apiCallWriteAndUploadFile() throws IOException, ApiException {
+		synchronized (lock) {
+			if (state != State.WRITING_UPLOADING) return;
+		}
+		// If the upload fails, nothing has been marked as sent or acked, so
+		// the next attempt will write the same data along with anything new
+		OutgoingSessionRecord sessionRecord = new OutgoingSessionRecord();
+		LOG.info("Writing and uploading file");
+		mailboxApi.addFile(mailboxProperties, folderId,
+				out -> mailboxFileManager.writeStreamForUpload(contactId,
+						sessionRecord, out));
+		markMessagesSentOrAcked(sessionRecord);
+		synchronized (lock) {
+			if (state != State.WRITING_UPLOADING) return;
+			state = State.CHECKING_FOR_DATA;
+			apiCall = null;
+		}
+		checkForDataToSend();
+	}
+
 	private void markMessagesSentOrAcked(OutgoingSessionRecord sessionRecord) {
 		Collection<MessageId> acked = sessionRecord.getAckedIds();
 		Collection<MessageId> sent = sessionRecord.getSentIds();
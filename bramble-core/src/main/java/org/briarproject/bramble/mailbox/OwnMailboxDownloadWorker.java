@@ -42,9 +42,12 @@ class OwnMailboxDownloadWorker extends MailboxDownloadWorker {
 			MailboxApiCaller mailboxApiCaller,
 			MailboxApi mailboxApi,
 			MailboxFileManager mailboxFileManager,
-			MailboxProperties mailboxProperties) {
+			MailboxProperties mailboxProperties,
+			int maxConcurrentDownloads,
+			boolean streamTransfers) {
 		super(connectivityChecker, torReachabilityMonitor, mailboxApiCaller,
-				mailboxApi, mailboxFileManager, mailboxProperties);
+				mailboxApi, mailboxFileManager, mailboxProperties,
+				maxConcurrentDownloads, streamTransfers);
 		if (!mailboxProperties.isOwner()) throw new IllegalArgumentException();
 	}
 
@@ -120,7 +123,7 @@ class OwnMailboxDownloadWorker extends MailboxDownloadWorker {
 		if (LOG.isLoggable(INFO)) {
 			LOG.info("Downloading " + queue.size() + " files");
 		}
-		downloadNextFile(queue);
+		downloadFiles(queue);
 	}
 
 	// Package access for testing
@@ -34,9 +34,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
 import static org.briarproject.bramble.api.properties.TransportPropertyConstants.GROUP_KEY_DISCOVERED;
@@ -47,7 +48,7 @@ import static org.briarproject.bramble.api.properties.TransportPropertyConstants
 import static org.briarproject.bramble.api.sync.validation.IncomingMessageHook.DeliveryAction.ACCEPT_DO_NOT_SHARE;
 import static org.briarproject.bramble.util.StringUtils.isNullOrEmpty;
 
-@Immutable
+@ThreadSafe
 @NotNullByDefault
 class TransportPropertyManagerImpl implements TransportPropertyManager,
 		OpenDatabaseHook, ContactHook, ClientVersioningHook,
@@ -61,6 +62,16 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 	private final Clock clock;
 	private final Group localGroup;
 
+	/**
+	 * Snapshots of the remote properties of all contacts for each transport.
+	 * Snapshots are only created by read-only transactions, and the cache is
+	 * cleared by any write transaction that changes remote properties or
+	 * adds or removes contacts. As read-only transactions can't overlap with
+	 * write transactions, the cache never holds uncommitted or stale data.
+	 */
+	private final Map<TransportId, Map<ContactId, TransportProperties>>
+			remoteCache = new ConcurrentHashMap<>();
+
 	@Inject
 	TransportPropertyManagerImpl(DatabaseComponent db,
 			ClientHelper clientHelper,
@@ -90,6 +101,7 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 		// Create a group to share with the contact
 		Group g = getContactGroup(c);
 		db.addGroup(txn, g);
+		remoteCache.clear();
 		// Apply the client's visibility to the contact group
 		Visibility client = clientVersioningManager.getClientVisibility(txn,
 				c.getId(), CLIENT_ID, MAJOR_VERSION);
@@ -105,6 +117,7 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 	@Override
 	public void removingContact(Transaction txn, Contact c) throws DbException {
 		db.removeGroup(txn, getContactGroup(c));
+		remoteCache.clear();
 	}
 
 	@Override
@@ -135,6 +148,7 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 					return ACCEPT_DO_NOT_SHARE;
 				}
 			}
+			remoteCache.remove(t);
 			txn.attach(new RemoteTransportPropertiesUpdatedEvent(t));
 		} catch (FormatException e) {
 			throw new InvalidMessageException(e);
@@ -149,6 +163,7 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 		for (Entry<TransportId, TransportProperties> e : props.entrySet()) {
 			storeMessage(txn, g.getId(), e.getKey(), e.getValue(), 0,
 					false, false);
+			remoteCache.remove(e.getKey());
 		}
 	}
 
@@ -177,6 +192,9 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 				if (changed) {
 					meta.put(GROUP_KEY_DISCOVERED, merged);
 					clientHelper.mergeGroupMetadata(txn, g.getId(), meta);
+					// Discovered properties are merged into the remote
+					// properties for every transport
+					remoteCache.clear();
 					updateLocalProperties(txn, contact, t);
 				}
 			});
@@ -235,12 +253,23 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 	@Override
 	public Map<ContactId, TransportProperties> getRemoteProperties(
 			TransportId t) throws DbException {
-		return db.transactionWithResult(true, txn -> {
-			Map<ContactId, TransportProperties> remote = new HashMap<>();
-			for (Contact c : db.getContacts(txn))
-				remote.put(c.getId(), getRemoteProperties(txn, c, t));
-			return remote;
-		});
+		Map<ContactId, TransportProperties> snapshot = remoteCache.get(t);
+		if (snapshot == null) {
+			snapshot = db.transactionWithResult(true, txn -> {
+				Map<ContactId, TransportProperties> remote = new HashMap<>();
+				for (Contact c : db.getContacts(txn))
+					remote.put(c.getId(), getRemoteProperties(txn, c, t));
+				// Cache the snapshot before the transaction ends, so it
+				// can't miss a write transaction that clears the cache
+				remoteCache.put(t, remote);
+				return remote;
+			});
+		}
+		// Return a copy so the caller can't modify the snapshot
+		Map<ContactId, TransportProperties> copy = new HashMap<>();
+		for (Entry<ContactId, TransportProperties> e : snapshot.entrySet())
+			copy.put(e.getKey(), new TransportProperties(e.getValue()));
+		return copy;
 	}
 
 	private void updateLocalProperties(Transaction txn, Contact c,
@@ -294,6 +323,11 @@ class TransportPropertyManagerImpl implements TransportPropertyManager,
 	@Override
 	public TransportProperties getRemoteProperties(ContactId c, TransportId t)
 			throws DbException {
+		Map<ContactId, TransportProperties> snapshot = remoteCache.get(t);
+		if (snapshot != null) {
+			TransportProperties p = snapshot.get(c);
+			if (p != null) return new TransportProperties(p);
+		}
 		return db.transactionWithResult(true, txn ->
 				getRemoteProperties(txn, db.getContact(txn, c), t));
 	}
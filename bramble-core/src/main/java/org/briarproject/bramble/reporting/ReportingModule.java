@@ -1,6 +1,7 @@
 package org.briarproject.bramble.reporting;
 
 import org.briarproject.bramble.api.event.EventBus;
+import org.briarproject.bramble.api.plugin.event.TransportActiveEvent;
 import org.briarproject.bramble.api.reporting.DevReporter;
 
 import javax.inject.Inject;
@@ -21,7 +22,7 @@ public class ReportingModule {
 	@Singleton
 	DevReporter provideDevReporter(DevReporterImpl devReporter,
 			EventBus eventBus) {
-		eventBus.addListener(devReporter);
+		eventBus.addListener(TransportActiveEvent.class, devReporter);
 		return devReporter;
 	}
 }
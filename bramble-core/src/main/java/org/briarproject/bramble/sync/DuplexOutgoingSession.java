@@ -83,16 +83,24 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 	 * fewer round-trips between the DB and the output stream, but each
 	 * round-trip will block the DB for longer.
 	 */
-	private static final int BATCH_CAPACITY =
+	static final int BATCH_CAPACITY =
 			(RECORD_HEADER_BYTES + MAX_MESSAGE_LENGTH) * 2;
 
+	/**
+	 * The default maximum number of bytes of batches that may be generated
+	 * ahead of the writer. While the buffered batches are smaller than this,
+	 * a new batch is generated as soon as the previous one has been
+	 * generated, rather than waiting for the writer to write it.
+	 */
+	static final long MAX_BUFFERED_BATCH_BYTES = BATCH_CAPACITY * 4L;
+
 	private final DatabaseComponent db;
 	private final Executor dbExecutor;
 	private final EventBus eventBus;
 	private final Clock clock;
 	private final ContactId contactId;
 	private final TransportId transportId;
-	private final long maxLatency, maxIdleTime;
+	private final long maxLatency, maxIdleTime, maxBufferedBatchBytes;
 	private final StreamWriter streamWriter;
 	private final SyncRecordWriter recordWriter;
 	@Nullable
@@ -105,14 +113,32 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 	private final AtomicBoolean generateRequestQueued =
 			new AtomicBoolean(false);
 	private final AtomicLong nextSendTime = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong bufferedBatchBytes = new AtomicLong(0);
 
 	private volatile boolean interrupted = false;
+	private volatile long startTime = 0, idleTime = 0;
 
 	DuplexOutgoingSession(DatabaseComponent db, Executor dbExecutor,
 			EventBus eventBus, Clock clock, ContactId contactId,
 			TransportId transportId, long maxLatency, int maxIdleTime,
 			StreamWriter streamWriter, SyncRecordWriter recordWriter,
 			@Nullable Priority priority) {
+		this(db, dbExecutor, eventBus, clock, contactId, transportId,
+				maxLatency, maxIdleTime, streamWriter, recordWriter, priority,
+				MAX_BUFFERED_BATCH_BYTES);
+	}
+
+	/**
+	 * @param maxBufferedBatchBytes The maximum number of bytes of batches
+	 * that may be generated ahead of the writer, or zero to generate each
+	 * batch only after the previous batch has been written.
+	 */
+	DuplexOutgoingSession(DatabaseComponent db, Executor dbExecutor,
+			EventBus eventBus, Clock clock, ContactId contactId,
+			TransportId transportId, long maxLatency, int maxIdleTime,
+			StreamWriter streamWriter, SyncRecordWriter recordWriter,
+			@Nullable Priority priority, long maxBufferedBatchBytes) {
+		if (maxBufferedBatchBytes < 0) throw new IllegalArgumentException();
 		this.db = db;
 		this.dbExecutor = dbExecutor;
 		this.eventBus = eventBus;
@@ -124,6 +150,7 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 		this.streamWriter = streamWriter;
 		this.recordWriter = recordWriter;
 		this.priority = priority;
+		this.maxBufferedBatchBytes = maxBufferedBatchBytes;
 		writerTasks = new LinkedBlockingQueue<>();
 	}
 
@@ -131,6 +158,7 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 	@Override
 	public void run() throws IOException {
 		eventBus.addListener(this);
+		startTime = clock.currentTimeMillis();
 		try {
 			// Send our supported protocol versions
 			recordWriter.writeVersions(new Versions(SUPPORTED_VERSIONS));
@@ -161,6 +189,8 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 					// Wait for a record
 					ThrowingRunnable<IOException> task = writerTasks.poll(wait,
 							MILLISECONDS);
+					long waited = clock.currentTimeMillis() - now;
+					if (waited > 0) idleTime += waited;
 					if (task == null) {
 						now = clock.currentTimeMillis();
 						if (now >= nextSendTime.get()) {
@@ -194,6 +224,57 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 			}
 		} finally {
 			eventBus.removeListener(this);
+			// Stop generating records and discard any that weren't written
+			interrupted = true;
+			discardWriterTasks();
+			if (LOG.isLoggable(INFO)) {
+				LOG.info("Wrote " + recordWriter.getBytesWritten() + " bytes, "
+						+ getBytesPerSecond() + " bytes/s, idle for "
+						+ idleTime + " of " + getElapsedTime() + " ms");
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of milliseconds the writer has spent waiting for
+	 * records to write.
+	 */
+	long getIdleTime() {
+		return idleTime;
+	}
+
+	/**
+	 * Returns the average number of bytes written per second since the
+	 * session started.
+	 */
+	long getBytesPerSecond() {
+		long elapsed = getElapsedTime();
+		if (elapsed == 0) return 0;
+		return recordWriter.getBytesWritten() * 1000 / elapsed;
+	}
+
+	/**
+	 * Returns the number of bytes of batches that have been generated but
+	 * not yet written.
+	 */
+	long getBufferedBatchBytes() {
+		return bufferedBatchBytes.get();
+	}
+
+	private long getElapsedTime() {
+		if (startTime == 0) return 0;
+		return Math.max(0, clock.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Discards any records waiting to be written, releasing the space used
+	 * by any batches.
+	 */
+	private void discardWriterTasks() {
+		ThrowingRunnable<IOException> task;
+		while ((task = writerTasks.poll()) != null) {
+			if (task instanceof WriteBatch)
+				bufferedBatchBytes.addAndGet(-((WriteBatch) task).bytes);
 		}
 	}
 
@@ -203,6 +284,11 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 	}
 
 	private void generateBatch() {
+		// Apply backpressure if enough batches are waiting to be written
+		if (maxBufferedBatchBytes > 0 &&
+				bufferedBatchBytes.get() >= maxBufferedBatchBytes) {
+			return;
+		}
 		if (generateBatchQueued.compareAndSet(false, true))
 			dbExecutor.execute(new GenerateBatch());
 	}
@@ -326,7 +412,15 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 						});
 				if (LOG.isLoggable(INFO))
 					LOG.info("Generated batch: " + (b != null));
-				if (b != null) writerTasks.add(new WriteBatch(b));
+				if (b != null) {
+					long bytes = 0;
+					for (Message m : b)
+						bytes += RECORD_HEADER_BYTES + m.getRawLength();
+					bufferedBatchBytes.addAndGet(bytes);
+					writerTasks.add(new WriteBatch(b, bytes));
+					// Generate the next batch without waiting for the writer
+					if (maxBufferedBatchBytes > 0) generateBatch();
+				}
 			} catch (DbException e) {
 				logException(LOG, WARNING, e);
 				interrupt();
@@ -337,17 +431,24 @@ class DuplexOutgoingSession implements SyncSession, EventListener {
 	private class WriteBatch implements ThrowingRunnable<IOException> {
 
 		private final Collection<Message> batch;
+		private final long bytes;
 
-		private WriteBatch(Collection<Message> batch) {
+		private WriteBatch(Collection<Message> batch, long bytes) {
 			this.batch = batch;
+			this.bytes = bytes;
 		}
 
 		@IoExecutor
 		@Override
 		public void run() throws IOException {
-			if (interrupted) return;
-			for (Message m : batch) recordWriter.writeMessage(m);
-			LOG.info("Sent batch");
+			try {
+				if (interrupted) return;
+				for (Message m : batch) recordWriter.writeMessage(m);
+				LOG.info("Sent batch");
+			} finally {
+				// Release the batch's space even if it wasn't written
+				bufferedBatchBytes.addAndGet(-bytes);
+			}
 			generateBatch();
 		}
 	}
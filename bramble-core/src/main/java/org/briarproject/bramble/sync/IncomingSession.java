@@ -6,6 +6,7 @@ import org.briarproject.bramble.api.contact.event.ContactRemovedEvent;
 import org.briarproject.bramble.api.db.DatabaseComponent;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.DbRunnable;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.event.EventListener;
@@ -19,23 +20,31 @@ import org.briarproject.bramble.api.sync.PriorityHandler;
 import org.briarproject.bramble.api.sync.Request;
 import org.briarproject.bramble.api.sync.SyncRecordReader;
 import org.briarproject.bramble.api.sync.SyncSession;
-import org.briarproject.bramble.api.sync.Versions;
+import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.WARNING;
 import static java.util.logging.Logger.getLogger;
 import static org.briarproject.bramble.api.lifecycle.LifecycleManager.LifecycleState.STOPPING;
 import static org.briarproject.bramble.util.LogUtils.logException;
 
 /**
- * An incoming {@link SyncSession}.
+ * An incoming {@link SyncSession}. Consecutive records are stored in batches,
+ * each in a single transaction, to reduce the per-transaction overhead of
+ * receiving large numbers of messages.
  */
 @ThreadSafe
 @NotNullByDefault
@@ -44,24 +53,64 @@ class IncomingSession implements SyncSession, EventListener {
 	private static final Logger LOG =
 			getLogger(IncomingSession.class.getName());
 
+	/**
+	 * The maximum number of consecutive records to store in a single
+	 * transaction.
+	 */
+	static final int MAX_BATCH_RECORDS = 100;
+
+	/**
+	 * The maximum time in milliseconds to spend storing records in a single
+	 * transaction, so other tasks aren't kept waiting for the write lock.
+	 */
+	static final long MAX_BATCH_DURATION = 500;
+
 	private final DatabaseComponent db;
 	private final Executor dbExecutor;
 	private final EventBus eventBus;
 	private final ContactId contactId;
 	private final SyncRecordReader recordReader;
 	private final PriorityHandler priorityHandler;
+	private final Clock clock;
+	private final int maxBatchRecords;
+	private final long maxBatchDuration;
+
+	private final Object lock = new Object();
+	@GuardedBy("lock")
+	private final Queue<DbRunnable<DbException>> pending = new LinkedList<>();
+	@GuardedBy("lock")
+	private boolean batchScheduled = false;
 
 	private volatile boolean interrupted = false;
 
 	IncomingSession(DatabaseComponent db, Executor dbExecutor,
-			EventBus eventBus, ContactId contactId,
+			EventBus eventBus, Clock clock, ContactId contactId,
 			SyncRecordReader recordReader, PriorityHandler priorityHandler) {
+		this(db, dbExecutor, eventBus, clock, contactId, recordReader,
+				priorityHandler, MAX_BATCH_RECORDS, MAX_BATCH_DURATION);
+	}
+
+	/**
+	 * @param maxBatchRecords The maximum number of records to store in a
+	 * single transaction. A value of 1 stores each record in its own
+	 * transaction.
+	 * @param maxBatchDuration The maximum time in milliseconds to spend
+	 * storing records in a single transaction.
+	 */
+	IncomingSession(DatabaseComponent db, Executor dbExecutor,
+			EventBus eventBus, Clock clock, ContactId contactId,
+			SyncRecordReader recordReader, PriorityHandler priorityHandler,
+			int maxBatchRecords, long maxBatchDuration) {
+		if (maxBatchRecords < 1) throw new IllegalArgumentException();
 		this.db = db;
 		this.dbExecutor = dbExecutor;
 		this.eventBus = eventBus;
+		this.clock = clock;
 		this.contactId = contactId;
 		this.recordReader = recordReader;
 		this.priorityHandler = priorityHandler;
+		this.maxBatchRecords = maxBatchRecords;
+		this.maxBatchDuration = maxBatchDuration;
 	}
 
 	@IoExecutor
@@ -77,19 +126,21 @@ class IncomingSession implements SyncSession, EventListener {
 				}
 				if (recordReader.hasAck()) {
 					Ack a = recordReader.readAck();
-					dbExecutor.execute(new ReceiveAck(a));
+					enqueue(txn -> db.receiveAck(txn, contactId, a));
 				} else if (recordReader.hasMessage()) {
 					Message m = recordReader.readMessage();
-					dbExecutor.execute(new ReceiveMessage(m));
+					enqueue(txn -> db.receiveMessage(txn, contactId, m));
 				} else if (recordReader.hasOffer()) {
 					Offer o = recordReader.readOffer();
-					dbExecutor.execute(new ReceiveOffer(o));
+					enqueue(txn -> db.receiveOffer(txn, contactId, o));
 				} else if (recordReader.hasRequest()) {
 					Request r = recordReader.readRequest();
-					dbExecutor.execute(new ReceiveRequest(r));
+					enqueue(txn -> db.receiveRequest(txn, contactId, r));
 				} else if (recordReader.hasVersions()) {
-					Versions v = recordReader.readVersions();
-					dbExecutor.execute(new ReceiveVersions(v));
+					List<Byte> supported =
+							recordReader.readVersions().getSupportedVersions();
+					enqueue(txn ->
+							db.setSyncVersions(txn, contactId, supported));
 				} else if (recordReader.hasPriority()) {
 					Priority p = recordReader.readPriority();
 					priorityHandler.handle(p);
@@ -120,108 +171,83 @@ class IncomingSession implements SyncSession, EventListener {
 		}
 	}
 
-	private class ReceiveAck implements Runnable {
-
-		private final Ack ack;
-
-		private ReceiveAck(Ack ack) {
-			this.ack = ack;
-		}
-
-		@DatabaseExecutor
-		@Override
-		public void run() {
-			try {
-				db.transaction(false, txn ->
-						db.receiveAck(txn, contactId, ack));
-			} catch (DbException e) {
-				logException(LOG, WARNING, e);
-				interrupt();
-			}
-		}
-	}
-
-	private class ReceiveMessage implements Runnable {
-
-		private final Message message;
-
-		private ReceiveMessage(Message message) {
-			this.message = message;
-		}
-
-		@DatabaseExecutor
-		@Override
-		public void run() {
-			try {
-				db.transaction(false, txn ->
-						db.receiveMessage(txn, contactId, message));
-			} catch (DbException e) {
-				logException(LOG, WARNING, e);
-				interrupt();
-			}
+	/**
+	 * Adds a record to the queue of records waiting to be stored, and
+	 * schedules a batch to be received if one isn't already scheduled.
+	 */
+	@IoExecutor
+	private void enqueue(DbRunnable<DbException> record) {
+		synchronized (lock) {
+			pending.add(record);
+			if (batchScheduled) return;
+			batchScheduled = true;
 		}
+		dbExecutor.execute(new ReceiveBatch());
 	}
 
-	private class ReceiveOffer implements Runnable {
-
-		private final Offer offer;
-
-		private ReceiveOffer(Offer offer) {
-			this.offer = offer;
-		}
-
-		@DatabaseExecutor
-		@Override
-		public void run() {
-			try {
-				db.transaction(false, txn ->
-						db.receiveOffer(txn, contactId, offer));
-			} catch (DbException e) {
-				logException(LOG, WARNING, e);
-				interrupt();
-			}
+	@Nullable
+	private DbRunnable<DbException> poll() {
+		synchronized (lock) {
+			return pending.poll();
 		}
 	}
 
-	private class ReceiveRequest implements Runnable {
-
-		private final Request request;
-
-		private ReceiveRequest(Request request) {
-			this.request = request;
-		}
+	/**
+	 * Stores consecutive records from the queue in a single transaction,
+	 * up to {@link #maxBatchRecords} records or {@link #maxBatchDuration}
+	 * milliseconds. Events are broadcast when the transaction commits. If
+	 * the transaction fails, the records are retried one at a time so a bad
+	 * record doesn't cause the rest of the batch to be lost.
+	 */
+	private class ReceiveBatch implements Runnable {
 
 		@DatabaseExecutor
 		@Override
 		public void run() {
+			List<DbRunnable<DbException>> batch = new ArrayList<>();
 			try {
-				db.transaction(false, txn ->
-						db.receiveRequest(txn, contactId, request));
+				db.transaction(false, txn -> {
+					long start = clock.currentTimeMillis();
+					while (batch.size() < maxBatchRecords) {
+						DbRunnable<DbException> record = poll();
+						if (record == null) break;
+						batch.add(record);
+						record.run(txn);
+						long elapsed = clock.currentTimeMillis() - start;
+						if (elapsed >= maxBatchDuration) break;
+					}
+					if (LOG.isLoggable(FINE)) {
+						LOG.fine("Received " + batch.size() + " records in "
+								+ (clock.currentTimeMillis() - start)
+								+ " ms");
+					}
+				});
 			} catch (DbException e) {
 				logException(LOG, WARNING, e);
-				interrupt();
+				if (batch.size() > 1) receiveIndividually(batch);
+				else interrupt();
+			} finally {
+				// Schedule another batch if more records have arrived
+				boolean more;
+				synchronized (lock) {
+					more = !pending.isEmpty();
+					if (!more) batchScheduled = false;
+				}
+				if (more) dbExecutor.execute(this);
 			}
 		}
-	}
-
-	private class ReceiveVersions implements Runnable {
-
-		private final Versions versions;
-
-		private ReceiveVersions(Versions versions) {
-			this.versions = versions;
-		}
 
 		@DatabaseExecutor
-		@Override
-		public void run() {
-			try {
-				List<Byte> supported = versions.getSupportedVersions();
-				db.transaction(false,
-						txn -> db.setSyncVersions(txn, contactId, supported));
-			} catch (DbException e) {
-				logException(LOG, WARNING, e);
-				interrupt();
+		private void receiveIndividually(
+				List<DbRunnable<DbException>> batch) {
+			LOG.info("Retrying batch one record at a time");
+			for (DbRunnable<DbException> record : batch) {
+				try {
+					db.transaction(false, record);
+				} catch (DbException e) {
+					logException(LOG, WARNING, e);
+					interrupt();
+				}
 			}
 		}
 	}
@@ -9,6 +9,8 @@ import org.briarproject.bramble.api.sync.MessageId;
 import org.briarproject.bramble.util.ByteUtils;
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.concurrent.Immutable;
 import javax.inject.Inject;
 
@@ -44,8 +46,21 @@ class MessageFactoryImpl implements MessageFactory {
 	}
 
 	private MessageId getMessageId(GroupId g, long timestamp, byte[] body) {
-		// There's only one block, so the root hash is the hash of the block
-		byte[] rootHash = crypto.hash(BLOCK_LABEL, FORMAT_VERSION_BYTES, body);
+		return getMessageId(g, timestamp, ByteBuffer.wrap(body));
+	}
+
+	/**
+	 * Calculates the ID of a message with the given body. The body is hashed
+	 * in place, so a message read from a stream can be identified without
+	 * copying its body out of the raw message.
+	 */
+	private MessageId getMessageId(GroupId g, long timestamp,
+			ByteBuffer body) {
+		// There's only one block, so the root hash is the hash of the block.
+		// Splitting the body into several blocks would change the root hash,
+		// so it requires a new message format version
+		byte[] rootHash = crypto.hash(BLOCK_LABEL,
+				ByteBuffer.wrap(FORMAT_VERSION_BYTES), body);
 		byte[] timeBytes = new byte[INT_64_BYTES];
 		ByteUtils.writeUint64(timestamp, timeBytes, 0);
 		byte[] idHash = crypto.hash(ID_LABEL, FORMAT_VERSION_BYTES,
@@ -63,14 +78,18 @@ class MessageFactoryImpl implements MessageFactory {
 		System.arraycopy(raw, 0, groupId, 0, UniqueId.LENGTH);
 		GroupId g = new GroupId(groupId);
 		long timestamp = ByteUtils.readUint64(raw, UniqueId.LENGTH);
-		byte[] body = new byte[raw.length - MESSAGE_HEADER_LENGTH];
-		System.arraycopy(raw, MESSAGE_HEADER_LENGTH, body, 0, body.length);
+		ByteBuffer body = ByteBuffer.wrap(raw, MESSAGE_HEADER_LENGTH,
+				raw.length - MESSAGE_HEADER_LENGTH);
 		MessageId id = getMessageId(g, timestamp, body);
-		return new Message(id, g, timestamp, body);
+		// Wrap the raw message so it can be stored without being copied
+		return Message.wrapRawMessage(id, g, timestamp, raw);
 	}
 
 	@Override
 	public byte[] getRawMessage(Message m) {
+		// Avoid copying the message if it already wraps a raw message
+		byte[] wrapped = m.getRawMessage();
+		if (wrapped != null) return wrapped;
 		byte[] body = m.getBody();
 		byte[] raw = new byte[MESSAGE_HEADER_LENGTH + body.length];
 		System.arraycopy(m.getGroupId().getBytes(), 0, raw, 0, UniqueId.LENGTH);
@@ -57,8 +57,8 @@ class SyncSessionFactoryImpl implements SyncSessionFactory {
 			PriorityHandler handler) {
 		SyncRecordReader recordReader =
 				recordReaderFactory.createRecordReader(in);
-		return new IncomingSession(db, dbExecutor, eventBus, c, recordReader,
-				handler);
+		return new IncomingSession(db, dbExecutor, eventBus, clock, c,
+				recordReader, handler);
 	}
 
 	@Override
@@ -13,6 +13,7 @@ import org.briarproject.bramble.api.event.EventListener;
 import org.briarproject.bramble.api.lifecycle.Service;
 import org.briarproject.bramble.api.sync.ClientId;
 import org.briarproject.bramble.api.sync.Group;
+import org.briarproject.bramble.api.sync.GroupId;
 import org.briarproject.bramble.api.sync.InvalidMessageException;
 import org.briarproject.bramble.api.sync.Message;
 import org.briarproject.bramble.api.sync.MessageContext;
@@ -24,18 +25,26 @@ import org.briarproject.bramble.api.sync.validation.MessageState;
 import org.briarproject.bramble.api.sync.validation.MessageValidator;
 import org.briarproject.bramble.api.sync.validation.ValidationManager;
 import org.briarproject.bramble.api.versioning.ClientMajorVersion;
+import org.briarproject.bramble.util.LogUtils;
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
@@ -49,7 +58,15 @@ import static org.briarproject.bramble.api.sync.validation.MessageState.DELIVERE
 import static org.briarproject.bramble.api.sync.validation.MessageState.INVALID;
 import static org.briarproject.bramble.api.sync.validation.MessageState.PENDING;
 import static org.briarproject.bramble.util.LogUtils.logException;
-
+import static org.briarproject.bramble.util.LogUtils.now;
+
+/**
+ * Validates, stores and delivers messages in batches. The messages in a batch
+ * are loaded in a single transaction and validated in parallel on the
+ * {@link ValidationExecutor}, then the results are stored and the messages
+ * are delivered in a single transaction. Pending dependents, invalidation and
+ * sharing are also handled in batches.
+ */
 @ThreadSafe
 @NotNullByDefault
 class ValidationManagerImpl implements ValidationManager, Service,
@@ -58,11 +75,21 @@ class ValidationManagerImpl implements ValidationManager, Service,
 	private static final Logger LOG =
 			Logger.getLogger(ValidationManagerImpl.class.getName());
 
+	/**
+	 * The maximum number of messages that are loaded, stored, delivered,
+	 * shared or invalidated in a single transaction.
+	 */
+	static final int BATCH_SIZE = 64;
+
 	private final DatabaseComponent db;
 	private final Executor dbExecutor, validationExecutor;
 	private final Map<ClientMajorVersion, MessageValidator> validators;
 	private final Map<ClientMajorVersion, IncomingMessageHook> hooks;
 	private final AtomicBoolean used = new AtomicBoolean(false);
+	private final Queue<Message> incoming = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queuedIncoming = new AtomicInteger(0);
+	private final AtomicLong messagesValidated = new AtomicLong(0);
+	private final AtomicLong messagesDelivered = new AtomicLong(0);
 
 	@Inject
 	ValidationManagerImpl(DatabaseComponent db,
@@ -108,40 +135,69 @@ class ValidationManagerImpl implements ValidationManager, Service,
 		try {
 			Queue<MessageId> unvalidated = new LinkedList<>(
 					db.transactionWithResult(true, db::getMessagesToValidate));
-			validateNextMessageAsync(unvalidated);
+			if (LOG.isLoggable(INFO))
+				LOG.info(unvalidated.size() + " messages to validate");
+			validateNextBatchAsync(unvalidated);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
-	private void validateNextMessageAsync(Queue<MessageId> unvalidated) {
+	private void validateNextBatchAsync(Queue<MessageId> unvalidated) {
 		if (unvalidated.isEmpty()) return;
-		dbExecutor.execute(() -> validateNextMessage(unvalidated));
+		dbExecutor.execute(() -> validateNextBatch(unvalidated));
 	}
 
+	/**
+	 * Loads the next batch of messages from the unvalidated queue and
+	 * validates them. The batch after that is loaded when this batch has
+	 * been validated, so at most two batches are held in memory.
+	 */
 	@DatabaseExecutor
-	private void validateNextMessage(Queue<MessageId> unvalidated) {
+	private void validateNextBatch(Queue<MessageId> unvalidated) {
 		try {
-			Pair<Message, Group> mg = db.transactionWithResult(true, txn -> {
-				MessageId id = unvalidated.poll();
-				if (id == null) throw new AssertionError();
-				Message m = db.getMessage(txn, id);
-				Group g = db.getGroup(txn, m.getGroupId());
-				return new Pair<>(m, g);
-			});
-			validateMessageAsync(mg.getFirst(), mg.getSecond());
-			validateNextMessageAsync(unvalidated);
-		} catch (NoSuchMessageException e) {
-			LOG.info("Message removed before validation");
-			validateNextMessageAsync(unvalidated);
-		} catch (NoSuchGroupException e) {
-			LOG.info("Group removed before validation");
-			validateNextMessageAsync(unvalidated);
+			long start = now();
+			List<Pair<Message, Group>> batch =
+					db.transactionWithResult(true, txn -> {
+						List<Pair<Message, Group>> loaded = new ArrayList<>();
+						Map<GroupId, Group> groups = new HashMap<>();
+						for (int i = 0; i < BATCH_SIZE; i++) {
+							MessageId id = unvalidated.poll();
+							if (id == null) break;
+							try {
+								Message m = db.getMessage(txn, id);
+								Group g = getGroup(txn, m.getGroupId(), groups);
+								loaded.add(new Pair<>(m, g));
+							} catch (NoSuchMessageException e) {
+								LOG.info("Message removed before validation");
+							} catch (NoSuchGroupException e) {
+								LOG.info("Group removed before validation");
+							}
+						}
+						return loaded;
+					});
+			validateBatchAsync(batch, start,
+					() -> validateNextBatchAsync(unvalidated));
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
+	/**
+	 * Loads the group with the given ID, using the given map to avoid loading
+	 * the same group more than once per batch.
+	 */
+	@DatabaseExecutor
+	private Group getGroup(Transaction txn, GroupId id,
+			Map<GroupId, Group> groups) throws DbException {
+		Group g = groups.get(id);
+		if (g == null) {
+			g = db.getGroup(txn, id);
+			groups.put(id, g);
+		}
+		return g;
+	}
+
 	private void deliverOutstandingMessagesAsync() {
 		dbExecutor.execute(this::deliverOutstandingMessages);
 	}
@@ -151,174 +207,285 @@ class ValidationManagerImpl implements ValidationManager, Service,
 		try {
 			Queue<MessageId> pending = new LinkedList<>(
 					db.transactionWithResult(true, db::getPendingMessages));
-			deliverNextPendingMessageAsync(pending);
+			deliverNextPendingBatchAsync(pending);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
-	private void deliverNextPendingMessageAsync(Queue<MessageId> pending) {
+	private void deliverNextPendingBatchAsync(Queue<MessageId> pending) {
 		if (pending.isEmpty()) return;
-		dbExecutor.execute(() -> deliverNextPendingMessage(pending));
+		dbExecutor.execute(() -> deliverNextPendingBatch(pending));
 	}
 
+	/**
+	 * Delivers the next batch of messages from the pending queue in a single
+	 * transaction. Dependents that become ready to deliver are added to the
+	 * queue, so they may be delivered in the same batch.
+	 */
 	@DatabaseExecutor
-	private void deliverNextPendingMessage(Queue<MessageId> pending) {
+	private void deliverNextPendingBatch(Queue<MessageId> pending) {
 		try {
+			long start = now();
 			Queue<MessageId> toShare = new LinkedList<>();
 			Queue<MessageId> invalidate = new LinkedList<>();
-			db.transaction(false, txn -> {
-				boolean anyInvalid = false, allDelivered = true;
-				MessageId id = pending.poll();
-				if (id == null) throw new AssertionError();
-				// Check if message is still pending
-				if (db.getMessageState(txn, id) == PENDING) {
-					// Check if dependencies are valid and delivered
-					Map<MessageId, MessageState> states =
-							db.getMessageDependencies(txn, id);
-					for (Entry<MessageId, MessageState> e : states.entrySet()) {
-						if (e.getValue() == INVALID) anyInvalid = true;
-						if (e.getValue() != DELIVERED) allDelivered = false;
-					}
-					if (anyInvalid) {
-						invalidateMessage(txn, id);
-						addDependentsToInvalidate(txn, id, invalidate);
-					} else if (allDelivered) {
-						Message m = db.getMessage(txn, id);
-						Group g = db.getGroup(txn, m.getGroupId());
-						ClientId c = g.getClientId();
-						int majorVersion = g.getMajorVersion();
-						Metadata meta =
-								db.getMessageMetadataForValidator(txn, id);
-						DeliveryAction action =
-								deliverMessage(txn, m, c, majorVersion, meta);
-						if (action == REJECT) {
-							invalidateMessage(txn, id);
-							addDependentsToInvalidate(txn, id, invalidate);
-						} else if (action == ACCEPT_SHARE) {
-							db.setMessageState(txn, m.getId(), DELIVERED);
-							addPendingDependents(txn, id, pending);
-							db.setMessageShared(txn, id);
-							toShare.addAll(states.keySet());
-						} else if (action == ACCEPT_DO_NOT_SHARE) {
-							db.setMessageState(txn, m.getId(), DELIVERED);
-							addPendingDependents(txn, id, pending);
+			int delivered = db.transactionWithResult(false, txn -> {
+				int count = 0;
+				for (int i = 0; i < BATCH_SIZE; i++) {
+					MessageId id = pending.poll();
+					if (id == null) break;
+					// The first call for each message checks that it still
+					// exists, so nothing has been written for a message
+					// that's skipped
+					try {
+						if (deliverPendingMessage(txn, id, pending, toShare,
+								invalidate)) {
+							count++;
 						}
+					} catch (NoSuchMessageException e) {
+						LOG.info("Message removed before delivery");
+					} catch (NoSuchGroupException e) {
+						LOG.info("Group removed before delivery");
 					}
 				}
+				return count;
 			});
-			if (!invalidate.isEmpty()) invalidateNextMessageAsync(invalidate);
-			if (!toShare.isEmpty()) shareNextMessageAsync(toShare);
-			deliverNextPendingMessageAsync(pending);
-		} catch (NoSuchMessageException e) {
-			LOG.info("Message removed before delivery");
-			deliverNextPendingMessageAsync(pending);
-		} catch (NoSuchGroupException e) {
-			LOG.info("Group removed before delivery");
-			deliverNextPendingMessageAsync(pending);
+			recordDelivered(delivered, start);
+			invalidateNextBatchAsync(invalidate);
+			shareNextBatchAsync(toShare);
+			deliverNextPendingBatchAsync(pending);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
-	private void validateMessageAsync(Message m, Group g) {
-		validationExecutor.execute(() -> validateMessage(m, g));
+	/**
+	 * Delivers the given message if it's still pending and all its
+	 * dependencies have been delivered, or invalidates it if any of its
+	 * dependencies are invalid. Returns true if the message was delivered.
+	 */
+	@DatabaseExecutor
+	private boolean deliverPendingMessage(Transaction txn, MessageId id,
+			Queue<MessageId> pending, Queue<MessageId> toShare,
+			Queue<MessageId> invalidate) throws DbException {
+		// Check if message is still pending
+		if (db.getMessageState(txn, id) != PENDING) return false;
+		boolean anyInvalid = false, allDelivered = true;
+		// Check if dependencies are valid and delivered
+		Map<MessageId, MessageState> states =
+				db.getMessageDependencies(txn, id);
+		for (Entry<MessageId, MessageState> e : states.entrySet()) {
+			if (e.getValue() == INVALID) anyInvalid = true;
+			if (e.getValue() != DELIVERED) allDelivered = false;
+		}
+		if (anyInvalid) {
+			invalidateMessage(txn, id);
+			addDependentsToInvalidate(txn, id, invalidate);
+		} else if (allDelivered) {
+			Message m = db.getMessage(txn, id);
+			Group g = db.getGroup(txn, m.getGroupId());
+			ClientId c = g.getClientId();
+			int majorVersion = g.getMajorVersion();
+			Metadata meta = db.getMessageMetadataForValidator(txn, id);
+			DeliveryAction action =
+					deliverMessage(txn, m, c, majorVersion, meta);
+			if (action == REJECT) {
+				invalidateMessage(txn, id);
+				addDependentsToInvalidate(txn, id, invalidate);
+			} else if (action == ACCEPT_SHARE) {
+				db.setMessageState(txn, m.getId(), DELIVERED);
+				addPendingDependents(txn, id, pending);
+				db.setMessageShared(txn, id);
+				toShare.addAll(states.keySet());
+				return true;
+			} else if (action == ACCEPT_DO_NOT_SHARE) {
+				db.setMessageState(txn, m.getId(), DELIVERED);
+				addPendingDependents(txn, id, pending);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Validates a batch of messages in parallel on the validation executor.
+	 * When the whole batch has been validated, the given task is run and
+	 * then the results are stored in a single transaction.
+	 *
+	 * @param start the time the batch started loading, as returned by
+	 * {@link LogUtils#now()}
+	 */
+	private void validateBatchAsync(List<Pair<Message, Group>> batch,
+			long start, Runnable next) {
+		if (batch.isEmpty()) {
+			next.run();
+			return;
+		}
+		ValidationBatch b = new ValidationBatch(batch, start, next);
+		for (int i = 0; i < batch.size(); i++) {
+			int index = i;
+			validationExecutor.execute(() -> b.validate(index));
+		}
 	}
 
+	/**
+	 * Returns the result of validating the given message, or null if no
+	 * validator has been registered for the message's client.
+	 */
 	@ValidationExecutor
-	private void validateMessage(Message m, Group g) {
+	@Nullable
+	private MessageContext validateMessage(Message m, Group g)
+			throws InvalidMessageException {
 		ClientMajorVersion cv =
 				new ClientMajorVersion(g.getClientId(), g.getMajorVersion());
 		MessageValidator v = validators.get(cv);
 		if (v == null) {
 			if (LOG.isLoggable(WARNING)) LOG.warning("No validator for " + cv);
-		} else {
-			if (LOG.isLoggable(INFO)) {
-				LOG.info("Validating message for " + cv.getClientId());
-			}
-			try {
-				MessageContext context = v.validateMessage(m, g);
-				storeMessageContextAsync(m, g.getClientId(),
-						g.getMajorVersion(), context);
-			} catch (InvalidMessageException e) {
-				logException(LOG, INFO, e);
-				Queue<MessageId> invalidate = new LinkedList<>();
-				invalidate.add(m.getId());
-				invalidateNextMessageAsync(invalidate);
-			}
+			return null;
 		}
-	}
-
-	private void storeMessageContextAsync(Message m, ClientId c,
-			int majorVersion, MessageContext result) {
-		dbExecutor.execute(() ->
-				storeMessageContext(m, c, majorVersion, result));
+		if (LOG.isLoggable(INFO)) {
+			LOG.info("Validating message for " + cv.getClientId());
+		}
+		return v.validateMessage(m, g);
 	}
 
 	@DatabaseExecutor
-	private void storeMessageContext(Message m, ClientId c, int majorVersion,
-			MessageContext context) {
+	private void storeValidationResults(ValidationBatch b) {
 		try {
-			MessageId id = m.getId();
 			Queue<MessageId> invalidate = new LinkedList<>();
 			Queue<MessageId> pending = new LinkedList<>();
 			Queue<MessageId> toShare = new LinkedList<>();
-			db.transaction(false, txn -> {
-				boolean anyInvalid = false, allDelivered = true;
-				// Check if message has any dependencies
-				Collection<MessageId> dependencies = context.getDependencies();
-				if (!dependencies.isEmpty()) {
-					db.addMessageDependencies(txn, m, dependencies);
-					// Check if dependencies are valid and delivered
-					Map<MessageId, MessageState> states =
-							db.getMessageDependencies(txn, id);
-					for (Entry<MessageId, MessageState> e : states.entrySet()) {
-						if (e.getValue() == INVALID) anyInvalid = true;
-						if (e.getValue() != DELIVERED) allDelivered = false;
-					}
-				}
-				if (anyInvalid) {
-					if (db.getMessageState(txn, id) != INVALID) {
-						invalidateMessage(txn, id);
-						addDependentsToInvalidate(txn, id, invalidate);
-					}
-				} else {
-					Metadata meta = context.getMetadata();
-					db.mergeMessageMetadata(txn, id, meta);
-					if (allDelivered) {
-						DeliveryAction action =
-								deliverMessage(txn, m, c, majorVersion, meta);
-						if (action == REJECT) {
-							invalidateMessage(txn, id);
-							addDependentsToInvalidate(txn, id, invalidate);
-						} else if (action == DEFER) {
-							db.setMessageState(txn, id, PENDING);
-						} else if (action == ACCEPT_SHARE) {
-							db.setMessageState(txn, id, DELIVERED);
-							addPendingDependents(txn, id, pending);
-							db.setMessageShared(txn, id);
-							toShare.addAll(dependencies);
-						} else if (action == ACCEPT_DO_NOT_SHARE) {
-							db.setMessageState(txn, id, DELIVERED);
-							addPendingDependents(txn, id, pending);
+			int delivered = db.transactionWithResult(false, txn -> {
+				int count = 0;
+				for (int i = 0; i < b.batch.size(); i++) {
+					Message m = b.batch.get(i).getFirst();
+					Group g = b.batch.get(i).getSecond();
+					MessageContext context = b.contexts[i];
+					// The first call for each message checks that it still
+					// exists, so nothing has been written for a message
+					// that's skipped
+					try {
+						if (b.invalid[i]) {
+							if (db.getMessageState(txn, m.getId()) != INVALID) {
+								invalidateMessage(txn, m.getId());
+								addDependentsToInvalidate(txn, m.getId(),
+										invalidate);
+							}
+						} else if (context != null) {
+							if (storeMessageContext(txn, m, g.getClientId(),
+									g.getMajorVersion(), context, invalidate,
+									pending, toShare)) {
+								count++;
+							}
 						}
-					} else {
-						db.setMessageState(txn, id, PENDING);
+					} catch (NoSuchMessageException e) {
+						LOG.info("Message removed during validation");
+					} catch (NoSuchGroupException e) {
+						LOG.info("Group removed during validation");
 					}
 				}
+				return count;
 			});
-			if (!invalidate.isEmpty()) invalidateNextMessageAsync(invalidate);
-			if (!pending.isEmpty()) deliverNextPendingMessageAsync(pending);
-			if (!toShare.isEmpty()) shareNextMessageAsync(toShare);
-		} catch (NoSuchMessageException e) {
-			LOG.info("Message removed during validation");
-		} catch (NoSuchGroupException e) {
-			LOG.info("Group removed during validation");
+			recordValidated(b.batch.size(), b.start);
+			recordDelivered(delivered, b.start);
+			invalidateNextBatchAsync(invalidate);
+			deliverNextPendingBatchAsync(pending);
+			shareNextBatchAsync(toShare);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
+	/**
+	 * Stores the result of validating the given message and delivers the
+	 * message if all its dependencies have been delivered. Returns true if
+	 * the message was delivered.
+	 */
+	@DatabaseExecutor
+	private boolean storeMessageContext(Transaction txn, Message m,
+			ClientId c, int majorVersion, MessageContext context,
+			Queue<MessageId> invalidate, Queue<MessageId> pending,
+			Queue<MessageId> toShare) throws DbException {
+		MessageId id = m.getId();
+		boolean anyInvalid = false, allDelivered = true;
+		// Check if message has any dependencies
+		Collection<MessageId> dependencies = context.getDependencies();
+		if (!dependencies.isEmpty()) {
+			db.addMessageDependencies(txn, m, dependencies);
+			// Check if dependencies are valid and delivered
+			Map<MessageId, MessageState> states =
+					db.getMessageDependencies(txn, id);
+			for (Entry<MessageId, MessageState> e : states.entrySet()) {
+				if (e.getValue() == INVALID) anyInvalid = true;
+				if (e.getValue() != DELIVERED) allDelivered = false;
+			}
+		}
+		if (anyInvalid) {
+			if (db.getMessageState(txn, id) != INVALID) {
+				invalidateMessage(txn, id);
+				addDependentsToInvalidate(txn, id, invalidate);
+			}
+			return false;
+		}
+		Metadata meta = context.getMetadata();
+		db.mergeMessageMetadata(txn, id, meta);
+		if (!allDelivered) {
+			db.setMessageState(txn, id, PENDING);
+			return false;
+		}
+		DeliveryAction action = deliverMessage(txn, m, c, majorVersion, meta);
+		if (action == REJECT) {
+			invalidateMessage(txn, id);
+			addDependentsToInvalidate(txn, id, invalidate);
+		} else if (action == DEFER) {
+			db.setMessageState(txn, id, PENDING);
+		} else if (action == ACCEPT_SHARE) {
+			db.setMessageState(txn, id, DELIVERED);
+			addPendingDependents(txn, id, pending);
+			db.setMessageShared(txn, id);
+			toShare.addAll(dependencies);
+			return true;
+		} else if (action == ACCEPT_DO_NOT_SHARE) {
+			db.setMessageState(txn, id, DELIVERED);
+			addPendingDependents(txn, id, pending);
+			return true;
+		}
+		return false;
+	}
+
+	private void recordValidated(int count, long start) {
+		messagesValidated.addAndGet(count);
+		logThroughput("Validated", count, start);
+	}
+
+	private void recordDelivered(int count, long start) {
+		messagesDelivered.addAndGet(count);
+		logThroughput("Delivered", count, start);
+	}
+
+	private void logThroughput(String task, int count, long start) {
+		if (count > 0 && LOG.isLoggable(INFO)) {
+			long duration = Math.max(1, now() - start);
+			LOG.info(task + " " + count + " messages in " + duration
+					+ " ms, " + count * 1000L / duration + " per second");
+		}
+	}
+
+	/**
+	 * Returns the number of messages that have been validated, including
+	 * messages that were found to be invalid.
+	 */
+	long getValidatedMessages() {
+		return messagesValidated.get();
+	}
+
+	/**
+	 * Returns the number of messages that have been delivered.
+	 */
+	long getDeliveredMessages() {
+		return messagesDelivered.get();
+	}
+
 	@DatabaseExecutor
 	private DeliveryAction deliverMessage(Transaction txn, Message m,
 			ClientId c, int majorVersion, Metadata meta) {
@@ -358,64 +525,69 @@ class ValidationManagerImpl implements ValidationManager, Service,
 		try {
 			Queue<MessageId> toShare = new LinkedList<>(
 					db.transactionWithResult(true, db::getMessagesToShare));
-			shareNextMessageAsync(toShare);
+			shareNextBatchAsync(toShare);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
 	/**
-	 * Shares the next message from the toShare queue asynchronously.
+	 * Shares the next batch of messages from the toShare queue
+	 * asynchronously.
 	 * <p>
 	 * This method should only be called for messages that have all their
 	 * dependencies delivered and have been delivered themselves.
 	 */
-	private void shareNextMessageAsync(Queue<MessageId> toShare) {
+	private void shareNextBatchAsync(Queue<MessageId> toShare) {
 		if (toShare.isEmpty()) return;
-		dbExecutor.execute(() -> shareNextMessage(toShare));
+		dbExecutor.execute(() -> shareNextBatch(toShare));
 	}
 
 	@DatabaseExecutor
-	private void shareNextMessage(Queue<MessageId> toShare) {
+	private void shareNextBatch(Queue<MessageId> toShare) {
 		try {
 			db.transaction(false, txn -> {
-				MessageId id = toShare.poll();
-				if (id == null) throw new AssertionError();
-				db.setMessageShared(txn, id);
-				toShare.addAll(db.getMessageDependencies(txn, id).keySet());
+				for (int i = 0; i < BATCH_SIZE; i++) {
+					MessageId id = toShare.poll();
+					if (id == null) break;
+					try {
+						db.setMessageShared(txn, id);
+						toShare.addAll(
+								db.getMessageDependencies(txn, id).keySet());
+					} catch (NoSuchMessageException e) {
+						LOG.info("Message removed before sharing");
+					}
+				}
 			});
-			shareNextMessageAsync(toShare);
-		} catch (NoSuchMessageException e) {
-			LOG.info("Message removed before sharing");
-			shareNextMessageAsync(toShare);
-		} catch (NoSuchGroupException e) {
-			LOG.info("Group removed before sharing");
-			shareNextMessageAsync(toShare);
+			shareNextBatchAsync(toShare);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
 	}
 
-	private void invalidateNextMessageAsync(Queue<MessageId> invalidate) {
+	private void invalidateNextBatchAsync(Queue<MessageId> invalidate) {
 		if (invalidate.isEmpty()) return;
-		dbExecutor.execute(() -> invalidateNextMessage(invalidate));
+		dbExecutor.execute(() -> invalidateNextBatch(invalidate));
 	}
 
 	@DatabaseExecutor
-	private void invalidateNextMessage(Queue<MessageId> invalidate) {
+	private void invalidateNextBatch(Queue<MessageId> invalidate) {
 		try {
 			db.transaction(false, txn -> {
-				MessageId id = invalidate.poll();
-				if (id == null) throw new AssertionError();
-				if (db.getMessageState(txn, id) != INVALID) {
-					invalidateMessage(txn, id);
-					addDependentsToInvalidate(txn, id, invalidate);
+				for (int i = 0; i < BATCH_SIZE; i++) {
+					MessageId id = invalidate.poll();
+					if (id == null) break;
+					try {
+						if (db.getMessageState(txn, id) != INVALID) {
+							invalidateMessage(txn, id);
+							addDependentsToInvalidate(txn, id, invalidate);
+						}
+					} catch (NoSuchMessageException e) {
+						LOG.info("Message removed before invalidation");
+					}
 				}
 			});
-			invalidateNextMessageAsync(invalidate);
-		} catch (NoSuchMessageException e) {
-			LOG.info("Message removed before invalidation");
-			invalidateNextMessageAsync(invalidate);
+			invalidateNextBatchAsync(invalidate);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
 		}
@@ -443,25 +615,102 @@ class ValidationManagerImpl implements ValidationManager, Service,
 		if (e instanceof MessageAddedEvent) {
 			// Validate the message if it wasn't created locally
 			MessageAddedEvent m = (MessageAddedEvent) e;
-			if (m.getContactId() != null)
-				loadGroupAndValidateAsync(m.getMessage());
+			if (m.getContactId() != null) {
+				incoming.add(m.getMessage());
+				if (queuedIncoming.incrementAndGet() == 1)
+					validateIncomingBatchAsync();
+			}
 		}
 	}
 
-	private void loadGroupAndValidateAsync(Message m) {
-		dbExecutor.execute(() -> loadGroupAndValidate(m));
+	private void validateIncomingBatchAsync() {
+		dbExecutor.execute(this::validateIncomingBatch);
 	}
 
+	/**
+	 * Loads the groups for the next batch of incoming messages and validates
+	 * the messages. Messages that arrive while the batch is being validated
+	 * are queued for the next batch.
+	 */
 	@DatabaseExecutor
-	private void loadGroupAndValidate(Message m) {
+	private void validateIncomingBatch() {
+		long start = now();
+		// Only take messages that have been counted, so the count can't go
+		// below zero
+		int size = Math.min(BATCH_SIZE, queuedIncoming.get());
+		List<Message> messages = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) messages.add(incoming.remove());
+		Runnable next = () -> {
+			if (queuedIncoming.addAndGet(-size) > 0)
+				validateIncomingBatchAsync();
+		};
 		try {
-			Group g = db.transactionWithResult(true, txn ->
-					db.getGroup(txn, m.getGroupId()));
-			validateMessageAsync(m, g);
-		} catch (NoSuchGroupException e) {
-			LOG.info("Group removed before validation");
+			List<Pair<Message, Group>> batch =
+					db.transactionWithResult(true, txn -> {
+						List<Pair<Message, Group>> loaded = new ArrayList<>();
+						Map<GroupId, Group> groups = new HashMap<>();
+						for (Message m : messages) {
+							try {
+								Group g = getGroup(txn, m.getGroupId(), groups);
+								loaded.add(new Pair<>(m, g));
+							} catch (NoSuchGroupException e) {
+								LOG.info("Group removed before validation");
+							}
+						}
+						return loaded;
+					});
+			validateBatchAsync(batch, start, next);
 		} catch (DbException e) {
 			logException(LOG, WARNING, e);
+			next.run();
+		}
+	}
+
+	/**
+	 * A batch of messages that are being validated in parallel. Each
+	 * validation task writes its own slot of the result arrays, and the
+	 * results are read after the last task has decremented the counter of
+	 * remaining tasks, so the arrays don't need any further synchronisation.
+	 */
+	@ThreadSafe
+	@NotNullByDefault
+	private class ValidationBatch {
+
+		private final List<Pair<Message, Group>> batch;
+		private final long start;
+		private final Runnable next;
+		private final MessageContext[] contexts;
+		private final boolean[] invalid;
+		private final AtomicInteger remaining;
+
+		private ValidationBatch(List<Pair<Message, Group>> batch, long start,
+				Runnable next) {
+			this.batch = batch;
+			this.start = start;
+			this.next = next;
+			contexts = new MessageContext[batch.size()];
+			invalid = new boolean[batch.size()];
+			remaining = new AtomicInteger(batch.size());
+		}
+
+		@ValidationExecutor
+		private void validate(int index) {
+			Pair<Message, Group> mg = batch.get(index);
+			try {
+				contexts[index] =
+						validateMessage(mg.getFirst(), mg.getSecond());
+			} catch (InvalidMessageException e) {
+				logException(LOG, INFO, e);
+				invalid[index] = true;
+			} finally {
+				// Finish the batch even if a validator throws a runtime
+				// exception, so the pipeline doesn't stall
+				if (remaining.decrementAndGet() == 0) {
+					// Load the next batch while this batch is being stored
+					next.run();
+					dbExecutor.execute(() -> storeValidationResults(this));
+				}
+			}
 		}
 	}
 }
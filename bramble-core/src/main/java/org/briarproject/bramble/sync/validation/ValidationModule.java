@@ -4,6 +4,7 @@ import org.briarproject.bramble.PoliteExecutor;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
+import org.briarproject.bramble.api.sync.event.MessageAddedEvent;
 import org.briarproject.bramble.api.sync.validation.ValidationManager;
 
 import java.util.concurrent.Executor;
@@ -38,7 +39,7 @@ public class ValidationModule {
 			LifecycleManager lifecycleManager, EventBus eventBus,
 			ValidationManagerImpl validationManager) {
 		lifecycleManager.registerService(validationManager);
-		eventBus.addListener(validationManager);
+		eventBus.addListener(MessageAddedEvent.class, validationManager);
 		return validationManager;
 	}
 
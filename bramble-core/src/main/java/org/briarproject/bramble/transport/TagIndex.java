@@ -0,0 +1,169 @@
+package org.briarproject.bramble.transport;
+
+import org.briarproject.bramble.api.Predicate;
+import org.briarproject.nullsafety.NotNullByDefault;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A hash table that maps tags to values. Lookups use the tag bytes directly,
+ * so they don't allocate a wrapper for each lookup, and they don't need to
+ * hold a lock.
+ * <p>
+ * Modifications must be externally synchronised. A lookup that runs
+ * concurrently with a modification sees the table as it was either before or
+ * after the modification.
+ */
+@ThreadSafe
+@NotNullByDefault
+class TagIndex<V> {
+
+	private static final int INITIAL_CAPACITY = 64; // Must be a power of 2
+
+	/**
+	 * The buckets of the table. Each bucket holds an immutable chain of
+	 * nodes, which is replaced rather than modified, so lookups can walk a
+	 * chain while it's being replaced. The table is replaced when it's
+	 * resized.
+	 */
+	private volatile AtomicReferenceArray<Node<V>> table =
+			new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	// Only accessed by writers, which are externally synchronised
+	private int size = 0;
+
+	/**
+	 * Returns the value for the given tag, or null if the tag is not in the
+	 * table.
+	 */
+	@Nullable
+	V get(byte[] tag) {
+		AtomicReferenceArray<Node<V>> t = table;
+		Node<V> n = t.get(indexFor(tag, t.length()));
+		while (n != null) {
+			if (Arrays.equals(n.tag, tag)) return n.value;
+			n = n.next;
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the given tag and value to the table, replacing any existing value
+	 * for the tag. The tag must not be modified after calling this method.
+	 */
+	void put(byte[] tag, V value) {
+		AtomicReferenceArray<Node<V>> t = table;
+		int index = indexFor(tag, t.length());
+		Node<V> head = t.get(index);
+		Node<V> rest = remove(head, tag);
+		t.set(index, new Node<>(tag, value, rest));
+		if (rest == head && ++size > t.length() / 4 * 3) resize();
+	}
+
+	/**
+	 * Removes the given tag from the table and returns its value, or null if
+	 * the tag is not in the table.
+	 */
+	@Nullable
+	V remove(byte[] tag) {
+		AtomicReferenceArray<Node<V>> t = table;
+		int index = indexFor(tag, t.length());
+		Node<V> head = t.get(index);
+		Node<V> n = head;
+		while (n != null && !Arrays.equals(n.tag, tag)) n = n.next;
+		if (n == null) return null;
+		t.set(index, remove(head, tag));
+		size--;
+		return n.value;
+	}
+
+	/**
+	 * Removes all tags with values that match the given predicate.
+	 */
+	void removeValues(Predicate<V> p) {
+		AtomicReferenceArray<Node<V>> old = table;
+		AtomicReferenceArray<Node<V>> t =
+				new AtomicReferenceArray<>(old.length());
+		for (int i = 0; i < old.length(); i++) {
+			for (Node<V> n = old.get(i); n != null; n = n.next) {
+				if (p.test(n.value)) size--;
+				else t.set(i, new Node<>(n.tag, n.value, t.get(i)));
+			}
+		}
+		// Publish the new table after filling it, so a concurrent lookup
+		// sees either none of the removals or all of them
+		table = t;
+	}
+
+	/**
+	 * Removes all tags from the table.
+	 */
+	void clear() {
+		table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of tags in the table. Must be externally
+	 * synchronised with modifications.
+	 */
+	int size() {
+		return size;
+	}
+
+	private void resize() {
+		AtomicReferenceArray<Node<V>> old = table;
+		int length = old.length() * 2;
+		AtomicReferenceArray<Node<V>> t = new AtomicReferenceArray<>(length);
+		for (int i = 0; i < old.length(); i++) {
+			for (Node<V> n = old.get(i); n != null; n = n.next) {
+				int index = indexFor(n.tag, length);
+				t.set(index, new Node<>(n.tag, n.value, t.get(index)));
+			}
+		}
+		// Publish the new table after filling it
+		table = t;
+	}
+
+	/**
+	 * Returns a copy of the given chain without the node for the given tag,
+	 * or the chain itself if the tag is not in the chain. Nodes after the
+	 * removed node are shared with the original chain.
+	 */
+	@Nullable
+	private static <V> Node<V> remove(@Nullable Node<V> head, byte[] tag) {
+		if (head == null) return null;
+		if (Arrays.equals(head.tag, tag)) return head.next;
+		Node<V> rest = remove(head.next, tag);
+		if (rest == head.next) return head;
+		return new Node<>(head.tag, head.value, rest);
+	}
+
+	private static int indexFor(byte[] tag, int length) {
+		// Tags are pseudo-random, so the first four bytes make a good hash
+		int hash = 0;
+		for (int i = 0; i < 4 && i < tag.length; i++)
+			hash = (hash << 8) | (tag[i] & 0xFF);
+		return hash & (length - 1);
+	}
+
+	@ThreadSafe
+	@NotNullByDefault
+	private static class Node<V> {
+
+		private final byte[] tag;
+		private final V value;
+		@Nullable
+		private final Node<V> next;
+
+		private Node(byte[] tag, V value, @Nullable Node<V> next) {
+			this.tag = tag;
+			this.value = value;
+			this.next = next;
+		}
+	}
+}
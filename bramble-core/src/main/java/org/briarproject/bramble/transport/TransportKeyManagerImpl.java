@@ -1,6 +1,5 @@
 package org.briarproject.bramble.transport;
 
-import org.briarproject.bramble.api.Bytes;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.contact.PendingContactId;
 import org.briarproject.bramble.api.crypto.SecretKey;
@@ -24,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -63,14 +63,36 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 
 	@GuardedBy("lock")
 	private final Map<KeySetId, MutableTransportKeySet> keys = new HashMap<>();
-	@GuardedBy("lock")
-	private final Map<Bytes, TagContext> inContexts = new HashMap<>();
+	/**
+	 * Modifications are guarded by the lock, but lookups don't need to hold
+	 * the lock, so unrecognised tags can be rejected without waiting. When
+	 * the keys are updated the index is replaced rather than rebuilt in
+	 * place, so a lookup never sees a partially rebuilt index.
+	 */
+	private volatile TagIndex<TagContext> inContexts = new TagIndex<>();
 	@GuardedBy("lock")
 	private final Map<ContactId, MutableTransportKeySet>
 			contactOutContexts = new HashMap<>();
 	@GuardedBy("lock")
 	private final Map<PendingContactId, MutableTransportKeySet>
 			pendingContactOutContexts = new HashMap<>();
+	/**
+	 * Incremented whenever keys are added, removed or activated, or an
+	 * outgoing stream counter is incremented, so a key update that prepares
+	 * the new state without holding the lock can tell whether the state has
+	 * changed in the meantime. Recognised tags are tracked separately.
+	 */
+	@GuardedBy("lock")
+	private long modCount = 0;
+	/**
+	 * The tags recognised while a key update is preparing the new state
+	 * without holding the lock, or null if no update is in progress. The
+	 * update applies these tags to the new state rather than preparing it
+	 * again.
+	 */
+	@GuardedBy("lock")
+	@Nullable
+	private List<byte[]> recognisedDuringUpdate = null;
 
 	TransportKeyManagerImpl(DatabaseComponent db,
 			TransportCrypto transportCrypto,
@@ -133,42 +155,86 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 
 	@GuardedBy("lock")
 	private void addKeys(Collection<TransportKeySet> keys) {
+		for (PreparedKeySet p : prepareKeys(keys)) addKeys(p);
+	}
+
+	@GuardedBy("lock")
+	private void addKeys(KeySetId keySetId, @Nullable ContactId contactId,
+			@Nullable PendingContactId pendingContactId,
+			MutableTransportKeys keys) {
+		addKeys(prepareKeys(keySetId, contactId, pendingContactId, keys));
+	}
+
+	@GuardedBy("lock")
+	private void addKeys(PreparedKeySet p) {
+		for (int i = 0; i < p.tags.size(); i++)
+			inContexts.put(p.tags.get(i), p.tagContexts.get(i));
+		addKeySet(p.keySet);
+	}
+
+	@GuardedBy("lock")
+	private void addKeySet(MutableTransportKeySet ks) {
+		keys.put(ks.getKeySetId(), ks);
+		considerReplacingOutgoingKeys(ks);
+		modCount++;
+	}
+
+	/**
+	 * Creates the mutable state for the given keys and encodes their tags.
+	 * This doesn't modify the manager's state, so it doesn't need to hold
+	 * the lock.
+	 */
+	private List<PreparedKeySet> prepareKeys(Collection<TransportKeySet> keys) {
+		List<PreparedKeySet> prepared = new ArrayList<>(keys.size());
 		for (TransportKeySet ks : keys) {
-			addKeys(ks.getKeySetId(), ks.getContactId(),
+			prepared.add(prepareKeys(ks.getKeySetId(), ks.getContactId(),
 					ks.getPendingContactId(),
-					new MutableTransportKeys(ks.getKeys()));
+					new MutableTransportKeys(ks.getKeys())));
 		}
+		return prepared;
 	}
 
-	@GuardedBy("lock")
-	private void addKeys(KeySetId keySetId, @Nullable ContactId contactId,
+	private PreparedKeySet prepareKeys(KeySetId keySetId,
+			@Nullable ContactId contactId,
 			@Nullable PendingContactId pendingContactId,
 			MutableTransportKeys keys) {
 		requireExactlyOneNull(contactId, pendingContactId);
 		MutableTransportKeySet ks = new MutableTransportKeySet(keySetId,
 				contactId, pendingContactId, keys);
-		this.keys.put(keySetId, ks);
+		PreparedKeySet p = new PreparedKeySet(ks);
 		boolean handshakeMode = keys.isHandshakeMode();
-		encodeTags(keySetId, contactId, pendingContactId,
-				keys.getPreviousIncomingKeys(), handshakeMode);
-		encodeTags(keySetId, contactId, pendingContactId,
-				keys.getCurrentIncomingKeys(), handshakeMode);
-		encodeTags(keySetId, contactId, pendingContactId,
-				keys.getNextIncomingKeys(), handshakeMode);
-		considerReplacingOutgoingKeys(ks);
+		encodeTags(p, keys.getPreviousIncomingKeys(), handshakeMode);
+		encodeTags(p, keys.getCurrentIncomingKeys(), handshakeMode);
+		encodeTags(p, keys.getNextIncomingKeys(), handshakeMode);
+		return p;
 	}
 
-	@GuardedBy("lock")
-	private void encodeTags(KeySetId keySetId, @Nullable ContactId contactId,
-			@Nullable PendingContactId pendingContactId,
-			MutableIncomingKeys inKeys, boolean handshakeMode) {
+	/**
+	 * Creates an index containing the tags of the given key sets. The index
+	 * isn't visible to other threads until it's published, so this doesn't
+	 * need to hold the lock.
+	 */
+	private TagIndex<TagContext> indexTags(List<PreparedKeySet> prepared) {
+		TagIndex<TagContext> index = new TagIndex<>();
+		for (PreparedKeySet p : prepared) {
+			for (int i = 0; i < p.tags.size(); i++)
+				index.put(p.tags.get(i), p.tagContexts.get(i));
+		}
+		return index;
+	}
+
+	private void encodeTags(PreparedKeySet p, MutableIncomingKeys inKeys,
+			boolean handshakeMode) {
+		MutableTransportKeySet ks = p.keySet;
 		for (long streamNumber : inKeys.getWindow().getUnseen()) {
-			TagContext tagCtx = new TagContext(keySetId, contactId,
-					pendingContactId, inKeys, streamNumber, handshakeMode);
+			TagContext tagCtx = new TagContext(ks.getKeySetId(),
+					ks.getContactId(), ks.getPendingContactId(), inKeys,
+					streamNumber, handshakeMode);
 			byte[] tag = new byte[TAG_LENGTH];
 			transportCrypto.encodeTag(tag, inKeys.getTagKey(), PROTOCOL_VERSION,
 					streamNumber);
-			inContexts.put(new Bytes(tag), tagCtx);
+			p.tags.add(tag);
+			p.tagContexts.add(tagCtx);
 		}
 	}
 
@@ -286,6 +352,7 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 			MutableTransportKeys m = ks.getKeys();
 			m.getCurrentOutgoingKeys().activate();
 			considerReplacingOutgoingKeys(ks);
+			modCount++;
 			db.setTransportKeysActive(txn, m.getTransportId(), k);
 		} finally {
 			lock.unlock();
@@ -297,13 +364,12 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 		lock.lock();
 		try {
 			// Remove mutable state for the contact
-			Iterator<TagContext> it = inContexts.values().iterator();
-			while (it.hasNext())
-				if (c.equals(it.next().contactId)) it.remove();
+			inContexts.removeValues(tagCtx -> c.equals(tagCtx.contactId));
 			contactOutContexts.remove(c);
-			Iterator<MutableTransportKeySet> it1 = keys.values().iterator();
-			while (it1.hasNext())
-				if (c.equals(it1.next().getContactId())) it1.remove();
+			Iterator<MutableTransportKeySet> it = keys.values().iterator();
+			while (it.hasNext())
+				if (c.equals(it.next().getContactId())) it.remove();
+			modCount++;
 		} finally {
 			lock.unlock();
 		}
@@ -314,13 +380,13 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 		lock.lock();
 		try {
 			// Remove mutable state for the pending contact
-			Iterator<TagContext> it = inContexts.values().iterator();
-			while (it.hasNext())
-				if (p.equals(it.next().pendingContactId)) it.remove();
+			inContexts.removeValues(tagCtx ->
+					p.equals(tagCtx.pendingContactId));
 			pendingContactOutContexts.remove(p);
-			Iterator<MutableTransportKeySet> it1 = keys.values().iterator();
-			while (it1.hasNext())
-				if (p.equals(it1.next().getPendingContactId())) it1.remove();
+			Iterator<MutableTransportKeySet> it = keys.values().iterator();
+			while (it.hasNext())
+				if (p.equals(it.next().getPendingContactId())) it.remove();
+			modCount++;
 		} finally {
 			lock.unlock();
 		}
@@ -381,6 +447,7 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 					outKeys.getStreamCounter(), keys.isHandshakeMode());
 			// Increment the stream counter and write it back to the DB
 			outKeys.incrementStreamCounter();
+			modCount++;
 			db.incrementStreamCounter(txn, transportId, ks.getKeySetId());
 			return ctx;
 		} finally {
@@ -391,11 +458,13 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 	@Override
 	public StreamContext getStreamContext(Transaction txn, byte[] tag)
 			throws DbException {
+		// Reject unrecognised tags without waiting for the lock
+		if (inContexts.get(tag) == null) return null;
 		lock.lock();
 		try {
 			StreamContext ctx = streamContextFromTag(tag);
 			if (ctx == null) return null;
-			markTagAsRecognised(txn, tag);
+			markTagAsRecognisedLocked(txn, tag);
 			return ctx;
 		} finally {
 			lock.unlock();
@@ -404,19 +473,15 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 
 	@Override
 	public StreamContext getStreamContextOnly(Transaction txn, byte[] tag) {
-		lock.lock();
-		try {
-			return streamContextFromTag(tag);
-		} finally {
-			lock.unlock();
-		}
+		// The tag context and the keys it refers to are immutable, so the
+		// lock isn't needed
+		return streamContextFromTag(tag);
 	}
 
-	@GuardedBy("lock")
 	@Nullable
 	private StreamContext streamContextFromTag(byte[] tag) {
 		// Look up the incoming keys for the tag
-		TagContext tagCtx = inContexts.get(new Bytes(tag));
+		TagContext tagCtx = inContexts.get(tag);
 		if (tagCtx == null) return null;
 		MutableIncomingKeys inKeys = tagCtx.inKeys;
 		// Create a stream context
@@ -429,8 +494,47 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 	@Override
 	public void markTagAsRecognised(Transaction txn, byte[] tag)
 			throws DbException {
-		TagContext tagCtx = inContexts.remove(new Bytes(tag));
+		lock.lock();
+		try {
+			markTagAsRecognisedLocked(txn, tag);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@GuardedBy("lock")
+	private void markTagAsRecognisedLocked(Transaction txn, byte[] tag)
+			throws DbException {
+		TagContext tagCtx = setTagSeen(inContexts, tag);
 		if (tagCtx == null) return;
+		// If a key update is in progress it will apply the tag to the new
+		// state
+		if (recognisedDuringUpdate != null) recognisedDuringUpdate.add(tag);
+		// Write the window back to the DB
+		writeReorderingWindow(txn, tagCtx);
+		// If the outgoing keys are inactive, activate them
+		MutableTransportKeySet ks = keys.get(tagCtx.keySetId);
+		MutableOutgoingKeys outKeys =
+				ks.getKeys().getCurrentOutgoingKeys();
+		if (!outKeys.isActive()) {
+			LOG.info("Activating outgoing keys");
+			outKeys.activate();
+			considerReplacingOutgoingKeys(ks);
+			modCount++;
+			db.setTransportKeysActive(txn, transportId, tagCtx.keySetId);
+		}
+	}
+
+	/**
+	 * Removes the given tag from the given index and marks its stream number
+	 * as seen, adding and removing tags as the reordering window slides.
+	 * Returns the tag's context, or null if the tag isn't in the index.
+	 */
+	@GuardedBy("lock")
+	@Nullable
+	private TagContext setTagSeen(TagIndex<TagContext> index, byte[] tag) {
+		TagContext tagCtx = index.remove(tag);
+		if (tagCtx == null) return null;
 		MutableIncomingKeys inKeys = tagCtx.inKeys;
 		// Update the reordering window
 		ReorderingWindow window = inKeys.getWindow();
@@ -443,7 +547,7 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 			TagContext tagCtx1 = new TagContext(tagCtx.keySetId,
 					tagCtx.contactId, tagCtx.pendingContactId, inKeys,
 					streamNumber, tagCtx.handshakeMode);
-			inContexts.put(new Bytes(addTag), tagCtx1);
+			index.put(addTag, tagCtx1);
 		}
 		// Remove tags for any stream numbers removed from the window
 		for (long streamNumber : change.getRemoved()) {
@@ -451,47 +555,76 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 			byte[] removeTag = new byte[TAG_LENGTH];
 			transportCrypto.encodeTag(removeTag, inKeys.getTagKey(),
 					PROTOCOL_VERSION, streamNumber);
-			inContexts.remove(new Bytes(removeTag));
+			index.remove(removeTag);
 		}
-		// Write the window back to the DB
+		return tagCtx;
+	}
+
+	private void writeReorderingWindow(Transaction txn, TagContext tagCtx)
+			throws DbException {
+		MutableIncomingKeys inKeys = tagCtx.inKeys;
+		ReorderingWindow window = inKeys.getWindow();
 		db.setReorderingWindow(txn, tagCtx.keySetId, transportId,
 				inKeys.getTimePeriod(), window.getBase(),
 				window.getBitmap());
-		// If the outgoing keys are inactive, activate them
-		MutableTransportKeySet ks = keys.get(tagCtx.keySetId);
-		MutableOutgoingKeys outKeys =
-				ks.getKeys().getCurrentOutgoingKeys();
-		if (!outKeys.isActive()) {
-			LOG.info("Activating outgoing keys");
-			outKeys.activate();
-			considerReplacingOutgoingKeys(ks);
-			db.setTransportKeysActive(txn, transportId, tagCtx.keySetId);
-		}
 	}
 
 	@DatabaseExecutor
 	@Wakeful
 	private void updateKeys(Transaction txn) throws DbException {
 		long now = clock.currentTimeMillis();
+		Collection<TransportKeySet> snapshot;
+		long snapshotModCount;
 		lock.lock();
 		try {
-			// Update the keys to the current time period
-			Collection<TransportKeySet> snapshot = new ArrayList<>(keys.size());
-			for (MutableTransportKeySet ks : keys.values()) {
-				snapshot.add(new TransportKeySet(ks.getKeySetId(),
-						ks.getContactId(), ks.getPendingContactId(),
-						ks.getKeys().snapshot()));
+			snapshot = snapshotKeys();
+			snapshotModCount = modCount;
+			recognisedDuringUpdate = new ArrayList<>();
+		} finally {
+			lock.unlock();
+		}
+		// Update the keys to the current time period and encode the tags
+		// without holding the lock, so tag recognition and outgoing streams
+		// aren't blocked while the new tags are encoded
+		UpdateResult updateResult = updateKeys(snapshot, now);
+		List<PreparedKeySet> prepared = prepareKeys(updateResult.current);
+		TagIndex<TagContext> index = indexTags(prepared);
+		lock.lock();
+		try {
+			List<byte[]> recognised = recognisedDuringUpdate;
+			recognisedDuringUpdate = null;
+			List<TagContext> seen = new ArrayList<>();
+			if (modCount != snapshotModCount) {
+				// The state changed while the new state was being prepared,
+				// so prepare it again while holding the lock
+				LOG.info("Keys changed during update, updating again");
+				updateResult = updateKeys(snapshotKeys(), now);
+				prepared = prepareKeys(updateResult.current);
+				index = indexTags(prepared);
+			} else if (recognised != null) {
+				// Apply any tags recognised in the meantime to the new state.
+				// The keys for each time period are unchanged by the update,
+				// so the tags are the same in the new state
+				for (byte[] tag : recognised) {
+					TagContext tagCtx = setTagSeen(index, tag);
+					if (tagCtx != null) seen.add(tagCtx);
+				}
 			}
-			UpdateResult updateResult = updateKeys(snapshot, now);
-			// Rebuild the mutable state for all contacts
-			inContexts.clear();
+			// Replace the mutable state for all contacts, publishing the
+			// new tags in a single step
+			inContexts = index;
 			contactOutContexts.clear();
 			pendingContactOutContexts.clear();
 			keys.clear();
-			addKeys(updateResult.current);
+			for (PreparedKeySet p : prepared) addKeySet(p.keySet);
 			// Write any updated keys back to the DB
-			if (!updateResult.updated.isEmpty())
+			if (!updateResult.updated.isEmpty()) {
 				db.updateTransportKeys(txn, updateResult.updated);
+				// The updated keys were snapshotted before any tags
+				// recognised in the meantime, so write those windows again
+				for (TagContext tagCtx : seen)
+					writeReorderingWindow(txn, tagCtx);
+			}
 		} finally {
 			lock.unlock();
 		}
@@ -499,6 +632,17 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 		scheduleKeyUpdate(now);
 	}
 
+	@GuardedBy("lock")
+	private Collection<TransportKeySet> snapshotKeys() {
+		Collection<TransportKeySet> snapshot = new ArrayList<>(keys.size());
+		for (MutableTransportKeySet ks : keys.values()) {
+			snapshot.add(new TransportKeySet(ks.getKeySetId(),
+					ks.getContactId(), ks.getPendingContactId(),
+					ks.getKeys().snapshot()));
+		}
+		return snapshot;
+	}
+
 	private static class TagContext {
 
 		private final KeySetId keySetId;
@@ -524,6 +668,17 @@ class TransportKeyManagerImpl implements TransportKeyManager {
 		}
 	}
 
+	private static class PreparedKeySet {
+
+		private final MutableTransportKeySet keySet;
+		private final List<byte[]> tags = new ArrayList<>();
+		private final List<TagContext> tagContexts = new ArrayList<>();
+
+		private PreparedKeySet(MutableTransportKeySet keySet) {
+			this.keySet = keySet;
+		}
+	}
+
 	private static class UpdateResult {
 
 		private final Collection<TransportKeySet> current = new ArrayList<>();
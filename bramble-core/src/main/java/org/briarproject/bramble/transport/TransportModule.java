@@ -1,5 +1,7 @@
 package org.briarproject.bramble.transport;
 
+import org.briarproject.bramble.api.contact.event.ContactRemovedEvent;
+import org.briarproject.bramble.api.contact.event.PendingContactRemovedEvent;
 import org.briarproject.bramble.api.crypto.StreamDecrypterFactory;
 import org.briarproject.bramble.api.crypto.StreamEncrypterFactory;
 import org.briarproject.bramble.api.event.EventBus;
@@ -45,7 +47,8 @@ public class TransportModule {
 	KeyManager provideKeyManager(LifecycleManager lifecycleManager,
 			EventBus eventBus, KeyManagerImpl keyManager) {
 		lifecycleManager.registerService(keyManager);
-		eventBus.addListener(keyManager);
+		eventBus.addListener(ContactRemovedEvent.class, keyManager);
+		eventBus.addListener(PendingContactRemovedEvent.class, keyManager);
 		return keyManager;
 	}
 }
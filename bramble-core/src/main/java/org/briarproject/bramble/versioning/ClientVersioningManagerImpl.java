@@ -67,6 +67,13 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 	private final List<ClientVersion> clients = new CopyOnWriteArrayList<>();
 	private final Map<ClientMajorVersion, ClientVersioningHook> hooks =
 			new ConcurrentHashMap<>();
+	/**
+	 * The client visibilities and remote minor versions for each contact,
+	 * which are loaded lazily and updated when local or remote updates are
+	 * stored.
+	 */
+	private final Map<ContactId, CachedState> cache =
+			new ConcurrentHashMap<>();
 
 	@Inject
 	ClientVersioningManagerImpl(DatabaseComponent db, ClientHelper clientHelper,
@@ -90,40 +97,57 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 	@Override
 	public Visibility getClientVisibility(Transaction txn, ContactId contactId,
 			ClientId clientId, int majorVersion) throws DbException {
-		try {
-			LatestUpdates latest = findLatestUpdates(txn, contactId);
-			if (latest == null || latest.remote == null) return INVISIBLE;
-			if (latest.local == null) throw new DbException();
-			Update localUpdate = loadUpdate(txn, latest.local.messageId);
-			Update remoteUpdate = loadUpdate(txn, latest.remote.messageId);
-			Map<ClientMajorVersion, Visibility> visibilities =
-					getVisibilities(localUpdate.states, remoteUpdate.states);
-			ClientMajorVersion key =
-					new ClientMajorVersion(clientId, majorVersion);
-			Visibility v = visibilities.get(key);
-			return v == null ? INVISIBLE : v;
-		} catch (FormatException e) {
-			throw new DbException(e);
+		CachedState cached = getCachedState(txn, contactId);
+		if (cached == null || cached.visibilities == null) {
+			try {
+				LatestUpdates latest = findLatestUpdates(txn, contactId);
+				if (latest == null) return INVISIBLE;
+				if (latest.remote == null) {
+					cached = new CachedState(emptyList(), emptyList());
+				} else {
+					if (latest.local == null) throw new DbException();
+					Update localUpdate =
+							loadUpdate(txn, latest.local.messageId);
+					Update remoteUpdate =
+							loadUpdate(txn, latest.remote.messageId);
+					cached = new CachedState(localUpdate.states,
+							remoteUpdate.states);
+				}
+				cacheState(txn, contactId, cached);
+			} catch (FormatException e) {
+				throw new DbException(e);
+			}
 		}
+		if (cached.visibilities == null) throw new AssertionError();
+		ClientMajorVersion key = new ClientMajorVersion(clientId, majorVersion);
+		Visibility v = cached.visibilities.get(key);
+		return v == null ? INVISIBLE : v;
 	}
 
 	@Override
 	public int getClientMinorVersion(Transaction txn, ContactId contactId,
 			ClientId clientId, int majorVersion) throws DbException {
-		try {
-			LatestUpdates latest = findLatestUpdates(txn, contactId);
-			if (latest == null || latest.remote == null) return -1;
-			Update remoteUpdate = loadUpdate(txn, latest.remote.messageId);
-			ClientMajorVersion key =
-					new ClientMajorVersion(clientId, majorVersion);
-			for (ClientState remote : remoteUpdate.states) {
-				if (remote.clientVersion.getClientMajorVersion().equals(key))
-					return remote.clientVersion.getMinorVersion();
+		CachedState cached = getCachedState(txn, contactId);
+		if (cached == null) {
+			try {
+				LatestUpdates latest = findLatestUpdates(txn, contactId);
+				if (latest == null) return -1;
+				if (latest.remote == null) {
+					cached = new CachedState(emptyList(), emptyList());
+				} else {
+					Update remoteUpdate =
+							loadUpdate(txn, latest.remote.messageId);
+					// Don't load the local update until it's needed
+					cached = new CachedState(null, remoteUpdate.states);
+				}
+				cacheState(txn, contactId, cached);
+			} catch (FormatException e) {
+				throw new DbException(e);
 			}
-			return -1;
-		} catch (FormatException e) {
-			throw new DbException(e);
 		}
+		ClientMajorVersion key = new ClientMajorVersion(clientId, majorVersion);
+		Integer minorVersion = cached.remoteMinorVersions.get(key);
+		return minorVersion == null ? -1 : minorVersion;
 	}
 
 	@Override
@@ -166,11 +190,14 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 		List<ClientVersion> versions = new ArrayList<>(clients);
 		Collections.sort(versions);
 		storeFirstUpdate(txn, g.getId(), versions);
+		// No remote update has been received yet
+		cacheState(txn, c.getId(), new CachedState(emptyList(), emptyList()));
 	}
 
 	@Override
 	public void removingContact(Transaction txn, Contact c) throws DbException {
 		db.removeGroup(txn, getContactGroup(c));
+		cache.remove(c.getId());
 	}
 
 	@Override
@@ -224,6 +251,8 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 					getVisibilities(newLocalStates, newRemoteStates);
 			// Call hooks for any visibilities that have changed
 			ContactId c = clientHelper.getContactId(txn, m.getGroupId());
+			cacheState(txn, c, new CachedState(newLocalStates,
+					newRemoteStates));
 			if (!before.equals(after)) {
 				Contact contact = db.getContact(txn, c);
 				callVisibilityHooks(txn, contact, before, after);
@@ -341,6 +370,8 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 					getVisibilities(oldLocalStates, remoteStates);
 			Map<ClientMajorVersion, Visibility> after =
 					getVisibilities(newLocalStates, remoteStates);
+			cacheState(txn, c.getId(), new CachedState(newLocalStates,
+					remoteStates));
 			// Call hooks for any visibilities that have changed
 			callVisibilityHooks(txn, c, before, after);
 		} catch (FormatException e) {
@@ -348,6 +379,33 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 		}
 	}
 
+	/**
+	 * Returns the cached state for the given contact, or null if the state
+	 * is not cached or was cached by another transaction that may not have
+	 * committed.
+	 */
+	@Nullable
+	private CachedState getCachedState(Transaction txn, ContactId c) {
+		CachedState cached = cache.get(c);
+		if (cached == null) return null;
+		Transaction owner = cached.owner;
+		return owner == null || owner == txn ? cached : null;
+	}
+
+	/**
+	 * Caches the state for the given contact. If the transaction is a write
+	 * transaction, the state can only be seen by that transaction until the
+	 * transaction has been committed. If the transaction is rolled back, the
+	 * state will be replaced when it's next loaded.
+	 */
+	private void cacheState(Transaction txn, ContactId c, CachedState state) {
+		if (!txn.isReadOnly()) {
+			state.owner = txn;
+			txn.attach(() -> state.owner = null);
+		}
+		cache.put(c, state);
+	}
+
 	private Group getContactGroup(Contact c) {
 		return contactGroupFactory.createContactGroup(CLIENT_ID,
 				MAJOR_VERSION, c);
@@ -528,6 +586,34 @@ class ClientVersioningManagerImpl implements ClientVersioningManager,
 		return newLocalStates;
 	}
 
+	private class CachedState {
+
+		// Null if the local update hasn't been loaded
+		@Nullable
+		private final Map<ClientMajorVersion, Visibility> visibilities;
+		private final Map<ClientMajorVersion, Integer> remoteMinorVersions;
+
+		/**
+		 * The write transaction that cached this state, or null if the state
+		 * was cached by a read-only transaction or the write transaction has
+		 * been committed.
+		 */
+		@Nullable
+		private volatile Transaction owner = null;
+
+		private CachedState(@Nullable List<ClientState> localStates,
+				List<ClientState> remoteStates) {
+			visibilities = localStates == null ? null :
+					getVisibilities(localStates, remoteStates);
+			remoteMinorVersions = new HashMap<>();
+			for (ClientState cs : remoteStates) {
+				ClientVersion cv = cs.clientVersion;
+				remoteMinorVersions.put(cv.getClientMajorVersion(),
+						cv.getMinorVersion());
+			}
+		}
+	}
+
 	private static class Update {
 
 		private final List<ClientState> states;
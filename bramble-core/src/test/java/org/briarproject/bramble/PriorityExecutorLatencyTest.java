@@ -0,0 +1,85 @@
+package org.briarproject.bramble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Measures how long interactive tasks wait to run while a large backlog of
+ * sync tasks is queued, first with a single FIFO executor like the old
+ * database executor and then with a {@link PriorityExecutor} configured like
+ * the current one.
+ */
+// Not a JUnit test
+public class PriorityExecutorLatencyTest {
+
+	private static final int SYNC_TASKS = 500;
+	private static final int SYNC_TASK_MS = 2;
+	private static final int INTERACTIVE_TASKS = 50;
+	private static final int INTERACTIVE_INTERVAL_MS = 20;
+
+	public static void main(String[] args) throws Exception {
+		ExecutorService fifo = Executors.newSingleThreadExecutor();
+		System.out.println("FIFO executor:");
+		runTest(fifo, fifo);
+		fifo.shutdown();
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		PriorityExecutor priority = new PriorityExecutor("Test", pool, 2,
+				500, MILLISECONDS, 1000, Integer.MAX_VALUE, 1000);
+		System.out.println("Priority executor:");
+		runTest(priority.getExecutor(0), priority.getExecutor(1));
+		System.out.println("Interactive class: " + priority.getStats(0));
+		System.out.println("Sync class: " + priority.getStats(1));
+		pool.shutdown();
+	}
+
+	private static void runTest(Executor interactive, Executor sync)
+			throws InterruptedException {
+		CountDownLatch latch =
+				new CountDownLatch(SYNC_TASKS + INTERACTIVE_TASKS);
+		for (int i = 0; i < SYNC_TASKS; i++) {
+			sync.execute(() -> {
+				try {
+					Thread.sleep(SYNC_TASK_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				latch.countDown();
+			});
+		}
+		List<Long> waits = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < INTERACTIVE_TASKS; i++) {
+			long submitted = System.nanoTime();
+			interactive.execute(() -> {
+				waits.add(System.nanoTime() - submitted);
+				latch.countDown();
+			});
+			Thread.sleep(INTERACTIVE_INTERVAL_MS);
+		}
+		latch.await();
+		List<Long> sorted = new ArrayList<>(waits);
+		Collections.sort(sorted);
+		System.out.println(String.format(
+				"Interactive wait: median %,d ms, 99th percentile %,d ms,"
+						+ " max %,d ms", toMillis(percentile(sorted, 50)),
+				toMillis(percentile(sorted, 99)),
+				toMillis(sorted.get(sorted.size() - 1))));
+	}
+
+	private static long percentile(List<Long> sorted, int percentile) {
+		int index = (sorted.size() - 1) * percentile / 100;
+		return sorted.get(index);
+	}
+
+	private static long toMillis(long nanos) {
+		return NANOSECONDS.toMillis(nanos);
+	}
+}
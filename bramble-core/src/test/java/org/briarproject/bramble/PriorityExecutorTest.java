@@ -0,0 +1,159 @@
+package org.briarproject.bramble;
+
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PriorityExecutorTest extends BrambleTestCase {
+
+	private static final String TAG = "Test";
+
+	// The delegate queues tasks so the test can decide when they run
+	private final Queue<Runnable> delegated = new LinkedList<>();
+	private final Executor delegate = delegated::add;
+	private final List<String> results = new ArrayList<>();
+
+	@Test
+	public void testTasksInSameClassRunInOrderOfSubmission() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 2, 1, HOURS, 10);
+		Executor executor = priority.getExecutor(0);
+		for (int i = 0; i < 3; i++) executor.execute(addResult("" + i));
+		// Tasks in the same class should not run concurrently
+		assertEquals(1, delegated.size());
+		runDelegatedTasks();
+		assertEquals(asList("0", "1", "2"), results);
+	}
+
+	@Test
+	public void testTasksInDifferentClassesRunConcurrently() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 2, 1, HOURS, 10, 10);
+		priority.getExecutor(0).execute(addResult("high"));
+		priority.getExecutor(1).execute(addResult("low"));
+		// Both tasks should be delegated straight away
+		assertEquals(2, delegated.size());
+	}
+
+	@Test
+	public void testHigherPriorityTaskIsDelegatedFirst() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 1, 1, HOURS, 10, 10, 10);
+		// Occupy the only slot, then queue a task in each class
+		priority.getExecutor(1).execute(addResult("first"));
+		priority.getExecutor(2).execute(addResult("low"));
+		priority.getExecutor(1).execute(addResult("medium"));
+		priority.getExecutor(0).execute(addResult("high"));
+		assertEquals(1, delegated.size());
+		runDelegatedTasks();
+		assertEquals(asList("first", "high", "medium", "low"), results);
+	}
+
+	@Test
+	public void testQueuedTaskIsPromotedByAging() throws Exception {
+		// Every nanosecond spent in the queue raises a task's priority
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 1, 1, NANOSECONDS, 10, 10);
+		// Occupy the only slot, then queue a low priority task
+		priority.getExecutor(0).execute(addResult("first"));
+		priority.getExecutor(1).execute(addResult("low"));
+		Thread.sleep(1);
+		// The low priority task has been promoted above this task
+		priority.getExecutor(0).execute(addResult("high"));
+		runDelegatedTasks();
+		assertEquals(asList("first", "low", "high"), results);
+	}
+
+	@Test
+	public void testTaskIsRejectedWhenQueueIsFull() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 1, 1, HOURS, 1, 10);
+		// Occupy the only slot, then fill the queue
+		priority.getExecutor(1).execute(addResult("running"));
+		priority.getExecutor(0).execute(addResult("queued"));
+		try {
+			priority.getExecutor(0).execute(addResult("rejected"));
+			fail();
+		} catch (RejectedExecutionException expected) {
+			// Expected
+		}
+		// The other class can still accept tasks
+		priority.getExecutor(1).execute(addResult("accepted"));
+		runDelegatedTasks();
+		assertEquals(asList("running", "queued", "accepted"), results);
+	}
+
+	@Test
+	public void testStatsAreRecordedForEachClass() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 1, 1, HOURS, 10, 10);
+		priority.getExecutor(0).execute(addResult("high"));
+		priority.getExecutor(1).execute(addResult("low"));
+		priority.getExecutor(1).execute(addResult("low"));
+
+		ExecutorStats high = priority.getStats(0);
+		assertEquals(1, high.getActiveThreads());
+		assertEquals(0, high.getQueueDepth());
+		assertEquals(0, high.getCompletedTasks());
+		ExecutorStats low = priority.getStats(1);
+		assertEquals(0, low.getActiveThreads());
+		assertEquals(2, low.getQueueDepth());
+
+		runDelegatedTasks();
+
+		List<ExecutorStats> all = priority.getStats();
+		assertEquals(2, all.size());
+		high = all.get(0);
+		assertEquals(0, high.getActiveThreads());
+		assertEquals(1, high.getCompletedTasks());
+		low = all.get(1);
+		assertEquals(0, low.getQueueDepth());
+		assertEquals(2, low.getCompletedTasks());
+		// The low priority tasks waited for the high priority task
+		assertTrue(low.getMaxQueueNanos() > 0);
+		assertTrue(low.getTotalQueueNanos() >= low.getMaxQueueNanos());
+	}
+
+	@Test
+	public void testClassIsReleasedWhenTaskThrowsException() {
+		PriorityExecutor priority =
+				new PriorityExecutor(TAG, delegate, 1, 1, HOURS, 10);
+		Executor executor = priority.getExecutor(0);
+		executor.execute(() -> {
+			throw new RuntimeException();
+		});
+		executor.execute(addResult("next"));
+		try {
+			delegated.remove().run();
+			fail();
+		} catch (RuntimeException expected) {
+			// Expected
+		}
+		// The next task should have been delegated
+		runDelegatedTasks();
+		assertEquals(2, priority.getStats(0).getCompletedTasks());
+		assertEquals(asList("next"), results);
+	}
+
+	private Runnable addResult(String result) {
+		return () -> results.add(result);
+	}
+
+	private void runDelegatedTasks() {
+		Runnable r;
+		while ((r = delegated.poll()) != null) r.run();
+	}
+}
@@ -0,0 +1,110 @@
+package org.briarproject.bramble;
+
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeLoggingExecutorTest extends BrambleTestCase {
+
+	private final TimeLoggingExecutor executor = new TimeLoggingExecutor(
+			"Test", 1, 1, 60, SECONDS, new LinkedBlockingQueue<>(),
+			Executors.defaultThreadFactory(),
+			new ThreadPoolExecutor.DiscardPolicy());
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testStatsAreRecorded() throws Exception {
+		ExecutorStats before = executor.getStats();
+		assertEquals(0, before.getCompletedTasks());
+		assertEquals(0, before.getQueueDepth());
+
+		// Block the executor's only thread so the second task is queued
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+		executor.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+			finished.countDown();
+		});
+		executor.execute(finished::countDown);
+		assertTrue(started.await(10, SECONDS));
+		ExecutorStats during = executor.getStats();
+		assertEquals(1, during.getPoolSize());
+		assertEquals(1, during.getActiveThreads());
+		assertEquals(1, during.getQueueDepth());
+		assertEquals(0, during.getCompletedTasks());
+
+		// Let both tasks finish
+		Thread.sleep(10);
+		release.countDown();
+		assertTrue(finished.await(10, SECONDS));
+		// The stats are updated after each task returns, so wait for them
+		ExecutorStats after = executor.getStats();
+		for (int i = 0; i < 100 && after.getCompletedTasks() < 2; i++) {
+			Thread.sleep(10);
+			after = executor.getStats();
+		}
+		assertEquals(0, after.getQueueDepth());
+		assertEquals(2, after.getCompletedTasks());
+		// The first task ran for at least 10 ms and the second task was
+		// queued behind it for at least as long
+		long tenMillis = MILLISECONDS.toNanos(10);
+		assertTrue(after.getMaxExecutionNanos() >= tenMillis);
+		assertTrue(after.getTotalExecutionNanos() >= tenMillis);
+		assertTrue(after.getMaxQueueNanos() >= tenMillis);
+		assertTrue(after.getTotalQueueNanos() >= tenMillis);
+		assertTrue(after.getThroughput(before) > 0);
+	}
+
+	@Test
+	public void testStatsAreRecordedWhenTaskThrowsException()
+			throws Exception {
+		// The exception is expected, so don't pass it to the default
+		// handler, which would fail the test
+		ThreadFactory threadFactory = r -> {
+			Thread t = new Thread(r);
+			t.setUncaughtExceptionHandler((thread, throwable) -> {
+			});
+			return t;
+		};
+		TimeLoggingExecutor quietExecutor = new TimeLoggingExecutor("Test", 1,
+				1, 60, SECONDS, new LinkedBlockingQueue<>(), threadFactory,
+				new ThreadPoolExecutor.DiscardPolicy());
+		try {
+			CountDownLatch finished = new CountDownLatch(1);
+			quietExecutor.execute(() -> {
+				throw new RuntimeException();
+			});
+			quietExecutor.execute(finished::countDown);
+			assertTrue(finished.await(10, SECONDS));
+			ExecutorStats stats = quietExecutor.getStats();
+			for (int i = 0; i < 100 && stats.getCompletedTasks() < 2; i++) {
+				Thread.sleep(10);
+				stats = quietExecutor.getStats();
+			}
+			assertEquals(2, stats.getCompletedTasks());
+		} finally {
+			quietExecutor.shutdownNow();
+		}
+	}
+}
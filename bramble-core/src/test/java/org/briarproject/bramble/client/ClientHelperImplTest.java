@@ -35,7 +35,6 @@ import org.jmock.Expectations;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +49,7 @@ import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_KEY
 import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_KEY_INBOXID;
 import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_KEY_ONION;
 import static org.briarproject.bramble.api.mailbox.MailboxUpdateManager.PROP_KEY_OUTBOXID;
+import static org.briarproject.bramble.api.sync.SyncConstants.MESSAGE_HEADER_LENGTH;
 import static org.briarproject.bramble.test.TestUtils.getAuthor;
 import static org.briarproject.bramble.test.TestUtils.getMailboxProperties;
 import static org.briarproject.bramble.test.TestUtils.getMessage;
@@ -281,6 +281,27 @@ public class ClientHelperImplTest extends BrambleMockTestCase {
 		assertEquals(list, clientHelper.toList(getRandomBytes(123)));
 	}
 
+	@Test
+	public void testToListParsesWrappedMessageInPlace() throws Exception {
+		byte[] raw = getRandomBytes(MESSAGE_HEADER_LENGTH + 123);
+		Message wrapped =
+				Message.wrapRawMessage(messageId, groupId, timestamp, raw);
+		BdfReader bdfReader = context.mock(BdfReader.class);
+
+		context.checking(new Expectations() {{
+			// The body should be parsed without being copied
+			oneOf(bdfReaderFactory).createReader(with(same(raw)),
+					with(MESSAGE_HEADER_LENGTH), with(123), with(true));
+			will(returnValue(bdfReader));
+			oneOf(bdfReader).readList();
+			will(returnValue(list));
+			oneOf(bdfReader).eof();
+			will(returnValue(true));
+		}});
+
+		assertEquals(list, clientHelper.toList(wrapped));
+	}
+
 	@Test
 	public void testToListWithNoEof() throws Exception {
 		expectToList(false); // no EOF after list
@@ -545,8 +566,8 @@ public class ClientHelperImplTest extends BrambleMockTestCase {
 		BdfReader bdfReader = context.mock(BdfReader.class);
 
 		context.checking(new Expectations() {{
-			oneOf(bdfReaderFactory)
-					.createReader(with(any(InputStream.class)), with(true));
+			oneOf(bdfReaderFactory).createReader(with(any(byte[].class)),
+					with(any(int.class)), with(any(int.class)), with(true));
 			will(returnValue(bdfReader));
 			oneOf(bdfReader).readList();
 			will(returnValue(list));
@@ -0,0 +1,109 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.ExecutorStats;
+import org.briarproject.bramble.TimeLoggingExecutor;
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.api.crypto.KeyPair;
+import org.briarproject.bramble.api.crypto.PublicKey;
+import org.briarproject.bramble.test.TestSecureRandomProvider;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.briarproject.bramble.crypto.CryptoExecutorModule.createCryptoExecutor;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+
+/**
+ * Measures the throughput of signature verification on the crypto executor
+ * with an increasing number of threads, up to the number of available
+ * processors. Throughput should scale roughly linearly with the number of
+ * threads. Each run is repeated {@link #WARMUP_RUNS} times before it's
+ * measured.
+ */
+// Not a JUnit test
+public class CryptoExecutorScalingTest {
+
+	private static final String LABEL = "org.briarproject.test";
+	private static final int KEYS = 16;
+	private static final int TASKS = 4000;
+	private static final int WARMUP_RUNS = 2;
+
+	public static void main(String[] args) throws Exception {
+		CryptoComponent crypto =
+				new CryptoComponentImpl(new TestSecureRandomProvider(), null);
+		// Sign a message with each key
+		List<PublicKey> publicKeys = new ArrayList<>(KEYS);
+		List<byte[]> signed = new ArrayList<>(KEYS);
+		List<byte[]> signatures = new ArrayList<>(KEYS);
+		for (int i = 0; i < KEYS; i++) {
+			KeyPair keyPair = crypto.generateSignatureKeyPair();
+			byte[] message = getRandomBytes(1024);
+			publicKeys.add(keyPair.getPublic());
+			signed.add(message);
+			signatures.add(crypto.sign(LABEL, message,
+					keyPair.getPrivate()));
+		}
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println("Threads, verifications/s, speedup, stats");
+		double baseline = 0;
+		for (int threads : getThreadCounts(processors)) {
+			double throughput = 0;
+			ExecutorStats stats = null;
+			for (int run = 0; run <= WARMUP_RUNS; run++) {
+				TimeLoggingExecutor executor = createCryptoExecutor(threads,
+						Executors.defaultThreadFactory());
+				ExecutorStats before = executor.getStats();
+				runTasks(executor, crypto, publicKeys, signed, signatures);
+				// Wait for the stats of the last tasks to be recorded
+				executor.shutdown();
+				executor.awaitTermination(1, MINUTES);
+				stats = executor.getStats();
+				throughput = stats.getThroughput(before);
+			}
+			if (threads == 1) baseline = throughput;
+			System.out.println(String.format("%d: %,.0f %.2f %s", threads,
+					throughput, throughput / baseline, stats));
+		}
+	}
+
+	/**
+	 * Returns the powers of 2 up to the given number of processors, followed
+	 * by the number of processors if it's not a power of 2.
+	 */
+	private static List<Integer> getThreadCounts(int processors) {
+		List<Integer> counts = new ArrayList<>();
+		for (int threads = 1; threads <= processors; threads *= 2)
+			counts.add(threads);
+		if (counts.get(counts.size() - 1) != processors) counts.add(processors);
+		return counts;
+	}
+
+	private static void runTasks(TimeLoggingExecutor executor,
+			CryptoComponent crypto, List<PublicKey> publicKeys,
+			List<byte[]> signed, List<byte[]> signatures)
+			throws InterruptedException {
+		CountDownLatch finished = new CountDownLatch(TASKS);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		for (int i = 0; i < TASKS; i++) {
+			int key = i % KEYS;
+			executor.execute(() -> {
+				try {
+					if (!crypto.verifySignature(signatures.get(key), LABEL,
+							signed.get(key), publicKeys.get(key))) {
+						failed.set(true);
+					}
+				} catch (GeneralSecurityException e) {
+					failed.set(true);
+				}
+				finished.countDown();
+			});
+		}
+		finished.await();
+		if (failed.get()) throw new AssertionError();
+	}
+}
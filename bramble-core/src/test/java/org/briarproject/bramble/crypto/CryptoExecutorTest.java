@@ -0,0 +1,42 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.TimeLoggingExecutor;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.briarproject.bramble.crypto.CryptoExecutorModule.createCryptoExecutor;
+import static org.junit.Assert.assertTrue;
+
+public class CryptoExecutorTest extends BrambleTestCase {
+
+	private static final int THREADS = 4;
+
+	@Test
+	public void testTasksRunConcurrently() throws Exception {
+		TimeLoggingExecutor executor =
+				createCryptoExecutor(THREADS, Executors.defaultThreadFactory());
+		try {
+			// Each task waits for all the tasks to start, so the tasks can
+			// only finish if they all run at the same time
+			CountDownLatch started = new CountDownLatch(THREADS);
+			CountDownLatch finished = new CountDownLatch(THREADS);
+			for (int i = 0; i < THREADS; i++) {
+				executor.execute(() -> {
+					started.countDown();
+					try {
+						if (started.await(10, SECONDS)) finished.countDown();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			assertTrue(finished.await(20, SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
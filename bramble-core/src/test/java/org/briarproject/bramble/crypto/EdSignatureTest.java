@@ -3,14 +3,23 @@ package org.briarproject.bramble.crypto;
 import org.briarproject.bramble.api.crypto.KeyPair;
 import org.briarproject.bramble.api.crypto.PrivateKey;
 import org.briarproject.bramble.api.crypto.PublicKey;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
 import org.briarproject.bramble.api.crypto.SignaturePrivateKey;
 import org.briarproject.bramble.api.crypto.SignaturePublicKey;
 import org.junit.Test;
 
 import java.security.GeneralSecurityException;
+import java.util.List;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.briarproject.bramble.crypto.SignaturePublicKeyCache.MAX_CACHED_KEYS;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
 import static org.briarproject.bramble.util.StringUtils.fromHexString;
+import static org.briarproject.bramble.util.StringUtils.getRandomString;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public class EdSignatureTest extends SignatureTest {
@@ -170,4 +179,48 @@ public class EdSignatureTest extends SignatureTest {
 			assertTrue(signature.verify(signatureBytes));
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testBatchVerificationIdentifiesInvalidSignatures()
+			throws Exception {
+		KeyPair k1 = generateKeyPair(), k2 = generateKeyPair();
+		String label = getRandomString(42);
+		byte[] signed1 = getRandomBytes(123), signed2 = getRandomBytes(123);
+		byte[] sig1 = sign(label, signed1, k1.getPrivate());
+		byte[] sig2 = sign(label, signed2, k2.getPrivate());
+		List<SignatureCheck> checks = asList(
+				// Valid
+				new SignatureCheck(sig1, label, signed1, k1.getPublic()),
+				// Wrong key
+				new SignatureCheck(sig1, label, signed1, k2.getPublic()),
+				// Valid, same key as the first check
+				new SignatureCheck(sig1, label, signed1, k1.getPublic()),
+				// Wrong data
+				new SignatureCheck(sig2, label, signed1, k2.getPublic()),
+				// Valid
+				new SignatureCheck(sig2, label, signed2, k2.getPublic()));
+		boolean[] valid = crypto.verifySignatures(checks);
+		assertArrayEquals(new boolean[] {true, false, true, false, true},
+				valid);
+	}
+
+	@Test
+	public void testBatchVerificationOfEmptyBatch() throws Exception {
+		assertEquals(0, crypto.verifySignatures(emptyList()).length);
+	}
+
+	@Test
+	public void testPublicKeyCacheEvictsLeastRecentlyUsedKeys() {
+		SignaturePublicKeyCache cache = new SignaturePublicKeyCache();
+		PublicKey first = generateKeyPair().getPublic();
+		cache.get(first);
+		for (int i = 0; i < MAX_CACHED_KEYS; i++) {
+			cache.get(generateKeyPair().getPublic());
+			assertTrue(cache.size() <= MAX_CACHED_KEYS);
+		}
+		assertEquals(MAX_CACHED_KEYS, cache.size());
+		// The first key was evicted, so looking it up decodes it again
+		assertNotNull(cache.get(first));
+		assertEquals(MAX_CACHED_KEYS, cache.size());
+	}
+}
@@ -20,6 +20,9 @@ import org.bouncycastle.crypto.signers.DSADigestSigner;
 import org.bouncycastle.crypto.signers.DSAKCalculator;
 import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
+import org.briarproject.bramble.test.TestSecureRandomProvider;
 import org.whispersystems.curve25519.Curve25519;
 import org.whispersystems.curve25519.Curve25519KeyPair;
 
@@ -39,6 +42,7 @@ import static net.i2p.crypto.eddsa.EdDSAEngine.SIGNATURE_ALGORITHM;
 public class EllipticCurvePerformanceTest {
 
 	private static final SecureRandom random = new SecureRandom();
+	private static final String BATCH_LABEL = "org.briarproject.test";
 	private static final int SAMPLES = 50;
 	private static final int BYTES_TO_SIGN = 1024;
 	private static final List<String> SEC_NAMES = Arrays.asList(
@@ -46,6 +50,8 @@ public class EllipticCurvePerformanceTest {
 	private static final List<String> BRAINPOOL_NAMES = Arrays.asList(
 			"brainpoolp256r1", "brainpoolp384r1", "brainpoolp512r1");
 	private static final Provider ED_PROVIDER = new EdDSASecurityProvider();
+	private static final int BATCH_SIZE = 64;
+	private static final List<Integer> BATCH_KEYS = Arrays.asList(1, 8, 64);
 
 	public static void main(String[] args) throws GeneralSecurityException {
 		for (String name : SEC_NAMES) {
@@ -60,6 +66,7 @@ public class EllipticCurvePerformanceTest {
 		}
 		runCurve25519Test();
 		runEd25519Test();
+		for (int keys : BATCH_KEYS) runEd25519BatchTest(keys);
 	}
 
 	private static void runTest(String name, ECDomainParameters params) {
@@ -175,6 +182,63 @@ public class EllipticCurvePerformanceTest {
 				signatureMedian, verificationMedian));
 	}
 
+	/**
+	 * Compares verifying a batch of Ed25519 signatures one at a time with
+	 * verifying them as a batch, where the signatures in the batch are
+	 * made with the given number of keys. Prints the median time per
+	 * signature in nanoseconds.
+	 */
+	private static void runEd25519BatchTest(int keys)
+			throws GeneralSecurityException {
+		CryptoComponent crypto =
+				new CryptoComponentImpl(new TestSecureRandomProvider(), null);
+		List<org.briarproject.bramble.api.crypto.KeyPair> keyPairs =
+				new ArrayList<>();
+		for (int i = 0; i < keys; i++)
+			keyPairs.add(crypto.generateSignatureKeyPair());
+		List<SignatureCheck> checks = new ArrayList<>();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			org.briarproject.bramble.api.crypto.KeyPair keyPair =
+					keyPairs.get(i % keys);
+			byte[] signed = new byte[BYTES_TO_SIGN];
+			random.nextBytes(signed);
+			byte[] sig = crypto.sign(BATCH_LABEL, signed,
+					keyPair.getPrivate());
+			checks.add(new SignatureCheck(sig, BATCH_LABEL, signed,
+					keyPair.getPublic()));
+		}
+		// Time verifying the signatures one at a time. Each sample uses a
+		// new component, so no decoded keys are reused between samples
+		List<Long> samples = new ArrayList<>();
+		for (int i = 0; i < SAMPLES; i++) {
+			crypto = new CryptoComponentImpl(new TestSecureRandomProvider(),
+					null);
+			long start = System.nanoTime();
+			for (SignatureCheck c : checks) {
+				if (!crypto.verifySignature(c.getSignature(), c.getLabel(),
+						c.getSigned(), c.getPublicKey())) {
+					throw new AssertionError();
+				}
+			}
+			samples.add((System.nanoTime() - start) / BATCH_SIZE);
+		}
+		long singleMedian = median(samples);
+		// Time verifying the signatures as a batch
+		samples.clear();
+		for (int i = 0; i < SAMPLES; i++) {
+			crypto = new CryptoComponentImpl(new TestSecureRandomProvider(),
+					null);
+			long start = System.nanoTime();
+			for (boolean valid : crypto.verifySignatures(checks))
+				if (!valid) throw new AssertionError();
+			samples.add((System.nanoTime() - start) / BATCH_SIZE);
+		}
+		long batchMedian = median(samples);
+		System.out.println(String.format(
+				"Ed25519 batch of %d, %d keys: %,d %,d", BATCH_SIZE, keys,
+				singleMedian, batchMedian));
+	}
+
 	private static long median(List<Long> list) {
 		int size = list.size();
 		if (size == 0) throw new IllegalArgumentException();
@@ -7,9 +7,11 @@ import org.briarproject.bramble.test.TestUtils;
 import org.briarproject.bramble.util.StringUtils;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 public class HashTest extends BrambleTestCase {
@@ -48,4 +50,23 @@ public class HashTest extends BrambleTestCase {
 		assertFalse(Arrays.equals(hash1, hash2));
 	}
 
+	@Test
+	public void testBufferInputsProduceSameHashesAsArrayInputs() {
+		// Wrap the first input in a larger array
+		byte[] padded = new byte[inputBytes.length + 20];
+		System.arraycopy(inputBytes, 0, padded, 10, inputBytes.length);
+		ByteBuffer buffer = ByteBuffer.wrap(padded, 10, inputBytes.length);
+		// Put the second input in a direct buffer
+		ByteBuffer buffer1 = ByteBuffer.allocateDirect(inputBytes1.length);
+		buffer1.put(inputBytes1);
+		buffer1.flip();
+		ByteBuffer buffer2 = ByteBuffer.wrap(inputBytes2);
+		byte[] hash1 = crypto.hash(label, inputBytes, inputBytes1, inputBytes2);
+		byte[] hash2 = crypto.hash(label, buffer, buffer1, buffer2);
+		assertArrayEquals(hash1, hash2);
+		// The positions of the buffers should not have changed
+		assertEquals(10, buffer.position());
+		assertEquals(0, buffer1.position());
+		assertEquals(0, buffer2.position());
+	}
 }
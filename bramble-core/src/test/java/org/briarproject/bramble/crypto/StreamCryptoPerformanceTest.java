@@ -0,0 +1,101 @@
+package org.briarproject.bramble.crypto;
+
+import org.briarproject.bramble.api.crypto.SecretKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.briarproject.bramble.api.transport.TransportConstants.MAX_PAYLOAD_LENGTH;
+import static org.briarproject.bramble.api.transport.TransportConstants.STREAM_HEADER_NONCE_LENGTH;
+import static org.briarproject.bramble.api.transport.TransportConstants.TAG_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+
+/**
+ * Measures the throughput of stream encryption and decryption for a range of
+ * frame sizes. Each sample encrypts or decrypts a stream of
+ * {@link #FRAMES_PER_STREAM} frames, so the cost of setting up the stream is
+ * included. The first {@link #WARMUP_SAMPLES} samples are discarded.
+ */
+// Not a JUnit test
+public class StreamCryptoPerformanceTest {
+
+	private static final int WARMUP_SAMPLES = 100;
+	private static final int SAMPLES = 500;
+	private static final int FRAMES_PER_STREAM = 16;
+	private static final List<Integer> PAYLOAD_LENGTHS =
+			Arrays.asList(16, 64, 256, MAX_PAYLOAD_LENGTH);
+
+	public static void main(String[] args) throws IOException {
+		FrameBufferPool bufferPool = new FrameBufferPool();
+		System.out.println("Payload bytes, encrypt MB/s, decrypt MB/s");
+		for (int payloadLength : PAYLOAD_LENGTHS)
+			runTest(bufferPool, payloadLength);
+	}
+
+	private static void runTest(FrameBufferPool bufferPool, int payloadLength)
+			throws IOException {
+		SecretKey streamHeaderKey = getSecretKey();
+		byte[] tag = getRandomBytes(TAG_LENGTH);
+		byte[] streamHeaderNonce = getRandomBytes(STREAM_HEADER_NONCE_LENGTH);
+		byte[] payload = getRandomBytes(payloadLength);
+		byte[] buffer = new byte[MAX_PAYLOAD_LENGTH];
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		List<Long> encryptSamples = new ArrayList<>();
+		List<Long> decryptSamples = new ArrayList<>();
+		for (int i = 0; i < WARMUP_SAMPLES + SAMPLES; i++) {
+			// Time the encryption of a stream
+			out.reset();
+			long start = System.nanoTime();
+			StreamEncrypterImpl e = new StreamEncrypterImpl(out,
+					new XSalsa20Poly1305AuthenticatedCipher(), bufferPool, 0,
+					tag, streamHeaderNonce, streamHeaderKey, getSecretKey());
+			for (int j = 0; j < FRAMES_PER_STREAM; j++) {
+				boolean finalFrame = j == FRAMES_PER_STREAM - 1;
+				e.writeFrame(payload, payloadLength, 0, finalFrame);
+			}
+			e.flush();
+			long encryptDuration = System.nanoTime() - start;
+			// Time the decryption of the stream, skipping the tag
+			ByteArrayInputStream in =
+					new ByteArrayInputStream(out.toByteArray());
+			if (in.skip(TAG_LENGTH) != TAG_LENGTH) throw new AssertionError();
+			start = System.nanoTime();
+			StreamDecrypterImpl d = new StreamDecrypterImpl(in,
+					new XSalsa20Poly1305AuthenticatedCipher(), bufferPool, 0,
+					streamHeaderKey);
+			for (int j = 0; j < FRAMES_PER_STREAM; j++) {
+				if (d.readFrame(buffer) != payloadLength)
+					throw new AssertionError();
+			}
+			if (d.readFrame(buffer) != -1) throw new AssertionError();
+			long decryptDuration = System.nanoTime() - start;
+			if (i >= WARMUP_SAMPLES) {
+				encryptSamples.add(encryptDuration);
+				decryptSamples.add(decryptDuration);
+			}
+		}
+		long bytes = (long) payloadLength * FRAMES_PER_STREAM;
+		System.out.println(String.format("%,d: %,.1f %,.1f", payloadLength,
+				throughput(bytes, median(encryptSamples)),
+				throughput(bytes, median(decryptSamples))));
+	}
+
+	private static double throughput(long bytes, long nanos) {
+		// Bytes per nanosecond * 1000 = megabytes per second
+		return bytes * 1000.0 / nanos;
+	}
+
+	private static long median(List<Long> list) {
+		int size = list.size();
+		if (size == 0) throw new IllegalArgumentException();
+		Collections.sort(list);
+		if (size % 2 == 1) return list.get(size / 2);
+		return (list.get(size / 2 - 1) + list.get(size / 2)) / 2;
+	}
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertArrayEquals;
 public class StreamDecrypterImplTest extends BrambleTestCase {
 
 	private final AuthenticatedCipher cipher;
+	private final FrameBufferPool bufferPool = new FrameBufferPool();
 	private final SecretKey streamHeaderKey, frameKey;
 	private final byte[] streamHeaderNonce, protocolVersionBytes;
 	private final byte[] streamNumberBytes, payload;
@@ -69,17 +70,19 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Read the first frame
 		byte[] buffer = new byte[MAX_PAYLOAD_LENGTH];
 		assertEquals(payloadLength, s.readFrame(buffer));
 		assertArrayStartsWith(payload, buffer, payloadLength);
+		assertEquals(0, bufferPool.getPooledBuffers());
 
-		// Read the second frame
+		// Read the second frame, which should return the buffer to the pool
 		assertEquals(payloadLength1, s.readFrame(buffer));
 		assertArrayStartsWith(payload1, buffer, payloadLength1);
+		assertEquals(1, bufferPool.getPooledBuffers());
 
 		// End of stream
 		assertEquals(-1, s.readFrame(buffer));
@@ -117,7 +120,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Try to read the first frame
@@ -156,7 +159,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Try to read the first frame
@@ -182,7 +185,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH - 1]); // Chop off the last byte
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Try to read the truncated frame
@@ -212,7 +215,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Try to read the invalid frame
@@ -241,7 +244,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[MAC_LENGTH]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Try to read the invalid frame
@@ -269,7 +272,7 @@ public class StreamDecrypterImplTest extends BrambleTestCase {
 		out.write(new byte[1024]);
 
 		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
-		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher,
+		StreamDecrypterImpl s = new StreamDecrypterImpl(in, cipher, bufferPool,
 				streamNumber, streamHeaderKey);
 
 		// Read the first frame
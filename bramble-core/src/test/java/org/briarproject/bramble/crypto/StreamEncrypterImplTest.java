@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 public class StreamEncrypterImplTest extends BrambleTestCase {
 
 	private final AuthenticatedCipher cipher;
+	private final FrameBufferPool bufferPool = new FrameBufferPool();
 	private final SecretKey streamHeaderKey, frameKey;
 	private final byte[] tag, streamHeaderNonce, protocolVersionBytes;
 	private final byte[] streamNumberBytes, payload;
@@ -45,7 +46,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test(expected = IllegalArgumentException.class)
 	public void testRejectsNegativePayloadLength() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -55,7 +56,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test(expected = IllegalArgumentException.class)
 	public void testRejectsNegativePaddingLength() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -65,7 +66,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test(expected = IllegalArgumentException.class)
 	public void testRejectsMaxPayloadPlusPadding() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -76,7 +77,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testAcceptsMaxPayloadIncludingPadding() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -89,7 +90,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testAcceptsMaxPayloadWithoutPadding() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -102,7 +103,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWriteUnpaddedNonFinalFrameWithTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -128,7 +129,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWriteUnpaddedFinalFrameWithTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -154,7 +155,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWriteUnpaddedNonFinalFrameWithoutTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, null, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -179,7 +180,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWriteUnpaddedFinalFrameWithoutTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, null, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -204,7 +205,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWritePaddedNonFinalFrameWithTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -232,7 +233,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWritePaddedFinalFrameWithTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -260,7 +261,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWritePaddedNonFinalFrameWithoutTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, null, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -287,7 +288,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWritePaddedFinalFrameWithoutTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, null, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -314,7 +315,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testWriteTwoFramesWithTag() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 		int payloadLength1 = 345, paddingLength1 = 456;
@@ -354,7 +355,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	public void testFlushWritesTagAndStreamHeaderIfNotAlreadyWritten()
 			throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -377,7 +378,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	public void testFlushDoesNotWriteTagOrStreamHeaderIfAlreadyWritten()
 			throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -400,7 +401,7 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 	@Test
 	public void testFlushDoesNotWriteTagIfNull() throws Exception {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher,
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
 				streamNumber, null, streamHeaderNonce, streamHeaderKey,
 				frameKey);
 
@@ -417,4 +418,32 @@ public class StreamEncrypterImplTest extends BrambleTestCase {
 
 		assertArrayEquals(expected.toByteArray(), out.toByteArray());
 	}
+
+	@Test
+	public void testBuffersAreReturnedToPoolAfterFinalFrame()
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamEncrypterImpl s = new StreamEncrypterImpl(out, cipher, bufferPool,
+				streamNumber, tag, streamHeaderNonce, streamHeaderKey,
+				frameKey);
+
+		// Write a padded frame so both buffers are used
+		s.writeFrame(payload, payloadLength, paddingLength, false);
+		assertEquals(0, bufferPool.getPooledBuffers());
+
+		// Writing the final frame should return both buffers
+		s.writeFrame(payload, payloadLength, paddingLength, true);
+		assertEquals(2, bufferPool.getPooledBuffers());
+
+		// Another stream should reuse the buffers and get the same output
+		ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+		StreamEncrypterImpl s1 = new StreamEncrypterImpl(out1, cipher,
+				bufferPool, streamNumber, tag, streamHeaderNonce,
+				streamHeaderKey, frameKey);
+		s1.writeFrame(payload, payloadLength, paddingLength, false);
+		assertEquals(0, bufferPool.getPooledBuffers());
+		s1.writeFrame(payload, payloadLength, paddingLength, true);
+		assertEquals(2, bufferPool.getPooledBuffers());
+		assertArrayEquals(out.toByteArray(), out1.toByteArray());
+	}
 }
@@ -0,0 +1,70 @@
+package org.briarproject.bramble.data;
+
+import org.briarproject.bramble.api.data.BdfList;
+import org.briarproject.bramble.api.data.BdfReader;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.briarproject.bramble.api.data.BdfReader.DEFAULT_MAX_BUFFER_SIZE;
+import static org.briarproject.bramble.api.data.BdfReader.DEFAULT_NESTED_LIMIT;
+import static org.briarproject.bramble.util.StringUtils.fromHexString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link BdfReaderImplTest} tests against {@link ArrayBdfReaderImpl}
+ * to check that both readers accept and reject the same input.
+ */
+public class ArrayBdfReaderImplTest extends BdfReaderImplTest {
+
+	@Override
+	BdfReader createReader(byte[] b, int maxBufferSize) {
+		// Surround the input with other bytes to check that the reader
+		// stays within its range of the array
+		byte[] padded = new byte[b.length + 4];
+		padded[0] = padded[1] = padded[padded.length - 2] =
+				padded[padded.length - 1] = Types.TRUE;
+		System.arraycopy(b, 0, padded, 2, b.length);
+		return new ArrayBdfReaderImpl(padded, 2, b.length,
+				DEFAULT_NESTED_LIMIT, maxBufferSize, true);
+	}
+
+	@Test
+	public void testRawViewSharesArray() throws Exception {
+		// {1, 2, 3}
+		byte[] b = fromHexString("51" + "03" + "010203");
+		BdfReader r = new ArrayBdfReaderImpl(b, 0, b.length,
+				DEFAULT_NESTED_LIMIT, DEFAULT_MAX_BUFFER_SIZE, true);
+		ByteBuffer view = r.readRawView();
+		assertTrue(r.eof());
+		b[3] = 9;
+		assertEquals(9, view.get(1));
+	}
+
+	@Test
+	public void testFactoryReadsRemainingBytesOfBuffer() throws Exception {
+		// A boolean that should be skipped, then a list containing a boolean
+		byte[] b = fromHexString("11" + "60" + "10" + "80");
+		ByteBuffer buffer = ByteBuffer.wrap(b);
+		buffer.position(1);
+		BdfReaderFactoryImpl factory = new BdfReaderFactoryImpl();
+		// Heap buffer
+		BdfReader r = factory.createReader(buffer);
+		assertEquals(BdfList.of(false), r.readList());
+		assertTrue(r.eof());
+		assertEquals(1, buffer.position());
+		// Read-only buffer, which doesn't expose its array
+		r = factory.createReader(buffer.asReadOnlyBuffer());
+		assertEquals(BdfList.of(false), r.readList());
+		assertTrue(r.eof());
+		// Direct buffer
+		ByteBuffer direct = ByteBuffer.allocateDirect(3);
+		direct.put(b, 1, 3);
+		direct.flip();
+		r = factory.createReader(direct);
+		assertEquals(BdfList.of(false), r.readList());
+		assertTrue(r.eof());
+		assertEquals(0, direct.position());
+	}
+}
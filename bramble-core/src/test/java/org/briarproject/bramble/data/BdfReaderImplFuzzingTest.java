@@ -42,4 +42,24 @@ public class BdfReaderImplFuzzingTest extends BrambleTestCase {
 			}
 		}
 	}
+
+	@Test
+	public void testStringFuzzingWithArrayReader() throws Exception {
+		Random random = new Random();
+		byte[] buf = new byte[22];
+		for (int i = 0; i < 100_000_000; i++) {
+			random.nextBytes(buf);
+			buf[0] = 0x41; // String with 1-byte length
+			buf[1] = 0x14; // Length 20 bytes
+			ArrayBdfReaderImpl r = new ArrayBdfReaderImpl(buf, 0, buf.length,
+					DEFAULT_NESTED_LIMIT, DEFAULT_MAX_BUFFER_SIZE, true);
+			try {
+				int length = r.readString().length();
+				assertTrue(length <= 20);
+				assertTrue(r.eof());
+			} catch (FormatException e) {
+				// Expected when bytes are not valid UTF-8
+			}
+		}
+	}
 }
@@ -3,10 +3,12 @@ package org.briarproject.bramble.data;
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfList;
+import org.briarproject.bramble.api.data.BdfReader;
 import org.briarproject.bramble.test.BrambleTestCase;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 
 import static org.briarproject.bramble.api.data.BdfDictionary.NULL_VALUE;
 import static org.briarproject.bramble.api.data.BdfReader.DEFAULT_MAX_BUFFER_SIZE;
@@ -22,7 +24,7 @@ import static org.junit.Assert.assertTrue;
 
 public class BdfReaderImplTest extends BrambleTestCase {
 
-	private BdfReaderImpl r = null;
+	private BdfReader r = null;
 
 	@Test
 	public void testReadEmptyInput() throws Exception {
@@ -373,6 +375,28 @@ public class BdfReaderImplTest extends BrambleTestCase {
 		assertTrue(r.eof());
 	}
 
+	@Test
+	public void testReadRawView() throws Exception {
+		// {1, 2, 3}, {}
+		setContents("51" + "03" + "010203" + "51" + "00");
+		ByteBuffer view = r.readRawView();
+		assertTrue(view.isReadOnly());
+		assertEquals(3, view.remaining());
+		byte[] b = new byte[3];
+		view.get(b);
+		assertArrayEquals(new byte[] {1, 2, 3}, b);
+		assertEquals(0, r.readRawView().remaining());
+		assertTrue(r.eof());
+	}
+
+	@Test(expected = FormatException.class)
+	public void testReadRawViewChecksMaxLength() throws Exception {
+		int maxBufferSize = 3;
+		// {1, 2, 3, 4}
+		setContents("51" + "04" + "01020304", maxBufferSize);
+		r.readRawView();
+	}
+
 	@Test(expected = FormatException.class)
 	public void testReadRaw8ChecksMaxLength() throws Exception {
 		int maxBufferSize = 3;
@@ -681,7 +705,12 @@ public class BdfReaderImplTest extends BrambleTestCase {
 
 	private void setContents(String hex, int maxBufferSize)
 			throws FormatException {
-		ByteArrayInputStream in = new ByteArrayInputStream(fromHexString(hex));
-		r = new BdfReaderImpl(in, DEFAULT_NESTED_LIMIT, maxBufferSize, true);
+		r = createReader(fromHexString(hex), maxBufferSize);
+	}
+
+	BdfReader createReader(byte[] b, int maxBufferSize) {
+		ByteArrayInputStream in = new ByteArrayInputStream(b);
+		return new BdfReaderImpl(in, DEFAULT_NESTED_LIMIT, maxBufferSize,
+				true);
 	}
 }
@@ -18,6 +18,7 @@ import org.briarproject.bramble.api.db.NoSuchIdentityException;
 import org.briarproject.bramble.api.db.NoSuchMessageException;
 import org.briarproject.bramble.api.db.NoSuchPendingContactException;
 import org.briarproject.bramble.api.db.NoSuchTransportException;
+import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.identity.Author;
@@ -93,6 +94,7 @@ import static org.briarproject.bramble.test.TestUtils.getMessage;
 import static org.briarproject.bramble.test.TestUtils.getRandomId;
 import static org.briarproject.bramble.test.TestUtils.getSecretKey;
 import static org.briarproject.bramble.test.TestUtils.getTransportId;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -599,11 +601,11 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 			throws Exception {
 		context.checking(new Expectations() {{
 			// Check whether the group is in the DB (which it's not)
-			exactly(10).of(database).startTransaction();
+			exactly(13).of(database).startTransaction();
 			will(returnValue(txn));
-			exactly(10).of(database).containsGroup(txn, groupId);
+			exactly(13).of(database).containsGroup(txn, groupId);
 			will(returnValue(false));
-			exactly(10).of(database).abortTransaction(txn);
+			exactly(13).of(database).abortTransaction(txn);
 			// Allow other checks to pass
 			allowing(database).containsContact(txn, contactId);
 			will(returnValue(true));
@@ -668,6 +670,23 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 			// Expected
 		}
 
+		try {
+			db.transaction(true, transaction ->
+					db.getGroupCounters(transaction, groupId));
+			fail();
+		} catch (NoSuchGroupException expected) {
+			// Expected
+		}
+
+		try {
+			db.transaction(false, transaction ->
+					db.mergeGroupCounters(transaction, groupId,
+							singletonMap("foo", 1L)));
+			fail();
+		} catch (NoSuchGroupException expected) {
+			// Expected
+		}
+
 		try {
 			db.transaction(false, transaction ->
 					db.mergeGroupMetadata(transaction, groupId, metadata));
@@ -676,6 +695,15 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 			// Expected
 		}
 
+		try {
+			db.transaction(false, transaction ->
+					db.replaceMessageMetadata(transaction, groupId, "foo",
+							new byte[] {0}, new byte[] {1}));
+			fail();
+		} catch (NoSuchGroupException expected) {
+			// Expected
+		}
+
 		try {
 			db.transaction(false, transaction ->
 					db.removeGroup(transaction, group));
@@ -1007,12 +1035,12 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 					BATCH_CAPACITY, maxLatency);
 			will(returnValue(ids));
 			// First message
-			oneOf(database).getMessage(txn, messageId);
+			oneOf(database).getMessageToSend(txn, messageId);
 			will(returnValue(message));
 			oneOf(database).updateRetransmissionData(txn, contactId, messageId,
 					maxLatency);
 			// Second message
-			oneOf(database).getMessage(txn, messageId1);
+			oneOf(database).getMessageToSend(txn, messageId1);
 			will(returnValue(message1));
 			oneOf(database).updateRetransmissionData(txn, contactId, messageId1,
 					maxLatency);
@@ -1092,12 +1120,12 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 					BATCH_CAPACITY, maxLatency);
 			will(returnValue(ids));
 			// First message
-			oneOf(database).getMessage(txn, messageId);
+			oneOf(database).getMessageToSend(txn, messageId);
 			will(returnValue(message));
 			oneOf(database).updateRetransmissionData(txn, contactId,
 					messageId, maxLatency);
 			// Second message
-			oneOf(database).getMessage(txn, messageId1);
+			oneOf(database).getMessageToSend(txn, messageId1);
 			will(returnValue(message1));
 			oneOf(database).updateRetransmissionData(txn, contactId,
 					messageId1, maxLatency);
@@ -1141,7 +1169,7 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 			will(returnValue(true));
 			oneOf(database).containsVisibleMessage(txn, contactId, messageId);
 			will(returnValue(true));
-			oneOf(database).getMessage(txn, messageId);
+			oneOf(database).getMessageToSend(txn, messageId);
 			will(returnValue(message));
 			oneOf(database).commitTransaction(txn);
 		}});
@@ -1162,7 +1190,7 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 			will(returnValue(true));
 			oneOf(database).containsVisibleMessage(txn, contactId, messageId);
 			will(returnValue(true));
-			oneOf(database).getMessage(txn, messageId);
+			oneOf(database).getMessageToSend(txn, messageId);
 			will(returnValue(message));
 			oneOf(database).updateRetransmissionData(txn, contactId, messageId,
 					maxLatency);
@@ -1954,6 +1982,115 @@ public class DatabaseComponentImplTest extends BrambleMockTestCase {
 		});
 	}
 
+	@Test
+	public void testMetadataIsCachedByReadOnlyTransactions()
+			throws Exception {
+		context.checking(new Expectations() {{
+			// First read-only transaction: cache miss
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			oneOf(database).containsGroup(txn, groupId);
+			will(returnValue(true));
+			oneOf(database).getGroupMetadata(txn, groupId);
+			will(returnValue(metadata));
+			oneOf(database).containsMessage(txn, messageId);
+			will(returnValue(true));
+			oneOf(database).getMessageMetadata(txn, messageId);
+			will(returnValue(metadata));
+			oneOf(database).commitTransaction(txn);
+			// Second read-only transaction: cache hit
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			oneOf(database).commitTransaction(txn);
+		}});
+		DatabaseComponent db = new DatabaseComponentImpl<>(database,
+				Object.class, eventBus, eventExecutor, shutdownManager,
+				1024);
+
+		for (int i = 0; i < 2; i++) {
+			db.transaction(true, transaction -> {
+				assertMetadataEquals(metadata,
+						db.getGroupMetadata(transaction, groupId));
+				assertMetadataEquals(metadata,
+						db.getMessageMetadata(transaction, messageId));
+			});
+		}
+	}
+
+	@Test
+	public void testMetadataIsNotCachedByWriteTransactions()
+			throws Exception {
+		context.checking(new Expectations() {{
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			exactly(2).of(database).containsGroup(txn, groupId);
+			will(returnValue(true));
+			exactly(2).of(database).getGroupMetadata(txn, groupId);
+			will(returnValue(metadata));
+			oneOf(database).abortTransaction(txn);
+		}});
+		DatabaseComponent db = new DatabaseComponentImpl<>(database,
+				Object.class, eventBus, eventExecutor, shutdownManager,
+				1024);
+
+		Transaction transaction = db.startTransaction(false);
+		try {
+			db.getGroupMetadata(transaction, groupId);
+			db.getGroupMetadata(transaction, groupId);
+		} finally {
+			db.endTransaction(transaction);
+		}
+	}
+
+	@Test
+	public void testMergingMetadataInvalidatesCache() throws Exception {
+		Metadata merged = new Metadata();
+		merged.put("baz", new byte[] {'q', 'u', 'x'});
+		context.checking(new Expectations() {{
+			// Read-only transaction: cache miss
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			oneOf(database).containsMessage(txn, messageId);
+			will(returnValue(true));
+			oneOf(database).getMessageMetadata(txn, messageId);
+			will(returnValue(metadata));
+			oneOf(database).commitTransaction(txn);
+			// Write transaction: merge metadata
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			oneOf(database).containsMessage(txn, messageId);
+			will(returnValue(true));
+			oneOf(database).mergeMessageMetadata(txn, messageId, merged);
+			oneOf(database).commitTransaction(txn);
+			// Read-only transaction: cache miss
+			oneOf(database).startTransaction();
+			will(returnValue(txn));
+			oneOf(database).containsMessage(txn, messageId);
+			will(returnValue(true));
+			oneOf(database).getMessageMetadata(txn, messageId);
+			will(returnValue(merged));
+			oneOf(database).commitTransaction(txn);
+		}});
+		DatabaseComponent db = new DatabaseComponentImpl<>(database,
+				Object.class, eventBus, eventExecutor, shutdownManager,
+				1024);
+
+		db.transaction(true, transaction ->
+				assertMetadataEquals(metadata,
+						db.getMessageMetadata(transaction, messageId)));
+		db.transaction(false, transaction ->
+				db.mergeMessageMetadata(transaction, messageId, merged));
+		db.transaction(true, transaction ->
+				assertMetadataEquals(merged,
+						db.getMessageMetadata(transaction, messageId)));
+	}
+
+	private void assertMetadataEquals(Metadata expected, Metadata actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (String key : expected.keySet())
+			assertArrayEquals(expected.get(key), actual.get(key));
+	}
+
 	private static class TestEvent extends Event {
 	}
 }
@@ -85,6 +85,21 @@ public abstract class DatabasePerformanceTest extends BrambleTestCase {
 	private static final int METADATA_VALUE_LENGTH = 100;
 	private static final int OFFERED_MESSAGES_PER_CONTACT = 100;
 
+	/**
+	 * How many messages to simulate in a large local group, such as a busy
+	 * forum or blog.
+	 */
+	private static final int MESSAGES_PER_LARGE_GROUP = 10_000;
+
+	/**
+	 * How many distinct values to use for each of the metadata keys that
+	 * are shared by all messages in the large group. Queries for one of
+	 * these keys match 1 / LARGE_GROUP_VALUES of the messages.
+	 */
+	private static final int LARGE_GROUP_VALUES = 2;
+	private static final String LARGE_GROUP_KEY = "type";
+	private static final String LARGE_GROUP_KEY_1 = "read";
+
 	/**
 	 * How many benchmark iterations to run in each block.
 	 */
@@ -114,6 +129,7 @@ public abstract class DatabasePerformanceTest extends BrambleTestCase {
 	private Map<GroupId, List<Metadata>> messageMeta;
 	private Map<ContactId, List<Group>> contactGroups;
 	private Map<GroupId, List<MessageId>> groupMessages;
+	private GroupId largeGroupId;
 
 	protected abstract String getTestName();
 
@@ -382,6 +398,44 @@ public abstract class DatabasePerformanceTest extends BrambleTestCase {
 		});
 	}
 
+	@Test
+	public void testGetMessageMetadataWithMatchingQuery() throws Exception {
+		String name = "getMessageMetadata(T, GroupId, Metadata) [match]";
+		benchmark(name, db -> {
+			Connection txn = db.startTransaction();
+			GroupId g = pickRandom(groups).getId();
+			db.getMessageMetadata(txn, g, pickRandom(messageMeta.get(g)));
+			db.commitTransaction(txn);
+		});
+	}
+
+	@Test
+	public void testGetMessageMetadataWithLargeGroupQuery() throws Exception {
+		String name = "getMessageMetadata(T, GroupId, Metadata) [large group]";
+		benchmark(name, db -> {
+			Connection txn = db.startTransaction();
+			Metadata query = new Metadata();
+			query.put(LARGE_GROUP_KEY, getLargeGroupValue());
+			db.getMessageMetadata(txn, largeGroupId, query);
+			db.commitTransaction(txn);
+		});
+	}
+
+	@Test
+	public void testGetMessageMetadataWithLargeGroupMultiTermQuery()
+			throws Exception {
+		String name = "getMessageMetadata(T, GroupId, Metadata)"
+				+ " [large group, two terms]";
+		benchmark(name, db -> {
+			Connection txn = db.startTransaction();
+			Metadata query = new Metadata();
+			query.put(LARGE_GROUP_KEY, getLargeGroupValue());
+			query.put(LARGE_GROUP_KEY_1, getLargeGroupValue());
+			db.getMessageMetadata(txn, largeGroupId, query);
+			db.commitTransaction(txn);
+		});
+	}
+
 	@Test
 	public void testGetMessageMetadataByMessageId() throws Exception {
 		String name = "getMessageMetadata(T, MessageId)";
@@ -616,6 +670,18 @@ public abstract class DatabasePerformanceTest extends BrambleTestCase {
 				groupMessages.get(g.getId()).add(m.getId());
 			}
 		}
+		// The large group isn't added to the lists used by other benchmarks
+		Group largeGroup = getGroup(clientIds.get(0), 123);
+		largeGroupId = largeGroup.getId();
+		db.addGroup(txn, largeGroup);
+		for (int i = 0; i < MESSAGES_PER_LARGE_GROUP; i++) {
+			Message m = getMessage(largeGroupId);
+			db.addMessage(txn, m, DELIVERED, false, false, null);
+			Metadata mm = getMetadata(METADATA_KEYS_PER_MESSAGE);
+			mm.put(LARGE_GROUP_KEY, getLargeGroupValue());
+			mm.put(LARGE_GROUP_KEY_1, getLargeGroupValue());
+			db.mergeMessageMetadata(txn, m.getId(), mm);
+		}
 		db.commitTransaction(txn);
 	}
 
@@ -633,6 +699,10 @@ public abstract class DatabasePerformanceTest extends BrambleTestCase {
 		return meta;
 	}
 
+	private byte[] getLargeGroupValue() {
+		return new byte[] {(byte) random.nextInt(LARGE_GROUP_VALUES)};
+	}
+
 	long measureOne(Database<Connection> db,
 			BenchmarkTask<Database<Connection>> task) throws Exception {
 		long start = System.nanoTime();
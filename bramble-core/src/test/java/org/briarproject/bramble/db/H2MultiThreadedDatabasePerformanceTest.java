@@ -0,0 +1,22 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.db.DatabaseConfig;
+import org.briarproject.bramble.api.sync.MessageFactory;
+import org.briarproject.bramble.api.system.Clock;
+import org.junit.Ignore;
+
+@Ignore
+public class H2MultiThreadedDatabasePerformanceTest
+		extends MultiThreadedDatabasePerformanceTest {
+
+	@Override
+	protected String getTestName() {
+		return getClass().getSimpleName();
+	}
+
+	@Override
+	JdbcDatabase createDatabase(DatabaseConfig config,
+			MessageFactory messageFactory, Clock clock) {
+		return new H2Database(config, messageFactory, clock);
+	}
+}
@@ -47,6 +47,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -548,6 +549,33 @@ public abstract class JdbcDatabaseTest extends BrambleTestCase {
 		db.close();
 	}
 
+	@Test
+	public void testStatementsAreCachedAndReset() throws Exception {
+		JdbcDatabase db = (JdbcDatabase) open(false);
+		Connection txn = db.startTransaction();
+
+		// Add a group
+		db.addGroup(txn, group);
+		assertTrue(db.containsGroup(txn, groupId));
+		long hits = db.getConnectionPoolStats().getStatementCacheHits();
+
+		// The statement should be reused with the new parameters
+		GroupId otherGroupId = new GroupId(getRandomId());
+		assertFalse(db.containsGroup(txn, otherGroupId));
+		assertEquals(hits + 1,
+				db.getConnectionPoolStats().getStatementCacheHits());
+		db.commitTransaction(txn);
+
+		// The statement should still be cached when the connection is
+		// reused for another transaction
+		txn = db.startTransaction();
+		assertTrue(db.containsGroup(txn, groupId));
+		assertEquals(hits + 2,
+				db.getConnectionPoolStats().getStatementCacheHits());
+		db.commitTransaction(txn);
+		db.close();
+	}
+
 	@Test
 	public void testContainsVisibleMessageRequiresMessageInDatabase()
 			throws Exception {
@@ -1250,6 +1278,90 @@ public abstract class JdbcDatabaseTest extends BrambleTestCase {
 		db.close();
 	}
 
+	@Test
+	public void testGroupCounters() throws Exception {
+		Database<Connection> db = open(false);
+		Connection txn = db.startTransaction();
+
+		// Add a group
+		db.addGroup(txn, group);
+
+		// The group should have no counters
+		assertTrue(db.getGroupCounters(txn, groupId).isEmpty());
+
+		// Store some counters for the group
+		Map<String, Long> counters = new HashMap<>();
+		counters.put("foo", 123L);
+		counters.put("bar", Long.MAX_VALUE);
+		db.mergeGroupCounters(txn, groupId, counters);
+		assertEquals(counters, db.getGroupCounters(txn, groupId));
+
+		// Update one counter and add another
+		Map<String, Long> merged = new HashMap<>();
+		merged.put("foo", -1L);
+		merged.put("baz", 0L);
+		db.mergeGroupCounters(txn, groupId, merged);
+		counters.putAll(merged);
+		assertEquals(counters, db.getGroupCounters(txn, groupId));
+
+		// Removing the group should remove its counters
+		db.removeGroup(txn, groupId);
+		db.addGroup(txn, group);
+		assertTrue(db.getGroupCounters(txn, groupId).isEmpty());
+
+		db.commitTransaction(txn);
+		db.close();
+	}
+
+	@Test
+	public void testReplaceMessageMetadata() throws Exception {
+		Message message1 = getMessage(groupId);
+		MessageId messageId1 = message1.getId();
+		Message message2 = getMessage(groupId);
+		MessageId messageId2 = message2.getId();
+		byte[] oldValue = {'o', 'l', 'd'}, newValue = {'n', 'e', 'w'};
+		byte[] otherValue = {'b', 'a', 'r'};
+
+		Database<Connection> db = open(false);
+		Connection txn = db.startTransaction();
+
+		// Add a group and three messages, one of which isn't delivered
+		db.addGroup(txn, group);
+		db.addMessage(txn, message, DELIVERED, true, false, null);
+		db.addMessage(txn, message1, DELIVERED, true, false, null);
+		db.addMessage(txn, message2, PENDING, true, false, null);
+
+		// The first and third messages have the old value
+		Metadata metadata = new Metadata();
+		metadata.put("foo", oldValue);
+		metadata.put("baz", oldValue);
+		db.mergeMessageMetadata(txn, messageId, metadata);
+		db.mergeMessageMetadata(txn, messageId2, metadata);
+		Metadata metadata1 = new Metadata();
+		metadata1.put("foo", otherValue);
+		db.mergeMessageMetadata(txn, messageId1, metadata1);
+
+		// Only the delivered message with the old value should be updated
+		Collection<MessageId> replaced =
+				db.replaceMessageMetadata(txn, groupId, "foo", oldValue,
+						newValue);
+		assertEquals(singletonList(messageId), replaced);
+		Metadata retrieved = db.getMessageMetadata(txn, messageId);
+		assertArrayEquals(newValue, retrieved.get("foo"));
+		assertArrayEquals(oldValue, retrieved.get("baz"));
+		retrieved = db.getMessageMetadata(txn, messageId1);
+		assertArrayEquals(otherValue, retrieved.get("foo"));
+		retrieved = db.getMessageMetadataForValidator(txn, messageId2);
+		assertArrayEquals(oldValue, retrieved.get("foo"));
+
+		// Replacing the value again should have no effect
+		assertTrue(db.replaceMessageMetadata(txn, groupId, "foo", oldValue,
+				newValue).isEmpty());
+
+		db.commitTransaction(txn);
+		db.close();
+	}
+
 	@Test
 	public void testMessageMetadata() throws Exception {
 		Database<Connection> db = open(false);
@@ -1547,6 +1659,105 @@ public abstract class JdbcDatabaseTest extends BrambleTestCase {
 		db.close();
 	}
 
+	@Test
+	public void testEmptyMetadataQueryIncludesMessagesWithoutMetadata()
+			throws Exception {
+		Message message1 = getMessage(groupId);
+		MessageId messageId1 = message1.getId();
+
+		Database<Connection> db = open(false);
+		Connection txn = db.startTransaction();
+
+		// Add a group and two messages, one of which has metadata
+		db.addGroup(txn, group);
+		db.addMessage(txn, message, DELIVERED, true, false, null);
+		db.addMessage(txn, message1, DELIVERED, true, false, null);
+		Metadata metadata = new Metadata();
+		metadata.put("foo", new byte[] {'b', 'a', 'r'});
+		db.mergeMessageMetadata(txn, messageId, metadata);
+
+		// An empty query should match both messages
+		Map<MessageId, Metadata> all =
+				db.getMessageMetadata(txn, groupId, new Metadata());
+		assertEquals(2, all.size());
+		assertMetadataEquals(metadata, all.get(messageId));
+		assertMetadataEquals(new Metadata(), all.get(messageId1));
+
+		// A non-empty query should only match the message with metadata
+		all = db.getMessageMetadata(txn, groupId, metadata);
+		assertEquals(1, all.size());
+		assertMetadataEquals(metadata, all.get(messageId));
+
+		db.commitTransaction(txn);
+		db.close();
+	}
+
+	@Test
+	public void testVisitMessageMetadata() throws Exception {
+		long now = System.currentTimeMillis();
+		Message message0 = getMessage(groupId, 123, now);
+		Message message1 = getMessage(groupId, 123, now + 1);
+		Message message2 = getMessage(groupId, 123, now + 2);
+		MessageId messageId1 = message1.getId();
+		MessageId messageId2 = message2.getId();
+
+		Database<Connection> db = open(false);
+		Connection txn = db.startTransaction();
+
+		// Add a group and three messages, two of which have metadata
+		db.addGroup(txn, group);
+		db.addMessage(txn, message0, DELIVERED, true, false, null);
+		db.addMessage(txn, message1, DELIVERED, true, false, null);
+		db.addMessage(txn, message2, DELIVERED, true, false, null);
+		Metadata metadata1 = new Metadata();
+		metadata1.put("foo", new byte[] {'b', 'a', 'r'});
+		metadata1.put("baz", new byte[] {'b', 'a', 'm'});
+		db.mergeMessageMetadata(txn, messageId1, metadata1);
+		Metadata metadata2 = new Metadata();
+		metadata2.put("foo", new byte[] {'b', 'a', 'r'});
+		db.mergeMessageMetadata(txn, messageId2, metadata2);
+
+		// An empty query should visit all messages, newest first
+		List<MessageId> ids = new ArrayList<>();
+		List<Metadata> visited = new ArrayList<>();
+		db.visitMessageMetadata(txn, groupId, new Metadata(), (m, meta) -> {
+			ids.add(m);
+			visited.add(meta);
+			return true;
+		});
+		assertEquals(3, ids.size());
+		assertEquals(messageId2, ids.get(0));
+		assertMetadataEquals(metadata2, visited.get(0));
+		assertEquals(messageId1, ids.get(1));
+		assertMetadataEquals(metadata1, visited.get(1));
+		assertEquals(message0.getId(), ids.get(2));
+		assertTrue(visited.get(2).isEmpty());
+
+		// Visiting should stop when the visitor returns false
+		ids.clear();
+		db.visitMessageMetadata(txn, groupId, new Metadata(), (m, meta) -> {
+			ids.add(m);
+			return false;
+		});
+		assertEquals(singletonList(messageId2), ids);
+
+		// A query should only visit matching messages
+		ids.clear();
+		visited.clear();
+		Metadata query = new Metadata();
+		query.put("baz", new byte[] {'b', 'a', 'm'});
+		db.visitMessageMetadata(txn, groupId, query, (m, meta) -> {
+			ids.add(m);
+			visited.add(meta);
+			return true;
+		});
+		assertEquals(singletonList(messageId1), ids);
+		assertMetadataEquals(metadata1, visited.get(0));
+
+		db.commitTransaction(txn);
+		db.close();
+	}
+
 	private void assertMetadataEquals(Metadata m1, Metadata m2) {
 		assertEquals(m1.keySet(), m2.keySet());
 		for (Entry<String, byte[]> e : m1.entrySet()) {
@@ -1928,6 +2139,13 @@ public abstract class JdbcDatabaseTest extends BrambleTestCase {
 		assertEquals(groupId, m.getGroupId());
 		assertEquals(message.getTimestamp(), m.getTimestamp());
 		assertArrayEquals(message.getBody(), m.getBody());
+		assertNull(m.getRawMessage());
+
+		// The message should be available for sending without being copied
+		m = db.getMessageToSend(txn, messageId);
+		assertEquals(messageId, m.getId());
+		assertArrayEquals(message.getBody(), m.getBody());
+		assertNotNull(m.getRawMessage());
 
 		// Delete the message
 		db.deleteMessage(txn, messageId);
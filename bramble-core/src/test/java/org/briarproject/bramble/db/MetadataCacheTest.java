@@ -0,0 +1,81 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.db.Metadata;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.junit.Test;
+
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MetadataCacheTest extends BrambleTestCase {
+
+	private final Metadata metadata = new Metadata();
+
+	public MetadataCacheTest() {
+		metadata.put("foo", getRandomBytes(123));
+	}
+
+	@Test
+	public void testCachedMetadataIsCopied() {
+		MetadataCache<String> cache = new MetadataCache<>(1024 * 1024);
+		cache.put("key", metadata);
+		byte[] value = metadata.get("foo");
+		byte[] original = value.clone();
+		// Modifying the metadata after caching it should not affect the cache
+		value[0]++;
+		Metadata cached = cache.get("key");
+		assertNotNull(cached);
+		assertArrayEquals(original, cached.get("foo"));
+		// Modifying the returned metadata should not affect the cache
+		cached.remove("foo");
+		cached = cache.get("key");
+		assertNotNull(cached);
+		assertArrayEquals(original, cached.get("foo"));
+		assertEquals(2, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+
+	@Test
+	public void testInvalidateAndClear() {
+		MetadataCache<String> cache = new MetadataCache<>(1024 * 1024);
+		cache.put("key", metadata);
+		cache.put("key1", metadata);
+		assertEquals(2, cache.getSize());
+		cache.invalidate("key");
+		assertNull(cache.get("key"));
+		assertNotNull(cache.get("key1"));
+		cache.clear();
+		assertNull(cache.get("key1"));
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getBytes());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedMetadataIsEvicted() {
+		MetadataCache<String> cache = new MetadataCache<>(1024);
+		cache.put("key", metadata);
+		long entryBytes = cache.getBytes();
+		int capacity = (int) (1024 / entryBytes);
+		for (int i = 1; i < capacity; i++) cache.put("key" + i, metadata);
+		assertEquals(capacity, cache.getSize());
+		// Touch the first entry so the second becomes least recently used
+		assertNotNull(cache.get("key"));
+		cache.put("key" + capacity, metadata);
+		assertEquals(capacity, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertNotNull(cache.get("key"));
+		assertNull(cache.get("key1"));
+		assertEquals(capacity * entryBytes, cache.getBytes());
+	}
+
+	@Test
+	public void testNothingIsCachedWhenDisabled() {
+		MetadataCache<String> cache = new MetadataCache<>(0);
+		cache.put("key", metadata);
+		assertNull(cache.get("key"));
+		assertEquals(0, cache.getSize());
+	}
+}
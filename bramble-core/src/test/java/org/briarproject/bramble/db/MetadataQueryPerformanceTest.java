@@ -0,0 +1,174 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.crypto.SecretKey;
+import org.briarproject.bramble.api.db.DatabaseConfig;
+import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.Metadata;
+import org.briarproject.bramble.api.sync.Group;
+import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.MessageFactory;
+import org.briarproject.bramble.api.system.Clock;
+import org.briarproject.bramble.system.SystemClock;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.briarproject.bramble.test.TestDatabaseConfig;
+import org.briarproject.bramble.test.TestMessageFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static java.util.Arrays.asList;
+import static java.util.logging.Level.OFF;
+import static org.briarproject.bramble.api.sync.validation.MessageState.DELIVERED;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getClientId;
+import static org.briarproject.bramble.test.TestUtils.getGroup;
+import static org.briarproject.bramble.test.TestUtils.getMean;
+import static org.briarproject.bramble.test.TestUtils.getMedian;
+import static org.briarproject.bramble.test.TestUtils.getMessage;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.briarproject.bramble.util.StringUtils.getRandomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the latency of looking up a message by metadata, as clients do
+ * when loading protocol sessions, for groups of increasing size. Each group
+ * size is measured with and without the index on
+ * (groupId, metaKey, value).
+ */
+public abstract class MetadataQueryPerformanceTest extends BrambleTestCase {
+
+	/**
+	 * The group sizes to compare.
+	 */
+	private static final List<Integer> GROUP_SIZES =
+			asList(100, 1000, 10_000, 30_000);
+
+	/**
+	 * How many lookups to measure for each group size.
+	 */
+	private static final int ITERATIONS = 1000;
+
+	/**
+	 * How many metadata keys each message has in addition to the session ID.
+	 */
+	private static final int OTHER_METADATA_KEYS = 4;
+	private static final int METADATA_KEY_LENGTH = 10;
+	private static final int METADATA_VALUE_LENGTH = 100;
+
+	private static final String SESSION_ID_KEY = "sessionId";
+	private static final int SESSION_ID_LENGTH = 32;
+
+	private final File testDir = getTestDirectory();
+	private final SecretKey databaseKey = getSecretKey();
+	private final Random random = new Random();
+
+	abstract JdbcDatabase createDatabase(DatabaseConfig databaseConfig,
+			MessageFactory messageFactory, Clock clock);
+
+	MetadataQueryPerformanceTest() {
+		// Disable logging
+		Logger.getLogger("").setLevel(OFF);
+	}
+
+	@Before
+	public void setUp() {
+		assertTrue(testDir.mkdirs());
+	}
+
+	@After
+	public void tearDown() {
+		deleteTestDirectory(testDir);
+	}
+
+	@Test
+	public void testLookupLatencyVersusGroupSize() throws Exception {
+		System.out.println("Messages\tIndexed mean (ns)\tIndexed median (ns)"
+				+ "\tUnindexed mean (ns)\tUnindexed median (ns)");
+		for (int size : GROUP_SIZES) {
+			deleteTestDirectory(testDir);
+			JdbcDatabase db = openDatabase();
+			Group g = getGroup(getClientId(), 123);
+			List<byte[]> sessionIds = populateGroup(db, g, size);
+			// Measure with the index, then drop it and measure again
+			List<Double> indexed = measure(db, g.getId(), sessionIds);
+			dropIndex(db);
+			List<Double> unindexed = measure(db, g.getId(), sessionIds);
+			db.close();
+			System.out.println(String.format("%,d\t%,d\t%,d\t%,d\t%,d", size,
+					(long) getMean(indexed), (long) getMedian(indexed),
+					(long) getMean(unindexed), (long) getMedian(unindexed)));
+		}
+	}
+
+	private JdbcDatabase openDatabase() throws DbException {
+		JdbcDatabase db = createDatabase(new TestDatabaseConfig(testDir),
+				new TestMessageFactory(), new SystemClock());
+		db.open(databaseKey, null);
+		return db;
+	}
+
+	private List<byte[]> populateGroup(JdbcDatabase db, Group g, int size)
+			throws DbException {
+		List<byte[]> sessionIds = new ArrayList<>(size);
+		Connection txn = db.startTransaction();
+		db.addGroup(txn, g);
+		for (int i = 0; i < size; i++) {
+			Message m = getMessage(g.getId());
+			db.addMessage(txn, m, DELIVERED, false, false, null);
+			Metadata meta = new Metadata();
+			for (int j = 0; j < OTHER_METADATA_KEYS; j++) {
+				meta.put(getRandomString(METADATA_KEY_LENGTH),
+						getRandomBytes(METADATA_VALUE_LENGTH));
+			}
+			byte[] sessionId = getRandomBytes(SESSION_ID_LENGTH);
+			meta.put(SESSION_ID_KEY, sessionId);
+			sessionIds.add(sessionId);
+			db.mergeMessageMetadata(txn, m.getId(), meta);
+		}
+		db.commitTransaction(txn);
+		return sessionIds;
+	}
+
+	private List<Double> measure(JdbcDatabase db, GroupId g,
+			List<byte[]> sessionIds) throws DbException {
+		// Warm up
+		for (int i = 0; i < ITERATIONS; i++) lookUp(db, g, sessionIds);
+		List<Double> durations = new ArrayList<>(ITERATIONS);
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			lookUp(db, g, sessionIds);
+			durations.add((double) (System.nanoTime() - start));
+		}
+		return durations;
+	}
+
+	private void lookUp(JdbcDatabase db, GroupId g, List<byte[]> sessionIds)
+			throws DbException {
+		Metadata query = new Metadata();
+		query.put(SESSION_ID_KEY,
+				sessionIds.get(random.nextInt(sessionIds.size())));
+		Connection txn = db.startTransaction();
+		assertEquals(1, db.getMessageIds(txn, g, query).size());
+		db.commitTransaction(txn);
+	}
+
+	private void dropIndex(JdbcDatabase db) throws Exception {
+		Connection txn = db.startTransaction();
+		Statement s = txn.createStatement();
+		s.execute("DROP INDEX messageMetadataByGroupIdMetaKeyValue");
+		s.close();
+		db.commitTransaction(txn);
+	}
+}
@@ -0,0 +1,123 @@
+package org.briarproject.bramble.db;
+
+import org.briarproject.bramble.api.crypto.SecretKey;
+import org.briarproject.bramble.api.db.DatabaseConfig;
+import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.sync.MessageFactory;
+import org.briarproject.bramble.api.system.Clock;
+import org.briarproject.bramble.system.SystemClock;
+import org.briarproject.bramble.test.TestDatabaseConfig;
+import org.briarproject.bramble.test.TestMessageFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+
+/**
+ * Measures the throughput of read-only transactions as the number of
+ * reader threads increases. Each reader thread has its own pooled
+ * connection.
+ */
+public abstract class MultiThreadedDatabasePerformanceTest
+		extends DatabasePerformanceTest {
+
+	/**
+	 * The numbers of reader threads to compare.
+	 */
+	private static final List<Integer> READER_THREADS = asList(1, 2, 4, 8);
+
+	/**
+	 * How many iterations of the task each reader thread should run.
+	 */
+	private static final int ITERATIONS_PER_THREAD = 1000;
+
+	private final SecretKey databaseKey = getSecretKey();
+
+	abstract JdbcDatabase createDatabase(DatabaseConfig databaseConfig,
+			MessageFactory messageFactory, Clock clock);
+
+	@Override
+	protected void benchmark(String name,
+			BenchmarkTask<Database<Connection>> task) throws Exception {
+		for (int threads : READER_THREADS) {
+			deleteTestDirectory(testDir);
+			JdbcDatabase db = openDatabase(threads);
+			populateDatabase(db);
+			db.close();
+			db = openDatabase(threads);
+			// Warm up with a single thread
+			for (int i = 0; i < ITERATIONS_PER_THREAD; i++) task.run(db);
+			ConnectionPoolStats before = db.getConnectionPoolStats();
+			long duration = measureConcurrent(db, task, threads);
+			ConnectionPoolStats after = db.getConnectionPoolStats();
+			db.close();
+			writeResult(name, threads, duration, before, after);
+		}
+	}
+
+	private JdbcDatabase openDatabase(int connectionPoolSize)
+			throws DbException {
+		JdbcDatabase db = createDatabase(
+				new TestDatabaseConfig(testDir, connectionPoolSize),
+				new TestMessageFactory(), new SystemClock());
+		db.open(databaseKey, null);
+		return db;
+	}
+
+	private long measureConcurrent(Database<Connection> db,
+			BenchmarkTask<Database<Connection>> task, int threads)
+			throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(threads);
+		AtomicReference<Exception> error = new AtomicReference<>();
+		List<Thread> readers = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			Thread reader = new Thread(() -> {
+				try {
+					start.await();
+					for (int j = 0; j < ITERATIONS_PER_THREAD; j++)
+						task.run(db);
+				} catch (Exception e) {
+					error.compareAndSet(null, e);
+				} finally {
+					finished.countDown();
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		finished.await();
+		long duration = System.nanoTime() - startTime;
+		for (Thread reader : readers) reader.join();
+		Exception e = error.get();
+		if (e != null) throw e;
+		return duration;
+	}
+
+	private void writeResult(String name, int threads, long duration,
+			ConnectionPoolStats before, ConnectionPoolStats after)
+			throws IOException {
+		long iterations = (long) threads * ITERATIONS_PER_THREAD;
+		long perSecond = iterations * 1_000_000_000L / Math.max(1, duration);
+		long transactions = Math.max(1,
+				after.getTransactions() - before.getTransactions());
+		long meanWait = (after.getTotalWaitNanos()
+				- before.getTotalWaitNanos()) / transactions;
+		long meanHold = (after.getTotalHoldNanos()
+				- before.getTotalHoldNanos()) / transactions;
+		long created = after.getConnectionsCreated()
+				- before.getConnectionsCreated();
+		String result = String.format("%s\t%d\t%,d\t%,d\t%,d\t%,d", name,
+				threads, perSecond, meanWait, meanHold, created);
+		writeResult(result);
+	}
+}
@@ -39,8 +39,17 @@ public abstract class SingleDatabasePerformanceTest
 		long firstDuration = measureOne(db, task);
 		// Measure blocks of iterations until we reach a steady state
 		SteadyStateResult result = measureSteadyState(db, task);
+		// Count how often prepared statements were reused
+		long hits = 0, misses = 0;
+		if (db instanceof JdbcDatabase) {
+			ConnectionPoolStats stats =
+					((JdbcDatabase) db).getConnectionPoolStats();
+			hits = stats.getStatementCacheHits();
+			misses = stats.getStatementCacheMisses();
+		}
 		db.close();
-		writeResult(name, result.blocks, firstDuration, result.durations);
+		writeResult(name, result.blocks, firstDuration, result.durations,
+				hits, misses);
 	}
 
 	private Database<Connection> openDatabase() throws DbException {
@@ -52,11 +61,13 @@ public abstract class SingleDatabasePerformanceTest
 	}
 
 	private void writeResult(String name, int blocks, long firstDuration,
-			List<Double> durations) throws IOException {
-		String result = String.format("%s\t%d\t%,d\t%,d\t%,d\t%,d", name,
-				blocks, firstDuration, (long) getMean(durations),
+			List<Double> durations, long statementCacheHits,
+			long statementCacheMisses) throws IOException {
+		String result = String.format("%s\t%d\t%,d\t%,d\t%,d\t%,d\t%,d\t%,d",
+				name, blocks, firstDuration, (long) getMean(durations),
 				(long) getMedian(durations),
-				(long) getStandardDeviation(durations));
+				(long) getStandardDeviation(durations), statementCacheHits,
+				statementCacheMisses);
 		writeResult(result);
 	}
 }
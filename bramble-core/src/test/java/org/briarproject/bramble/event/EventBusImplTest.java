@@ -0,0 +1,147 @@
+package org.briarproject.bramble.event;
+
+import org.briarproject.bramble.api.event.Event;
+import org.briarproject.bramble.api.event.EventListener;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.briarproject.bramble.test.ImmediateExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+
+public class EventBusImplTest extends BrambleTestCase {
+
+	private final EventBusImpl eventBus =
+			new EventBusImpl(new ImmediateExecutor());
+	private final List<Runnable> tasks = new ArrayList<>();
+	private final Executor queueingExecutor = tasks::add;
+
+	@Test
+	public void testListenersAreNotifiedOfSubscribedClasses() {
+		List<Event> all = new ArrayList<>();
+		List<Event> foos = new ArrayList<>();
+		List<Event> bars = new ArrayList<>();
+		eventBus.addListener(all::add);
+		eventBus.addListener(FooEvent.class, foos::add);
+		eventBus.addListener(BarEvent.class, bars::add);
+
+		Event foo = new FooEvent(), subFoo = new SubFooEvent();
+		Event bar = new BarEvent();
+		eventBus.broadcast(foo);
+		eventBus.broadcast(bar);
+		eventBus.broadcast(subFoo);
+
+		assertEquals(asList(foo, bar, subFoo), all);
+		assertEquals(asList(foo, subFoo), foos);
+		assertEquals(singletonList(bar), bars);
+	}
+
+	@Test
+	public void testListenerWithExecutorIsNotifiedInOrder() {
+		List<Event> queued = new ArrayList<>();
+		List<Event> immediate = new ArrayList<>();
+		EventListener queuedListener = queued::add;
+		eventBus.addListener(FooEvent.class, queuedListener, queueingExecutor);
+		eventBus.addListener(FooEvent.class, immediate::add);
+
+		Event foo = new FooEvent(), foo1 = new FooEvent();
+		Event foo2 = new FooEvent();
+		eventBus.broadcast(foo);
+		eventBus.broadcast(foo1);
+		eventBus.broadcast(foo2);
+
+		// The other listener should not be delayed by the queued listener
+		assertEquals(asList(foo, foo1, foo2), immediate);
+		assertEquals(0, queued.size());
+		// A single task should drain the queue
+		assertEquals(1, tasks.size());
+		assertEquals(3, eventBus.getQueuedEvents(queuedListener));
+
+		tasks.remove(0).run();
+		assertEquals(asList(foo, foo1, foo2), queued);
+		assertEquals(0, eventBus.getQueuedEvents(queuedListener));
+		assertEquals(3, eventBus.getHandledEvents(queuedListener));
+
+		// Broadcasting another event should start another task
+		Event foo3 = new FooEvent();
+		eventBus.broadcast(foo3);
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(asList(foo, foo1, foo2, foo3), queued);
+	}
+
+	@Test
+	public void testQueuedEventsAreDiscardedWhenListenerIsRemoved() {
+		List<Event> queued = new ArrayList<>();
+		EventListener queuedListener = queued::add;
+		eventBus.addListener(FooEvent.class, queuedListener, queueingExecutor);
+
+		eventBus.broadcast(new FooEvent());
+		eventBus.removeListener(queuedListener);
+		eventBus.broadcast(new FooEvent());
+
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(0, queued.size());
+		assertEquals(0, eventBus.getHandledEvents(queuedListener));
+	}
+
+	@Test
+	public void testListenerWithSeveralClassesHasOneQueue() {
+		List<Event> queued = new ArrayList<>();
+		EventListener queuedListener = queued::add;
+		eventBus.addListener(FooEvent.class, queuedListener, queueingExecutor);
+		eventBus.addListener(SubFooEvent.class, queuedListener,
+				queueingExecutor);
+		eventBus.addListener(BarEvent.class, queuedListener, queueingExecutor);
+
+		Event foo = new FooEvent(), subFoo = new SubFooEvent();
+		Event bar = new BarEvent();
+		eventBus.broadcast(subFoo);
+		eventBus.broadcast(bar);
+		eventBus.broadcast(foo);
+
+		// A single task should drain the queue, and the event that matches
+		// two of the classes should only be queued once
+		assertEquals(1, tasks.size());
+		assertEquals(3, eventBus.getQueuedEvents(queuedListener));
+		tasks.remove(0).run();
+		assertEquals(asList(subFoo, bar, foo), queued);
+	}
+
+	@Test
+	public void testListenerIsNotifiedOnceWhenAddedForAllEventsAndClass() {
+		List<Event> events = new ArrayList<>();
+		EventListener listener = events::add;
+		eventBus.addListener(FooEvent.class, listener);
+		eventBus.addListener(listener);
+
+		Event foo = new FooEvent(), bar = new BarEvent();
+		eventBus.broadcast(foo);
+		eventBus.broadcast(bar);
+
+		assertEquals(asList(foo, bar), events);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testListenerCannotBeAddedWithDifferentExecutor() {
+		EventListener listener = e -> {
+		};
+		eventBus.addListener(FooEvent.class, listener, queueingExecutor);
+		eventBus.addListener(BarEvent.class, listener);
+	}
+
+	private static class FooEvent extends Event {
+	}
+
+	private static class SubFooEvent extends FooEvent {
+	}
+
+	private static class BarEvent extends Event {
+	}
+}
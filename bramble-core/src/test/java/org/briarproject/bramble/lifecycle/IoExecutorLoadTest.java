@@ -0,0 +1,169 @@
+package org.briarproject.bramble.lifecycle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.logging.Level.WARNING;
+import static java.util.logging.Logger.getLogger;
+import static org.briarproject.bramble.lifecycle.LifecycleModule.createIoExecutor;
+import static org.briarproject.bramble.lifecycle.LifecycleModule.getVirtualThreadFactory;
+import static org.briarproject.bramble.util.IoUtils.tryToClose;
+
+/**
+ * Opens many concurrent connections over the loopback interface and runs
+ * them on the IO executor in the same way as duplex sync connections, with
+ * one task reading and one task writing at each end of each connection.
+ * Reports the peak number of platform threads, the peak heap usage and the
+ * throughput, first with platform threads and then with virtual threads if
+ * the JVM supports them.
+ */
+// Not a JUnit test
+public class IoExecutorLoadTest {
+
+	private static final Logger LOG =
+			getLogger(IoExecutorLoadTest.class.getName());
+
+	private static final int CONNECTIONS = 500;
+	private static final int CHUNKS = 200;
+	private static final int CHUNK_LENGTH = 1024;
+	private static final int SAMPLE_INTERVAL_MS = 10;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("Platform threads:");
+		runTest(Executors.defaultThreadFactory());
+		ThreadFactory virtualThreadFactory = getVirtualThreadFactory();
+		if (virtualThreadFactory == null) {
+			System.out.println("Virtual threads are not supported");
+		} else {
+			System.out.println("Virtual threads:");
+			runTest(virtualThreadFactory);
+		}
+	}
+
+	private static void runTest(ThreadFactory threadFactory)
+			throws Exception {
+		System.gc();
+		ExecutorService ioExecutor = createIoExecutor(threadFactory);
+		ServerSocket ss = new ServerSocket();
+		ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				CONNECTIONS);
+		List<Socket> sockets = new ArrayList<>();
+		Sampler sampler = new Sampler();
+		Thread samplerThread = new Thread(sampler);
+		samplerThread.setDaemon(true);
+		samplerThread.start();
+		AtomicLong bytesRead = new AtomicLong();
+		// The writers wait until all the connections are open
+		CountDownLatch startLatch = new CountDownLatch(1);
+		// Each end of each connection has a reader and a writer
+		CountDownLatch latch = new CountDownLatch(CONNECTIONS * 4);
+		long start;
+		try {
+			for (int i = 0; i < CONNECTIONS; i++) {
+				Socket client = new Socket();
+				client.connect(ss.getLocalSocketAddress());
+				Socket server = ss.accept();
+				sockets.add(client);
+				sockets.add(server);
+				for (Socket s : new Socket[] {client, server}) {
+					ioExecutor.execute(() -> write(s, startLatch, latch));
+					ioExecutor.execute(() -> read(s, bytesRead, latch));
+				}
+			}
+			start = System.nanoTime();
+			startLatch.countDown();
+			latch.await();
+		} finally {
+			for (Socket s : sockets) tryToClose(s, LOG, WARNING);
+			tryToClose(ss, LOG, WARNING);
+			ioExecutor.shutdown();
+			ioExecutor.awaitTermination(60, SECONDS);
+		}
+		long duration = System.nanoTime() - start;
+		sampler.stop();
+		System.out.println(String.format("%,d connections,"
+						+ " peak %,d platform threads, peak heap %,d MiB,"
+						+ " %,.1f MB/s", CONNECTIONS,
+				sampler.peakThreads.get(),
+				sampler.peakHeapBytes.get() / 1024 / 1024,
+				bytesRead.get() * 1000.0 / duration));
+	}
+
+	private static void write(Socket s, CountDownLatch startLatch,
+			CountDownLatch latch) {
+		try {
+			startLatch.await();
+			OutputStream out = s.getOutputStream();
+			byte[] chunk = new byte[CHUNK_LENGTH];
+			for (int i = 0; i < CHUNKS; i++) out.write(chunk);
+			out.flush();
+			s.shutdownOutput();
+		} catch (IOException | InterruptedException e) {
+			throw new AssertionError(e);
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	private static void read(Socket s, AtomicLong bytesRead,
+			CountDownLatch latch) {
+		try {
+			InputStream in = s.getInputStream();
+			byte[] buf = new byte[CHUNK_LENGTH];
+			int read;
+			while ((read = in.read(buf)) != -1) bytesRead.addAndGet(read);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	private static class Sampler implements Runnable {
+
+		private final ThreadMXBean threads =
+				ManagementFactory.getThreadMXBean();
+		private final AtomicLong peakThreads = new AtomicLong();
+		private final AtomicLong peakHeapBytes = new AtomicLong();
+		private volatile boolean stopped = false;
+
+		@Override
+		public void run() {
+			Runtime runtime = Runtime.getRuntime();
+			while (!stopped) {
+				updateMax(peakThreads, threads.getThreadCount());
+				updateMax(peakHeapBytes,
+						runtime.totalMemory() - runtime.freeMemory());
+				try {
+					Thread.sleep(SAMPLE_INTERVAL_MS);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		private void stop() {
+			stopped = true;
+		}
+
+		private static void updateMax(AtomicLong max, long value) {
+			if (value > max.get()) max.set(value);
+		}
+	}
+}
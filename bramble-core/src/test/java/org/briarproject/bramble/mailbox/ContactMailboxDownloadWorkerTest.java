@@ -1,13 +1,23 @@
 package org.briarproject.bramble.mailbox;
 
+import org.briarproject.bramble.api.mailbox.MailboxFileId;
+import org.briarproject.bramble.api.mailbox.MailboxFolderId;
+import org.briarproject.bramble.mailbox.MailboxApi.DownloadHandler;
+import org.briarproject.bramble.mailbox.MailboxApi.MailboxFile;
+import org.jmock.Expectations;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.briarproject.bramble.api.mailbox.MailboxConstants.CLIENT_SUPPORTS;
 import static org.briarproject.bramble.test.TestUtils.getMailboxProperties;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ContactMailboxDownloadWorkerTest
 		extends MailboxDownloadWorkerTest<ContactMailboxDownloadWorker> {
@@ -16,7 +26,7 @@ public class ContactMailboxDownloadWorkerTest
 		mailboxProperties = getMailboxProperties(false, CLIENT_SUPPORTS);
 		worker = new ContactMailboxDownloadWorker(connectivityChecker,
 				torReachabilityMonitor, mailboxApiCaller, mailboxApi,
-				mailboxFileManager, mailboxProperties);
+				mailboxFileManager, mailboxProperties, 1, false);
 	}
 
 	@Test
@@ -83,26 +93,26 @@ public class ContactMailboxDownloadWorkerTest
 		// it should start a download task for the first file
 		AtomicReference<ApiCall> downloadTask = new AtomicReference<>();
 		expectCheckForFiles(mailboxProperties.getInboxId(), files);
-		expectStartTask(downloadTask);
+		expectStartTransferTask(downloadTask);
 		assertFalse(listTask.get().callApi());
 
 		// When the first download task runs it should download the file to the
 		// location provided by the file manager and start a delete task
 		AtomicReference<ApiCall> deleteTask = new AtomicReference<>();
 		expectDownloadFile(mailboxProperties.getInboxId(), file1);
-		expectStartTask(deleteTask);
+		expectStartTransferTask(deleteTask);
 		assertFalse(downloadTask.get().callApi());
 
 		// When the first delete task runs it should delete the file, ignore
 		// the tolerable failure, and start a download task for the next file
 		expectDeleteFile(mailboxProperties.getInboxId(), file1, true);
-		expectStartTask(downloadTask);
+		expectStartTransferTask(downloadTask);
 		assertFalse(deleteTask.get().callApi());
 
 		// When the second download task runs it should download the file to
 		// the location provided by the file manager and start a delete task
 		expectDownloadFile(mailboxProperties.getInboxId(), file2);
-		expectStartTask(deleteTask);
+		expectStartTransferTask(deleteTask);
 		assertFalse(downloadTask.get().callApi());
 
 		// When the second delete task runs it should delete the file and
@@ -133,4 +143,144 @@ public class ContactMailboxDownloadWorkerTest
 		expectRemoveObservers();
 		worker.destroy();
 	}
+
+	@Test
+	public void testDownloadsFilesConcurrently() throws Exception {
+		// Create a worker that downloads up to two files concurrently
+		worker = new ContactMailboxDownloadWorker(connectivityChecker,
+				torReachabilityMonitor, mailboxApiCaller, mailboxApi,
+				mailboxFileManager, mailboxProperties, 2, false);
+		MailboxFolderId inboxId = mailboxProperties.getInboxId();
+		MailboxFile file3 = new MailboxFile(new MailboxFileId(getRandomId()),
+				System.currentTimeMillis());
+		List<MailboxFile> threeFiles = asList(file1, file2, file3);
+
+		// When the worker is started it should start a connectivity check
+		expectStartConnectivityCheck();
+		worker.start();
+
+		// When the connectivity check succeeds, a list-inbox task should be
+		// started for the first download cycle
+		AtomicReference<ApiCall> listTask = new AtomicReference<>();
+		expectStartTask(listTask);
+		worker.onConnectivityCheckSucceeded();
+
+		// When the list-inbox task runs and finds three files to download,
+		// it should start download tasks for the first two files
+		AtomicReference<ApiCall> downloadTask1 = new AtomicReference<>();
+		AtomicReference<ApiCall> downloadTask2 = new AtomicReference<>();
+		expectCheckForFiles(inboxId, threeFiles);
+		expectStartTransferTask(downloadTask1);
+		expectStartTransferTask(downloadTask2);
+		assertFalse(listTask.get().callApi());
+
+		// When the download tasks run they should download the files and
+		// start delete tasks
+		AtomicReference<ApiCall> deleteTask1 = new AtomicReference<>();
+		AtomicReference<ApiCall> deleteTask2 = new AtomicReference<>();
+		expectDownloadFile(inboxId, file1);
+		expectStartTransferTask(deleteTask1);
+		assertFalse(downloadTask1.get().callApi());
+		expectDownloadFile(inboxId, file2);
+		expectStartTransferTask(deleteTask2);
+		assertFalse(downloadTask2.get().callApi());
+
+		// When the second delete task runs it should delete the file and
+		// start a download task for the third file
+		AtomicReference<ApiCall> downloadTask3 = new AtomicReference<>();
+		expectDeleteFile(inboxId, file2, false);
+		expectStartTransferTask(downloadTask3);
+		assertFalse(deleteTask2.get().callApi());
+
+		// When the first delete task runs it should delete the file. The
+		// queue is empty but the third file hasn't been downloaded, so no
+		// more tasks should be started
+		expectDeleteFile(inboxId, file1, false);
+		assertFalse(deleteTask1.get().callApi());
+
+		// When the third download task runs it should download the file and
+		// start a delete task
+		AtomicReference<ApiCall> deleteTask3 = new AtomicReference<>();
+		expectDownloadFile(inboxId, file3);
+		expectStartTransferTask(deleteTask3);
+		assertFalse(downloadTask3.get().callApi());
+
+		// When the third delete task runs it should delete the file and
+		// start a list-inbox task, as all the files have been handled
+		expectDeleteFile(inboxId, file3, false);
+		expectStartTask(listTask);
+		assertFalse(deleteTask3.get().callApi());
+
+		// When the list-inbox task runs and finds no more files to download,
+		// it should add a Tor reachability observer
+		expectCheckForFiles(inboxId, emptyList());
+		expectAddReachabilityObserver();
+		assertFalse(listTask.get().callApi());
+
+		// When the worker is destroyed it should remove the connectivity
+		// and reachability observers
+		expectRemoveObservers();
+		worker.destroy();
+	}
+
+	@Test
+	public void testDownloadsFilesAsStreamsIfStreamingIsEnabled()
+			throws Exception {
+		// Create a worker that reads files as they're downloaded
+		worker = new ContactMailboxDownloadWorker(connectivityChecker,
+				torReachabilityMonitor, mailboxApiCaller, mailboxApi,
+				mailboxFileManager, mailboxProperties, 1, true);
+		MailboxFolderId inboxId = mailboxProperties.getInboxId();
+
+		// When the worker is started it should start a connectivity check
+		expectStartConnectivityCheck();
+		worker.start();
+
+		// When the connectivity check succeeds, a list-inbox task should be
+		// started for the first download cycle
+		AtomicReference<ApiCall> listTask = new AtomicReference<>();
+		expectStartTask(listTask);
+		worker.onConnectivityCheckSucceeded();
+
+		// When the list-inbox task runs and finds a file to download, it
+		// should start a download task
+		AtomicReference<ApiCall> downloadTask = new AtomicReference<>();
+		expectCheckForFiles(inboxId, asList(file1));
+		expectStartTransferTask(downloadTask);
+		assertFalse(listTask.get().callApi());
+
+		// When the download task runs and the stream fails before the file
+		// has been handled, the file should not be deleted and the task
+		// should be retried
+		context.checking(new Expectations() {{
+			oneOf(mailboxApi).getFile(with(mailboxProperties), with(inboxId),
+					with(file1.name), with(any(DownloadHandler.class)));
+			will(throwException(new IOException()));
+		}});
+		assertTrue(downloadTask.get().callApi());
+
+		// When the download task runs again it should pass the stream to
+		// the file manager and start a delete task
+		AtomicReference<ApiCall> deleteTask = new AtomicReference<>();
+		expectDownloadFileAsStream(inboxId, file1);
+		expectStartTransferTask(deleteTask);
+		assertFalse(downloadTask.get().callApi());
+
+		// When the delete task runs it should delete the file and start a
+		// list-inbox task
+		expectDeleteFile(inboxId, file1, false);
+		expectStartTask(listTask);
+		assertFalse(deleteTask.get().callApi());
+
+		// When the list-inbox task runs and finds no more files to download,
+		// it should add a Tor reachability observer
+		expectCheckForFiles(inboxId, emptyList());
+		expectAddReachabilityObserver();
+		assertFalse(listTask.get().callApi());
+
+		// When the worker is destroyed it should remove the connectivity
+		// and reachability observers
+		expectRemoveObservers();
+		worker.destroy();
+	}
 }
@@ -14,6 +14,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.briarproject.bramble.mailbox.MailboxApiCaller.MAX_CONCURRENT_TRANSFERS;
 import static org.briarproject.bramble.mailbox.MailboxApiCaller.MAX_RETRY_INTERVAL_MS;
 import static org.briarproject.bramble.mailbox.MailboxApiCaller.MIN_RETRY_INTERVAL_MS;
 
@@ -133,4 +134,58 @@ public class MailboxApiCallerImplTest extends BrambleMockTestCase {
 			runnable.get().run();
 		}
 	}
+
+	@Test
+	public void testLimitsNumberOfConcurrentTransfers() {
+		// The first MAX_CONCURRENT_TRANSFERS calls to
+		// retryTransferWithBackoff() should schedule the first try immediately
+		List<AtomicReference<Runnable>> runnables = new ArrayList<>();
+		for (int i = 0; i < MAX_CONCURRENT_TRANSFERS; i++) {
+			AtomicReference<Runnable> runnable = new AtomicReference<>(null);
+			runnables.add(runnable);
+			context.checking(new Expectations() {{
+				oneOf(ioExecutor).execute(with(any(Runnable.class)));
+				will(new CaptureArgumentAction<>(runnable, Runnable.class, 0));
+			}});
+
+			caller.retryTransferWithBackoff(apiCall);
+		}
+
+		// Further calls should be queued
+		Cancellable queued = caller.retryTransferWithBackoff(apiCall);
+		caller.retryTransferWithBackoff(apiCall);
+
+		queued.cancel();
+
+		// When the first transfer runs, the API call should be called. The
+		// call returns false, so no retries should be scheduled, and the
+		// first queued call should be submitted to the executor
+		AtomicReference<Runnable> next = new AtomicReference<>(null);
+		context.checking(new Expectations() {{
+			oneOf(apiCall).callApi();
+			will(returnValue(false));
+			oneOf(ioExecutor).execute(with(any(Runnable.class)));
+			will(new CaptureArgumentAction<>(next, Runnable.class, 0));
+		}});
+
+		runnables.get(0).get().run();
+
+		// The first queued call was cancelled before it started, so when it
+		// runs the API call should not be called, and the second queued call
+		// should be submitted to the executor
+		context.checking(new Expectations() {{
+			oneOf(ioExecutor).execute(with(any(Runnable.class)));
+			will(new CaptureArgumentAction<>(next, Runnable.class, 0));
+		}});
+
+		next.get().run();
+
+		// When the second queued call runs, the API call should be called
+		context.checking(new Expectations() {{
+			oneOf(apiCall).callApi();
+			will(returnValue(false));
+		}});
+
+		next.get().run();
+	}
 }
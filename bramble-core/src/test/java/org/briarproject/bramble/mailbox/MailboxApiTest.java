@@ -19,6 +19,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,6 +32,7 @@ import okhttp3.mockwebserver.RecordedRequest;
 import okio.Buffer;
 
 import static java.util.Collections.singletonList;
+import static org.briarproject.bramble.util.IoUtils.copyAndClose;
 import static org.briarproject.bramble.api.mailbox.MailboxConstants.CLIENT_SUPPORTS;
 import static org.briarproject.bramble.mailbox.MailboxTestUtils.createHttpClientProvider;
 import static org.briarproject.bramble.test.TestUtils.getContactId;
@@ -47,6 +49,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MailboxApiTest extends BrambleTestCase {
 
@@ -589,6 +592,36 @@ public class MailboxApiTest extends BrambleTestCase {
 		assertToken(request3, token);
 	}
 
+	@Test
+	public void testAddFileFromStream() throws Exception {
+		byte[] bytes = getRandomBytes(1337);
+
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse());
+		server.enqueue(new MockResponse().setResponseCode(500));
+		server.start();
+		String baseUrl = getBaseUrl(server);
+		MailboxProperties properties =
+				new MailboxProperties(baseUrl, token, new ArrayList<>());
+
+		// file gets written and uploaded as expected
+		api.addFile(properties, contactInboxId, out -> out.write(bytes));
+		RecordedRequest request1 = server.takeRequest();
+		assertEquals("/files/" + contactInboxId, request1.getPath());
+		assertEquals("POST", request1.getMethod());
+		assertToken(request1, token);
+		assertArrayEquals(bytes, request1.getBody().readByteArray());
+
+		// server error
+		assertThrows(ApiException.class, () ->
+				api.addFile(properties, contactInboxId,
+						out -> out.write(bytes)));
+		RecordedRequest request2 = server.takeRequest();
+		assertEquals("/files/" + contactInboxId, request2.getPath());
+		assertEquals("POST", request2.getMethod());
+		assertToken(request2, token);
+	}
+
 	@Test
 	public void testGetFiles() throws Exception {
 		MailboxFile mailboxFile1 =
@@ -758,6 +791,48 @@ public class MailboxApiTest extends BrambleTestCase {
 		assertEquals(0, readBytes(file3).length);
 	}
 
+	@Test
+	public void testGetFileAsStream() throws Exception {
+		MailboxFileId name = new MailboxFileId(getRandomId());
+		byte[] bytes = getRandomBytes(1337);
+
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody(new Buffer().write(bytes)));
+		server.enqueue(new MockResponse().setResponseCode(404));
+		server.enqueue(new MockResponse().setResponseCode(500));
+		server.start();
+		String baseUrl = getBaseUrl(server);
+		MailboxProperties properties =
+				new MailboxProperties(baseUrl, token, new ArrayList<>());
+
+		// file gets downloaded and passed to the handler as expected
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		api.getFile(properties, contactOutboxId, name,
+				in -> copyAndClose(in, received));
+		RecordedRequest request1 = server.takeRequest();
+		assertEquals("/files/" + contactOutboxId + "/" + name,
+				request1.getPath());
+		assertEquals("GET", request1.getMethod());
+		assertToken(request1, token);
+		assertArrayEquals(bytes, received.toByteArray());
+
+		// file not found, handler is not called
+		assertThrows(TolerableFailureException.class, () ->
+				api.getFile(properties, contactOutboxId, name,
+						in -> fail()));
+		RecordedRequest request2 = server.takeRequest();
+		assertEquals("/files/" + contactOutboxId + "/" + name,
+				request2.getPath());
+
+		// server error, handler is not called
+		assertThrows(ApiException.class, () ->
+				api.getFile(properties, contactOutboxId, name,
+						in -> fail()));
+		RecordedRequest request3 = server.takeRequest();
+		assertEquals("/files/" + contactOutboxId + "/" + name,
+				request3.getPath());
+	}
+
 	@Test
 	public void testDeleteFile() throws Exception {
 		MailboxFileId name = new MailboxFileId(getRandomId());
@@ -4,6 +4,7 @@ import org.briarproject.bramble.api.Cancellable;
 import org.briarproject.bramble.api.mailbox.MailboxFileId;
 import org.briarproject.bramble.api.mailbox.MailboxFolderId;
 import org.briarproject.bramble.api.mailbox.MailboxProperties;
+import org.briarproject.bramble.mailbox.MailboxApi.DownloadHandler;
 import org.briarproject.bramble.mailbox.MailboxApi.MailboxFile;
 import org.briarproject.bramble.mailbox.MailboxApi.TolerableFailureException;
 import org.briarproject.bramble.test.BrambleMockTestCase;
@@ -76,6 +77,17 @@ abstract class MailboxDownloadWorkerTest<W extends MailboxDownloadWorker>
 		}});
 	}
 
+	void expectStartTransferTask(AtomicReference<ApiCall> task) {
+		context.checking(new Expectations() {{
+			oneOf(mailboxApiCaller).retryTransferWithBackoff(
+					with(any(ApiCall.class)));
+			will(new DoAllAction(
+					new CaptureArgumentAction<>(task, ApiCall.class, 0),
+					returnValue(apiCall)
+			));
+		}});
+	}
+
 	void expectCheckForFoldersWithAvailableFiles(
 			List<MailboxFolderId> folderIds) throws Exception {
 		context.checking(new Expectations() {{
@@ -104,6 +116,14 @@ abstract class MailboxDownloadWorkerTest<W extends MailboxDownloadWorker>
 		}});
 	}
 
+	void expectDownloadFileAsStream(MailboxFolderId folderId,
+			MailboxFile file) throws Exception {
+		context.checking(new Expectations() {{
+			oneOf(mailboxApi).getFile(with(mailboxProperties), with(folderId),
+					with(file.name), with(any(DownloadHandler.class)));
+		}});
+	}
+
 	void expectDeleteFile(MailboxFolderId folderId, MailboxFile file,
 			boolean tolerableFailure) throws Exception {
 		context.checking(new Expectations() {{
@@ -23,8 +23,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -36,7 +39,9 @@ import static org.briarproject.bramble.mailbox.MailboxFileManagerImpl.DOWNLOAD_D
 import static org.briarproject.bramble.mailbox.MailboxFileManagerImpl.UPLOAD_DIR_NAME;
 import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
 import static org.briarproject.bramble.test.TestUtils.getContactId;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
 import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -248,6 +253,140 @@ public class MailboxFileManagerImplTest extends BrambleMockTestCase {
 		assertTrue(f.exists());
 	}
 
+	@Test
+	public void testWritesStreamForUploadIfSessionSucceeds()
+			throws Exception {
+		OutgoingSessionRecord sessionRecord = new OutgoingSessionRecord();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] data = getRandomBytes(123);
+
+		context.checking(new Expectations() {{
+			oneOf(connectionManager).manageOutgoingConnection(with(contactId),
+					with(ID), with(any(TransportConnectionWriter.class)),
+					with(sessionRecord));
+			// The session writes some data and succeeds. We need to use an
+			// action for this, as writeStreamForUpload() waits for it to
+			// happen before returning
+			will(new ConsumeArgumentAction<>(TransportConnectionWriter.class, 2,
+					writer -> {
+						try {
+							writer.getOutputStream().write(data);
+							writer.getOutputStream().close();
+							writer.dispose(false);
+						} catch (IOException e) {
+							fail();
+						}
+					}
+			));
+		}});
+
+		manager.writeStreamForUpload(contactId, sessionRecord, out);
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test(expected = IOException.class)
+	public void testThrowsExceptionIfStreamSessionFailsWithException()
+			throws Exception {
+		OutgoingSessionRecord sessionRecord = new OutgoingSessionRecord();
+
+		context.checking(new Expectations() {{
+			oneOf(connectionManager).manageOutgoingConnection(with(contactId),
+					with(ID), with(any(TransportConnectionWriter.class)),
+					with(sessionRecord));
+			// The session fails with an exception
+			will(new ConsumeArgumentAction<>(TransportConnectionWriter.class, 2,
+					writer -> {
+						try {
+							writer.dispose(true);
+						} catch (IOException e) {
+							fail();
+						}
+					}
+			));
+		}});
+
+		manager.writeStreamForUpload(contactId, sessionRecord,
+				new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void testHandlesDownloadStreamIfReadSucceeds() throws Exception {
+		byte[] data = getRandomBytes(123);
+		AtomicReference<TagController> controller = new AtomicReference<>(null);
+
+		context.checking(new Expectations() {{
+			oneOf(connectionManager).manageIncomingConnection(with(ID),
+					with(any(TransportConnectionReader.class)),
+					with(any(TagController.class)));
+			// The session reads the data and succeeds. We need to use an
+			// action for this, as handleDownloadStream() waits for it to
+			// happen before returning
+			will(new DoAllAction(
+					new CaptureArgumentAction<>(controller,
+							TagController.class, 2),
+					new ConsumeArgumentAction<>(
+							TransportConnectionReader.class, 1, reader -> {
+						try {
+							InputStream in = reader.getInputStream();
+							byte[] read = new byte[data.length];
+							assertEquals(data.length, in.read(read));
+							assertArrayEquals(data, read);
+							// The tag should be marked as recognised
+							assertTrue(controller.get()
+									.shouldMarkTagAsRecognised(false));
+							reader.dispose(false, true);
+						} catch (IOException e) {
+							fail();
+						}
+					})
+			));
+		}});
+
+		manager.handleDownloadStream(new ByteArrayInputStream(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testThrowsExceptionIfDownloadStreamFails() throws Exception {
+		AtomicReference<TagController> controller = new AtomicReference<>(null);
+		InputStream failingStream = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException();
+			}
+		};
+
+		context.checking(new Expectations() {{
+			oneOf(connectionManager).manageIncomingConnection(with(ID),
+					with(any(TransportConnectionReader.class)),
+					with(any(TagController.class)));
+			// The stream fails while the session is reading it
+			will(new DoAllAction(
+					new CaptureArgumentAction<>(controller,
+							TagController.class, 2),
+					new ConsumeArgumentAction<>(
+							TransportConnectionReader.class, 1, reader -> {
+						try {
+							reader.getInputStream().read();
+							fail();
+						} catch (IOException expected) {
+							// The tag should not be marked as recognised, so
+							// it can be recognised when the file is
+							// downloaded again
+							assertFalse(controller.get()
+									.shouldMarkTagAsRecognised(true));
+							try {
+								reader.dispose(true, false);
+							} catch (IOException e) {
+								fail();
+							}
+						}
+					})
+			));
+		}});
+
+		manager.handleDownloadStream(failingStream);
+	}
+
 	private void testDeletesDownloadedFile(boolean recognised,
 			LifecycleState state, boolean fileExists) throws Exception {
 		expectCheckForOrphans();
@@ -16,6 +16,7 @@ import org.briarproject.bramble.api.sync.OutgoingSessionRecord;
 import org.briarproject.bramble.api.sync.event.MessageSharedEvent;
 import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.bramble.api.system.TaskScheduler;
+import org.briarproject.bramble.mailbox.MailboxApi.UploadWriter;
 import org.briarproject.bramble.test.BrambleMockTestCase;
 import org.briarproject.bramble.test.CaptureArgumentAction;
 import org.briarproject.bramble.test.ConsumeArgumentAction;
@@ -27,8 +28,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
@@ -48,6 +51,7 @@ import static org.briarproject.bramble.test.TestUtils.getRandomId;
 import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MailboxUploadWorkerTest extends BrambleMockTestCase {
 
@@ -95,7 +99,7 @@ public class MailboxUploadWorkerTest extends BrambleMockTestCase {
 		worker = new MailboxUploadWorker(ioExecutor, db, clock, taskScheduler,
 				eventBus, connectionRegistry, connectivityChecker,
 				mailboxApiCaller, mailboxApi, mailboxFileManager,
-				mailboxProperties, folderId, contactId);
+				mailboxProperties, folderId, contactId, false);
 	}
 
 	@After
@@ -199,7 +203,8 @@ public class MailboxUploadWorkerTest extends BrambleMockTestCase {
 							}),
 					returnValue(tempFile)
 			));
-			oneOf(mailboxApiCaller).retryWithBackoff(with(any(ApiCall.class)));
+			oneOf(mailboxApiCaller).retryTransferWithBackoff(
+					with(any(ApiCall.class)));
 			will(new DoAllAction(
 					new CaptureArgumentAction<>(upload, ApiCall.class, 0),
 					returnValue(apiCall)
@@ -234,6 +239,92 @@ public class MailboxUploadWorkerTest extends BrambleMockTestCase {
 		assertFalse(tempFile.exists());
 	}
 
+	@Test
+	public void testWritesFileAsItIsUploadedIfStreamingIsEnabled()
+			throws Exception {
+		worker = new MailboxUploadWorker(ioExecutor, db, clock, taskScheduler,
+				eventBus, connectionRegistry, connectivityChecker,
+				mailboxApiCaller, mailboxApi, mailboxFileManager,
+				mailboxProperties, folderId, contactId, true);
+		Transaction recordTxn = new Transaction(null, false);
+		OutputStream out = new ByteArrayOutputStream();
+
+		// When the worker is started it should check the connection registry.
+		// We're not connected to the contact, so the worker should check for
+		// data to send. As there's data ready to send immediately, the worker
+		// should start a connectivity check
+		expectRunTaskOnIoExecutor();
+		expectCheckConnectionRegistry(false);
+		expectCheckForDataToSendAndStartConnectivityCheck();
+
+		worker.start();
+
+		// When the connectivity check succeeds, the worker should start an
+		// upload task without writing a file first
+		AtomicReference<ApiCall> upload = new AtomicReference<>();
+		context.checking(new Expectations() {{
+			oneOf(mailboxApiCaller).retryTransferWithBackoff(
+					with(any(ApiCall.class)));
+			will(new DoAllAction(
+					new CaptureArgumentAction<>(upload, ApiCall.class, 0),
+					returnValue(apiCall)
+			));
+		}});
+
+		worker.onConnectivityCheckSucceeded();
+
+		// When the upload task runs, the upload fails. Nothing should be
+		// recorded in the DB and the task should be retried
+		context.checking(new Expectations() {{
+			oneOf(mailboxApi).addFile(with(mailboxProperties), with(folderId),
+					with(any(UploadWriter.class)));
+			will(throwException(new IOException()));
+		}});
+
+		assertTrue(upload.get().callApi());
+
+		// When the upload task runs again, it should write the file as it's
+		// uploaded, record the acked/sent messages in the DB, and check the
+		// connection registry. We're not connected to the contact, so the
+		// worker should check for more data to send
+		context.checking(new DbExpectations() {{
+			oneOf(mailboxApi).addFile(with(mailboxProperties), with(folderId),
+					with(any(UploadWriter.class)));
+			will(new ConsumeArgumentAction<>(UploadWriter.class, 2,
+					writer -> {
+						try {
+							writer.writeFile(out);
+						} catch (IOException e) {
+							fail();
+						}
+					}
+			));
+			oneOf(mailboxFileManager).writeStreamForUpload(with(contactId),
+					with(any(OutgoingSessionRecord.class)), with(out));
+			// Record some IDs as acked and sent
+			will(new ConsumeArgumentAction<>(OutgoingSessionRecord.class, 1,
+					record -> {
+						record.onAckSent(singletonList(ackedId));
+						record.onMessageSent(sentId);
+					}
+			));
+			oneOf(db).transaction(with(false), withDbRunnable(recordTxn));
+			oneOf(db).setAckSent(recordTxn, contactId, singletonList(ackedId));
+			oneOf(db).setMessagesSent(recordTxn, contactId,
+					singletonList(sentId), MAX_LATENCY);
+		}});
+		expectCheckConnectionRegistry(false);
+		expectCheckForDataToSendNoDataWaiting();
+
+		assertFalse(upload.get().callApi());
+
+		// When the worker is destroyed it should remove the connectivity
+		// observer and event listener
+		expectRemoveObserverAndListener();
+
+		worker.destroy();
+	}
+
 	@Test
 	public void testDoesNotWriteFileIfContactConnectsDuringConnectivityCheck()
 			throws Exception {
@@ -294,7 +385,8 @@ public class MailboxUploadWorkerTest extends BrambleMockTestCase {
 							}),
 					returnValue(tempFile)
 			));
-			oneOf(mailboxApiCaller).retryWithBackoff(with(any(ApiCall.class)));
+			oneOf(mailboxApiCaller).retryTransferWithBackoff(
+					with(any(ApiCall.class)));
 			will(new DoAllAction(
 					new CaptureArgumentAction<>(upload, ApiCall.class, 0),
 					returnValue(apiCall)
@@ -37,7 +37,7 @@ public class OwnMailboxDownloadWorkerTest
 		mailboxProperties = getMailboxProperties(true, CLIENT_SUPPORTS);
 		worker = new OwnMailboxDownloadWorker(connectivityChecker,
 				torReachabilityMonitor, mailboxApiCaller, mailboxApi,
-				mailboxFileManager, mailboxProperties);
+				mailboxFileManager, mailboxProperties, 1, false);
 	}
 
 	@Override
@@ -123,26 +123,26 @@ public class OwnMailboxDownloadWorkerTest
 		// download task for the first file
 		AtomicReference<ApiCall> downloadTask = new AtomicReference<>();
 		expectCheckForFiles(folderId2, files);
-		expectStartTask(downloadTask);
+		expectStartTransferTask(downloadTask);
 		assertFalse(listFilesTask.get().callApi());
 
 		// When the first download task runs it should download the file to the
 		// location provided by the file manager and start a delete task
 		AtomicReference<ApiCall> deleteTask = new AtomicReference<>();
 		expectDownloadFile(folderId2, file1);
-		expectStartTask(deleteTask);
+		expectStartTransferTask(deleteTask);
 		assertFalse(downloadTask.get().callApi());
 
 		// When the first delete task runs it should delete the file, ignore
 		// the tolerable failure, and start a download task for the next file
 		expectDeleteFile(folderId2, file1, true); // Delete fails tolerably
-		expectStartTask(downloadTask);
+		expectStartTransferTask(downloadTask);
 		assertFalse(deleteTask.get().callApi());
 
 		// When the second download task runs it should download the file to
 		// the location provided by the file manager and start a delete task
 		expectDownloadFile(folderId2, file2);
-		expectStartTask(deleteTask);
+		expectStartTransferTask(deleteTask);
 		assertFalse(downloadTask.get().callApi());
 
 		// When the second delete task runs it should delete the file and
@@ -489,6 +489,48 @@ public class TransportPropertyManagerImplTest extends BrambleMockTestCase {
 		assertEquals(fooProperties, properties.get(contact2.getId()));
 	}
 
+	@Test
+	public void testRemotePropertiesAreCachedUntilContactIsRemoved()
+			throws Exception {
+		Transaction txn = new Transaction(null, true);
+		Transaction txn1 = new Transaction(null, false);
+		Transaction txn2 = new Transaction(null, true);
+		Contact contact = getContact();
+		Group contactGroup = getGroup(CLIENT_ID, MAJOR_VERSION);
+
+		// The snapshot should be created by the first call
+		expectGetRemotePropertiesWithNoUpdates(txn, contact, contactGroup);
+
+		TransportPropertyManagerImpl t = createInstance();
+		TransportId transportId = new TransportId("foo");
+		Map<ContactId, TransportProperties> properties =
+				t.getRemoteProperties(transportId);
+		assertEquals(1, properties.size());
+		assertEquals(0, properties.get(contact.getId()).size());
+		// Modifying the returned properties should not affect the snapshot
+		properties.get(contact.getId()).put("fooKey1", "fooValue1");
+		// The second call should use the snapshot
+		properties = t.getRemoteProperties(transportId);
+		assertEquals(1, properties.size());
+		assertEquals(0, properties.get(contact.getId()).size());
+		assertEquals(0, t.getRemoteProperties(contact.getId(), transportId)
+				.size());
+
+		// Removing a contact should clear the cache
+		context.checking(new Expectations() {{
+			oneOf(contactGroupFactory).createContactGroup(CLIENT_ID,
+					MAJOR_VERSION, contact);
+			will(returnValue(contactGroup));
+			oneOf(db).removeGroup(txn1, contactGroup);
+		}});
+		t.removingContact(txn1, contact);
+
+		// The next call should create a new snapshot
+		expectGetRemotePropertiesWithNoUpdates(txn2, contact, contactGroup);
+		properties = t.getRemoteProperties(transportId);
+		assertEquals(1, properties.size());
+	}
+
 	@Test
 	public void testReceivePropertiesOverrideDiscoveredProperties()
 			throws Exception {
@@ -798,6 +840,24 @@ public class TransportPropertyManagerImplTest extends BrambleMockTestCase {
 		t.mergeLocalProperties(new TransportId("foo"), fooProperties);
 	}
 
+	private void expectGetRemotePropertiesWithNoUpdates(Transaction txn,
+			Contact contact, Group contactGroup) throws Exception {
+		context.checking(new DbExpectations() {{
+			oneOf(db).transactionWithResult(with(true), withDbCallable(txn));
+			oneOf(db).getContacts(txn);
+			will(returnValue(singletonList(contact)));
+			oneOf(contactGroupFactory).createContactGroup(CLIENT_ID,
+					MAJOR_VERSION, contact);
+			will(returnValue(contactGroup));
+			oneOf(clientHelper).getMessageMetadataAsDictionary(txn,
+					contactGroup.getId());
+			will(returnValue(emptyMap()));
+			oneOf(clientHelper).getGroupMetadataAsDictionary(txn,
+					contactGroup.getId());
+			will(returnValue(new BdfDictionary()));
+		}});
+	}
+
 	private void expectGetLocalProperties(Transaction txn) throws Exception {
 		Map<MessageId, BdfDictionary> messageMetadata = new LinkedHashMap<>();
 		// The latest update for transport "foo" should be returned
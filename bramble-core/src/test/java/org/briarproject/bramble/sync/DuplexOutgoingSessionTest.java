@@ -0,0 +1,220 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.Transaction;
+import org.briarproject.bramble.api.event.EventBus;
+import org.briarproject.bramble.api.plugin.TransportId;
+import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.SyncRecordWriter;
+import org.briarproject.bramble.api.sync.Versions;
+import org.briarproject.bramble.api.transport.StreamWriter;
+import org.briarproject.bramble.test.BrambleMockTestCase;
+import org.briarproject.bramble.test.DbExpectations;
+import org.briarproject.bramble.test.ImmediateExecutor;
+import org.briarproject.bramble.test.SettableClock;
+import org.hamcrest.Description;
+import org.jmock.Sequence;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonList;
+import static org.briarproject.bramble.api.record.Record.RECORD_HEADER_BYTES;
+import static org.briarproject.bramble.api.sync.SyncConstants.MAX_MESSAGE_IDS;
+import static org.briarproject.bramble.sync.DuplexOutgoingSession.BATCH_CAPACITY;
+import static org.briarproject.bramble.test.TestUtils.getContactId;
+import static org.briarproject.bramble.test.TestUtils.getMessage;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.briarproject.bramble.test.TestUtils.getTransportId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DuplexOutgoingSessionTest extends BrambleMockTestCase {
+
+	private static final int MAX_LATENCY = Integer.MAX_VALUE;
+	private static final int MAX_IDLE_TIME = 30_000;
+	private static final int BODY_LENGTH = 1234;
+
+	private final DatabaseComponent db = context.mock(DatabaseComponent.class);
+	private final EventBus eventBus = context.mock(EventBus.class);
+	private final StreamWriter streamWriter = context.mock(StreamWriter.class);
+	private final SyncRecordWriter recordWriter =
+			context.mock(SyncRecordWriter.class);
+
+	private final Executor dbExecutor = new ImmediateExecutor();
+	private final SettableClock clock =
+			new SettableClock(new AtomicLong(123456789));
+	private final ContactId contactId = getContactId();
+	private final TransportId transportId = getTransportId();
+	private final GroupId groupId = new GroupId(getRandomId());
+	private final Message message1 = getMessage(groupId, BODY_LENGTH);
+	private final Message message2 = getMessage(groupId, BODY_LENGTH);
+	private final Message message3 = getMessage(groupId, BODY_LENGTH);
+	// Each batch contains a single message of the same length
+	private final long batchBytes =
+			RECORD_HEADER_BYTES + message1.getRawLength();
+	private final Transaction txn = new Transaction(null, false);
+
+	@Test
+	public void testBatchGenerationPausesWhenBufferIsFull() throws Exception {
+		// Allow two batches to be buffered
+		DuplexOutgoingSession session = createSession(batchBytes * 2);
+		Sequence sequence = context.sequence("batches");
+
+		expectStartAndEndSession(session);
+		context.checking(new DbExpectations() {{
+			// Two batches are generated before the writer writes anything,
+			// then generation pauses because the buffer is full
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			inSequence(sequence);
+			will(returnValue(singletonList(message1)));
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			inSequence(sequence);
+			will(returnValue(singletonList(message2)));
+			// Writing the first batch frees some space, so generation
+			// resumes
+			oneOf(recordWriter).writeMessage(message1);
+			inSequence(sequence);
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			inSequence(sequence);
+			will(returnValue(singletonList(message3)));
+			// Writing the second batch frees some space, but there are no
+			// more messages to send
+			oneOf(recordWriter).writeMessage(message2);
+			inSequence(sequence);
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			inSequence(sequence);
+			will(returnValue(null));
+			// Writing the third batch empties the buffer. The session is
+			// interrupted while the batch is being written
+			oneOf(recordWriter).writeMessage(message3);
+			inSequence(sequence);
+			will(new InterruptSessionAction(session));
+			// Send the end of stream marker
+			oneOf(streamWriter).sendEndOfStream();
+		}});
+
+		session.run();
+
+		assertEquals(0, session.getBufferedBatchBytes());
+	}
+
+	@Test
+	public void testBufferIsReleasedWhenSessionIsInterrupted()
+			throws Exception {
+		DuplexOutgoingSession session = createSession(batchBytes * 2);
+
+		expectStartAndEndSession(session);
+		context.checking(new DbExpectations() {{
+			// Two batches are generated
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			will(returnValue(singletonList(message1)));
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			will(returnValue(singletonList(message2)));
+			// The session is interrupted while the first batch is being
+			// written, so the second batch is never written
+			oneOf(recordWriter).writeMessage(message1);
+			will(new InterruptSessionAction(session));
+			// Send the end of stream marker
+			oneOf(streamWriter).sendEndOfStream();
+		}});
+
+		session.run();
+
+		assertEquals(0, session.getBufferedBatchBytes());
+	}
+
+	@Test
+	public void testBufferIsReleasedWhenWritingFails() throws Exception {
+		DuplexOutgoingSession session = createSession(batchBytes * 2);
+
+		expectStartAndEndSession(session);
+		context.checking(new DbExpectations() {{
+			// Two batches are generated
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			will(returnValue(singletonList(message1)));
+			oneOf(db).generateRequestedBatch(txn, contactId, BATCH_CAPACITY,
+					MAX_LATENCY);
+			will(returnValue(singletonList(message2)));
+			// Writing the first batch fails
+			oneOf(recordWriter).writeMessage(message1);
+			will(throwException(new IOException()));
+		}});
+
+		try {
+			session.run();
+			fail();
+		} catch (IOException expected) {
+			// Expected
+		}
+
+		assertEquals(0, session.getBufferedBatchBytes());
+	}
+
+	private DuplexOutgoingSession createSession(long maxBufferedBatchBytes) {
+		return new DuplexOutgoingSession(db, dbExecutor, eventBus, clock,
+				contactId, transportId, MAX_LATENCY, MAX_IDLE_TIME,
+				streamWriter, recordWriter, null, maxBufferedBatchBytes);
+	}
+
+	private void expectStartAndEndSession(DuplexOutgoingSession session)
+			throws Exception {
+		context.checking(new DbExpectations() {{
+			// Add listener
+			oneOf(eventBus).addListener(session);
+			// Send the protocol versions
+			oneOf(recordWriter).writeVersions(with(any(Versions.class)));
+			// All records are generated in the same transaction
+			allowing(db).transactionWithNullableResult(with(false),
+					withNullableDbCallable(txn));
+			allowing(db).getNextSendTime(txn, contactId, MAX_LATENCY);
+			will(returnValue(Long.MAX_VALUE));
+			// No acks, offers or requests to send
+			allowing(db).generateAck(txn, contactId, MAX_MESSAGE_IDS);
+			will(returnValue(null));
+			allowing(db).generateOffer(txn, contactId, MAX_MESSAGE_IDS,
+					MAX_LATENCY);
+			will(returnValue(null));
+			allowing(db).generateRequest(txn, contactId, MAX_MESSAGE_IDS);
+			will(returnValue(null));
+			// Remove listener
+			oneOf(eventBus).removeListener(session);
+			// Log the number of bytes written
+			allowing(recordWriter).getBytesWritten();
+			will(returnValue(0L));
+		}});
+	}
+
+	private static class InterruptSessionAction implements Action {
+
+		private final DuplexOutgoingSession session;
+
+		private InterruptSessionAction(DuplexOutgoingSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public Object invoke(Invocation invocation) {
+			session.interrupt();
+			return null;
+		}
+
+		@Override
+		public void describeTo(Description description) {
+			description.appendText("interrupts the session");
+		}
+	}
+}
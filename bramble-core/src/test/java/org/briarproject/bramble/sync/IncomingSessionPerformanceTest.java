@@ -0,0 +1,165 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.event.Event;
+import org.briarproject.bramble.api.event.EventBus;
+import org.briarproject.bramble.api.event.EventListener;
+import org.briarproject.bramble.api.identity.Identity;
+import org.briarproject.bramble.api.sync.Group;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.MessageFactory;
+import org.briarproject.bramble.api.sync.PriorityHandler;
+import org.briarproject.bramble.api.sync.SyncRecordReader;
+import org.briarproject.bramble.api.sync.SyncRecordReaderFactory;
+import org.briarproject.bramble.api.sync.SyncRecordWriter;
+import org.briarproject.bramble.api.sync.SyncRecordWriterFactory;
+import org.briarproject.bramble.api.sync.event.MessageAddedEvent;
+import org.briarproject.bramble.api.system.Clock;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.briarproject.bramble.test.TestDatabaseConfigModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.logging.Level.OFF;
+import static org.briarproject.bramble.api.sync.Group.Visibility.SHARED;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getAuthor;
+import static org.briarproject.bramble.test.TestUtils.getClientId;
+import static org.briarproject.bramble.test.TestUtils.getGroup;
+import static org.briarproject.bramble.test.TestUtils.getIdentity;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.briarproject.bramble.util.LogUtils.now;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how many messages per second an {@link IncomingSession} can
+ * store, with and without batching consecutive records into a single
+ * transaction.
+ */
+@Ignore
+public class IncomingSessionPerformanceTest extends BrambleTestCase {
+
+	private static final int MESSAGES = 5000;
+	private static final int BODY_LENGTH = 1000;
+
+	private final File testDir = getTestDirectory();
+
+	@Inject
+	DatabaseComponent db;
+	@Inject
+	@DatabaseExecutor
+	ExecutorService dbExecutor;
+	@Inject
+	EventBus eventBus;
+	@Inject
+	Clock clock;
+	@Inject
+	MessageFactory messageFactory;
+	@Inject
+	SyncRecordReaderFactory recordReaderFactory;
+	@Inject
+	SyncRecordWriterFactory recordWriterFactory;
+
+	private ContactId contactId;
+	private Group group;
+
+	public IncomingSessionPerformanceTest() {
+		// Disable logging
+		Logger.getLogger("").setLevel(OFF);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		assertTrue(testDir.mkdirs());
+		IncomingSessionPerformanceTestComponent component =
+				DaggerIncomingSessionPerformanceTestComponent.builder()
+						.testDatabaseConfigModule(
+								new TestDatabaseConfigModule(testDir))
+						.build();
+		component.inject(this);
+		db.open(getSecretKey(), null);
+		Identity identity = getIdentity();
+		group = getGroup(getClientId(), 123);
+		contactId = db.transactionWithResult(false, txn -> {
+			db.addIdentity(txn, identity);
+			ContactId c = db.addContact(txn, getAuthor(),
+					identity.getId(), null, true);
+			db.addGroup(txn, group);
+			db.setGroupVisibility(txn, c, group.getId(), SHARED);
+			return c;
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dbExecutor.shutdownNow();
+		db.close();
+		deleteTestDirectory(testDir);
+	}
+
+	@Test
+	public void testUnbatchedReceive() throws Exception {
+		receive("Unbatched", 1);
+	}
+
+	@Test
+	public void testBatchedReceive() throws Exception {
+		receive("Batched", IncomingSession.MAX_BATCH_RECORDS);
+	}
+
+	private void receive(String name, int maxBatchRecords) throws Exception {
+		byte[] stream = createStream();
+		CountDownLatch added = new CountDownLatch(MESSAGES);
+		EventListener listener = e -> countMessageAdded(e, added);
+		eventBus.addListener(listener);
+		SyncRecordReader recordReader = recordReaderFactory
+				.createRecordReader(new ByteArrayInputStream(stream));
+		PriorityHandler handler = p -> {
+		};
+		IncomingSession session = new IncomingSession(db, dbExecutor,
+				eventBus, clock, contactId, recordReader, handler,
+				maxBatchRecords, IncomingSession.MAX_BATCH_DURATION);
+		long start = now();
+		session.run();
+		assertTrue(added.await(10, MINUTES));
+		long duration = Math.max(1, now() - start);
+		eventBus.removeListener(listener);
+		System.out.println(String.format("%s: %,d messages in %,d ms, "
+						+ "%,d messages per second", name, MESSAGES, duration,
+				MESSAGES * 1000L / duration));
+	}
+
+	private void countMessageAdded(Event e, CountDownLatch added) {
+		if (e instanceof MessageAddedEvent) added.countDown();
+	}
+
+	private byte[] createStream() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SyncRecordWriter recordWriter =
+				recordWriterFactory.createRecordWriter(out);
+		long timestamp = System.currentTimeMillis();
+		for (int i = 0; i < MESSAGES; i++) {
+			Message m = messageFactory.createMessage(group.getId(),
+					timestamp, getRandomBytes(BODY_LENGTH));
+			recordWriter.writeMessage(m);
+		}
+		recordWriter.flush();
+		return out.toByteArray();
+	}
+}
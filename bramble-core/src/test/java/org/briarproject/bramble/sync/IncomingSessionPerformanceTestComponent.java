@@ -0,0 +1,26 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.BrambleCoreModule;
+import org.briarproject.bramble.mailbox.ModularMailboxModule;
+import org.briarproject.bramble.test.BrambleCoreIntegrationTestModule;
+import org.briarproject.bramble.test.TestDnsModule;
+import org.briarproject.bramble.test.TestPluginConfigModule;
+import org.briarproject.bramble.test.TestSocksModule;
+
+import javax.inject.Singleton;
+
+import dagger.Component;
+
+@Singleton
+@Component(modules = {
+		BrambleCoreIntegrationTestModule.class,
+		BrambleCoreModule.class,
+		ModularMailboxModule.class,
+		TestDnsModule.class,
+		TestSocksModule.class,
+		TestPluginConfigModule.class,
+})
+interface IncomingSessionPerformanceTestComponent {
+
+	void inject(IncomingSessionPerformanceTest testCase);
+}
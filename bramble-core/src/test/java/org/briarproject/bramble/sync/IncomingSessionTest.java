@@ -0,0 +1,382 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.db.CommitAction;
+import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.EventAction;
+import org.briarproject.bramble.api.db.Transaction;
+import org.briarproject.bramble.api.event.Event;
+import org.briarproject.bramble.api.event.EventBus;
+import org.briarproject.bramble.api.sync.Ack;
+import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.bramble.api.sync.PriorityHandler;
+import org.briarproject.bramble.api.sync.SyncRecordReader;
+import org.briarproject.bramble.api.sync.event.MessageAddedEvent;
+import org.briarproject.bramble.test.BrambleMockTestCase;
+import org.briarproject.bramble.test.DbExpectations;
+import org.briarproject.bramble.test.SettableClock;
+import org.hamcrest.Description;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonList;
+import static org.briarproject.bramble.sync.IncomingSession.MAX_BATCH_DURATION;
+import static org.briarproject.bramble.sync.IncomingSession.MAX_BATCH_RECORDS;
+import static org.briarproject.bramble.test.TestUtils.getContactId;
+import static org.briarproject.bramble.test.TestUtils.getMessage;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncomingSessionTest extends BrambleMockTestCase {
+
+	private final DatabaseComponent db = context.mock(DatabaseComponent.class);
+	private final EventBus eventBus = context.mock(EventBus.class);
+	private final SyncRecordReader recordReader =
+			context.mock(SyncRecordReader.class);
+	private final PriorityHandler priorityHandler =
+			context.mock(PriorityHandler.class);
+
+	private final AtomicLong time = new AtomicLong(123456789);
+	private final SettableClock clock = new SettableClock(time);
+	private final Queue<Runnable> dbTasks = new LinkedList<>();
+	private final Executor dbExecutor = dbTasks::add;
+
+	private final ContactId contactId = getContactId();
+	private final GroupId groupId = new GroupId(getRandomId());
+	private final Ack ack =
+			new Ack(singletonList(new MessageId(getRandomId())));
+	private final Message message1 = getMessage(groupId);
+	private final Message message2 = getMessage(groupId);
+	private final Message message3 = getMessage(groupId);
+
+	@Test
+	public void testRecordsAreStoredInOrderInOneTransaction()
+			throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS,
+				MAX_BATCH_DURATION);
+		Transaction txn = new Transaction(null, false);
+		Sequence sequence = context.sequence("records");
+
+		context.checking(new Expectations() {{
+			// Read an ack
+			oneOf(recordReader).eof();
+			will(returnValue(false));
+			oneOf(recordReader).hasAck();
+			will(returnValue(true));
+			oneOf(recordReader).readAck();
+			will(returnValue(ack));
+		}});
+		expectReadSession(session, message1, message2);
+
+		context.checking(new DbExpectations() {{
+			// Store all the records in a single transaction, in order
+			oneOf(db).transaction(with(false), withDbRunnable(txn));
+			oneOf(db).receiveAck(txn, contactId, ack);
+			inSequence(sequence);
+			oneOf(db).receiveMessage(txn, contactId, message1);
+			inSequence(sequence);
+			oneOf(db).receiveMessage(txn, contactId, message2);
+			inSequence(sequence);
+		}});
+
+		session.run();
+		// Only one batch should have been scheduled
+		assertEquals(1, dbTasks.size());
+		runDbTasks();
+	}
+
+	@Test
+	public void testEventsAreNotBroadcastBeforeCommit() throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS,
+				MAX_BATCH_DURATION);
+		Transaction txn = new Transaction(null, false);
+
+		expectReadSession(session, message1, message2);
+
+		context.checking(new DbExpectations() {{
+			oneOf(db).transaction(with(false), withDbRunnable(txn));
+			// Storing each message attaches an event to the transaction.
+			// No events should be broadcast directly, so the event bus
+			// has no expectations for broadcast()
+			oneOf(db).receiveMessage(txn, contactId, message1);
+			will(new AttachMessageAddedEventAction(txn, message1));
+			oneOf(db).receiveMessage(txn, contactId, message2);
+			will(new AttachMessageAddedEventAction(txn, message2));
+		}});
+
+		session.run();
+		runDbTasks();
+
+		// Both events should be waiting for the transaction to commit
+		List<CommitAction> actions = txn.getActions();
+		assertEquals(2, actions.size());
+		assertSame(message1, getEventMessage(actions.get(0)));
+		assertSame(message2, getEventMessage(actions.get(1)));
+	}
+
+	@Test
+	public void testBatchIsLimitedByNumberOfRecords() throws Exception {
+		IncomingSession session = createSession(2, MAX_BATCH_DURATION);
+		Transaction txn1 = new Transaction(null, false);
+		Transaction txn2 = new Transaction(null, false);
+
+		expectReadSession(session, message1, message2, message3);
+
+		context.checking(new DbExpectations() {{
+			// The first batch stores the first two messages
+			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).receiveMessage(txn1, contactId, message1);
+			oneOf(db).receiveMessage(txn1, contactId, message2);
+			// The second batch stores the leftover message
+			oneOf(db).transaction(with(false), withDbRunnable(txn2));
+			oneOf(db).receiveMessage(txn2, contactId, message3);
+		}});
+
+		session.run();
+		assertEquals(1, dbTasks.size());
+		// Running the first batch should schedule a second batch
+		dbTasks.remove().run();
+		assertEquals(1, dbTasks.size());
+		// Running the second batch should not schedule another batch
+		dbTasks.remove().run();
+		assertTrue(dbTasks.isEmpty());
+	}
+
+	@Test
+	public void testBatchIsLimitedByDuration() throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS, 1000);
+		Transaction txn1 = new Transaction(null, false);
+		Transaction txn2 = new Transaction(null, false);
+
+		expectReadSession(session, message1, message2, message3);
+
+		context.checking(new DbExpectations() {{
+			// Storing the second message reaches the time limit
+			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).receiveMessage(txn1, contactId, message1);
+			will(new AdvanceClockAction(999));
+			oneOf(db).receiveMessage(txn1, contactId, message2);
+			will(new AdvanceClockAction(1));
+			// The leftover message is stored in the next batch
+			oneOf(db).transaction(with(false), withDbRunnable(txn2));
+			oneOf(db).receiveMessage(txn2, contactId, message3);
+		}});
+
+		session.run();
+		dbTasks.remove().run();
+		assertEquals(1, dbTasks.size());
+		dbTasks.remove().run();
+		assertTrue(dbTasks.isEmpty());
+	}
+
+	@Test
+	public void testRecordsArrivingDuringBatchJoinBatch() throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS,
+				MAX_BATCH_DURATION);
+		Transaction txn = new Transaction(null, false);
+
+		// The first session reads one message, the second reads two
+		expectReadSession(session, message1);
+		expectReadSession(session, message2, message3);
+
+		context.checking(new DbExpectations() {{
+			oneOf(db).transaction(with(false), withDbRunnable(txn));
+			oneOf(db).receiveMessage(txn, contactId, message1);
+			// While the first message is being stored, more records arrive
+			will(new RunTaskAction(() -> {
+				try {
+					session.run();
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+			}));
+			oneOf(db).receiveMessage(txn, contactId, message2);
+			oneOf(db).receiveMessage(txn, contactId, message3);
+		}});
+
+		session.run();
+		assertEquals(1, dbTasks.size());
+		// The records that arrived during the batch should have been added
+		// to the batch, and no other batch should have been scheduled
+		dbTasks.remove().run();
+		assertTrue(dbTasks.isEmpty());
+	}
+
+	@Test
+	public void testFailedBatchIsRetriedOneRecordAtATime() throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS,
+				MAX_BATCH_DURATION);
+		Transaction batchTxn = new Transaction(null, false);
+		Transaction txn1 = new Transaction(null, false);
+		Transaction txn2 = new Transaction(null, false);
+		Transaction txn3 = new Transaction(null, false);
+
+		expectReadSession(session, message1, message2, message3);
+
+		context.checking(new DbExpectations() {{
+			// The second message can't be stored, so the batch fails
+			oneOf(db).transaction(with(false), withDbRunnable(batchTxn));
+			oneOf(db).receiveMessage(batchTxn, contactId, message1);
+			oneOf(db).receiveMessage(batchTxn, contactId, message2);
+			will(throwException(new DbException()));
+			// Each message is retried in its own transaction
+			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).receiveMessage(txn1, contactId, message1);
+			oneOf(db).transaction(with(false), withDbRunnable(txn2));
+			oneOf(db).receiveMessage(txn2, contactId, message2);
+			will(throwException(new DbException()));
+			oneOf(db).transaction(with(false), withDbRunnable(txn3));
+			oneOf(db).receiveMessage(txn3, contactId, message3);
+		}});
+
+		session.run();
+		runDbTasks();
+
+		// The session should have been interrupted
+		expectInterruptedSession(session);
+		session.run();
+	}
+
+	@Test
+	public void testFailedSingleRecordIsNotRetried() throws Exception {
+		IncomingSession session = createSession(MAX_BATCH_RECORDS,
+				MAX_BATCH_DURATION);
+		Transaction txn = new Transaction(null, false);
+
+		expectReadSession(session, message1);
+
+		context.checking(new DbExpectations() {{
+			oneOf(db).transaction(with(false), withDbRunnable(txn));
+			oneOf(db).receiveMessage(txn, contactId, message1);
+			will(throwException(new DbException()));
+		}});
+
+		session.run();
+		runDbTasks();
+
+		// The session should have been interrupted
+		expectInterruptedSession(session);
+		session.run();
+	}
+
+	private IncomingSession createSession(int maxBatchRecords,
+			long maxBatchDuration) {
+		return new IncomingSession(db, dbExecutor, eventBus, clock,
+				contactId, recordReader, priorityHandler, maxBatchRecords,
+				maxBatchDuration);
+	}
+
+	private void expectReadSession(IncomingSession session,
+			Message... messages) throws Exception {
+		context.checking(new Expectations() {{
+			oneOf(eventBus).addListener(session);
+			for (Message m : messages) {
+				oneOf(recordReader).eof();
+				will(returnValue(false));
+				oneOf(recordReader).hasAck();
+				will(returnValue(false));
+				oneOf(recordReader).hasMessage();
+				will(returnValue(true));
+				oneOf(recordReader).readMessage();
+				will(returnValue(m));
+			}
+			oneOf(recordReader).eof();
+			will(returnValue(true));
+			oneOf(eventBus).removeListener(session);
+		}});
+	}
+
+	private void expectInterruptedSession(IncomingSession session) {
+		// An interrupted session doesn't read any records
+		context.checking(new Expectations() {{
+			oneOf(eventBus).addListener(session);
+			oneOf(eventBus).removeListener(session);
+		}});
+	}
+
+	private void runDbTasks() {
+		while (!dbTasks.isEmpty()) dbTasks.remove().run();
+	}
+
+	private Message getEventMessage(CommitAction action) {
+		Event event = ((EventAction) action).getEvent();
+		return ((MessageAddedEvent) event).getMessage();
+	}
+
+	private static class AttachMessageAddedEventAction implements Action {
+
+		private final Transaction txn;
+		private final Message message;
+
+		private AttachMessageAddedEventAction(Transaction txn,
+				Message message) {
+			this.txn = txn;
+			this.message = message;
+		}
+
+		@Override
+		public Object invoke(Invocation invocation) {
+			txn.attach(new MessageAddedEvent(message, null));
+			return null;
+		}
+
+		@Override
+		public void describeTo(Description description) {
+			description.appendText("attaches an event to the transaction");
+		}
+	}
+
+	private class AdvanceClockAction implements Action {
+
+		private final long millis;
+
+		private AdvanceClockAction(long millis) {
+			this.millis = millis;
+		}
+
+		@Override
+		public Object invoke(Invocation invocation) {
+			time.addAndGet(millis);
+			return null;
+		}
+
+		@Override
+		public void describeTo(Description description) {
+			description.appendText("advances the clock");
+		}
+	}
+
+	private static class RunTaskAction implements Action {
+
+		private final Runnable task;
+
+		private RunTaskAction(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public Object invoke(Invocation invocation) {
+			task.run();
+			return null;
+		}
+
+		@Override
+		public void describeTo(Description description) {
+			description.appendText("runs a task");
+		}
+	}
+}
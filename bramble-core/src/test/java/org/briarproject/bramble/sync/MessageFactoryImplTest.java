@@ -0,0 +1,92 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.UniqueId;
+import org.briarproject.bramble.api.crypto.CryptoComponent;
+import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.bramble.test.BrambleMockTestCase;
+import org.briarproject.bramble.util.ByteUtils;
+import org.jmock.Expectations;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.briarproject.bramble.api.sync.Message.FORMAT_VERSION;
+import static org.briarproject.bramble.api.sync.MessageId.BLOCK_LABEL;
+import static org.briarproject.bramble.api.sync.MessageId.ID_LABEL;
+import static org.briarproject.bramble.api.sync.SyncConstants.MAX_MESSAGE_BODY_LENGTH;
+import static org.briarproject.bramble.api.sync.SyncConstants.MESSAGE_HEADER_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.briarproject.bramble.util.ByteUtils.INT_64_BYTES;
+import static org.briarproject.bramble.util.IoUtils.copyAndClose;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MessageFactoryImplTest extends BrambleMockTestCase {
+
+	private final CryptoComponent crypto = context.mock(CryptoComponent.class);
+
+	private final GroupId groupId = new GroupId(getRandomId());
+	private final long timestamp = 1234567890L;
+	private final byte[] body = getRandomBytes(MAX_MESSAGE_BODY_LENGTH);
+	private final byte[] rootHash = getRandomId();
+	private final MessageId messageId = new MessageId(getRandomId());
+
+	private final MessageFactoryImpl messageFactory =
+			new MessageFactoryImpl(crypto);
+
+	@Test
+	public void testMessageIdIsCalculatedFromSingleBlock() {
+		expectGetMessageId();
+
+		Message m = messageFactory.createMessage(groupId, timestamp, body);
+		assertEquals(messageId, m.getId());
+		assertNull(m.getRawMessage());
+		assertEquals(MESSAGE_HEADER_LENGTH + body.length, m.getRawLength());
+	}
+
+	@Test
+	public void testMessageCreatedFromRawMessageWrapsRawMessage()
+			throws Exception {
+		byte[] raw = new byte[MESSAGE_HEADER_LENGTH + body.length];
+		System.arraycopy(groupId.getBytes(), 0, raw, 0, UniqueId.LENGTH);
+		ByteUtils.writeUint64(timestamp, raw, UniqueId.LENGTH);
+		System.arraycopy(body, 0, raw, MESSAGE_HEADER_LENGTH, body.length);
+
+		// The body should be hashed in place
+		expectGetMessageId();
+
+		Message m = messageFactory.createMessage(raw);
+		assertEquals(messageId, m.getId());
+		assertEquals(groupId, m.getGroupId());
+		assertEquals(timestamp, m.getTimestamp());
+		// The raw message should not have been copied
+		assertSame(raw, m.getRawMessage());
+		assertSame(raw, messageFactory.getRawMessage(m));
+		assertEquals(body.length, m.getBodyLength());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		copyAndClose(m.getBodyInputStream(), out);
+		assertArrayEquals(body, out.toByteArray());
+	}
+
+	private void expectGetMessageId() {
+		byte[] formatVersion = new byte[] {FORMAT_VERSION};
+		byte[] timeBytes = new byte[INT_64_BYTES];
+		ByteUtils.writeUint64(timestamp, timeBytes, 0);
+
+		context.checking(new Expectations() {{
+			// Buffers are equal if their remaining bytes are equal
+			oneOf(crypto).hash(BLOCK_LABEL, ByteBuffer.wrap(formatVersion),
+					ByteBuffer.wrap(body));
+			will(returnValue(rootHash));
+			oneOf(crypto).hash(ID_LABEL, formatVersion, groupId.getBytes(),
+					timeBytes, rootHash);
+			will(returnValue(messageId.getBytes()));
+		}});
+	}
+}
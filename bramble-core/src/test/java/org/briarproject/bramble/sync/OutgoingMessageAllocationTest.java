@@ -0,0 +1,173 @@
+package org.briarproject.bramble.sync;
+
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.Metadata;
+import org.briarproject.bramble.api.identity.Identity;
+import org.briarproject.bramble.api.sync.Group;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.sync.MessageFactory;
+import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.bramble.api.sync.SyncRecordWriter;
+import org.briarproject.bramble.api.sync.SyncRecordWriterFactory;
+import org.briarproject.bramble.api.transport.StreamContext;
+import org.briarproject.bramble.api.transport.StreamWriter;
+import org.briarproject.bramble.api.transport.StreamWriterFactory;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.briarproject.bramble.test.TestDatabaseConfigModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import static java.util.logging.Level.OFF;
+import static org.briarproject.bramble.api.sync.Group.Visibility.SHARED;
+import static org.briarproject.bramble.api.sync.SyncConstants.MAX_MESSAGE_BODY_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getAuthor;
+import static org.briarproject.bramble.test.TestUtils.getClientId;
+import static org.briarproject.bramble.test.TestUtils.getGroup;
+import static org.briarproject.bramble.test.TestUtils.getIdentity;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getTransportId;
+import static org.briarproject.bramble.util.LogUtils.now;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how many bytes are allocated per message when loading
+ * maximum-length messages from the database and writing them to an
+ * encrypted transport stream, with and without copying the message body
+ * out of the raw message.
+ */
+@Ignore
+public class OutgoingMessageAllocationTest extends BrambleTestCase {
+
+	private static final int MESSAGES = 10_000;
+
+	private final File testDir = getTestDirectory();
+
+	@Inject
+	DatabaseComponent db;
+	@Inject
+	@DatabaseExecutor
+	ExecutorService dbExecutor;
+	@Inject
+	MessageFactory messageFactory;
+	@Inject
+	SyncRecordWriterFactory recordWriterFactory;
+	@Inject
+	StreamWriterFactory streamWriterFactory;
+
+	private ContactId contactId;
+	private final List<MessageId> messageIds = new ArrayList<>(MESSAGES);
+
+	public OutgoingMessageAllocationTest() {
+		// Disable logging
+		Logger.getLogger("").setLevel(OFF);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		assertTrue(testDir.mkdirs());
+		OutgoingMessageAllocationTestComponent component =
+				DaggerOutgoingMessageAllocationTestComponent.builder()
+						.testDatabaseConfigModule(
+								new TestDatabaseConfigModule(testDir))
+						.build();
+		component.inject(this);
+		db.open(getSecretKey(), null);
+		Identity identity = getIdentity();
+		Group group = getGroup(getClientId(), 123);
+		contactId = db.transactionWithResult(false, txn -> {
+			db.addIdentity(txn, identity);
+			ContactId c = db.addContact(txn, getAuthor(),
+					identity.getId(), null, true);
+			db.addGroup(txn, group);
+			db.setGroupVisibility(txn, c, group.getId(), SHARED);
+			return c;
+		});
+		long timestamp = System.currentTimeMillis();
+		byte[] body = getRandomBytes(MAX_MESSAGE_BODY_LENGTH);
+		db.transaction(false, txn -> {
+			for (int i = 0; i < MESSAGES; i++) {
+				Message m = messageFactory.createMessage(group.getId(),
+						timestamp + i, body);
+				db.addLocalMessage(txn, m, new Metadata(), true, false);
+				messageIds.add(m.getId());
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dbExecutor.shutdownNow();
+		db.close();
+		deleteTestDirectory(testDir);
+	}
+
+	@Test
+	public void testSendWrappedRawMessages() throws Exception {
+		send("Wrapped", false);
+	}
+
+	@Test
+	public void testSendCopiedMessages() throws Exception {
+		send("Copied", true);
+	}
+
+	private void send(String name, boolean copy) throws Exception {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean)
+						ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		StreamContext ctx = new StreamContext(contactId, null,
+				getTransportId(), getSecretKey(), getSecretKey(), 1, false);
+		StreamWriter streamWriter = streamWriterFactory.createStreamWriter(
+				new DiscardingOutputStream(), ctx);
+		SyncRecordWriter recordWriter = recordWriterFactory
+				.createRecordWriter(streamWriter.getOutputStream());
+		long start = now();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		for (MessageId id : messageIds) {
+			Message m = db.transactionWithResult(true, txn ->
+					db.getMessage(txn, id));
+			if (copy) {
+				// Simulate loading the message by copying its body
+				m = new Message(m.getId(), m.getGroupId(), m.getTimestamp(),
+						m.getBody());
+			}
+			recordWriter.writeMessage(m);
+		}
+		recordWriter.flush();
+		long allocated = threads.getThreadAllocatedBytes(threadId)
+				- allocatedBefore;
+		long duration = Math.max(1, now() - start);
+		System.out.println(String.format("%s: %,d messages in %,d ms, "
+						+ "%,d bytes allocated, %,d bytes per message", name,
+				MESSAGES, duration, allocated, allocated / MESSAGES));
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
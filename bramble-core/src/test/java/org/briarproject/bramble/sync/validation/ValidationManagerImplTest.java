@@ -36,11 +36,13 @@ import static org.briarproject.bramble.api.sync.validation.MessageState.DELIVERE
 import static org.briarproject.bramble.api.sync.validation.MessageState.INVALID;
 import static org.briarproject.bramble.api.sync.validation.MessageState.PENDING;
 import static org.briarproject.bramble.api.sync.validation.MessageState.UNKNOWN;
+import static org.briarproject.bramble.sync.validation.ValidationManagerImpl.BATCH_SIZE;
 import static org.briarproject.bramble.test.TestUtils.getClientId;
 import static org.briarproject.bramble.test.TestUtils.getContactId;
 import static org.briarproject.bramble.test.TestUtils.getGroup;
 import static org.briarproject.bramble.test.TestUtils.getMessage;
 import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.junit.Assert.assertEquals;
 
 public class ValidationManagerImplTest extends BrambleMockTestCase {
 
@@ -91,23 +93,26 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 	public void testMessagesAreValidatedAtStartup() throws Exception {
 		Transaction txn = new Transaction(null, true);
 		Transaction txn1 = new Transaction(null, false);
-		Transaction txn2 = new Transaction(null, true);
-		Transaction txn3 = new Transaction(null, false);
 
 		expectGetMessagesToValidate(messageId, messageId1);
 
 		context.checking(new DbExpectations() {{
-			// Load the first raw message and group
+			// Load the raw messages and the group in a single transaction
 			oneOf(db).transactionWithResult(with(true), withDbCallable(txn));
 			oneOf(db).getMessage(txn, messageId);
 			will(returnValue(message));
 			oneOf(db).getGroup(txn, groupId);
 			will(returnValue(group));
+			oneOf(db).getMessage(txn, messageId1);
+			will(returnValue(message1));
 			// Validate the first message: valid
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResult));
-			// Store the validation result for the first message
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			// Validate the second message: invalid
+			oneOf(validator).validateMessage(message1, group);
+			will(throwException(new InvalidMessageException()));
+			// Store the validation results in a single transaction
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).mergeMessageMetadata(txn1, messageId, metadata);
 			// Deliver the first message
 			oneOf(hook).incomingMessage(txn1, message, metadata);
@@ -116,24 +121,14 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			// Get any pending dependents
 			oneOf(db).getMessageDependents(txn1, messageId);
 			will(returnValue(emptyMap()));
-			// Load the second raw message and group
-			oneOf(db).transactionWithResult(with(true), withDbCallable(txn2));
-			oneOf(db).getMessage(txn2, messageId1);
-			will(returnValue(message1));
-			oneOf(db).getGroup(txn2, groupId);
-			will(returnValue(group));
-			// Validate the second message: invalid
-			oneOf(validator).validateMessage(message1, group);
-			will(throwException(new InvalidMessageException()));
-			// Store the validation result for the second message
-			oneOf(db).transaction(with(false), withDbRunnable(txn3));
-			oneOf(db).getMessageState(txn3, messageId1);
+			// Invalidate the second message
+			oneOf(db).getMessageState(txn1, messageId1);
 			will(returnValue(UNKNOWN));
-			oneOf(db).setMessageState(txn3, messageId1, INVALID);
-			oneOf(db).deleteMessage(txn3, messageId1);
-			oneOf(db).deleteMessageMetadata(txn3, messageId1);
+			oneOf(db).setMessageState(txn1, messageId1, INVALID);
+			oneOf(db).deleteMessage(txn1, messageId1);
+			oneOf(db).deleteMessageMetadata(txn1, messageId1);
 			// Recursively invalidate any dependents
-			oneOf(db).getMessageDependents(txn3, messageId1);
+			oneOf(db).getMessageDependents(txn1, messageId1);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -141,19 +136,52 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 		expectGetMessagesToShare();
 
 		vm.startService();
+
+		assertEquals(2, vm.getValidatedMessages());
+		assertEquals(1, vm.getDeliveredMessages());
+	}
+
+	@Test
+	public void testMessagesAreValidatedInBatches() throws Exception {
+		int count = BATCH_SIZE + 1;
+		MessageId[] ids = new MessageId[count];
+		for (int i = 0; i < count; i++) ids[i] = new MessageId(getRandomId());
+		Transaction txn = new Transaction(null, true);
+		Transaction txn1 = new Transaction(null, true);
+
+		expectGetMessagesToValidate(ids);
+
+		context.checking(new DbExpectations() {{
+			// Load the first batch of messages: they've all been removed
+			oneOf(db).transactionWithResult(with(true), withDbCallable(txn));
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				oneOf(db).getMessage(txn, ids[i]);
+				will(throwException(new NoSuchMessageException()));
+			}
+			// Load the second batch of messages in another transaction
+			oneOf(db).transactionWithResult(with(true), withDbCallable(txn1));
+			oneOf(db).getMessage(txn1, ids[BATCH_SIZE]);
+			will(throwException(new NoSuchMessageException()));
+		}});
+
+		expectGetPendingMessages();
+		expectGetMessagesToShare();
+
+		vm.startService();
+
+		assertEquals(0, vm.getValidatedMessages());
 	}
 
 	@Test
 	public void testPendingMessagesAreDeliveredAtStartup() throws Exception {
 		Transaction txn = new Transaction(null, false);
-		Transaction txn1 = new Transaction(null, false);
 
 		expectGetMessagesToValidate();
 		expectGetPendingMessages(messageId);
 
 		context.checking(new DbExpectations() {{
 			// Check whether the message is ready to deliver
-			oneOf(db).transaction(with(false), withDbRunnable(txn));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn));
 			oneOf(db).getMessageState(txn, messageId);
 			will(returnValue(PENDING));
 			oneOf(db).getMessageDependencies(txn, messageId);
@@ -172,37 +200,38 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			// Get any pending dependents
 			oneOf(db).getMessageDependents(txn, messageId);
 			will(returnValue(singletonMap(messageId2, PENDING)));
-			// Check whether the dependent is ready to deliver
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
-			oneOf(db).getMessageState(txn1, messageId2);
+			// Check whether the dependent is ready to deliver in the same
+			// transaction
+			oneOf(db).getMessageState(txn, messageId2);
 			will(returnValue(PENDING));
-			oneOf(db).getMessageDependencies(txn1, messageId2);
+			oneOf(db).getMessageDependencies(txn, messageId2);
 			will(returnValue(singletonMap(messageId1, DELIVERED)));
 			// Get the dependent and its metadata to deliver
-			oneOf(db).getMessage(txn1, messageId2);
+			oneOf(db).getMessage(txn, messageId2);
 			will(returnValue(message2));
-			oneOf(db).getGroup(txn1, groupId);
+			oneOf(db).getGroup(txn, groupId);
 			will(returnValue(group));
-			oneOf(db).getMessageMetadataForValidator(txn1, messageId2);
+			oneOf(db).getMessageMetadataForValidator(txn, messageId2);
 			will(returnValue(metadata));
 			// Deliver the dependent
-			oneOf(hook).incomingMessage(txn1, message2, metadata);
+			oneOf(hook).incomingMessage(txn, message2, metadata);
 			will(returnValue(ACCEPT_DO_NOT_SHARE));
-			oneOf(db).setMessageState(txn1, messageId2, DELIVERED);
+			oneOf(db).setMessageState(txn, messageId2, DELIVERED);
 			// Get any pending dependents
-			oneOf(db).getMessageDependents(txn1, messageId2);
+			oneOf(db).getMessageDependents(txn, messageId2);
 			will(returnValue(emptyMap()));
 		}});
 
 		expectGetMessagesToShare();
 
 		vm.startService();
+
+		assertEquals(2, vm.getDeliveredMessages());
 	}
 
 	@Test
 	public void testMessagesAreSharedAtStartup() throws Exception {
 		Transaction txn = new Transaction(null, false);
-		Transaction txn1 = new Transaction(null, false);
 
 		expectGetMessagesToValidate();
 		expectGetPendingMessages();
@@ -214,10 +243,9 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).setMessageShared(txn, messageId);
 			oneOf(db).getMessageDependencies(txn, messageId);
 			will(returnValue(singletonMap(messageId2, DELIVERED)));
-			// Share dependency
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
-			oneOf(db).setMessageShared(txn1, messageId2);
-			oneOf(db).getMessageDependencies(txn1, messageId2);
+			// Share dependency in the same transaction
+			oneOf(db).setMessageShared(txn, messageId2);
+			oneOf(db).getMessageDependencies(txn, messageId2);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -239,7 +267,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResultWithDependencies));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).addMessageDependencies(txn1, message,
 					validResultWithDependencies.getDependencies());
 			oneOf(db).getMessageDependencies(txn1, messageId);
@@ -268,8 +296,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 	public void testValidationContinuesAfterNoSuchMessageException()
 			throws Exception {
 		Transaction txn = new Transaction(null, true);
-		Transaction txn1 = new Transaction(null, true);
-		Transaction txn2 = new Transaction(null, false);
+		Transaction txn1 = new Transaction(null, false);
 
 		expectGetMessagesToValidate(messageId, messageId1);
 
@@ -279,23 +306,22 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).getMessage(txn, messageId);
 			will(throwException(new NoSuchMessageException()));
 			// Load the second raw message and group
-			oneOf(db).transactionWithResult(with(true), withDbCallable(txn1));
-			oneOf(db).getMessage(txn1, messageId1);
+			oneOf(db).getMessage(txn, messageId1);
 			will(returnValue(message1));
-			oneOf(db).getGroup(txn1, groupId);
+			oneOf(db).getGroup(txn, groupId);
 			will(returnValue(group));
 			// Validate the second message: invalid
 			oneOf(validator).validateMessage(message1, group);
 			will(throwException(new InvalidMessageException()));
 			// Invalidate the second message
-			oneOf(db).transaction(with(false), withDbRunnable(txn2));
-			oneOf(db).getMessageState(txn2, messageId1);
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
+			oneOf(db).getMessageState(txn1, messageId1);
 			will(returnValue(UNKNOWN));
-			oneOf(db).setMessageState(txn2, messageId1, INVALID);
-			oneOf(db).deleteMessage(txn2, messageId1);
-			oneOf(db).deleteMessageMetadata(txn2, messageId1);
+			oneOf(db).setMessageState(txn1, messageId1, INVALID);
+			oneOf(db).deleteMessage(txn1, messageId1);
+			oneOf(db).deleteMessageMetadata(txn1, messageId1);
 			// Recursively invalidate dependents
-			oneOf(db).getMessageDependents(txn2, messageId1);
+			oneOf(db).getMessageDependents(txn1, messageId1);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -308,9 +334,11 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 	@Test
 	public void testValidationContinuesAfterNoSuchGroupException()
 			throws Exception {
+		Group group1 = getGroup(clientId, majorVersion);
+		Message message1 = getMessage(group1.getId());
+		MessageId messageId1 = message1.getId();
 		Transaction txn = new Transaction(null, true);
-		Transaction txn1 = new Transaction(null, true);
-		Transaction txn2 = new Transaction(null, false);
+		Transaction txn1 = new Transaction(null, false);
 
 		expectGetMessagesToValidate(messageId, messageId1);
 
@@ -323,23 +351,22 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).getGroup(txn, groupId);
 			will(throwException(new NoSuchGroupException()));
 			// Load the second raw message and group
-			oneOf(db).transactionWithResult(with(true), withDbCallable(txn1));
-			oneOf(db).getMessage(txn1, messageId1);
+			oneOf(db).getMessage(txn, messageId1);
 			will(returnValue(message1));
-			oneOf(db).getGroup(txn1, groupId);
-			will(returnValue(group));
+			oneOf(db).getGroup(txn, group1.getId());
+			will(returnValue(group1));
 			// Validate the second message: invalid
-			oneOf(validator).validateMessage(message1, group);
+			oneOf(validator).validateMessage(message1, group1);
 			will(throwException(new InvalidMessageException()));
 			// Store the validation result for the second message
-			oneOf(db).transaction(with(false), withDbRunnable(txn2));
-			oneOf(db).getMessageState(txn2, messageId1);
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
+			oneOf(db).getMessageState(txn1, messageId1);
 			will(returnValue(UNKNOWN));
-			oneOf(db).setMessageState(txn2, messageId1, INVALID);
-			oneOf(db).deleteMessage(txn2, messageId1);
-			oneOf(db).deleteMessageMetadata(txn2, messageId1);
+			oneOf(db).setMessageState(txn1, messageId1, INVALID);
+			oneOf(db).deleteMessage(txn1, messageId1);
+			oneOf(db).deleteMessageMetadata(txn1, messageId1);
 			// Recursively invalidate dependents
-			oneOf(db).getMessageDependents(txn2, messageId1);
+			oneOf(db).getMessageDependents(txn1, messageId1);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -363,7 +390,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResult));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).mergeMessageMetadata(txn1, messageId, metadata);
 			// Deliver the message
 			oneOf(hook).incomingMessage(txn1, message, metadata);
@@ -397,7 +424,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResultWithDependencies));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).addMessageDependencies(txn1, message,
 					validResultWithDependencies.getDependencies());
 			oneOf(db).getMessageDependencies(txn1, messageId);
@@ -424,7 +451,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResultWithDependencies));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).addMessageDependencies(txn1, message,
 					validResultWithDependencies.getDependencies());
 			oneOf(db).getMessageDependencies(txn1, messageId);
@@ -458,7 +485,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResultWithDependencies));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).addMessageDependencies(txn1, message,
 					validResultWithDependencies.getDependencies());
 			// Check for invalid dependencies
@@ -497,10 +524,6 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 		Transaction txn = new Transaction(null, true);
 		Transaction txn1 = new Transaction(null, false);
 		Transaction txn2 = new Transaction(null, false);
-		Transaction txn3 = new Transaction(null, false);
-		Transaction txn4 = new Transaction(null, false);
-		Transaction txn5 = new Transaction(null, false);
-		Transaction txn6 = new Transaction(null, false);
 
 		context.checking(new DbExpectations() {{
 			// Load the group
@@ -511,7 +534,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(throwException(new InvalidMessageException()));
 			// Invalidate the message
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).getMessageState(txn1, messageId);
 			will(returnValue(UNKNOWN));
 			oneOf(db).setMessageState(txn1, messageId, INVALID);
@@ -520,7 +543,8 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			// The message has two dependents: 1 and 2
 			oneOf(db).getMessageDependents(txn1, messageId);
 			will(returnValue(twoDependents));
-			// Invalidate message 1
+			// Invalidate the dependents in a single transaction, starting
+			// with message 1
 			oneOf(db).transaction(with(false), withDbRunnable(txn2));
 			oneOf(db).getMessageState(txn2, messageId1);
 			will(returnValue(PENDING));
@@ -531,38 +555,34 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).getMessageDependents(txn2, messageId1);
 			will(returnValue(singletonMap(messageId3, PENDING)));
 			// Invalidate message 2
-			oneOf(db).transaction(with(false), withDbRunnable(txn3));
-			oneOf(db).getMessageState(txn3, messageId2);
+			oneOf(db).getMessageState(txn2, messageId2);
 			will(returnValue(PENDING));
-			oneOf(db).setMessageState(txn3, messageId2, INVALID);
-			oneOf(db).deleteMessage(txn3, messageId2);
-			oneOf(db).deleteMessageMetadata(txn3, messageId2);
+			oneOf(db).setMessageState(txn2, messageId2, INVALID);
+			oneOf(db).deleteMessage(txn2, messageId2);
+			oneOf(db).deleteMessageMetadata(txn2, messageId2);
 			// Message 2 has one dependent: 3 (same dependent as 1)
-			oneOf(db).getMessageDependents(txn3, messageId2);
+			oneOf(db).getMessageDependents(txn2, messageId2);
 			will(returnValue(singletonMap(messageId3, PENDING)));
 			// Invalidate message 3 (via 1)
-			oneOf(db).transaction(with(false), withDbRunnable(txn4));
-			oneOf(db).getMessageState(txn4, messageId3);
+			oneOf(db).getMessageState(txn2, messageId3);
 			will(returnValue(PENDING));
-			oneOf(db).setMessageState(txn4, messageId3, INVALID);
-			oneOf(db).deleteMessage(txn4, messageId3);
-			oneOf(db).deleteMessageMetadata(txn4, messageId3);
+			oneOf(db).setMessageState(txn2, messageId3, INVALID);
+			oneOf(db).deleteMessage(txn2, messageId3);
+			oneOf(db).deleteMessageMetadata(txn2, messageId3);
 			// Message 3 has one dependent: 4
-			oneOf(db).getMessageDependents(txn4, messageId3);
+			oneOf(db).getMessageDependents(txn2, messageId3);
 			will(returnValue(singletonMap(messageId4, PENDING)));
 			// Invalidate message 3 (again, via 2)
-			oneOf(db).transaction(with(false), withDbRunnable(txn5));
-			oneOf(db).getMessageState(txn5, messageId3);
+			oneOf(db).getMessageState(txn2, messageId3);
 			will(returnValue(INVALID)); // Already invalidated
 			// Invalidate message 4 (via 1 and 3)
-			oneOf(db).transaction(with(false), withDbRunnable(txn6));
-			oneOf(db).getMessageState(txn6, messageId4);
+			oneOf(db).getMessageState(txn2, messageId4);
 			will(returnValue(PENDING));
-			oneOf(db).setMessageState(txn6, messageId4, INVALID);
-			oneOf(db).deleteMessage(txn6, messageId4);
-			oneOf(db).deleteMessageMetadata(txn6, messageId4);
+			oneOf(db).setMessageState(txn2, messageId4, INVALID);
+			oneOf(db).deleteMessage(txn2, messageId4);
+			oneOf(db).deleteMessageMetadata(txn2, messageId4);
 			// Message 4 has no dependents
-			oneOf(db).getMessageDependents(txn6, messageId4);
+			oneOf(db).getMessageDependents(txn2, messageId4);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -584,10 +604,6 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 		Transaction txn = new Transaction(null, true);
 		Transaction txn1 = new Transaction(null, false);
 		Transaction txn2 = new Transaction(null, false);
-		Transaction txn3 = new Transaction(null, false);
-		Transaction txn4 = new Transaction(null, false);
-		Transaction txn5 = new Transaction(null, false);
-		Transaction txn6 = new Transaction(null, false);
 
 		context.checking(new DbExpectations() {{
 			// Load the group
@@ -598,7 +614,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResult));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).mergeMessageMetadata(txn1, messageId, metadata);
 			// Deliver the message
 			oneOf(hook).incomingMessage(txn1, message, metadata);
@@ -607,8 +623,9 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			// The message has two pending dependents: 1 and 2
 			oneOf(db).getMessageDependents(txn1, messageId);
 			will(returnValue(twoDependents));
-			// Check whether message 1 is ready to be delivered
-			oneOf(db).transaction(with(false), withDbRunnable(txn2));
+			// Deliver the dependents in a single transaction, starting with
+			// message 1
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn2));
 			oneOf(db).getMessageState(txn2, messageId1);
 			will(returnValue(PENDING));
 			oneOf(db).getMessageDependencies(txn2, messageId1);
@@ -628,68 +645,64 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).getMessageDependents(txn2, messageId1);
 			will(returnValue(singletonMap(messageId3, PENDING)));
 			// Check whether message 2 is ready to be delivered
-			oneOf(db).transaction(with(false), withDbRunnable(txn3));
-			oneOf(db).getMessageState(txn3, messageId2);
+			oneOf(db).getMessageState(txn2, messageId2);
 			will(returnValue(PENDING));
-			oneOf(db).getMessageDependencies(txn3, messageId2);
+			oneOf(db).getMessageDependencies(txn2, messageId2);
 			will(returnValue(singletonMap(messageId, DELIVERED)));
 			// Get message 2 and its metadata
-			oneOf(db).getMessage(txn3, messageId2);
+			oneOf(db).getMessage(txn2, messageId2);
 			will(returnValue(message2));
-			oneOf(db).getGroup(txn3, groupId);
+			oneOf(db).getGroup(txn2, groupId);
 			will(returnValue(group));
-			oneOf(db).getMessageMetadataForValidator(txn3, messageId2);
+			oneOf(db).getMessageMetadataForValidator(txn2, messageId2);
 			will(returnValue(metadata));
 			// Deliver message 2
-			oneOf(hook).incomingMessage(txn3, message2, metadata);
+			oneOf(hook).incomingMessage(txn2, message2, metadata);
 			will(returnValue(ACCEPT_DO_NOT_SHARE));
-			oneOf(db).setMessageState(txn3, messageId2, DELIVERED);
+			oneOf(db).setMessageState(txn2, messageId2, DELIVERED);
 			// Message 2 has one pending dependent: 3 (same dependent as 1)
-			oneOf(db).getMessageDependents(txn3, messageId2);
+			oneOf(db).getMessageDependents(txn2, messageId2);
 			will(returnValue(singletonMap(messageId3, PENDING)));
 			// Check whether message 3 is ready to be delivered (via 1)
-			oneOf(db).transaction(with(false), withDbRunnable(txn4));
-			oneOf(db).getMessageState(txn4, messageId3);
+			oneOf(db).getMessageState(txn2, messageId3);
 			will(returnValue(PENDING));
-			oneOf(db).getMessageDependencies(txn4, messageId3);
+			oneOf(db).getMessageDependencies(txn2, messageId3);
 			will(returnValue(twoDependencies));
 			// Get message 3 and its metadata
-			oneOf(db).getMessage(txn4, messageId3);
+			oneOf(db).getMessage(txn2, messageId3);
 			will(returnValue(message3));
-			oneOf(db).getGroup(txn4, groupId);
+			oneOf(db).getGroup(txn2, groupId);
 			will(returnValue(group));
-			oneOf(db).getMessageMetadataForValidator(txn4, messageId3);
+			oneOf(db).getMessageMetadataForValidator(txn2, messageId3);
 			will(returnValue(metadata));
 			// Deliver message 3
-			oneOf(hook).incomingMessage(txn4, message3, metadata);
+			oneOf(hook).incomingMessage(txn2, message3, metadata);
 			will(returnValue(ACCEPT_DO_NOT_SHARE));
-			oneOf(db).setMessageState(txn4, messageId3, DELIVERED);
+			oneOf(db).setMessageState(txn2, messageId3, DELIVERED);
 			// Message 3 has one pending dependent: 4
-			oneOf(db).getMessageDependents(txn4, messageId3);
+			oneOf(db).getMessageDependents(txn2, messageId3);
 			will(returnValue(singletonMap(messageId4, PENDING)));
 			// Check whether message 3 is ready to be delivered (again, via 2)
-			oneOf(db).transaction(with(false), withDbRunnable(txn5));
-			oneOf(db).getMessageState(txn5, messageId3);
+			oneOf(db).getMessageState(txn2, messageId3);
 			will(returnValue(DELIVERED)); // Already delivered
 			// Check whether message 4 is ready to be delivered (via 1 and 3)
-			oneOf(db).transaction(with(false), withDbRunnable(txn6));
-			oneOf(db).getMessageState(txn6, messageId4);
+			oneOf(db).getMessageState(txn2, messageId4);
 			will(returnValue(PENDING));
-			oneOf(db).getMessageDependencies(txn6, messageId4);
+			oneOf(db).getMessageDependencies(txn2, messageId4);
 			will(returnValue(singletonMap(messageId3, DELIVERED)));
 			// Get message 4 and its metadata
-			oneOf(db).getMessage(txn6, messageId4);
+			oneOf(db).getMessage(txn2, messageId4);
 			will(returnValue(message4));
-			oneOf(db).getGroup(txn6, groupId);
+			oneOf(db).getGroup(txn2, groupId);
 			will(returnValue(group));
-			oneOf(db).getMessageMetadataForValidator(txn6, messageId4);
+			oneOf(db).getMessageMetadataForValidator(txn2, messageId4);
 			will(returnValue(metadata));
 			// Deliver message 4
-			oneOf(hook).incomingMessage(txn6, message4, metadata);
+			oneOf(hook).incomingMessage(txn2, message4, metadata);
 			will(returnValue(ACCEPT_DO_NOT_SHARE));
-			oneOf(db).setMessageState(txn6, messageId4, DELIVERED);
+			oneOf(db).setMessageState(txn2, messageId4, DELIVERED);
 			// Message 4 has no pending dependents
-			oneOf(db).getMessageDependents(txn6, messageId4);
+			oneOf(db).getMessageDependents(txn2, messageId4);
 			will(returnValue(emptyMap()));
 		}});
 
@@ -714,7 +727,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(validator).validateMessage(message, group);
 			will(returnValue(validResult));
 			// Store the validation result
-			oneOf(db).transaction(with(false), withDbRunnable(txn1));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn1));
 			oneOf(db).mergeMessageMetadata(txn1, messageId, metadata);
 			// Deliver the message
 			oneOf(hook).incomingMessage(txn1, message, metadata);
@@ -724,7 +737,7 @@ public class ValidationManagerImplTest extends BrambleMockTestCase {
 			oneOf(db).getMessageDependents(txn1, messageId);
 			will(returnValue(singletonMap(messageId1, PENDING)));
 			// Check whether the pending dependent is ready to be delivered
-			oneOf(db).transaction(with(false), withDbRunnable(txn2));
+			oneOf(db).transactionWithResult(with(false), withDbCallable(txn2));
 			oneOf(db).getMessageState(txn2, messageId1);
 			will(returnValue(PENDING));
 			oneOf(db).getMessageDependencies(txn2, messageId1);
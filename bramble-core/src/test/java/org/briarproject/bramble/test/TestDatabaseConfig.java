@@ -12,10 +12,16 @@ import javax.annotation.Nullable;
 public class TestDatabaseConfig implements DatabaseConfig {
 
 	private final File dbDir, keyDir;
+	private final int connectionPoolSize;
 
 	public TestDatabaseConfig(File testDir) {
+		this(testDir, 1);
+	}
+
+	public TestDatabaseConfig(File testDir, int connectionPoolSize) {
 		dbDir = new File(testDir, "db");
 		keyDir = new File(testDir, "key");
+		this.connectionPoolSize = connectionPoolSize;
 	}
 
 	@Override
@@ -33,4 +39,9 @@ public class TestDatabaseConfig implements DatabaseConfig {
 	public KeyStrengthener getKeyStrengthener() {
 		return null;
 	}
+
+	@Override
+	public int getConnectionPoolSize() {
+		return connectionPoolSize;
+	}
 }
@@ -22,6 +22,8 @@ public class TestMessageFactory implements MessageFactory {
 
 	@Override
 	public byte[] getRawMessage(Message m) {
+		byte[] wrapped = m.getRawMessage();
+		if (wrapped != null) return wrapped;
 		byte[] body = m.getBody();
 		byte[] raw = new byte[MESSAGE_HEADER_LENGTH + body.length];
 		System.arraycopy(body, 0, raw, MESSAGE_HEADER_LENGTH, body.length);
@@ -0,0 +1,76 @@
+package org.briarproject.bramble.transport;
+
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.briarproject.bramble.api.transport.TransportConstants.TAG_LENGTH;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TagIndexTest extends BrambleTestCase {
+
+	private final TagIndex<Integer> index = new TagIndex<>();
+
+	@Test
+	public void testPutGetAndRemove() {
+		byte[] tag = getRandomBytes(TAG_LENGTH);
+		assertNull(index.get(tag));
+		index.put(tag, 123);
+		// Lookups should compare the contents of the tag
+		assertEquals(Integer.valueOf(123), index.get(tag.clone()));
+		assertEquals(1, index.size());
+		// Replacing the value should not change the size
+		index.put(tag.clone(), 456);
+		assertEquals(Integer.valueOf(456), index.get(tag));
+		assertEquals(1, index.size());
+		assertEquals(Integer.valueOf(456), index.remove(tag.clone()));
+		assertNull(index.get(tag));
+		assertNull(index.remove(tag));
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testTagsWithSameBucketAreKeptApart() {
+		// These tags differ only after the first four bytes
+		byte[] tag1 = getRandomBytes(TAG_LENGTH);
+		byte[] tag2 = tag1.clone();
+		tag2[TAG_LENGTH - 1]++;
+		byte[] tag3 = tag1.clone();
+		tag3[TAG_LENGTH - 2]++;
+		index.put(tag1, 1);
+		index.put(tag2, 2);
+		index.put(tag3, 3);
+		assertEquals(Integer.valueOf(2), index.remove(tag2));
+		assertEquals(Integer.valueOf(1), index.get(tag1));
+		assertNull(index.get(tag2));
+		assertEquals(Integer.valueOf(3), index.get(tag3));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void testTableGrowsAndValuesCanBeRemovedByPredicate() {
+		List<byte[]> tags = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			byte[] tag = getRandomBytes(TAG_LENGTH);
+			tags.add(tag);
+			index.put(tag, i);
+		}
+		assertEquals(1000, index.size());
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Integer.valueOf(i), index.get(tags.get(i)));
+		// Remove the odd values
+		index.removeValues(i -> i % 2 == 1);
+		assertEquals(500, index.size());
+		for (int i = 0; i < 1000; i++) {
+			if (i % 2 == 1) assertNull(index.get(tags.get(i)));
+			else assertEquals(Integer.valueOf(i), index.get(tags.get(i)));
+		}
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.get(tags.get(0)));
+	}
+}
@@ -6,9 +6,11 @@ import org.briarproject.bramble.api.contact.Contact;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfEntry;
 import org.briarproject.bramble.api.data.BdfList;
+import org.briarproject.bramble.api.db.CommitAction;
 import org.briarproject.bramble.api.db.DatabaseComponent;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.Metadata;
+import org.briarproject.bramble.api.db.TaskAction;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.sync.ClientId;
 import org.briarproject.bramble.api.sync.Group;
@@ -844,6 +846,60 @@ public class ClientVersioningManagerImplTest extends BrambleMockTestCase {
 				clientId, 123));
 	}
 
+	@Test
+	public void testCachesVisibilityAndMinorVersion() throws Exception {
+		Transaction txn1 = new Transaction(null, true);
+		expectLoadActiveClientUpdates();
+
+		ClientVersioningManagerImpl c = createInstance();
+		assertEquals(SHARED, c.getClientVisibility(txn, contact.getId(),
+				clientId, 123));
+		// The state can be seen by the transaction that cached it
+		assertEquals(SHARED, c.getClientVisibility(txn, contact.getId(),
+				clientId, 123));
+		assertEquals(234, c.getClientMinorVersion(txn, contact.getId(),
+				clientId, 123));
+		// Commit the transaction
+		assertEquals(1, txn.getActions().size());
+		runCommitActions(txn);
+		// The state can now be seen by other transactions
+		assertEquals(SHARED, c.getClientVisibility(txn1, contact.getId(),
+				clientId, 123));
+		assertEquals(234, c.getClientMinorVersion(txn1, contact.getId(),
+				clientId, 123));
+	}
+
+	@Test
+	public void testUncommittedStateIsNotSeenByOtherTransactions()
+			throws Exception {
+		Transaction txn1 = new Transaction(null, true);
+		expectLoadActiveClientUpdates();
+
+		ClientVersioningManagerImpl c = createInstance();
+		assertEquals(SHARED, c.getClientVisibility(txn, contact.getId(),
+				clientId, 123));
+
+		// The transaction hasn't committed, so the state is loaded again
+		context.checking(new Expectations() {{
+			oneOf(db).getContact(txn1, contact.getId());
+			will(returnValue(contact));
+			oneOf(contactGroupFactory).createContactGroup(CLIENT_ID,
+					MAJOR_VERSION, contact);
+			will(returnValue(contactGroup));
+			oneOf(db).containsGroup(txn1, contactGroup.getId());
+			will(returnValue(true));
+			oneOf(clientHelper).getMessageMetadataAsDictionary(txn1,
+					contactGroup.getId());
+			will(returnValue(singletonMap(new MessageId(getRandomId()),
+					BdfDictionary.of(
+							new BdfEntry(MSG_KEY_UPDATE_VERSION, 1L),
+							new BdfEntry(MSG_KEY_LOCAL, true)))));
+		}});
+
+		assertEquals(INVISIBLE, c.getClientVisibility(txn1, contact.getId(),
+				clientId, 123));
+	}
+
 	@Test
 	public void testReturnsNegativeIfContactGroupDoesNotExist()
 			throws Exception {
@@ -968,6 +1024,42 @@ public class ClientVersioningManagerImplTest extends BrambleMockTestCase {
 				clientId, 123));
 	}
 
+	private void expectLoadActiveClientUpdates() throws Exception {
+		MessageId localUpdateId = new MessageId(getRandomId());
+		BdfDictionary localUpdateMeta = BdfDictionary.of(
+				new BdfEntry(MSG_KEY_UPDATE_VERSION, 1L),
+				new BdfEntry(MSG_KEY_LOCAL, true));
+		MessageId remoteUpdateId = new MessageId(getRandomId());
+		BdfDictionary remoteUpdateMeta = BdfDictionary.of(
+				new BdfEntry(MSG_KEY_UPDATE_VERSION, 1L),
+				new BdfEntry(MSG_KEY_LOCAL, false));
+		Map<MessageId, BdfDictionary> messageMetadata = new HashMap<>();
+		messageMetadata.put(localUpdateId, localUpdateMeta);
+		messageMetadata.put(remoteUpdateId, remoteUpdateMeta);
+		// The client is supported locally and remotely and active
+		BdfList localUpdateBody = BdfList.of(BdfList.of(
+				BdfList.of(clientId.getString(), 123, 234, true)), 1L);
+		BdfList remoteUpdateBody = BdfList.of(BdfList.of(
+				BdfList.of(clientId.getString(), 123, 234, true)), 1L);
+
+		expectGetContactGroup(true);
+		context.checking(new Expectations() {{
+			oneOf(clientHelper).getMessageMetadataAsDictionary(txn,
+					contactGroup.getId());
+			will(returnValue(messageMetadata));
+			oneOf(clientHelper).getMessageAsList(txn, localUpdateId);
+			will(returnValue(localUpdateBody));
+			oneOf(clientHelper).getMessageAsList(txn, remoteUpdateId);
+			will(returnValue(remoteUpdateBody));
+		}});
+	}
+
+	private void runCommitActions(Transaction txn) {
+		for (CommitAction a : txn.getActions()) {
+			if (a instanceof TaskAction) ((TaskAction) a).getTask().run();
+		}
+	}
+
 	private void expectGetContactGroup(boolean exists) throws Exception {
 		context.checking(new Expectations() {{
 			oneOf(db).getContact(txn, contact.getId());
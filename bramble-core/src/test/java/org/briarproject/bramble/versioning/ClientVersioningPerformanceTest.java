@@ -0,0 +1,162 @@
+package org.briarproject.bramble.versioning;
+
+import org.briarproject.bramble.api.client.ClientHelper;
+import org.briarproject.bramble.api.client.ContactGroupFactory;
+import org.briarproject.bramble.api.contact.Contact;
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.data.BdfDictionary;
+import org.briarproject.bramble.api.data.BdfEntry;
+import org.briarproject.bramble.api.data.BdfList;
+import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.Transaction;
+import org.briarproject.bramble.api.identity.Identity;
+import org.briarproject.bramble.api.sync.ClientId;
+import org.briarproject.bramble.api.sync.Group;
+import org.briarproject.bramble.api.sync.Message;
+import org.briarproject.bramble.api.system.Clock;
+import org.briarproject.bramble.test.BrambleTestCase;
+import org.briarproject.bramble.test.TestDatabaseConfigModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import static java.util.logging.Level.OFF;
+import static org.briarproject.bramble.api.sync.Group.Visibility.SHARED;
+import static org.briarproject.bramble.api.versioning.ClientVersioningManager.CLIENT_ID;
+import static org.briarproject.bramble.api.versioning.ClientVersioningManager.MAJOR_VERSION;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getAuthor;
+import static org.briarproject.bramble.test.TestUtils.getClientId;
+import static org.briarproject.bramble.test.TestUtils.getIdentity;
+import static org.briarproject.bramble.test.TestUtils.getSecretKey;
+import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.briarproject.bramble.versioning.ClientVersioningConstants.MSG_KEY_LOCAL;
+import static org.briarproject.bramble.versioning.ClientVersioningConstants.MSG_KEY_UPDATE_VERSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the cost of looking up client visibilities when the state for
+ * each contact has to be loaded from the database, which was the cost of
+ * every lookup before the state was cached, with the cost of cached lookups.
+ */
+@Ignore
+public class ClientVersioningPerformanceTest extends BrambleTestCase {
+
+	private static final int CONTACTS = 500;
+	private static final int ROUNDS = 100;
+
+	private final File testDir = getTestDirectory();
+	private final ClientId clientId = getClientId();
+	private final List<ContactId> contactIds = new ArrayList<>(CONTACTS);
+
+	@Inject
+	DatabaseComponent db;
+	@Inject
+	@DatabaseExecutor
+	ExecutorService dbExecutor;
+	@Inject
+	ClientHelper clientHelper;
+	@Inject
+	ContactGroupFactory contactGroupFactory;
+	@Inject
+	Clock clock;
+
+	public ClientVersioningPerformanceTest() {
+		// Disable logging
+		Logger.getLogger("").setLevel(OFF);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		assertTrue(testDir.mkdirs());
+		ClientVersioningPerformanceTestComponent component =
+				DaggerClientVersioningPerformanceTestComponent.builder()
+						.testDatabaseConfigModule(
+								new TestDatabaseConfigModule(testDir))
+						.build();
+		component.inject(this);
+		db.open(getSecretKey(), null);
+		ClientVersioningManagerImpl versioningManager = createInstance();
+		Identity identity = getIdentity();
+		db.transaction(false, txn -> {
+			db.addIdentity(txn, identity);
+			versioningManager.onDatabaseOpened(txn);
+			for (int i = 0; i < CONTACTS; i++) {
+				ContactId c = db.addContact(txn, getAuthor(),
+						identity.getId(), null, true);
+				Contact contact = db.getContact(txn, c);
+				versioningManager.addingContact(txn, contact);
+				storeRemoteUpdate(txn, contact);
+				contactIds.add(c);
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dbExecutor.shutdownNow();
+		db.close();
+		deleteTestDirectory(testDir);
+	}
+
+	@Test
+	public void testGetClientVisibility() throws Exception {
+		// Use a new instance so nothing is cached
+		ClientVersioningManagerImpl versioningManager = createInstance();
+		long start = System.nanoTime();
+		db.transaction(true, txn -> {
+			for (ContactId c : contactIds) {
+				assertEquals(SHARED, versioningManager.getClientVisibility(
+						txn, c, clientId, 123));
+			}
+		});
+		long uncached = (System.nanoTime() - start) / CONTACTS;
+		start = System.nanoTime();
+		db.transaction(true, txn -> {
+			for (int i = 0; i < ROUNDS; i++) {
+				for (ContactId c : contactIds) {
+					assertEquals(SHARED, versioningManager.getClientVisibility(
+							txn, c, clientId, 123));
+				}
+			}
+		});
+		long cached = (System.nanoTime() - start) / (CONTACTS * ROUNDS);
+		System.out.println(String.format("Uncached: %,d ns per lookup, "
+				+ "cached: %,d ns per lookup", uncached, cached));
+	}
+
+	private ClientVersioningManagerImpl createInstance() {
+		ClientVersioningManagerImpl versioningManager =
+				new ClientVersioningManagerImpl(db, clientHelper,
+						contactGroupFactory, clock);
+		versioningManager.registerClient(clientId, 123, 234,
+				(txn, c, v) -> {
+				});
+		return versioningManager;
+	}
+
+	private void storeRemoteUpdate(Transaction txn, Contact contact)
+			throws Exception {
+		Group g = contactGroupFactory.createContactGroup(CLIENT_ID,
+				MAJOR_VERSION, contact);
+		BdfList body = BdfList.of(BdfList.of(
+				BdfList.of(clientId.getString(), 123, 234, true)), 1L);
+		Message m = clientHelper.createMessage(g.getId(),
+				clock.currentTimeMillis(), body);
+		BdfDictionary meta = BdfDictionary.of(
+				new BdfEntry(MSG_KEY_UPDATE_VERSION, 1L),
+				new BdfEntry(MSG_KEY_LOCAL, false));
+		clientHelper.addLocalMessage(txn, m, meta, false, false);
+	}
+}
@@ -15,6 +15,7 @@ import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.crypto.PasswordStrengthEstimator;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.identity.IdentityManager;
@@ -118,6 +119,9 @@ public interface AndroidComponent
 	@DatabaseExecutor
 	Executor databaseExecutor();
 
+	@InteractiveDatabaseExecutor
+	Executor interactiveDatabaseExecutor();
+
 	TransactionManager transactionManager();
 
 	MessageTracker messageTracker();
@@ -37,4 +37,9 @@ class AndroidDatabaseConfig implements DatabaseConfig {
 	public KeyStrengthener getKeyStrengthener() {
 		return keyStrengthener;
 	}
+
+	@Override
+	public int getConnectionPoolSize() {
+		return 1;
+	}
 }
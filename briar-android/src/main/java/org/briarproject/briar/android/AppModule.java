@@ -9,6 +9,7 @@ import com.vanniktech.emoji.RecentEmoji;
 
 import org.briarproject.bramble.api.FeatureFlags;
 import org.briarproject.bramble.api.FormatException;
+import org.briarproject.bramble.api.contact.event.ContactAddedEvent;
 import org.briarproject.bramble.api.crypto.CryptoComponent;
 import org.briarproject.bramble.api.crypto.KeyStrengthener;
 import org.briarproject.bramble.api.crypto.PublicKey;
@@ -16,6 +17,8 @@ import org.briarproject.bramble.api.db.DatabaseConfig;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.bramble.api.mailbox.MailboxDirectory;
+import org.briarproject.bramble.api.mailbox.event.MailboxProblemEvent;
+import org.briarproject.bramble.api.mailbox.event.OwnMailboxConnectionStatusEvent;
 import org.briarproject.bramble.api.plugin.BluetoothConstants;
 import org.briarproject.bramble.api.plugin.LanTcpConstants;
 import org.briarproject.bramble.api.plugin.PluginConfig;
@@ -26,6 +29,7 @@ import org.briarproject.bramble.api.plugin.TransportId;
 import org.briarproject.bramble.api.plugin.duplex.DuplexPluginFactory;
 import org.briarproject.bramble.api.plugin.simplex.SimplexPluginFactory;
 import org.briarproject.bramble.api.reporting.DevConfig;
+import org.briarproject.bramble.api.settings.event.SettingsUpdatedEvent;
 import org.briarproject.bramble.plugin.bluetooth.AndroidBluetoothPluginFactory;
 import org.briarproject.bramble.plugin.file.AndroidRemovableDrivePluginFactory;
 import org.briarproject.bramble.plugin.file.MailboxPluginFactory;
@@ -60,6 +64,10 @@ import org.briarproject.briar.api.android.DozeWatchdog;
 import org.briarproject.briar.api.android.LockManager;
 import org.briarproject.briar.api.android.NetworkUsageMetrics;
 import org.briarproject.briar.api.android.ScreenFilterMonitor;
+import org.briarproject.briar.api.blog.event.BlogPostAddedEvent;
+import org.briarproject.briar.api.conversation.event.ConversationMessageReceivedEvent;
+import org.briarproject.briar.api.forum.event.ForumPostReceivedEvent;
+import org.briarproject.briar.api.privategroup.event.GroupMessageAddedEvent;
 import org.briarproject.briar.api.test.TestAvatarCreator;
 import org.briarproject.nullsafety.NotNullByDefault;
 
@@ -283,7 +291,18 @@ public class AppModule {
 			LifecycleManager lifecycleManager, EventBus eventBus,
 			AndroidNotificationManagerImpl notificationManager) {
 		lifecycleManager.registerService(notificationManager);
-		eventBus.addListener(notificationManager);
+		eventBus.addListener(SettingsUpdatedEvent.class, notificationManager);
+		eventBus.addListener(ConversationMessageReceivedEvent.class,
+				notificationManager);
+		eventBus.addListener(GroupMessageAddedEvent.class,
+				notificationManager);
+		eventBus.addListener(ForumPostReceivedEvent.class,
+				notificationManager);
+		eventBus.addListener(BlogPostAddedEvent.class, notificationManager);
+		eventBus.addListener(ContactAddedEvent.class, notificationManager);
+		eventBus.addListener(MailboxProblemEvent.class, notificationManager);
+		eventBus.addListener(OwnMailboxConnectionStatusEvent.class,
+				notificationManager);
 		return notificationManager;
 	}
 
@@ -252,6 +252,11 @@ public abstract class BriarActivity extends BaseActivity {
 		dbController.runOnDbThread(task);
 	}
 
+	@Deprecated
+	public void runOnInteractiveDbThread(Runnable task) {
+		dbController.runOnInteractiveDbThread(task);
+	}
+
 	@Deprecated
 	protected void finishOnUiThread() {
 		runOnUiThreadUnlessDestroyed(this::supportFinishAfterTransition);
@@ -4,6 +4,7 @@ import android.app.Application;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.EventBus;
@@ -57,6 +58,7 @@ abstract class BaseViewModel extends DbViewModel implements EventListener {
 
 	BaseViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -64,7 +66,8 @@ abstract class BaseViewModel extends DbViewModel implements EventListener {
 			IdentityManager identityManager,
 			AndroidNotificationManager notificationManager,
 			BlogManager blogManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.eventBus = eventBus;
 		this.identityManager = identityManager;
 		this.notificationManager = notificationManager;
@@ -6,6 +6,7 @@ import org.briarproject.bramble.api.contact.Contact;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -63,6 +64,7 @@ class BlogViewModel extends BaseViewModel {
 	@Inject
 	BlogViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -72,8 +74,9 @@ class BlogViewModel extends BaseViewModel {
 			BlogManager blogManager,
 			BlogSharingManager blogSharingManager,
 			SharingController sharingController) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				eventBus, identityManager, notificationManager, blogManager);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, eventBus, identityManager,
+				notificationManager, blogManager);
 		this.blogSharingManager = blogSharingManager;
 		this.sharingController = sharingController;
 	}
@@ -4,6 +4,7 @@ import android.app.Application;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -48,6 +49,7 @@ class FeedViewModel extends BaseViewModel {
 	@Inject
 	FeedViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -55,8 +57,9 @@ class FeedViewModel extends BaseViewModel {
 			IdentityManager identityManager,
 			AndroidNotificationManager notificationManager,
 			BlogManager blogManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				eventBus, identityManager, notificationManager, blogManager);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, eventBus, identityManager,
+				notificationManager, blogManager);
 		loadPersonalBlog();
 		loadAllBlogPosts();
 	}
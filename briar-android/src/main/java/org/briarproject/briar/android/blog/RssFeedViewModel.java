@@ -7,6 +7,7 @@ import android.util.Patterns;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.lifecycle.IoExecutor;
@@ -70,10 +71,12 @@ class RssFeedViewModel extends DbViewModel {
 			FeedManager feedManager,
 			@IoExecutor Executor ioExecutor,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.feedManager = feedManager;
 		this.ioExecutor = ioExecutor;
 		this.dbExecutor = dbExecutor;
@@ -8,6 +8,7 @@ import org.briarproject.bramble.api.contact.event.PendingContactAddedEvent;
 import org.briarproject.bramble.api.contact.event.PendingContactRemovedEvent;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -36,15 +37,16 @@ class ContactListViewModel extends ContactsViewModel {
 	@Inject
 	ContactListViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, TransactionManager db,
 			AndroidExecutor androidExecutor, ContactManager contactManager,
 			AuthorManager authorManager,
 			ConversationManager conversationManager,
 			ConnectionRegistry connectionRegistry, EventBus eventBus,
 			AndroidNotificationManager notificationManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				contactManager, authorManager, conversationManager,
-				connectionRegistry, eventBus);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, contactManager, authorManager,
+				conversationManager, connectionRegistry, eventBus);
 		this.notificationManager = notificationManager;
 	}
 
@@ -11,6 +11,7 @@ import org.briarproject.bramble.api.contact.event.ContactAliasChangedEvent;
 import org.briarproject.bramble.api.contact.event.ContactRemovedEvent;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -65,12 +66,14 @@ public class ContactsViewModel extends DbViewModel implements EventListener {
 	@Inject
 	public ContactsViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, TransactionManager db,
 			AndroidExecutor androidExecutor, ContactManager contactManager,
 			AuthorManager authorManager,
 			ConversationManager conversationManager,
 			ConnectionRegistry connectionRegistry, EventBus eventBus) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.contactManager = contactManager;
 		this.authorManager = authorManager;
 		this.conversationManager = conversationManager;
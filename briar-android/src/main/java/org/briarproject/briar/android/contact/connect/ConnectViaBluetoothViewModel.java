@@ -8,6 +8,7 @@ import org.briarproject.bramble.api.connection.ConnectionRegistry;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -79,6 +80,7 @@ class ConnectViaBluetoothViewModel extends DbViewModel implements
 	ConnectViaBluetoothViewModel(
 			Application app,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -88,7 +90,8 @@ class ConnectViaBluetoothViewModel extends DbViewModel implements
 			EventBus eventBus,
 			TransportPropertyManager transportPropertyManager,
 			ConnectionManager connectionManager) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.pluginManager = pluginManager;
 		this.ioExecutor = ioExecutor;
 		this.bluetoothPlugin = (BluetoothPlugin) pluginManager.getPlugin(ID);
@@ -5,6 +5,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.bramble.api.sync.GroupId;
 import org.briarproject.briar.android.controller.DbControllerImpl;
@@ -37,9 +38,10 @@ public abstract class ContactSelectorControllerImpl
 	private final AuthorManager authorManager;
 
 	public ContactSelectorControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, ContactManager contactManager,
 			AuthorManager authorManager) {
-		super(dbExecutor, lifecycleManager);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager);
 		this.contactManager = contactManager;
 		this.authorManager = authorManager;
 	}
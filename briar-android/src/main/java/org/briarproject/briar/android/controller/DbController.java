@@ -7,4 +7,6 @@ import org.briarproject.nullsafety.NotNullByDefault;
 public interface DbController {
 
 	void runOnDbThread(Runnable task);
+
+	void runOnInteractiveDbThread(Runnable task);
 }
@@ -1,10 +1,12 @@
 package org.briarproject.briar.android.controller;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.nullsafety.NotNullByDefault;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 import javax.annotation.concurrent.Immutable;
@@ -19,25 +21,41 @@ public class DbControllerImpl implements DbController {
 			Logger.getLogger(DbControllerImpl.class.getName());
 
 	protected final Executor dbExecutor;
+	private final Executor interactiveDbExecutor;
 	private final LifecycleManager lifecycleManager;
 
 	@Inject
 	public DbControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager) {
 		this.dbExecutor = dbExecutor;
+		this.interactiveDbExecutor = interactiveDbExecutor;
 		this.lifecycleManager = lifecycleManager;
 	}
 
 	@Override
 	public void runOnDbThread(Runnable task) {
-		dbExecutor.execute(() -> {
-			try {
-				lifecycleManager.waitForDatabase();
-				task.run();
-			} catch (InterruptedException e) {
-				LOG.warning("Interrupted while waiting for database");
-				Thread.currentThread().interrupt();
-			}
-		});
+		dbExecutor.execute(() -> waitForDatabaseAndRun(task));
+	}
+
+	@Override
+	public void runOnInteractiveDbThread(Runnable task) {
+		try {
+			interactiveDbExecutor.execute(() -> waitForDatabaseAndRun(task));
+		} catch (RejectedExecutionException e) {
+			// The interactive queue is bounded - fall back to the sync queue
+			LOG.warning("Interactive database queue is full");
+			runOnDbThread(task);
+		}
+	}
+
+	private void waitForDatabaseAndRun(Runnable task) {
+		try {
+			lifecycleManager.waitForDatabase();
+			task.run();
+		} catch (InterruptedException e) {
+			LOG.warning("Interrupted while waiting for database");
+			Thread.currentThread().interrupt();
+		}
 	}
 }
@@ -534,7 +534,7 @@ public class ConversationActivity extends BriarActivity
 
 	private void loadMessages() {
 		int revision = adapter.getRevision();
-		runOnDbThread(() -> {
+		runOnInteractiveDbThread(() -> {
 			try {
 				long start = now();
 				Collection<ConversationMessageHeader> headers =
@@ -631,7 +631,7 @@ public class ConversationActivity extends BriarActivity
 	}
 
 	private void loadMessageText(MessageId m) {
-		runOnDbThread(() -> {
+		runOnInteractiveDbThread(() -> {
 			try {
 				long start = now();
 				String text = messagingManager.getMessageText(m);
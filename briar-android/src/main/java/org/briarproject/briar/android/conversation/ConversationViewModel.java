@@ -9,6 +9,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.NoSuchContactException;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
@@ -127,6 +128,7 @@ public class ConversationViewModel extends DbViewModel
 	@Inject
 	ConversationViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -140,7 +142,8 @@ public class ConversationViewModel extends DbViewModel
 			AttachmentCreator attachmentCreator,
 			AutoDeleteManager autoDeleteManager,
 			ConversationManager conversationManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.db = db;
 		this.eventBus = eventBus;
 		this.messagingManager = messagingManager;
@@ -170,7 +173,7 @@ public class ConversationViewModel extends DbViewModel
 			AttachmentReceivedEvent a = (AttachmentReceivedEvent) e;
 			if (a.getContactId().equals(contactId)) {
 				LOG.info("Attachment received");
-				runOnDbThread(() -> attachmentRetriever
+				runOnInteractiveDbThread(() -> attachmentRetriever
 						.loadAttachmentItem(a.getMessageId()));
 			}
 		} else if (e instanceof AutoDeleteTimerMirroredEvent) {
@@ -219,7 +222,7 @@ public class ConversationViewModel extends DbViewModel
 	}
 
 	private void loadContact(ContactId contactId) {
-		runOnDbThread(() -> {
+		runOnInteractiveDbThread(() -> {
 			try {
 				long start = now();
 				Contact c = contactManager.getContact(contactId);
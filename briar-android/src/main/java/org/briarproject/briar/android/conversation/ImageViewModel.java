@@ -8,6 +8,7 @@ import android.view.View;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -78,11 +79,13 @@ public class ImageViewModel extends DbViewModel implements EventListener {
 	@Inject
 	ImageViewModel(Application application, AttachmentReader attachmentReader,
 			EventBus eventBus, @DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
 			@IoExecutor Executor ioExecutor) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.attachmentReader = attachmentReader;
 		this.eventBus = eventBus;
 		this.ioExecutor = ioExecutor;
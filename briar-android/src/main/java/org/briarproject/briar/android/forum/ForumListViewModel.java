@@ -5,6 +5,7 @@ import android.app.Application;
 import org.briarproject.bramble.api.contact.event.ContactRemovedEvent;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -65,13 +66,15 @@ class ForumListViewModel extends DbViewModel implements EventListener {
 	@Inject
 	ForumListViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
 			ForumManager forumManager,
 			ForumSharingManager forumSharingManager,
 			AndroidNotificationManager notificationManager, EventBus eventBus) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.forumManager = forumManager;
 		this.forumSharingManager = forumSharingManager;
 		this.notificationManager = notificationManager;
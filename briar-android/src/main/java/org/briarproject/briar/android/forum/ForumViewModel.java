@@ -8,6 +8,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -66,6 +67,7 @@ class ForumViewModel extends ThreadListViewModel<ForumPostItem> {
 	@Inject
 	ForumViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -78,9 +80,10 @@ class ForumViewModel extends ThreadListViewModel<ForumPostItem> {
 			EventBus eventBus,
 			ForumManager forumManager,
 			ForumSharingManager forumSharingManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				identityManager, notificationManager, sharingController,
-				cryptoExecutor, clock, messageTracker, eventBus);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, identityManager, notificationManager,
+				sharingController, cryptoExecutor, clock, messageTracker,
+				eventBus);
 		this.forumManager = forumManager;
 		this.forumSharingManager = forumSharingManager;
 	}
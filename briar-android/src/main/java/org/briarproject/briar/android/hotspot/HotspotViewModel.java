@@ -4,6 +4,7 @@ import android.app.Application;
 import android.net.Uri;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.lifecycle.IoExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -72,6 +73,7 @@ class HotspotViewModel extends DbViewModel
 	@Inject
 	HotspotViewModel(Application app,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -79,7 +81,8 @@ class HotspotViewModel extends DbViewModel
 			HotspotManager hotspotManager,
 			WebServerManager webServerManager,
 			AndroidNotificationManager notificationManager) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.ioExecutor = ioExecutor;
 		this.notificationManager = notificationManager;
 		this.hotspotManager = hotspotManager;
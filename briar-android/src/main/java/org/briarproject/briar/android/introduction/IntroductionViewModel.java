@@ -9,6 +9,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -52,15 +53,16 @@ class IntroductionViewModel extends ContactsViewModel {
 	@Inject
 	IntroductionViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, TransactionManager db,
 			AndroidExecutor androidExecutor, ContactManager contactManager,
 			AuthorManager authorManager,
 			ConversationManager conversationManager,
 			ConnectionRegistry connectionRegistry, EventBus eventBus,
 			IntroductionManager introductionManager) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				contactManager, authorManager, conversationManager,
-				connectionRegistry, eventBus);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, contactManager, authorManager,
+				conversationManager, connectionRegistry, eventBus);
 		this.contactManager = contactManager;
 		this.authorManager = authorManager;
 		this.introductionManager = introductionManager;
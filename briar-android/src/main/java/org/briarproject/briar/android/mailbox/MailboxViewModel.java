@@ -7,6 +7,7 @@ import com.google.zxing.Result;
 import org.briarproject.bramble.api.Consumer;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -81,6 +82,7 @@ class MailboxViewModel extends DbViewModel
 	MailboxViewModel(
 			Application app,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -89,7 +91,8 @@ class MailboxViewModel extends DbViewModel
 			PluginManager pluginManager,
 			MailboxManager mailboxManager,
 			AndroidNotificationManager notificationManager) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.eventBus = eventBus;
 		this.ioExecutor = ioExecutor;
 		this.pluginManager = pluginManager;
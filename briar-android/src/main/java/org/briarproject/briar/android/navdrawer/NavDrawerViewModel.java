@@ -4,6 +4,7 @@ import android.app.Application;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.bramble.api.settings.Settings;
@@ -53,11 +54,13 @@ public class NavDrawerViewModel extends DbViewModel {
 	@Inject
 	NavDrawerViewModel(Application app,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
 			SettingsManager settingsManager) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.settingsManager = settingsManager;
 	}
 
@@ -9,6 +9,7 @@ import android.content.IntentFilter;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -85,11 +86,13 @@ public class PluginViewModel extends DbViewModel implements EventListener {
 
 	@Inject
 	PluginViewModel(Application app, @DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, TransactionManager db,
 			AndroidExecutor androidExecutor, SettingsManager settingsManager,
 			PluginManager pluginManager, EventBus eventBus,
 			NetworkManager networkManager) {
-		super(app, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(app, dbExecutor, interactiveDbExecutor, lifecycleManager, db,
+				androidExecutor);
 		this.app = app;
 		this.settingsManager = settingsManager;
 		this.pluginManager = pluginManager;
@@ -6,6 +6,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -73,6 +74,7 @@ class GroupViewModel extends ThreadListViewModel<GroupMessageItem> {
 	@Inject
 	GroupViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -85,9 +87,10 @@ class GroupViewModel extends ThreadListViewModel<GroupMessageItem> {
 			MessageTracker messageTracker,
 			PrivateGroupManager privateGroupManager,
 			GroupMessageFactory groupMessageFactory) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor,
-				identityManager, notificationManager, sharingController,
-				cryptoExecutor, clock, messageTracker, eventBus);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor, identityManager, notificationManager,
+				sharingController, cryptoExecutor, clock, messageTracker,
+				eventBus);
 		this.privateGroupManager = privateGroupManager;
 		this.groupMessageFactory = groupMessageFactory;
 	}
@@ -6,6 +6,7 @@ import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.NoSuchContactException;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
@@ -69,6 +70,7 @@ class CreateGroupControllerImpl extends ContactSelectorControllerImpl
 	@Inject
 	CreateGroupControllerImpl(
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			@CryptoExecutor Executor cryptoExecutor,
 			TransactionManager db,
 			AutoDeleteManager autoDeleteManager,
@@ -83,7 +85,8 @@ class CreateGroupControllerImpl extends ContactSelectorControllerImpl
 			GroupInvitationFactory groupInvitationFactory,
 			GroupInvitationManager groupInvitationManager,
 			Clock clock) {
-		super(dbExecutor, lifecycleManager, contactManager, authorManager);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager,
+				contactManager, authorManager);
 		this.cryptoExecutor = cryptoExecutor;
 		this.db = db;
 		this.autoDeleteManager = autoDeleteManager;
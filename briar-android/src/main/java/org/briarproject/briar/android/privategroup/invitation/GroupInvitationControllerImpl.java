@@ -3,6 +3,7 @@ package org.briarproject.briar.android.privategroup.invitation;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -34,9 +35,10 @@ class GroupInvitationControllerImpl
 
 	@Inject
 	GroupInvitationControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, EventBus eventBus,
 			GroupInvitationManager groupInvitationManager) {
-		super(dbExecutor, lifecycleManager, eventBus);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager, eventBus);
 		this.groupInvitationManager = groupInvitationManager;
 	}
 
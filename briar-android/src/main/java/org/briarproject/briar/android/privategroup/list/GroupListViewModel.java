@@ -4,6 +4,7 @@ import android.app.Application;
 
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -74,6 +75,7 @@ class GroupListViewModel extends DbViewModel implements EventListener {
 	@Inject
 	GroupListViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -81,7 +83,8 @@ class GroupListViewModel extends DbViewModel implements EventListener {
 			GroupInvitationManager groupInvitationManager,
 			AuthorManager authorManager,
 			AndroidNotificationManager notificationManager, EventBus eventBus) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.groupManager = groupManager;
 		this.groupInvitationManager = groupInvitationManager;
 		this.authorManager = authorManager;
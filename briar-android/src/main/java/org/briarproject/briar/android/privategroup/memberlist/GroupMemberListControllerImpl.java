@@ -4,6 +4,7 @@ import org.briarproject.bramble.api.connection.ConnectionRegistry;
 import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
 import org.briarproject.bramble.api.sync.GroupId;
 import org.briarproject.briar.android.controller.DbControllerImpl;
@@ -32,10 +33,11 @@ class GroupMemberListControllerImpl extends DbControllerImpl
 
 	@Inject
 	GroupMemberListControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			ConnectionRegistry connectionRegistry,
 			PrivateGroupManager privateGroupManager) {
-		super(dbExecutor, lifecycleManager);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager);
 		this.connectionRegistry = connectionRegistry;
 		this.privateGroupManager = privateGroupManager;
 	}
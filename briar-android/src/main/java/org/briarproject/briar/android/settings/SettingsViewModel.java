@@ -8,6 +8,7 @@ import android.widget.Toast;
 import org.briarproject.bramble.api.FeatureFlags;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
@@ -96,6 +97,7 @@ class SettingsViewModel extends DbViewModel implements EventListener {
 	@Inject
 	SettingsViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -109,7 +111,8 @@ class SettingsViewModel extends DbViewModel implements EventListener {
 			CircumventionProvider circumventionProvider,
 			@IoExecutor Executor ioExecutor,
 			FeatureFlags featureFlags) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.settingsManager = settingsManager;
 		this.identityManager = identityManager;
 		this.eventBus = eventBus;
@@ -3,6 +3,7 @@ package org.briarproject.briar.android.sharing;
 import org.briarproject.bramble.api.contact.Contact;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -32,9 +33,10 @@ class BlogInvitationControllerImpl
 
 	@Inject
 	BlogInvitationControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, EventBus eventBus,
 			BlogSharingManager blogSharingManager) {
-		super(dbExecutor, lifecycleManager, eventBus);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager, eventBus);
 		this.blogSharingManager = blogSharingManager;
 	}
 
@@ -5,6 +5,7 @@ import android.app.Activity;
 import org.briarproject.bramble.api.contact.event.ContactRemovedEvent;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.event.Event;
 import org.briarproject.bramble.api.event.EventBus;
 import org.briarproject.bramble.api.event.EventListener;
@@ -45,8 +46,9 @@ public abstract class InvitationControllerImpl<I extends InvitationItem>
 	protected InvitationListener listener;
 
 	public InvitationControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, EventBus eventBus) {
-		super(dbExecutor, lifecycleManager);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager);
 		this.eventBus = eventBus;
 	}
 
@@ -5,6 +5,7 @@ import org.briarproject.bramble.api.contact.ContactId;
 import org.briarproject.bramble.api.contact.ContactManager;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.NoSuchContactException;
 import org.briarproject.bramble.api.db.NoSuchGroupException;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -40,10 +41,12 @@ class ShareBlogControllerImpl extends ContactSelectorControllerImpl
 
 	@Inject
 	ShareBlogControllerImpl(@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager, ContactManager contactManager,
 			AuthorManager authorManager,
 			BlogSharingManager blogSharingManager) {
-		super(dbExecutor, lifecycleManager, contactManager, authorManager);
+		super(dbExecutor, interactiveDbExecutor, lifecycleManager,
+				contactManager, authorManager);
 		this.blogSharingManager = blogSharingManager;
 	}
 
@@ -5,6 +5,7 @@ import android.app.Application;
 import org.briarproject.bramble.api.crypto.CryptoExecutor;
 import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.NoSuchGroupException;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.event.Event;
@@ -80,6 +81,7 @@ public abstract class ThreadListViewModel<I extends ThreadItem>
 
 	public ThreadListViewModel(Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor,
@@ -90,7 +92,8 @@ public abstract class ThreadListViewModel<I extends ThreadItem>
 			Clock clock,
 			MessageTracker messageTracker,
 			EventBus eventBus) {
-		super(application, dbExecutor, lifecycleManager, db, androidExecutor);
+		super(application, dbExecutor, interactiveDbExecutor, lifecycleManager,
+				db, androidExecutor);
 		this.identityManager = identityManager;
 		this.notificationManager = notificationManager;
 		this.cryptoExecutor = cryptoExecutor;
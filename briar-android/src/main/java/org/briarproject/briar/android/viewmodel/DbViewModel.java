@@ -6,6 +6,7 @@ import org.briarproject.bramble.api.db.DatabaseExecutor;
 import org.briarproject.bramble.api.db.DbCallable;
 import org.briarproject.bramble.api.db.DbException;
 import org.briarproject.bramble.api.db.DbRunnable;
+import org.briarproject.bramble.api.db.InteractiveDatabaseExecutor;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.db.TransactionManager;
 import org.briarproject.bramble.api.lifecycle.LifecycleManager;
@@ -18,6 +19,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 import javax.annotation.concurrent.Immutable;
@@ -44,6 +46,8 @@ public abstract class DbViewModel extends AndroidViewModel {
 
 	@DatabaseExecutor
 	private final Executor dbExecutor;
+	@InteractiveDatabaseExecutor
+	private final Executor interactiveDbExecutor;
 	protected final LifecycleManager lifecycleManager;
 	private final TransactionManager db;
 	protected final AndroidExecutor androidExecutor;
@@ -51,11 +55,13 @@ public abstract class DbViewModel extends AndroidViewModel {
 	public DbViewModel(
 			Application application,
 			@DatabaseExecutor Executor dbExecutor,
+			@InteractiveDatabaseExecutor Executor interactiveDbExecutor,
 			LifecycleManager lifecycleManager,
 			TransactionManager db,
 			AndroidExecutor androidExecutor) {
 		super(application);
 		this.dbExecutor = dbExecutor;
+		this.interactiveDbExecutor = interactiveDbExecutor;
 		this.lifecycleManager = lifecycleManager;
 		this.db = db;
 		this.androidExecutor = androidExecutor;
@@ -81,6 +87,29 @@ public abstract class DbViewModel extends AndroidViewModel {
 		});
 	}
 
+	/**
+	 * Waits for the DB to open and runs the given task on the
+	 * {@link InteractiveDatabaseExecutor}, so it doesn't have to wait behind
+	 * any sync tasks. Use this for short tasks that the user is waiting for,
+	 * such as loading data to display. The task may run before tasks that
+	 * were submitted earlier to the {@link DatabaseExecutor}.
+	 * <p>
+	 * If you need a list of items to be displayed in a
+	 * {@link RecyclerView.Adapter},
+	 * use {@link #loadFromDb(DbCallable, UiConsumer)} instead.
+	 */
+	protected void runOnInteractiveDbThread(Runnable task) {
+		executeInteractive(() -> {
+			try {
+				lifecycleManager.waitForDatabase();
+				task.run();
+			} catch (InterruptedException e) {
+				LOG.warning("Interrupted while waiting for database");
+				Thread.currentThread().interrupt();
+			}
+		});
+	}
+
 	/**
 	 * Waits for the DB to open and runs the given task on the
 	 * {@link DatabaseExecutor}.
@@ -105,8 +134,8 @@ public abstract class DbViewModel extends AndroidViewModel {
 	}
 
 	/**
-	 * Loads a data on the {@link DatabaseExecutor} within a single
-	 * {@link Transaction} and publishes it as a {@link LiveResult}
+	 * Loads a data on the {@link InteractiveDatabaseExecutor} within a single
+	 * read-only {@link Transaction} and publishes it as a {@link LiveResult}
 	 * to the {@link UiThread}.
 	 * <p>
 	 * Use this to ensure that modifications to your local UI data do not get
@@ -120,7 +149,7 @@ public abstract class DbViewModel extends AndroidViewModel {
 	 */
 	protected <T> void loadFromDb(DbCallable<T, DbException> task,
 			UiConsumer<LiveResult<T>> uiConsumer) {
-		dbExecutor.execute(() -> {
+		executeInteractive(() -> {
 			try {
 				lifecycleManager.waitForDatabase();
 				db.transaction(true, txn -> {
@@ -138,6 +167,16 @@ public abstract class DbViewModel extends AndroidViewModel {
 		});
 	}
 
+	private void executeInteractive(Runnable task) {
+		try {
+			interactiveDbExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// The interactive queue is bounded - fall back to the sync queue
+			LOG.warning("Interactive database queue is full");
+			dbExecutor.execute(task);
+		}
+	}
+
 	@NotNullByDefault
 	public interface UiConsumer<T> {
 		@UiThread
@@ -103,9 +103,10 @@ public class GroupListViewModelTest extends BrambleMockTestCase {
 		Executor dbExecutor = new ImmediateExecutor();
 		AndroidExecutor androidExecutor =
 				new AndroidExecutorTestImpl(dbExecutor);
-		viewModel = new GroupListViewModel(app, dbExecutor, lifecycleManager,
-				db, androidExecutor, groupManager, groupInvitationManager,
-				authorManager, notificationManager, eventBus);
+		viewModel = new GroupListViewModel(app, dbExecutor, dbExecutor,
+				lifecycleManager, db, androidExecutor, groupManager,
+				groupInvitationManager, authorManager, notificationManager,
+				eventBus);
 	}
 
 	@Test
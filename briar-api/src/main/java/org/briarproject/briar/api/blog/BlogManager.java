@@ -143,6 +143,13 @@ public interface BlogManager {
 	List<BlogPostHeader> getPostHeaders(Transaction txn, GroupId g)
 			throws DbException;
 
+	/**
+	 * Returns the headers of up to {@code limit} posts in the given blog,
+	 * newest first, after skipping the {@code offset} newest posts.
+	 */
+	List<BlogPostHeader> getPostHeaders(Transaction txn, GroupId g,
+			int offset, int limit) throws DbException;
+
 	/**
 	 * Marks a blog post as read or unread.
 	 */
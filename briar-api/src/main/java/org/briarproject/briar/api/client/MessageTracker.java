@@ -8,6 +8,8 @@ import org.briarproject.bramble.api.sync.MessageId;
 import org.briarproject.briar.api.conversation.ConversationManager;
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.util.Collection;
+
 import javax.annotation.Nullable;
 
 @NotNullByDefault
@@ -80,6 +82,18 @@ public interface MessageTracker {
 	boolean setReadFlag(Transaction txn, GroupId g, MessageId m, boolean read)
 			throws DbException;
 
+	/**
+	 * Marks all unread messages in the group as read and sets the group's
+	 * unread count to zero. The messages are marked with a single database
+	 * update, which is much cheaper than calling
+	 * {@link #setReadFlag(Transaction, GroupId, MessageId, boolean)} for
+	 * each message.
+	 *
+	 * @return The IDs of the messages that were marked as read
+	 */
+	Collection<MessageId> markAllAsRead(Transaction txn, GroupId g)
+			throws DbException;
+
 	/**
 	 * Resets the {@link GroupCount} to the given msgCount and unreadCount.
 	 * The latestMsgTime will be set to the current time.
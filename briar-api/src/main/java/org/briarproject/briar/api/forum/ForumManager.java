@@ -112,6 +112,13 @@ public interface ForumManager {
 	List<ForumPostHeader> getPostHeaders(Transaction txn, GroupId g)
 			throws DbException;
 
+	/**
+	 * Returns the headers of up to {@code limit} posts in the given forum,
+	 * newest first, after skipping the {@code offset} newest posts.
+	 */
+	List<ForumPostHeader> getPostHeaders(Transaction txn, GroupId g,
+			int offset, int limit) throws DbException;
+
 	/**
 	 * Registers a hook to be called whenever a forum is removed.
 	 */
@@ -13,7 +13,7 @@ import org.briarproject.briar.api.attachment.Attachment;
 import org.briarproject.briar.api.attachment.AttachmentHeader;
 import org.briarproject.briar.api.attachment.AttachmentReader;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 import javax.inject.Inject;
@@ -49,7 +49,6 @@ public class AttachmentReaderImpl implements AttachmentReader {
 		if (!message.getGroupId().equals(h.getGroupId())) {
 			throw new NoSuchMessageException();
 		}
-		byte[] body = message.getBody();
 		try {
 			BdfDictionary meta =
 					clientHelper.getMessageMetadataAsDictionary(txn, m);
@@ -57,11 +56,15 @@ public class AttachmentReaderImpl implements AttachmentReader {
 			if (!contentType.equals(h.getContentType()))
 				throw new NoSuchMessageException();
 			int offset = meta.getInt(MSG_KEY_DESCRIPTOR_LENGTH);
-			InputStream stream = new ByteArrayInputStream(body, offset,
-					body.length - offset);
+			// Read the attachment from the message without copying the body
+			InputStream stream = message.getBodyInputStream();
+			if (stream.skip(offset) != offset)
+				throw new NoSuchMessageException();
 			return new Attachment(h, stream);
 		} catch (FormatException e) {
 			throw new NoSuchMessageException();
+		} catch (IOException e) {
+			throw new AssertionError(e);
 		}
 	}
 
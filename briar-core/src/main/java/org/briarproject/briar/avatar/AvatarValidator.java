@@ -16,7 +16,6 @@ import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.briar.attachment.CountingInputStream;
 import org.briarproject.nullsafety.NotNullByDefault;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -57,7 +56,7 @@ class AvatarValidator implements MessageValidator {
 					"Timestamp is too far in the future");
 		}
 		try {
-			InputStream in = new ByteArrayInputStream(m.getBody());
+			InputStream in = m.getBodyInputStream();
 			CountingInputStream countIn =
 					new CountingInputStream(in, MAX_MESSAGE_BODY_LENGTH);
 			BdfReader reader = bdfReaderFactory.createReader(countIn);
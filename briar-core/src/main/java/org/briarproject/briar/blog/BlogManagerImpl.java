@@ -2,11 +2,11 @@ package org.briarproject.briar.blog;
 
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.client.BdfIncomingMessageHook;
+import org.briarproject.bramble.api.client.BdfMessageMetadataVisitor;
 import org.briarproject.bramble.api.client.ClientHelper;
 import org.briarproject.bramble.api.contact.Contact;
 import org.briarproject.bramble.api.contact.ContactManager.ContactHook;
 import org.briarproject.bramble.api.data.BdfDictionary;
-import org.briarproject.bramble.api.data.BdfEntry;
 import org.briarproject.bramble.api.data.BdfList;
 import org.briarproject.bramble.api.data.MetadataParser;
 import org.briarproject.bramble.api.db.DatabaseComponent;
@@ -40,11 +40,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nullable;
@@ -513,44 +510,39 @@ class BlogManagerImpl extends BdfIncomingMessageHook implements BlogManager,
 	@Override
 	public List<BlogPostHeader> getPostHeaders(Transaction txn, GroupId g)
 			throws DbException {
-		// Query for posts and comments only
-		BdfDictionary query1 = BdfDictionary.of(
-				new BdfEntry(KEY_TYPE, POST.getInt())
-		);
-		BdfDictionary query2 = BdfDictionary.of(
-				new BdfEntry(KEY_TYPE, COMMENT.getInt())
-		);
+		return getPostHeaders(txn, g, 0, Integer.MAX_VALUE);
+	}
 
+	@Override
+	public List<BlogPostHeader> getPostHeaders(Transaction txn, GroupId g,
+			int offset, int limit) throws DbException {
+		if (offset < 0 || limit < 0) throw new IllegalArgumentException();
 		List<BlogPostHeader> headers = new ArrayList<>();
-		try {
-			Map<MessageId, BdfDictionary> metadata1 =
-					clientHelper.getMessageMetadataAsDictionary(txn, g, query1);
-			Map<MessageId, BdfDictionary> metadata2 =
-					clientHelper.getMessageMetadataAsDictionary(txn, g, query2);
-			Map<MessageId, BdfDictionary> metadata =
-					new HashMap<>(metadata1.size() + metadata2.size());
-			metadata.putAll(metadata1);
-			metadata.putAll(metadata2);
-			// get all authors we need to get the information for
-			Set<AuthorId> authors = new HashSet<>();
-			for (Entry<MessageId, BdfDictionary> entry : metadata.entrySet()) {
-				BdfList authorList = entry.getValue().getList(KEY_AUTHOR);
-				Author a = clientHelper.parseAndValidateAuthor(authorList);
-				authors.add(a.getId());
-			}
-			// get information for all authors
-			Map<AuthorId, AuthorInfo> authorInfos = new HashMap<>();
-			for (AuthorId authorId : authors) {
-				authorInfos.put(authorId,
-						authorManager.getAuthorInfo(txn, authorId));
-			}
-			// get post headers
-			for (Entry<MessageId, BdfDictionary> entry : metadata.entrySet()) {
-				BdfDictionary meta = entry.getValue();
-				BlogPostHeader h = getPostHeaderFromMetadata(txn, g,
-						entry.getKey(), meta, authorInfos);
-				headers.add(h);
+		if (limit == 0) return headers;
+		// Look up each author's info once
+		Map<AuthorId, AuthorInfo> authorInfos = new HashMap<>();
+		int[] skipped = {0};
+		BdfMessageMetadataVisitor visitor = (m, meta) -> {
+			// Visit posts and comments only
+			Integer type = meta.getOptionalInt(KEY_TYPE);
+			if (type == null) return true;
+			if (type != POST.getInt() && type != COMMENT.getInt()) return true;
+			if (skipped[0] < offset) {
+				skipped[0]++;
+				return true;
 			}
+			BdfList authorList = meta.getList(KEY_AUTHOR);
+			Author a = clientHelper.parseAndValidateAuthor(authorList);
+			AuthorId id = a.getId();
+			if (!authorInfos.containsKey(id))
+				authorInfos.put(id, authorManager.getAuthorInfo(txn, id));
+			headers.add(getPostHeaderFromMetadata(txn, g, m, meta,
+					authorInfos));
+			return headers.size() < limit;
+		};
+		try {
+			clientHelper.visitMessageMetadataAsDictionary(txn, g,
+					new BdfDictionary(), visitor);
 		} catch (FormatException e) {
 			throw new DbException(e);
 		}
@@ -4,8 +4,10 @@ import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.client.ClientHelper;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfEntry;
+import org.briarproject.bramble.api.data.MetadataEncoder;
 import org.briarproject.bramble.api.db.DatabaseComponent;
 import org.briarproject.bramble.api.db.DbException;
+import org.briarproject.bramble.api.db.Metadata;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.sync.GroupId;
 import org.briarproject.bramble.api.sync.Message;
@@ -14,6 +16,10 @@ import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.briar.api.client.MessageTracker;
 import org.briarproject.nullsafety.NotNullByDefault;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.inject.Inject;
@@ -24,19 +30,28 @@ import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_ST
 import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_UNREAD_COUNT;
 import static org.briarproject.briar.client.MessageTrackerConstants.MSG_KEY_READ;
 
+/**
+ * Group counts are stored as typed group counters, so they can be updated
+ * without parsing and encoding the group's metadata. Groups that were
+ * created before group counters existed have their counts in the group's
+ * metadata. Those counts are read until the group's counters are first
+ * stored, after which the counts in the metadata are ignored.
+ */
 @Immutable
 @NotNullByDefault
 class MessageTrackerImpl implements MessageTracker {
 
 	private final DatabaseComponent db;
 	private final ClientHelper clientHelper;
+	private final MetadataEncoder metadataEncoder;
 	private final Clock clock;
 
 	@Inject
 	MessageTrackerImpl(DatabaseComponent db, ClientHelper clientHelper,
-			Clock clock) {
+			MetadataEncoder metadataEncoder, Clock clock) {
 		this.db = db;
 		this.clientHelper = clientHelper;
+		this.metadataEncoder = metadataEncoder;
 		this.clock = clock;
 	}
 
@@ -111,6 +126,22 @@ class MessageTrackerImpl implements MessageTracker {
 	@Override
 	public GroupCount getGroupCount(Transaction txn, GroupId g)
 			throws DbException {
+		Map<String, Long> counters = db.getGroupCounters(txn, g);
+		if (counters.isEmpty()) return getLegacyGroupCount(txn, g);
+		return new GroupCount(
+				getCounter(counters, GROUP_KEY_MSG_COUNT).intValue(),
+				getCounter(counters, GROUP_KEY_UNREAD_COUNT).intValue(),
+				getCounter(counters, GROUP_KEY_LATEST_MSG)
+		);
+	}
+
+	private Long getCounter(Map<String, Long> counters, String key) {
+		Long value = counters.get(key);
+		return value == null ? 0L : value;
+	}
+
+	private GroupCount getLegacyGroupCount(Transaction txn, GroupId g)
+			throws DbException {
 		try {
 			BdfDictionary d = clientHelper.getGroupMetadataAsDictionary(txn, g);
 			return new GroupCount(
@@ -125,16 +156,11 @@ class MessageTrackerImpl implements MessageTracker {
 
 	private void storeGroupCount(Transaction txn, GroupId g, GroupCount c)
 			throws DbException {
-		try {
-			BdfDictionary d = BdfDictionary.of(
-					new BdfEntry(GROUP_KEY_MSG_COUNT, c.getMsgCount()),
-					new BdfEntry(GROUP_KEY_UNREAD_COUNT, c.getUnreadCount()),
-					new BdfEntry(GROUP_KEY_LATEST_MSG, c.getLatestMsgTime())
-			);
-			clientHelper.mergeGroupMetadata(txn, g, d);
-		} catch (FormatException e) {
-			throw new DbException(e);
-		}
+		Map<String, Long> counters = new HashMap<>();
+		counters.put(GROUP_KEY_MSG_COUNT, (long) c.getMsgCount());
+		counters.put(GROUP_KEY_UNREAD_COUNT, (long) c.getUnreadCount());
+		counters.put(GROUP_KEY_LATEST_MSG, c.getLatestMsgTime());
+		db.mergeGroupCounters(txn, g, counters);
 	}
 
 	@Override
@@ -166,6 +192,29 @@ class MessageTrackerImpl implements MessageTracker {
 		}
 	}
 
+	@Override
+	public Collection<MessageId> markAllAsRead(Transaction txn, GroupId g)
+			throws DbException {
+		try {
+			Metadata unread = metadataEncoder.encode(
+					BdfDictionary.of(new BdfEntry(MSG_KEY_READ, false)));
+			Metadata read = metadataEncoder.encode(
+					BdfDictionary.of(new BdfEntry(MSG_KEY_READ, true)));
+			// Mark all the unread messages as read with a single update
+			Collection<MessageId> marked = db.replaceMessageMetadata(txn, g,
+					MSG_KEY_READ, unread.get(MSG_KEY_READ),
+					read.get(MSG_KEY_READ));
+			GroupCount c = getGroupCount(txn, g);
+			if (!marked.isEmpty() || c.getUnreadCount() != 0) {
+				storeGroupCount(txn, g, new GroupCount(c.getMsgCount(), 0,
+						c.getLatestMsgTime()));
+			}
+			return marked;
+		} catch (FormatException e) {
+			throw new DbException(e);
+		}
+	}
+
 	@Override
 	public void resetGroupCount(Transaction txn, GroupId g, int msgCount,
 			int unreadCount) throws DbException {
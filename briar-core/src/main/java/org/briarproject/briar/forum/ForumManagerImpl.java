@@ -2,6 +2,7 @@ package org.briarproject.briar.forum;
 
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.client.BdfIncomingMessageHook;
+import org.briarproject.bramble.api.client.BdfMessageMetadataVisitor;
 import org.briarproject.bramble.api.client.ClientHelper;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfList;
@@ -34,11 +35,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.Nullable;
@@ -220,32 +218,41 @@ class ForumManagerImpl extends BdfIncomingMessageHook implements ForumManager {
 	@Override
 	public List<ForumPostHeader> getPostHeaders(Transaction txn, GroupId g)
 			throws DbException {
-		try {
-			List<ForumPostHeader> headers = new ArrayList<>();
-			Map<MessageId, BdfDictionary> metadata =
-					clientHelper.getMessageMetadataAsDictionary(txn, g);
-			// get all authors we need to get the info for
-			Set<AuthorId> authors = new HashSet<>();
-			for (Entry<MessageId, BdfDictionary> entry : metadata.entrySet()) {
-				BdfList authorList = entry.getValue().getList(KEY_AUTHOR);
-				Author a = clientHelper.parseAndValidateAuthor(authorList);
-				authors.add(a.getId());
+		return getPostHeaders(txn, g, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<ForumPostHeader> getPostHeaders(Transaction txn, GroupId g,
+			int offset, int limit) throws DbException {
+		if (offset < 0 || limit < 0) throw new IllegalArgumentException();
+		List<ForumPostHeader> headers = new ArrayList<>();
+		if (limit == 0) return headers;
+		// Look up each author's info once
+		Map<AuthorId, AuthorInfo> authorInfos = new HashMap<>();
+		int[] skipped = {0};
+		BdfMessageMetadataVisitor visitor = (m, meta) -> {
+			// Visit posts with an author only
+			if (meta.isEmpty()) return true;
+			BdfList authorList = meta.getOptionalList(KEY_AUTHOR);
+			if (authorList == null) return true;
+			if (skipped[0] < offset) {
+				skipped[0]++;
+				return true;
 			}
-			// get information for all authors
-			Map<AuthorId, AuthorInfo> authorInfos = new HashMap<>();
-			for (AuthorId id : authors) {
+			Author a = clientHelper.parseAndValidateAuthor(authorList);
+			AuthorId id = a.getId();
+			if (!authorInfos.containsKey(id))
 				authorInfos.put(id, authorManager.getAuthorInfo(txn, id));
-			}
-			// Parse the metadata
-			for (Entry<MessageId, BdfDictionary> entry : metadata.entrySet()) {
-				BdfDictionary meta = entry.getValue();
-				headers.add(getForumPostHeader(txn, entry.getKey(), meta,
-						authorInfos));
-			}
-			return headers;
+			headers.add(getForumPostHeader(txn, m, meta, authorInfos));
+			return headers.size() < limit;
+		};
+		try {
+			clientHelper.visitMessageMetadataAsDictionary(txn, g,
+					new BdfDictionary(), visitor);
 		} catch (FormatException e) {
 			throw new DbException(e);
 		}
+		return headers;
 	}
 
 	@Override
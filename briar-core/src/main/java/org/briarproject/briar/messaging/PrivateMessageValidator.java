@@ -18,7 +18,6 @@ import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.briar.attachment.CountingInputStream;
 import org.briarproject.nullsafety.NotNullByDefault;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -71,7 +70,7 @@ class PrivateMessageValidator implements MessageValidator {
 		}
 		try {
 			// TODO: Support large messages
-			InputStream in = new ByteArrayInputStream(m.getBody());
+			InputStream in = m.getBodyInputStream();
 			CountingInputStream countIn =
 					new CountingInputStream(in, MAX_MESSAGE_BODY_LENGTH);
 			BdfReader reader = bdfReaderFactory.createReader(countIn);
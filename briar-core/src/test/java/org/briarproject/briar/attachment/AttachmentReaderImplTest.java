@@ -19,6 +19,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 
 import static java.lang.System.arraycopy;
+import static org.briarproject.bramble.api.sync.SyncConstants.MESSAGE_HEADER_LENGTH;
 import static org.briarproject.bramble.test.TestUtils.getMessage;
 import static org.briarproject.bramble.test.TestUtils.getRandomId;
 import static org.briarproject.bramble.util.IoUtils.copyAndClose;
@@ -95,14 +96,39 @@ public class AttachmentReaderImplTest extends BrambleMockTestCase {
 		attachmentReader.getAttachment(header);
 	}
 
+	@Test(expected = NoSuchMessageException.class)
+	public void testDescriptorLongerThanBody() throws Exception {
+		BdfDictionary meta = BdfDictionary.of(
+				new BdfEntry(MSG_KEY_CONTENT_TYPE, contentType),
+				new BdfEntry(MSG_KEY_DESCRIPTOR_LENGTH,
+						message.getBodyLength() + 1));
+
+		testInvalidMetadata(meta);
+	}
+
 	@Test
 	public void testSkipsDescriptor() throws Exception {
+		testSkipsDescriptor(message);
+	}
+
+	@Test
+	public void testSkipsDescriptorOfWrappedMessage() throws Exception {
+		byte[] body = message.getBody();
+		byte[] raw = new byte[MESSAGE_HEADER_LENGTH + body.length];
+		arraycopy(body, 0, raw, MESSAGE_HEADER_LENGTH, body.length);
+		Message wrapped = Message.wrapRawMessage(message.getId(), groupId,
+				message.getTimestamp(), raw);
+
+		testSkipsDescriptor(wrapped);
+	}
+
+	private void testSkipsDescriptor(Message m) throws Exception {
 		int descriptorLength = 123;
 		BdfDictionary meta = BdfDictionary.of(
 				new BdfEntry(MSG_KEY_CONTENT_TYPE, contentType),
 				new BdfEntry(MSG_KEY_DESCRIPTOR_LENGTH, descriptorLength));
 
-		byte[] body = message.getBody();
+		byte[] body = m.getBody();
 		byte[] expectedData = new byte[body.length - descriptorLength];
 		arraycopy(body, descriptorLength, expectedData, 0, expectedData.length);
 
@@ -110,10 +136,9 @@ public class AttachmentReaderImplTest extends BrambleMockTestCase {
 
 		context.checking(new DbExpectations() {{
 			oneOf(db).transactionWithResult(with(true), withDbCallable(txn));
-			oneOf(clientHelper).getMessage(txn, message.getId());
-			will(returnValue(message));
-			oneOf(clientHelper)
-					.getMessageMetadataAsDictionary(txn, message.getId());
+			oneOf(clientHelper).getMessage(txn, m.getId());
+			will(returnValue(m));
+			oneOf(clientHelper).getMessageMetadataAsDictionary(txn, m.getId());
 			will(returnValue(meta));
 		}});
 
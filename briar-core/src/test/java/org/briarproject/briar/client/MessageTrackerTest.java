@@ -3,22 +3,35 @@ package org.briarproject.briar.client;
 import org.briarproject.bramble.api.client.ClientHelper;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfEntry;
+import org.briarproject.bramble.api.data.MetadataEncoder;
 import org.briarproject.bramble.api.db.DatabaseComponent;
+import org.briarproject.bramble.api.db.Metadata;
 import org.briarproject.bramble.api.db.Transaction;
 import org.briarproject.bramble.api.sync.GroupId;
+import org.briarproject.bramble.api.sync.Message;
 import org.briarproject.bramble.api.sync.MessageId;
 import org.briarproject.bramble.api.system.Clock;
 import org.briarproject.bramble.test.BrambleMockTestCase;
 import org.briarproject.bramble.test.TestUtils;
 import org.briarproject.briar.api.client.MessageTracker;
+import org.briarproject.briar.api.client.MessageTracker.GroupCount;
 import org.jmock.Expectations;
 import org.junit.Test;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.briarproject.bramble.test.TestUtils.getMessage;
 import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_LATEST_MSG;
 import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_MSG_COUNT;
 import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_STORED_MESSAGE_ID;
 import static org.briarproject.briar.client.MessageTrackerConstants.GROUP_KEY_UNREAD_COUNT;
+import static org.briarproject.briar.client.MessageTrackerConstants.MSG_KEY_READ;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
 public class MessageTrackerTest extends BrambleMockTestCase {
@@ -27,10 +40,12 @@ public class MessageTrackerTest extends BrambleMockTestCase {
 	protected final ClientHelper clientHelper =
 			context.mock(ClientHelper.class);
 	private final DatabaseComponent db = context.mock(DatabaseComponent.class);
+	private final MetadataEncoder metadataEncoder =
+			context.mock(MetadataEncoder.class);
 	private final Clock clock = context.mock(Clock.class);
 	private final MessageId messageId = new MessageId(TestUtils.getRandomId());
 	private final MessageTracker messageTracker =
-			new MessageTrackerImpl(db, clientHelper, clock);
+			new MessageTrackerImpl(db, clientHelper, metadataEncoder, clock);
 	private final BdfDictionary dictionary = BdfDictionary.of(
 			new BdfEntry(GROUP_KEY_STORED_MESSAGE_ID, messageId)
 	);
@@ -39,19 +54,122 @@ public class MessageTrackerTest extends BrambleMockTestCase {
 	public void testInitializeGroupCount() throws Exception {
 		Transaction txn = new Transaction(null, false);
 		long now = 42L;
-		BdfDictionary dictionary = BdfDictionary.of(
-				new BdfEntry(GROUP_KEY_MSG_COUNT, 0),
-				new BdfEntry(GROUP_KEY_UNREAD_COUNT, 0),
-				new BdfEntry(GROUP_KEY_LATEST_MSG, now)
-		);
+
 		context.checking(new Expectations() {{
 			oneOf(clock).currentTimeMillis();
 			will(returnValue(now));
-			oneOf(clientHelper).mergeGroupMetadata(txn, groupId, dictionary);
+			oneOf(db).mergeGroupCounters(txn, groupId, counters(0, 0, now));
 		}});
+
 		messageTracker.initializeGroupCount(txn, groupId);
 	}
 
+	@Test
+	public void testGetGroupCountFromCounters() throws Exception {
+		Transaction txn = new Transaction(null, true);
+
+		context.checking(new Expectations() {{
+			oneOf(db).getGroupCounters(txn, groupId);
+			will(returnValue(counters(3, 2, 1)));
+		}});
+
+		GroupCount c = messageTracker.getGroupCount(txn, groupId);
+		assertEquals(3, c.getMsgCount());
+		assertEquals(2, c.getUnreadCount());
+		assertEquals(1, c.getLatestMsgTime());
+	}
+
+	@Test
+	public void testGetGroupCountFromLegacyMetadata() throws Exception {
+		Transaction txn = new Transaction(null, true);
+		BdfDictionary legacy = BdfDictionary.of(
+				new BdfEntry(GROUP_KEY_MSG_COUNT, 3),
+				new BdfEntry(GROUP_KEY_UNREAD_COUNT, 2),
+				new BdfEntry(GROUP_KEY_LATEST_MSG, 1L)
+		);
+
+		context.checking(new Expectations() {{
+			oneOf(db).getGroupCounters(txn, groupId);
+			will(returnValue(emptyMap()));
+			oneOf(clientHelper).getGroupMetadataAsDictionary(txn, groupId);
+			will(returnValue(legacy));
+		}});
+
+		GroupCount c = messageTracker.getGroupCount(txn, groupId);
+		assertEquals(3, c.getMsgCount());
+		assertEquals(2, c.getUnreadCount());
+		assertEquals(1, c.getLatestMsgTime());
+	}
+
+	@Test
+	public void testTrackIncomingMessage() throws Exception {
+		Transaction txn = new Transaction(null, false);
+		Message m = getMessage(groupId);
+
+		context.checking(new Expectations() {{
+			oneOf(db).getGroupCounters(txn, groupId);
+			will(returnValue(counters(3, 2, m.getTimestamp() - 1)));
+			oneOf(db).mergeGroupCounters(txn, groupId,
+					counters(4, 3, m.getTimestamp()));
+		}});
+
+		messageTracker.trackIncomingMessage(txn, m);
+	}
+
+	@Test
+	public void testSetReadFlag() throws Exception {
+		Transaction txn = new Transaction(null, false);
+
+		context.checking(new Expectations() {{
+			oneOf(clientHelper).getMessageMetadataAsDictionary(txn, messageId);
+			will(returnValue(BdfDictionary.of(
+					new BdfEntry(MSG_KEY_READ, false))));
+			oneOf(clientHelper).mergeMessageMetadata(txn, messageId,
+					BdfDictionary.of(new BdfEntry(MSG_KEY_READ, true)));
+			oneOf(db).getGroupCounters(txn, groupId);
+			will(returnValue(counters(3, 2, 1)));
+			oneOf(db).mergeGroupCounters(txn, groupId, counters(3, 1, 1));
+		}});
+
+		assertFalse(messageTracker.setReadFlag(txn, groupId, messageId, true));
+	}
+
+	@Test
+	public void testMarkAllAsRead() throws Exception {
+		Transaction txn = new Transaction(null, false);
+		byte[] unread = new byte[] {0}, read = new byte[] {1};
+		Metadata unreadMeta = new Metadata(), readMeta = new Metadata();
+		unreadMeta.put(MSG_KEY_READ, unread);
+		readMeta.put(MSG_KEY_READ, read);
+		Collection<MessageId> marked = singletonList(messageId);
+
+		context.checking(new Expectations() {{
+			oneOf(metadataEncoder).encode(
+					BdfDictionary.of(new BdfEntry(MSG_KEY_READ, false)));
+			will(returnValue(unreadMeta));
+			oneOf(metadataEncoder).encode(
+					BdfDictionary.of(new BdfEntry(MSG_KEY_READ, true)));
+			will(returnValue(readMeta));
+			oneOf(db).replaceMessageMetadata(txn, groupId, MSG_KEY_READ,
+					unread, read);
+			will(returnValue(marked));
+			oneOf(db).getGroupCounters(txn, groupId);
+			will(returnValue(counters(3, 1, 1)));
+			oneOf(db).mergeGroupCounters(txn, groupId, counters(3, 0, 1));
+		}});
+
+		assertEquals(marked, messageTracker.markAllAsRead(txn, groupId));
+	}
+
+	private Map<String, Long> counters(long msgCount, long unreadCount,
+			long latestMsgTime) {
+		Map<String, Long> counters = new HashMap<>();
+		counters.put(GROUP_KEY_MSG_COUNT, msgCount);
+		counters.put(GROUP_KEY_UNREAD_COUNT, unreadCount);
+		counters.put(GROUP_KEY_LATEST_MSG, latestMsgTime);
+		return counters;
+	}
+
 	@Test
 	public void testMessageStore() throws Exception {
 		context.checking(new Expectations() {{
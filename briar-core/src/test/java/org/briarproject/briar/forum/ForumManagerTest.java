@@ -14,6 +14,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Collection;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -133,6 +134,34 @@ public class ForumManagerTest
 		assertEquals(0, forumManager0.getForums().size());
 	}
 
+	@Test
+	public void testGetPostHeadersWithOffsetAndLimit() throws Exception {
+		// Add three posts with increasing timestamps
+		long time = c0.getClock().currentTimeMillis();
+		ForumPost post1 = createForumPost(groupId0, null, "a", time - 2000);
+		ForumPost post2 = createForumPost(groupId0, null, "b", time - 1000);
+		ForumPost post3 = createForumPost(groupId0, null, "c", time);
+		forumManager0.addLocalPost(post1);
+		forumManager0.addLocalPost(post2);
+		forumManager0.addLocalPost(post3);
+
+		// The newest posts should be returned first
+		List<ForumPostHeader> headers = db0.transactionWithResult(true,
+				txn -> forumManager0.getPostHeaders(txn, groupId0, 0, 2));
+		assertEquals(2, headers.size());
+		assertEquals(post3.getMessage().getId(), headers.get(0).getId());
+		assertEquals(post2.getMessage().getId(), headers.get(1).getId());
+
+		headers = db0.transactionWithResult(true,
+				txn -> forumManager0.getPostHeaders(txn, groupId0, 2, 2));
+		assertEquals(1, headers.size());
+		assertEquals(post1.getMessage().getId(), headers.get(0).getId());
+
+		headers = db0.transactionWithResult(true,
+				txn -> forumManager0.getPostHeaders(txn, groupId0, 3, 2));
+		assertTrue(headers.isEmpty());
+	}
+
 	@Test
 	public void testForumPostDelivery() throws Exception {
 		// add one forum post
@@ -2,16 +2,19 @@ package org.briarproject.briar.privategroup;
 
 import org.briarproject.bramble.api.FormatException;
 import org.briarproject.bramble.api.client.BdfMessageContext;
+import org.briarproject.bramble.api.crypto.SignatureCheck;
 import org.briarproject.bramble.api.data.BdfDictionary;
 import org.briarproject.bramble.api.data.BdfList;
 import org.briarproject.bramble.api.identity.Author;
 import org.briarproject.bramble.api.sync.InvalidMessageException;
 import org.briarproject.bramble.api.sync.MessageId;
+import org.briarproject.bramble.test.PredicateMatcher;
 import org.briarproject.bramble.test.ValidatorTestCase;
 import org.briarproject.briar.api.privategroup.MessageType;
 import org.briarproject.briar.api.privategroup.PrivateGroup;
 import org.briarproject.briar.api.privategroup.PrivateGroupFactory;
 import org.briarproject.briar.api.privategroup.invitation.GroupInvitationFactory;
+import org.hamcrest.Matcher;
 import org.jmock.Expectations;
 import org.junit.Test;
 
@@ -19,6 +22,7 @@ import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import static org.briarproject.bramble.api.identity.AuthorConstants.MAX_SIGNATURE_LENGTH;
 import static org.briarproject.bramble.test.TestUtils.getAuthor;
@@ -392,9 +396,13 @@ public class GroupMessageValidatorTest extends ValidatorTestCase {
 		);
 		expectParseAuthor(creatorList, creator);
 		expectParsePrivateGroup();
+		byte[] signedBytes = getRandomBytes(123);
 		context.checking(new Expectations() {{
-			oneOf(clientHelper).verifySignature(memberSignature,
-					SIGNING_LABEL_JOIN, signed, creator.getPublicKey());
+			oneOf(clientHelper).toByteArray(signed);
+			will(returnValue(signedBytes));
+			oneOf(clientHelper).verifySignatures(with(signatureChecks(
+					new SignatureCheck(memberSignature, SIGNING_LABEL_JOIN,
+							signedBytes, creator.getPublicKey()))));
 			if (!memberSigValid)
 				will(throwException(new GeneralSecurityException()));
 		}});
@@ -410,23 +418,47 @@ public class GroupMessageValidatorTest extends ValidatorTestCase {
 		);
 		expectParseAuthor(memberList, member);
 		expectParsePrivateGroup();
+		byte[] tokenBytes = getRandomBytes(123);
+		byte[] signedBytes = getRandomBytes(123);
 		context.checking(new Expectations() {{
 			oneOf(groupInvitationFactory).createInviteToken(creator.getId(),
 					member.getId(), privateGroup.getId(), inviteTimestamp);
 			will(returnValue(token));
-			oneOf(clientHelper).verifySignature(creatorSignature,
-					SIGNING_LABEL_INVITE, token, creator.getPublicKey());
-			if (!creatorSigValid) {
+			oneOf(clientHelper).toByteArray(token);
+			will(returnValue(tokenBytes));
+			oneOf(clientHelper).toByteArray(signed);
+			will(returnValue(signedBytes));
+			// The creator's and member's signatures are verified as a batch
+			oneOf(clientHelper).verifySignatures(with(signatureChecks(
+					new SignatureCheck(creatorSignature, SIGNING_LABEL_INVITE,
+							tokenBytes, creator.getPublicKey()),
+					new SignatureCheck(memberSignature, SIGNING_LABEL_JOIN,
+							signedBytes, member.getPublicKey()))));
+			if (!creatorSigValid || !memberSigValid)
 				will(throwException(new GeneralSecurityException()));
-			} else {
-				oneOf(clientHelper).verifySignature(memberSignature,
-						SIGNING_LABEL_JOIN, signed, member.getPublicKey());
-				if (!memberSigValid)
-					will(throwException(new GeneralSecurityException()));
-			}
 		}});
 	}
 
+	@SuppressWarnings("unchecked")
+	private Matcher<List<SignatureCheck>> signatureChecks(
+			SignatureCheck... expected) {
+		return new PredicateMatcher<>((Class<List<SignatureCheck>>)
+				(Class<?>) List.class, checks -> {
+			if (checks.size() != expected.length) return false;
+			for (int i = 0; i < expected.length; i++) {
+				SignatureCheck a = checks.get(i), b = expected[i];
+				if (!Arrays.equals(a.getSignature(), b.getSignature()) ||
+						!a.getLabel().equals(b.getLabel()) ||
+						!Arrays.equals(a.getSigned(), b.getSigned()) ||
+						!Arrays.equals(a.getPublicKey().getEncoded(),
+								b.getPublicKey().getEncoded())) {
+					return false;
+				}
+			}
+			return true;
+		});
+	}
+
 	// POST Message
 
 	@Test(expected = FormatException.class)
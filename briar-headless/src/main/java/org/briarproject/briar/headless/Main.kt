@@ -9,6 +9,7 @@ import com.github.ajalt.clikt.parameters.types.int
 import org.bouncycastle.util.encoders.Base64.toBase64String
 import org.briarproject.bramble.BrambleCoreEagerSingletons
 import org.briarproject.bramble.BrambleJavaEagerSingletons
+import org.briarproject.bramble.lifecycle.LifecycleModule.PROP_VIRTUAL_THREADS
 import org.briarproject.bramble.util.OsUtils.isLinux
 import org.briarproject.bramble.util.OsUtils.isMac
 import org.briarproject.briar.BriarCoreEagerSingletons
@@ -57,6 +58,11 @@ private class Main : CliktCommand(
         metavar = "PATH",
         envvar = "BRIAR_DATA_DIR"
     ).default(DEFAULT_DATA_DIR)
+    private val virtualThreads by option(
+        "--virtual-threads",
+        help = "Use virtual threads for network connections if the JVM supports them",
+        envvar = "BRIAR_VIRTUAL_THREADS"
+    ).flag(default = false)
 
     override fun run() {
         // logging
@@ -73,6 +79,9 @@ private class Main : CliktCommand(
         setProperty(DEFAULT_LOG_LEVEL_KEY, levelSlf4j)
         LogManager.getLogManager().getLogger("").level = level
 
+        // This must be set before the IO executor is created
+        if (virtualThreads) setProperty(PROP_VIRTUAL_THREADS, "true")
+
         val dataDir = getDataDir()
         val app =
             DaggerBriarHeadlessApp.builder().headlessModule(HeadlessModule(dataDir)).build()
@@ -2,7 +2,15 @@ package org.briarproject.briar.headless.contact
 
 import dagger.Module
 import dagger.Provides
+import org.briarproject.bramble.api.contact.event.ContactAddedEvent
+import org.briarproject.bramble.api.contact.event.PendingContactAddedEvent
+import org.briarproject.bramble.api.contact.event.PendingContactRemovedEvent
+import org.briarproject.bramble.api.contact.event.PendingContactStateChangedEvent
 import org.briarproject.bramble.api.event.EventBus
+import org.briarproject.bramble.api.lifecycle.IoExecutor
+import org.briarproject.bramble.api.plugin.event.ContactConnectedEvent
+import org.briarproject.bramble.api.plugin.event.ContactDisconnectedEvent
+import java.util.concurrent.Executor
 import javax.inject.Singleton
 
 @Module
@@ -12,9 +20,18 @@ class HeadlessContactModule {
     @Singleton
     internal fun provideContactController(
         eventBus: EventBus,
+        @IoExecutor ioExecutor: Executor,
         contactController: ContactControllerImpl
     ): ContactController {
-        eventBus.addListener(contactController)
+        // Serialise events for the websocket off the event executor
+        listOf(
+            ContactAddedEvent::class.java,
+            PendingContactStateChangedEvent::class.java,
+            PendingContactAddedEvent::class.java,
+            PendingContactRemovedEvent::class.java,
+            ContactConnectedEvent::class.java,
+            ContactDisconnectedEvent::class.java
+        ).forEach { eventBus.addListener(it, contactController, ioExecutor) }
         return contactController
     }
 
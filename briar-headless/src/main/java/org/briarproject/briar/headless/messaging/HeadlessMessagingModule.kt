@@ -3,6 +3,11 @@ package org.briarproject.briar.headless.messaging
 import dagger.Module
 import dagger.Provides
 import org.briarproject.bramble.api.event.EventBus
+import org.briarproject.bramble.api.lifecycle.IoExecutor
+import org.briarproject.bramble.api.sync.event.MessagesAckedEvent
+import org.briarproject.bramble.api.sync.event.MessagesSentEvent
+import org.briarproject.briar.api.conversation.event.ConversationMessageReceivedEvent
+import java.util.concurrent.Executor
 import javax.inject.Singleton
 
 @Module
@@ -11,9 +16,16 @@ class HeadlessMessagingModule {
     @Provides
     @Singleton
     internal fun provideMessagingController(
-        eventBus: EventBus, messagingController: MessagingControllerImpl
+        eventBus: EventBus,
+        @IoExecutor ioExecutor: Executor,
+        messagingController: MessagingControllerImpl
     ): MessagingController {
-        eventBus.addListener(messagingController)
+        // Serialise events for the websocket off the event executor
+        eventBus.addListener(
+            ConversationMessageReceivedEvent::class.java, messagingController, ioExecutor
+        )
+        eventBus.addListener(MessagesSentEvent::class.java, messagingController, ioExecutor)
+        eventBus.addListener(MessagesAckedEvent::class.java, messagingController, ioExecutor)
         return messagingController
     }
 
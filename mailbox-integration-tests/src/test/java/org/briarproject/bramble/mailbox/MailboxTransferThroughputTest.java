@@ -0,0 +1,204 @@
+package org.briarproject.bramble.mailbox;
+
+import org.briarproject.bramble.api.Cancellable;
+import org.briarproject.bramble.api.contact.ContactId;
+import org.briarproject.bramble.api.mailbox.MailboxAuthToken;
+import org.briarproject.bramble.api.mailbox.MailboxFolderId;
+import org.briarproject.bramble.api.mailbox.MailboxProperties;
+import org.briarproject.bramble.api.system.TaskScheduler;
+import org.briarproject.bramble.mailbox.MailboxApi.MailboxContact;
+import org.briarproject.bramble.mailbox.MailboxApi.MailboxFile;
+import org.briarproject.mailbox.lib.TestMailbox;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.briarproject.bramble.mailbox.AbstractMailboxIntegrationTest.URL_BASE;
+import static org.briarproject.bramble.mailbox.MailboxApiCaller.MAX_CONCURRENT_TRANSFERS;
+import static org.briarproject.bramble.mailbox.MailboxIntegrationTestUtils.createMailboxApi;
+import static org.briarproject.bramble.test.TestUtils.deleteTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.getRandomBytes;
+import static org.briarproject.bramble.test.TestUtils.getRandomId;
+import static org.briarproject.bramble.test.TestUtils.getTestDirectory;
+import static org.briarproject.bramble.test.TestUtils.writeBytes;
+
+/**
+ * Uploads, downloads and deletes a batch of files on a local test mailbox
+ * via {@link MailboxApiCallerImpl}, first with one transfer at a time and
+ * then with {@link MailboxApiCaller#MAX_CONCURRENT_TRANSFERS} concurrent
+ * transfers. Each API call is delayed by a simulated round trip to
+ * approximate the latency of Tor.
+ */
+// Not a JUnit test
+public class MailboxTransferThroughputTest {
+
+	private static final int FILES = 50;
+	private static final int FILE_LENGTH = 64 * 1024;
+	private static final long ROUND_TRIP_MS = 500;
+
+	public static void main(String[] args) throws Exception {
+		File testDir = getTestDirectory();
+		TestMailbox mailbox = new TestMailbox(new File(testDir, "mailbox"));
+		mailbox.startLifecycle();
+		ExecutorService ioExecutor = newCachedThreadPool();
+		ScheduledExecutorService scheduler =
+				newSingleThreadScheduledExecutor();
+		try {
+			MailboxApi api = createMailboxApi(mailbox::getPort);
+			MailboxAuthToken setupToken =
+					MailboxAuthToken.fromString(mailbox.getSetupToken());
+			MailboxProperties ownerProperties = api.setup(
+					new MailboxProperties(URL_BASE, setupToken,
+							new ArrayList<>()));
+			MailboxContact contact = new MailboxContact(new ContactId(1),
+					new MailboxAuthToken(getRandomId()),
+					new MailboxFolderId(getRandomId()),
+					new MailboxFolderId(getRandomId()));
+			api.addContact(ownerProperties, contact);
+			MailboxProperties contactProperties = new MailboxProperties(
+					ownerProperties.getOnion(), contact.token,
+					new ArrayList<>(), contact.inboxId, contact.outboxId);
+			List<File> files = new ArrayList<>(FILES);
+			for (int i = 0; i < FILES; i++) {
+				File f = new File(testDir, "upload-" + i);
+				writeBytes(f, getRandomBytes(FILE_LENGTH));
+				files.add(f);
+			}
+			TaskScheduler taskScheduler = createTaskScheduler(scheduler);
+			for (int transfers : new int[] {1, MAX_CONCURRENT_TRANSFERS}) {
+				MailboxApiCaller caller = new MailboxApiCallerImpl(
+						taskScheduler, createMailboxConfig(transfers),
+						ioExecutor);
+				runTest(caller, api, ownerProperties, contactProperties,
+						contact.inboxId, files, testDir, transfers);
+			}
+		} finally {
+			mailbox.stopLifecycle(true);
+			ioExecutor.shutdown();
+			scheduler.shutdown();
+			deleteTestDirectory(testDir);
+		}
+	}
+
+	private static void runTest(MailboxApiCaller caller, MailboxApi api,
+			MailboxProperties ownerProperties,
+			MailboxProperties contactProperties, MailboxFolderId folderId,
+			List<File> files, File testDir, int transfers)
+			throws Exception {
+		// The owner uploads the files to the contact's inbox
+		CountDownLatch uploaded = new CountDownLatch(files.size());
+		long start = System.nanoTime();
+		for (File f : files) {
+			caller.retryTransferWithBackoff(new SimpleApiCall(() -> {
+				simulateRoundTrip();
+				api.addFile(ownerProperties, folderId, f);
+				uploaded.countDown();
+			}));
+		}
+		uploaded.await();
+		long uploadDuration = System.nanoTime() - start;
+
+		// The contact lists, downloads and deletes the files
+		start = System.nanoTime();
+		simulateRoundTrip();
+		List<MailboxFile> available = api.getFiles(contactProperties,
+				folderId);
+		CountDownLatch deleted = new CountDownLatch(available.size());
+		for (MailboxFile file : available) {
+			File download = new File(testDir, "download-" + file.name);
+			caller.retryTransferWithBackoff(new SimpleApiCall(() -> {
+				simulateRoundTrip();
+				api.getFile(contactProperties, folderId, file.name,
+						download);
+				caller.retryTransferWithBackoff(new SimpleApiCall(() -> {
+					simulateRoundTrip();
+					api.deleteFile(contactProperties, folderId, file.name);
+					deleted.countDown();
+				}));
+			}));
+		}
+		deleted.await();
+		long downloadDuration = System.nanoTime() - start;
+
+		System.out.println(String.format("%d concurrent transfers:"
+						+ " upload %,d ms (%.1f files/s),"
+						+ " download and delete %,d ms (%.1f files/s)",
+				transfers, NANOSECONDS.toMillis(uploadDuration),
+				getFilesPerSecond(files.size(), uploadDuration),
+				NANOSECONDS.toMillis(downloadDuration),
+				getFilesPerSecond(available.size(), downloadDuration)));
+	}
+
+	private static void simulateRoundTrip() {
+		try {
+			Thread.sleep(ROUND_TRIP_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static double getFilesPerSecond(int files, long nanos) {
+		return files * 1_000_000_000.0 / nanos;
+	}
+
+	private static MailboxConfig createMailboxConfig(int transfers) {
+		return new MailboxConfig() {
+
+			@Override
+			public long getApiCallerMinRetryInterval() {
+				return 1000;
+			}
+
+			@Override
+			public long getApiCallerMaxRetryInterval() {
+				return 2000;
+			}
+
+			@Override
+			public long getTorReachabilityPeriod() {
+				return 10_000;
+			}
+
+			@Override
+			public int getMaxConcurrentTransfers() {
+				return transfers;
+			}
+
+			@Override
+			public boolean shouldStreamTransfers() {
+				return false;
+			}
+		};
+	}
+
+	private static TaskScheduler createTaskScheduler(
+			ScheduledExecutorService scheduler) {
+		return new TaskScheduler() {
+
+			@Override
+			public Cancellable schedule(Runnable task, Executor executor,
+					long delay, TimeUnit unit) {
+				Future<?> f = scheduler.schedule(() -> executor.execute(task),
+						delay, unit);
+				return () -> f.cancel(false);
+			}
+
+			@Override
+			public Cancellable scheduleWithFixedDelay(Runnable task,
+					Executor executor, long delay, long interval,
+					TimeUnit unit) {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -27,4 +27,14 @@ class TestMailboxConfigImpl implements MailboxConfig {
 	public long getTorReachabilityPeriod() {
 		return 10_000;
 	}
+
+	@Override
+	public int getMaxConcurrentTransfers() {
+		return MailboxApiCaller.MAX_CONCURRENT_TRANSFERS;
+	}
+
+	@Override
+	public boolean shouldStreamTransfers() {
+		return true;
+	}
 }
@@ -1,11 +1,15 @@
 #!/bin/bash
 set -e
 
+# include the benchmarks module, which is disabled by default
+export BENCHMARKS=true
+
 PROJECTS=(
     'bramble-api'
     'bramble-core'
     'bramble-android'
     'bramble-java'
+    'bramble-benchmarks'
     'briar-api'
     'briar-core'
     'briar-android'